@@ -0,0 +1,130 @@
+package qub;
+
+/**
+ * Installs a package version into the Qub folder so that other builds never see a partially
+ * installed version folder. The package's files are written to a staging folder and then
+ * published with an atomic rename, and installs of the same publisher/project are serialized by a
+ * lock file that also works across processes. Installs of different projects don't wait for each
+ * other.
+ */
+public class AtomicInstall implements AutoCloseable
+{
+    /**
+     * The name of the folder in a publisher folder that holds the staging folders and lock files
+     * of that publisher's projects.
+     */
+    static final String stagingFolderName = ".staging";
+    private static final String lockFileExtension = ".lock";
+
+    private final Folder versionFolder;
+    private final Folder stagingFolder;
+    private final NativeFiles.Lock lock;
+    private boolean published;
+
+    private AtomicInstall(Folder versionFolder, Folder stagingFolder, NativeFiles.Lock lock)
+    {
+        this.versionFolder = versionFolder;
+        this.stagingFolder = stagingFolder;
+        this.lock = lock;
+    }
+
+    /**
+     * Start installing the provided version folder. This waits for any other install of the same
+     * publisher/project to finish.
+     * @param versionFolder The Qub folder's publisher/project/version folder to install.
+     * @return The started install. It must be closed.
+     */
+    public static AtomicInstall begin(Folder versionFolder) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(versionFolder, "versionFolder");
+
+        final Folder projectFolder = versionFolder.getParentFolder();
+        final Folder publisherStagingFolder = projectFolder.getParentFolder().getFolder(stagingFolderName).getValue();
+        final Folder projectStagingFolder = publisherStagingFolder.getFolder(projectFolder.getName()).getValue();
+
+        final AtomicInstall result;
+        final NativeFiles.Lock lock = NativeFiles.lock(publisherStagingFolder.getFile(projectFolder.getName() + lockFileExtension).getValue());
+        try
+        {
+            // Only the lock holder stages this project, so anything that is already in the
+            // project's staging folder was left behind by an install that crashed.
+            if (projectStagingFolder.exists().getValue())
+            {
+                projectStagingFolder.delete();
+            }
+
+            final Folder stagingFolder = projectStagingFolder.getFolder(versionFolder.getName()).getValue();
+            stagingFolder.create();
+            result = new AtomicInstall(versionFolder, stagingFolder, lock);
+        }
+        catch (RuntimeException e)
+        {
+            lock.close();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not the version folder has already been installed.
+     */
+    public boolean versionExists()
+    {
+        return versionFolder.exists().getValue();
+    }
+
+    /**
+     * Get the folder that the package's files should be written to before they are published.
+     */
+    public Folder getStagingFolder()
+    {
+        return stagingFolder;
+    }
+
+    /**
+     * Publish the staging folder as the version folder.
+     * @return Whether or not the version folder was published. It isn't published if it already
+     *         exists.
+     */
+    public boolean publish() throws java.io.IOException
+    {
+        PreCondition.assertTrue(!published, "!published");
+
+        published = !versionExists() && NativeFiles.rename(stagingFolder, versionFolder);
+        return published;
+    }
+
+    /**
+     * Set the contents of the provided file so that readers see either its old contents or its new
+     * contents, but never a partially written file.
+     * @param file The file to set. It doesn't need to be in the version folder.
+     * @param contents The file's new contents.
+     */
+    public static void setContents(File file, byte[] contents) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNull(contents, "contents");
+
+        NativeFiles.replaceContents(file, contents);
+    }
+
+    /**
+     * Release the install's lock. If the version folder wasn't published, the staging folder is
+     * deleted.
+     */
+    @Override
+    public void close() throws java.io.IOException
+    {
+        try
+        {
+            if (!published && stagingFolder.exists().getValue())
+            {
+                stagingFolder.delete();
+            }
+        }
+        finally
+        {
+            lock.close();
+        }
+    }
+}
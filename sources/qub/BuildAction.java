@@ -5,6 +5,13 @@ package qub;
  */
 public class BuildAction implements Action
 {
+    /**
+     * The content hashes of the source files that have been read during each run, by the run's
+     * Console and then by the source file's path. A -watch run keeps its Console between builds,
+     * so only the files that SourceWatcher reports as changed are read and hashed again.
+     */
+    private static final java.util.Map<Console,java.util.Map<String,String>> runSourceFileHashes = new java.util.WeakHashMap<>();
+
     @Override
     public String getName()
     {
@@ -20,18 +27,41 @@ public class BuildAction implements Action
     @Override
     public String getArgumentUsage()
     {
-        return null;
+        return "[-compiler=<fork|inprocess>] [-watch] [-workspace]";
     }
 
     @Override
     public void run(Console console)
     {
         final boolean debug = QubCLI.parseDebug(console.getCommandLine());
+        final CompilerType compilerType = BuildAction.parseCompiler(console);
+        final boolean watch = BuildAction.parseWatch(console);
+        final boolean workspace = BuildAction.parseWorkspace(console);
 
-        run(console, debug);
+        if (watch && workspace)
+        {
+            console.writeLine("-watch can't be used with -workspace.");
+        }
+        else if (workspace)
+        {
+            Workspace.run(console, "Building", (Console projectConsole) -> BuildMetrics.record(projectConsole, "build", () -> run(projectConsole, debug, compilerType)));
+        }
+        else if (watch)
+        {
+            SourceWatcher.watch(console, () -> BuildMetrics.record(console, "build", () -> run(console, debug, compilerType)));
+        }
+        else
+        {
+            BuildMetrics.record(console, "build", () -> run(console, debug, compilerType));
+        }
     }
 
     public static boolean run(Console console, boolean debug)
+    {
+        return run(console, debug, CompilerType.InProcess);
+    }
+
+    public static boolean run(Console console, boolean debug, CompilerType compilerType)
     {
         boolean compilationSucceeded = false;
 
@@ -44,134 +74,116 @@ public class BuildAction implements Action
             final Folder javaOutputsFolder = projectJson.getJavaOutputsFolder();
             if (javaOutputsFolder != null)
             {
-                compilationSucceeded = true;
-
-                final Iterable<String> classpaths = projectJson.getAllClasspaths(QubCLI.getQubFolder(console));
-
-                boolean shouldCompileSources = true;
+                final Iterable<String> classpaths = projectJson.getAllClasspaths(QubCLI.getQubFolder(console), console);
+                final BuildCache buildCache = BuildCache.get(console);
+                final BuildTaskScheduler scheduler = new BuildTaskScheduler(Runtime.getRuntime().availableProcessors());
 
                 final Folder sourcesFolder = projectJson.getJavaSourcesFolder();
-                Folder sourceOutputsFolder = null;
+                final Folder sourceOutputsFolder = sourcesFolder == null ? null : javaOutputsFolder.getFolder(sourcesFolder.getName()).getValue();
+                final Value<CompileResult> sourcesCompileResult = new Value<>();
                 if (sourcesFolder != null)
                 {
-                    final Iterable<File> sourceFiles = projectJson.getJavaSourceFiles();
+                    final Iterable<File> sourceFiles;
+                    try (final Profiler.Span span = Profiler.start(console, "find source files"))
+                    {
+                        sourceFiles = projectJson.getJavaSourceFiles();
+                    }
+                    BuildMetrics.addCount(console, "sourceFiles", sourceFiles.getCount());
                     if (!sourceFiles.any())
                     {
                         console.writeLine("No source files found to compile.");
                     }
                     else
                     {
-                        sourceOutputsFolder = javaOutputsFolder.getFolder(sourcesFolder.getName()).getValue();
-
-                        shouldCompileSources = shouldCompile(sourcesFolder, sourceFiles, sourceOutputsFolder);
-                        if (!shouldCompileSources)
-                        {
-                            console.writeLine("No source files need to be compiled.");
-                        }
-                        else
+                        scheduler.addTask("compile-sources", () ->
                         {
                             final List<String> sourceClasspaths = ArrayList.fromValues(classpaths);
                             sourceClasspaths.add(sourceOutputsFolder.getPath().toString());
 
                             final String sourcesJavaVersion = projectJson.getJavaSourcesVersion();
-                            compilationSucceeded = compile("sources", console, sourceClasspaths, sourcesFolder, sourceFiles, sourceOutputsFolder, sourcesJavaVersion, debug);
-                        }
-
-                        if (shouldCompileSources && compilationSucceeded)
-                        {
-                            final String project = projectJson.getProject();
-                            if (project == null || project.isEmpty())
+                            final CompileResult compileResult = compileIncrementally("sources", console, sourceClasspaths, sourcesFolder, sourceFiles, sourceOutputsFolder, javaOutputsFolder, buildCache, sourcesJavaVersion, compilerType, debug, null);
+                            sourcesCompileResult.set(compileResult);
+                            if (!compileResult.compiledFiles)
                             {
-                                console.writeLine("Could not determine the desired jar file's name from the \"project\" property.");
+                                console.writeLine("No source files need to be compiled.");
                             }
-                            else
-                            {
-                                final File jarFile = javaOutputsFolder.getFile(project + ".jar").getValue();
-
-                                File manifestFile = null;
-                                final String mainClass = projectJson.getMainClass();
-                                if (mainClass != null)
-                                {
-                                    manifestFile = sourceOutputsFolder.getFile("META-INF/MANIFEST.MF").getValue();
-                                    final String manifestFileContents =
-                                        "Manifest-Version: 1.0\n" +
-                                        "Main-Class: " + mainClass + "\n";
-                                    manifestFile.setContents(CharacterEncoding.UTF_8.encode(manifestFileContents).getValue());
-                                }
-
-                                final ProcessBuilder jar = console.getProcessBuilder("jar").getValue();
-                                jar.setWorkingFolder(sourceOutputsFolder);
-                                jar.redirectOutput(console.getOutputAsByteWriteStream());
-                                jar.redirectError(console.getErrorAsByteWriteStream());
+                            return getStatus(compileResult);
+                        });
 
-                                String jarArguments = "cf";
-                                if (manifestFile != null)
-                                {
-                                    jarArguments += 'm';
-                                }
-                                jar.addArgument(jarArguments);
-
-                                jar.addArgument(jarFile.getPath().toString());
-
-                                if (manifestFile != null)
+                        final String mainClass = projectJson.getMainClass();
+                        scheduler.addTask("create-jar", () ->
+                        {
+                            BuildTaskStatus status = BuildTaskStatus.NothingToDo;
+                            if (sourcesCompileResult.get().compiledFiles)
+                            {
+                                final String project = projectJson.getProject();
+                                if (project == null || project.isEmpty())
                                 {
-                                    jar.addArgument(manifestFile.relativeTo(sourceOutputsFolder).toString());
+                                    console.writeLine("Could not determine the desired jar file's name from the \"project\" property.");
                                 }
-
-                                jar.addArgument(".");
-
-                                final Stopwatch stopwatch = console.getStopwatch();
-                                console.write("Creating sources jar file...");
-                                if (debug)
+                                else
                                 {
-                                    console.writeLine();
-                                    console.writeLine(jar.getCommand());
+                                    try (final Profiler.Span span = Profiler.start(console, "jar " + project + ".jar"))
+                                    {
+                                        status = createJarFile(console, buildCache, sourcesCompileResult.get(), sourceOutputsFolder, javaOutputsFolder, project + ".jar", mainClass, debug);
+                                    }
                                 }
-
-                                stopwatch.start();
-                                jar.run();
-                                final Duration jarFileCreationDuration = stopwatch.stop().toSeconds();
-
-                                console.writeLine(" Done (" + jarFileCreationDuration.toString("#.#") + ")");
                             }
-                        }
+                            return status;
+                        },
+                        "compile-sources");
                     }
                 }
 
-                if (compilationSucceeded)
+                final Folder testsFolder = projectJson.getJavaTestsFolder();
+                if (testsFolder != null)
                 {
-                    final Folder testsFolder = projectJson.getJavaTestsFolder();
-                    if (testsFolder != null)
+                    final Iterable<File> testFiles;
+                    try (final Profiler.Span span = Profiler.start(console, "find test files"))
                     {
-                        final Iterable<File> testFiles = projectJson.getJavaTestFiles();
-                        if (!testFiles.any())
-                        {
-                            console.writeLine("No test files found to compile.");
-                        }
-                        else
+                        testFiles = projectJson.getJavaTestFiles();
+                    }
+                    BuildMetrics.addCount(console, "testFiles", testFiles.getCount());
+                    if (!testFiles.any())
+                    {
+                        console.writeLine("No test files found to compile.");
+                    }
+                    else
+                    {
+                        final Function0<BuildTaskStatus> compileTests = () ->
                         {
                             final Folder testOutputsFolder = javaOutputsFolder.getFolder(testsFolder.getName()).getValue();
-                            final boolean shouldCompileTests = shouldCompileSources || shouldCompile(testsFolder, testFiles, testOutputsFolder);
-                            if (!shouldCompileTests)
+                            final String testsJavaVersion = projectJson.getJavaTestsVersion();
+
+                            final List<String> testClasspaths = ArrayList.fromValues(classpaths);
+                            testClasspaths.add(testOutputsFolder.getPath().toString());
+                            if (sourceOutputsFolder != null)
                             {
-                                console.writeLine("No test files need to be compiled.");
+                                testClasspaths.add(sourceOutputsFolder.getPath().toString());
                             }
-                            else
-                            {
-                                final String testsJavaVersion = projectJson.getJavaTestsVersion();
 
-                                final List<String> testClasspaths = ArrayList.fromValues(classpaths);
-                                testClasspaths.add(testOutputsFolder.getPath().toString());
-                                if (sourceOutputsFolder != null)
-                                {
-                                    testClasspaths.add(sourceOutputsFolder.getPath().toString());
-                                }
-
-                                compilationSucceeded = compile("tests", console, testClasspaths, testsFolder, testFiles, testOutputsFolder, testsJavaVersion, debug);
+                            // There is no sources result when there are no source files to compile.
+                            final CompileResult upstream = sourcesCompileResult.hasValue() ? sourcesCompileResult.get() : null;
+                            final CompileResult testsCompileResult = compileIncrementally("tests", console, testClasspaths, testsFolder, testFiles, testOutputsFolder, javaOutputsFolder, buildCache, testsJavaVersion, compilerType, debug, upstream);
+                            if (!testsCompileResult.compiledFiles)
+                            {
+                                console.writeLine("No test files need to be compiled.");
                             }
+                            return getStatus(testsCompileResult);
+                        };
+
+                        if (scheduler.containsTask("compile-sources"))
+                        {
+                            scheduler.addTask("compile-tests", compileTests, "compile-sources");
+                        }
+                        else
+                        {
+                            scheduler.addTask("compile-tests", compileTests);
                         }
                     }
                 }
+
+                compilationSucceeded = scheduler.run(console);
             }
         }
 
@@ -181,108 +193,655 @@ public class BuildAction implements Action
         return compilationSucceeded;
     }
 
-    private static boolean shouldCompile(Folder sourceFileFolder, Iterable<File> sourceFiles, Folder outputFolder)
+    private static BuildTaskStatus getStatus(CompileResult compileResult)
     {
-        return sourceFiles.contains((File sourceFile) ->
+        return !compileResult.succeeded ? BuildTaskStatus.Failed
+            : compileResult.compiledFiles ? BuildTaskStatus.Succeeded
+            : BuildTaskStatus.NothingToDo;
+    }
+
+    /**
+     * Create the jar file that contains the compiled source files, or restore it from the
+     * BuildCache if it has already been created from the same compiled source files.
+     * @param buildCache The cache that the jar file is restored from and stored in, or null if
+     *                   there is no cache.
+     */
+    private static BuildTaskStatus createJarFile(Console console, BuildCache buildCache, CompileResult sourcesCompileResult, Folder sourceOutputsFolder, Folder jarFolder, String jarFileName, String mainClass, boolean debug)
+    {
+        BuildTaskStatus status;
+
+        final File jarFile = jarFolder.getFile(jarFileName).getValue();
+        final String jarCacheKey = ContentHash.of(sourcesCompileResult.cacheKey + "\n" + jarFileName + "\n" + mainClass);
+        boolean restoredJarFile = false;
+        if (buildCache != null)
+        {
+            try
+            {
+                restoredJarFile = buildCache.restore(jarCacheKey, jarFolder) != null;
+            }
+            catch (java.io.IOException e)
+            {
+                if (debug)
+                {
+                    console.writeLine("Failed to restore the sources jar file from the build cache: " + e);
+                }
+            }
+        }
+
+        if (restoredJarFile)
         {
-            final Path relativePath = sourceFile.relativeTo(sourceFileFolder);
-            final File classFile = outputFolder.getFile(relativePath.withoutFileExtension().concatenate(".class")).getValue();
-            boolean needsCompile;
-            if (!classFile.exists().getValue())
+            BuildMetrics.addCount(console, "cacheHits", 1);
+            console.writeLine("Restored sources jar file from the build cache.");
+            status = BuildTaskStatus.Succeeded;
+        }
+        else
+        {
+            final JarFileWriter jarFileWriter = new JarFileWriter()
+                .setMainClass(mainClass);
+            boolean wroteJarFile = false;
+            try
+            {
+                final int writtenEntryCount = jarFileWriter.write(sourceOutputsFolder, jarFile);
+                if (debug)
+                {
+                    console.writeLine("Wrote " + writtenEntryCount + " entries to " + jarFile.getPath().toString() + ".");
+                }
+                wroteJarFile = true;
+                BuildMetrics.addCount(console, "bytesWritten", NativeFiles.getSize(jarFile));
+            }
+            catch (java.io.IOException e)
+            {
+                console.writeLine("Failed to write " + jarFile.getPath().toString() + ": " + e);
+            }
+
+            if (!wroteJarFile)
             {
-                needsCompile = true;
+                status = BuildTaskStatus.Failed;
             }
             else
             {
-                needsCompile = sourceFile.getLastModified().getValue().greaterThan(classFile.getLastModified().getValue());
+                status = BuildTaskStatus.Succeeded;
+                if (buildCache != null)
+                {
+                    final List<String> jarFilePaths = new ArrayList<>();
+                    jarFilePaths.add(jarFileName);
+                    try
+                    {
+                        buildCache.store(jarCacheKey, jarFolder, jarFilePaths, Map.<String,String>create());
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        if (debug)
+                        {
+                            console.writeLine("Failed to store the sources jar file in the build cache: " + e);
+                        }
+                    }
+                }
             }
-            return needsCompile;
-        });
+        }
+
+        return status;
     }
 
-    private static boolean compile(String label, Console console, Iterable<String> classpaths, Folder folderToCompile, Iterable<File> filesToCompile, Folder outputFolder, String javaVersion, boolean debug)
+    /**
+     * The result of compiling one of a project's source folders.
+     */
+    static class CompileResult
     {
-        final Stopwatch stopwatch = console.getStopwatch();
-        console.write("Compiling " + label + "...");
-        if (debug)
+        /**
+         * Whether or not every javac invocation succeeded.
+         */
+        boolean succeeded = true;
+
+        /**
+         * Whether or not any files were compiled.
+         */
+        boolean compiledFiles;
+
+        /**
+         * Whether or not every file that depends on this folder's classes must be recompiled,
+         * regardless of what the class references say.
+         */
+        boolean requiresFullRecompile;
+
+        /**
+         * Whether or not the outputs were restored from the BuildCache instead of compiled.
+         */
+        boolean restoredFromCache;
+
+        /**
+         * The key of the BuildCache entry for the folder's current inputs.
+         */
+        String cacheKey;
+
+        /**
+         * The internal names of the classes whose ABI changed or that were removed.
+         */
+        final java.util.Set<String> changedClassNames = new java.util.TreeSet<>();
+    }
+
+    /**
+     * Compile the source files in the provided folder that changed since the last build, plus the
+     * source files that depend on classes whose ABI changed as a result. A source file has changed
+     * if its content hash differs from the one in the folder's BuildState, and every source file
+     * has changed if the compiler settings or the classpath's jar files changed.
+     * @param javaOutputsFolder The folder that the folder's BuildState and ClassDependencyGraph are
+     *                          stored in.
+     * @param buildCache The cache that the folder's outputs are restored from when they have
+     *                   already been built with the same inputs, and stored in otherwise, or
+     *                   null if there is no cache.
+     * @param upstream The result of compiling the folder that this folder depends on, or null if
+     *                 this folder doesn't depend on another compiled folder.
+     */
+    static CompileResult compileIncrementally(String label, Console console, Iterable<String> classpaths, Folder folderToCompile, Iterable<File> sourceFiles, Folder outputFolder, Folder javaOutputsFolder, BuildCache buildCache, String javaVersion, CompilerType compilerType, boolean debug, CompileResult upstream)
+    {
+        final CompileResult result = new CompileResult();
+
+        final java.util.Map<String,File> sourceFilesByPath = new java.util.TreeMap<>();
+        final java.util.Map<String,String> sourceFileHashes = new java.util.TreeMap<>();
+        try (final Profiler.Span span = Profiler.start(console, "hash " + label))
         {
-            console.writeLine();
+            for (final File sourceFile : sourceFiles)
+            {
+                final String sourceFilePath = getRelativePathString(sourceFile, folderToCompile);
+                sourceFilesByPath.put(sourceFilePath, sourceFile);
+                sourceFileHashes.put(sourceFilePath, getSourceFileHash(console, sourceFile));
+            }
         }
-        stopwatch.start();
 
-        final ProcessBuilder javac = console.getProcessBuilder("javac.exe").getValue();
+        final List<String> javacOptions = getJavacOptions(console, classpaths, outputFolder, javaVersion);
+        final String projectFolderPath = console.getCurrentFolder().getValue().getPath().toString();
+        final String settingsHash = getSettingsHash(console, javacOptions, classpaths, projectFolderPath);
+        result.cacheKey = getCacheKey(folderToCompile.getName(), settingsHash, sourceFileHashes, upstream);
 
-        final Value<Boolean> wroteNewLineBeforeOutputOrError = new Value<>();
+        final File classGraphFile = javaOutputsFolder.getFile(folderToCompile.getName() + ".classgraph").getValue();
+        final File buildStateFile = javaOutputsFolder.getFile(folderToCompile.getName() + ".buildstate").getValue();
 
-        final ByteWriteStream consoleOutput = console.getOutputAsByteWriteStream();
-        javac.redirectOutput(new ByteWriteStream()
+        boolean stateChanged = false;
+        final java.util.Set<String> filesToCompile = new java.util.TreeSet<>();
+        ClassDependencyGraph graph = ClassDependencyGraph.read(classGraphFile);
+        BuildState buildState = BuildState.read(buildStateFile);
+        if (graph == null || buildState == null || !settingsHash.equals(buildState.getSettingsHash()) || (upstream != null && upstream.requiresFullRecompile))
         {
-            @Override
-            public Result<Integer> writeBytes(byte[] bytes, int startIndex, int length)
+            if (debug && buildState != null && !settingsHash.equals(buildState.getSettingsHash()))
             {
-                if (!wroteNewLineBeforeOutputOrError.hasValue())
+                console.writeLine("The compiler settings or classpath changed, so all " + label + " will be compiled.");
+            }
+
+            graph = new ClassDependencyGraph();
+            buildState = new BuildState();
+            buildState.setSettingsHash(settingsHash);
+            result.requiresFullRecompile = true;
+            filesToCompile.addAll(sourceFilesByPath.keySet());
+        }
+        else
+        {
+            for (final String graphSourceFilePath : new java.util.ArrayList<>(graph.getSourceFilePaths()))
+            {
+                if (!sourceFilesByPath.containsKey(graphSourceFilePath))
                 {
-                    wroteNewLineBeforeOutputOrError.set(true);
-                    consoleOutput.asLineWriteStream(console.getLineSeparator()).writeLine();
+                    for (final ClassFile deletedClass : graph.removeSourceFile(graphSourceFilePath))
+                    {
+                        outputFolder.getFile(deletedClass.getClassName() + ".class").getValue().delete();
+                        result.changedClassNames.add(deletedClass.getClassName());
+                    }
+                    buildState.removeSourceFile(graphSourceFilePath);
+                    stateChanged = true;
                 }
-                return consoleOutput.writeBytes(bytes, startIndex, length);
             }
 
-            @Override
-            public boolean isDisposed()
+            try (final Profiler.Span span = Profiler.start(console, "shouldCompile " + label))
             {
-                return consoleOutput.isDisposed();
+                for (final String sourceFilePath : sourceFilesByPath.keySet())
+                {
+                    if (shouldCompile(sourceFileHashes.get(sourceFilePath), buildState.getSourceFileHash(sourceFilePath), outputFolder, graph.getClasses(sourceFilePath)))
+                    {
+                        filesToCompile.add(sourceFilePath);
+                    }
+                }
             }
 
-            @Override
-            public Result<Boolean> dispose()
+            final java.util.Set<String> changedClassNames = new java.util.TreeSet<>(result.changedClassNames);
+            if (upstream != null)
             {
-                return consoleOutput.dispose();
+                changedClassNames.addAll(upstream.changedClassNames);
+            }
+            for (final String dependentSourceFilePath : graph.getDependentSourceFilePaths(changedClassNames))
+            {
+                if (sourceFilesByPath.containsKey(dependentSourceFilePath))
+                {
+                    filesToCompile.add(dependentSourceFilePath);
+                }
             }
-        });
+        }
 
-        final ByteWriteStream consoleError = console.getErrorAsByteWriteStream();
-        javac.redirectError(new ByteWriteStream()
+        final CachedState cachedState = filesToCompile.isEmpty() || buildCache == null
+            ? null
+            : restoreFromCache(label, console, buildCache, result.cacheKey, outputFolder, debug);
+        if (cachedState != null)
         {
-            @Override
-            public Result<Integer> writeBytes(byte[] bytes, int startIndex, int length)
+            // The restored class files belong to the cached graph, so the stale class file sweep
+            // and the state files must use it instead of the local state.
+            graph = cachedState.graph;
+            buildState = cachedState.buildState;
+            stateChanged = true;
+            result.compiledFiles = true;
+            result.restoredFromCache = true;
+            BuildMetrics.addCount(console, "cacheHits", 1);
+            result.requiresFullRecompile = true;
+            filesToCompile.clear();
+        }
+
+        final java.util.Set<String> compiledFiles = new java.util.TreeSet<>();
+        String roundLabel = label;
+        while (result.succeeded && !filesToCompile.isEmpty())
+        {
+            final java.util.Map<String,java.util.List<ClassFile>> previousClasses = new java.util.TreeMap<>();
+            final List<File> roundFiles = new ArrayList<>();
+            for (final String sourceFilePath : filesToCompile)
             {
-                if (!wroteNewLineBeforeOutputOrError.hasValue())
+                roundFiles.add(sourceFilesByPath.get(sourceFilePath));
+
+                // Delete the previous class files so that classes that are no longer declared in
+                // the source file don't linger in the outputs folder.
+                final java.util.List<ClassFile> sourceFilePreviousClasses = graph.removeSourceFile(sourceFilePath);
+                for (final ClassFile previousClass : sourceFilePreviousClasses)
                 {
-                    wroteNewLineBeforeOutputOrError.set(true);
-                    consoleOutput.asLineWriteStream(console.getLineSeparator()).writeLine();
+                    outputFolder.getFile(previousClass.getClassName() + ".class").getValue().delete();
                 }
-                return consoleOutput.writeBytes(bytes, startIndex, length);
+                previousClasses.put(sourceFilePath, sourceFilePreviousClasses);
+                buildState.removeSourceFile(sourceFilePath);
             }
+            stateChanged = true;
 
-            @Override
-            public boolean isDisposed()
+            try (final Profiler.Span span = Profiler.start(console, "javac " + roundLabel))
             {
-                return consoleError.isDisposed();
+                result.succeeded = compile(roundLabel, console, javacOptions, roundFiles, outputFolder, compilerType, debug);
             }
+            result.compiledFiles = true;
+            compiledFiles.addAll(filesToCompile);
+            BuildMetrics.addCount(console, "compiledFiles", filesToCompile.size());
 
-            @Override
-            public Result<Boolean> dispose()
+            if (result.succeeded)
+            {
+                for (final String sourceFilePath : filesToCompile)
+                {
+                    buildState.setSourceFileHash(sourceFilePath, sourceFileHashes.get(sourceFilePath));
+                }
+
+                boolean constantsChanged = false;
+                final java.util.Set<String> roundChangedClassNames = new java.util.TreeSet<>();
+                final java.util.Map<String,java.util.List<ClassFile>> compiledClasses = readCompiledClasses(outputFolder, filesToCompile, graph);
+                for (final java.util.Map.Entry<String,java.util.List<ClassFile>> entry : compiledClasses.entrySet())
+                {
+                    final java.util.Map<String,ClassFile> sourceFilePreviousClasses = new java.util.TreeMap<>();
+                    for (final ClassFile previousClass : previousClasses.get(entry.getKey()))
+                    {
+                        sourceFilePreviousClasses.put(previousClass.getClassName(), previousClass);
+                    }
+
+                    for (final ClassFile compiledClass : entry.getValue())
+                    {
+                        final ClassFile previousClass = sourceFilePreviousClasses.remove(compiledClass.getClassName());
+                        if (previousClass == null || !previousClass.getAbiHash().equals(compiledClass.getAbiHash()))
+                        {
+                            roundChangedClassNames.add(compiledClass.getClassName());
+                        }
+                        if (previousClass != null && !previousClass.getConstantsHash().equals(compiledClass.getConstantsHash()))
+                        {
+                            constantsChanged = true;
+                        }
+                    }
+
+                    for (final ClassFile removedClass : sourceFilePreviousClasses.values())
+                    {
+                        roundChangedClassNames.add(removedClass.getClassName());
+                        if (!removedClass.getConstantsHash().equals(ContentHash.of("")))
+                        {
+                            constantsChanged = true;
+                        }
+                    }
+
+                    graph.setClasses(entry.getKey(), entry.getValue());
+                }
+                result.changedClassNames.addAll(roundChangedClassNames);
+
+                filesToCompile.clear();
+                if (constantsChanged && !result.requiresFullRecompile)
+                {
+                    // Compile-time constants are inlined into the classes that use them, so their
+                    // users can't be found through class references.
+                    result.requiresFullRecompile = true;
+                    filesToCompile.addAll(sourceFilesByPath.keySet());
+                    filesToCompile.removeAll(compiledFiles);
+                }
+                else
+                {
+                    for (final String dependentSourceFilePath : graph.getDependentSourceFilePaths(roundChangedClassNames))
+                    {
+                        if (sourceFilesByPath.containsKey(dependentSourceFilePath) && !compiledFiles.contains(dependentSourceFilePath))
+                        {
+                            filesToCompile.add(dependentSourceFilePath);
+                        }
+                    }
+                }
+                roundLabel = "dependent " + label;
+            }
+        }
+
+        // The downstream graph doesn't know which of these classes extend the changed classes, so
+        // the subtypes are reported as changed too.
+        result.changedClassNames.addAll(graph.getSubtypeClassNames(result.changedClassNames));
+
+        if (result.succeeded && result.requiresFullRecompile)
+        {
+            try (final Profiler.Span span = Profiler.start(console, "delete stale " + label + " classes"))
+            {
+                deleteStaleClassFiles(outputFolder, graph);
+            }
+        }
+
+        if (stateChanged)
+        {
+            graph.write(classGraphFile);
+            buildState.write(buildStateFile);
+        }
+
+        if (result.succeeded && result.compiledFiles && !result.restoredFromCache && buildCache != null)
+        {
+            storeInCache(label, console, buildCache, result.cacheKey, outputFolder, graph, buildState, debug);
+        }
+
+        return result;
+    }
+
+    private static String getSourceFileHash(Console console, File sourceFile)
+    {
+        final java.util.Map<String,String> sourceFileHashes;
+        synchronized (runSourceFileHashes)
+        {
+            sourceFileHashes = runSourceFileHashes.computeIfAbsent(console, (Console key) -> new java.util.HashMap<>());
+        }
+
+        final String sourceFilePath = sourceFile.getPath().toString().replace('\\', '/');
+        String result;
+        synchronized (sourceFileHashes)
+        {
+            result = sourceFileHashes.get(sourceFilePath);
+        }
+        if (result == null)
+        {
+            result = ContentHash.of(sourceFile.getContents().getValue());
+            synchronized (sourceFileHashes)
+            {
+                sourceFileHashes.put(sourceFilePath, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget the content hashes of the provided source files so that the next build of the
+     * provided Console's run reads them again.
+     * @param console The Console of the run.
+     * @param changedSourceFilePaths The paths of the source files that changed, or null if every
+     *                               source file may have changed.
+     */
+    static void forgetSourceFileHashes(Console console, java.lang.Iterable<String> changedSourceFilePaths)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        final java.util.Map<String,String> sourceFileHashes;
+        synchronized (runSourceFileHashes)
+        {
+            sourceFileHashes = runSourceFileHashes.get(console);
+        }
+        if (sourceFileHashes != null)
+        {
+            synchronized (sourceFileHashes)
+            {
+                if (changedSourceFilePaths == null)
+                {
+                    sourceFileHashes.clear();
+                }
+                else
+                {
+                    for (final String changedSourceFilePath : changedSourceFilePaths)
+                    {
+                        sourceFileHashes.remove(changedSourceFilePath.replace('\\', '/'));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String getRelativePathString(File file, Folder folder)
+    {
+        return file.relativeTo(folder).toString().replace('\\', '/');
+    }
+
+    /**
+     * Get whether or not a source file needs to be compiled.
+     * @param sourceFileHash The current content hash of the source file.
+     * @param compiledSourceFileHash The content hash of the source file when it was last compiled,
+     *                               or null if it hasn't been compiled.
+     * @param outputFolder The folder that the source file's classes are compiled to.
+     * @param sourceFileClasses The classes that the source file was compiled to by the last build.
+     * @return Whether or not the source file needs to be compiled.
+     */
+    private static boolean shouldCompile(String sourceFileHash, String compiledSourceFileHash, Folder outputFolder, java.util.List<ClassFile> sourceFileClasses)
+    {
+        boolean result = !sourceFileHash.equals(compiledSourceFileHash);
+        if (!result)
+        {
+            for (final ClassFile sourceFileClass : sourceFileClasses)
+            {
+                if (!outputFolder.getFile(sourceFileClass.getClassName() + ".class").getValue().exists().getValue())
+                {
+                    result = true;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the hash of everything besides the source files themselves that affects what javac
+     * produces: the javac options (which include the classpath and the Java version) and the
+     * contents of the jar files on the classpath. Paths inside the project folder are hashed
+     * relative to the project folder so that every checkout of the project has the same hash.
+     */
+    private static String getSettingsHash(Console console, Iterable<String> javacOptions, Iterable<String> classpaths, String projectFolderPath)
+    {
+        final StringBuilder settings = new StringBuilder();
+        for (final String javacOption : javacOptions)
+        {
+            settings.append(javacOption).append('\n');
+        }
+
+        final FileSystem fileSystem = console.getFileSystem();
+        for (final String classpath : classpaths)
+        {
+            if (classpath.endsWith(".jar"))
+            {
+                final File classpathFile = fileSystem.getFile(classpath).getValue();
+                final String classpathFileHash = classpathFile == null ? null : ContentHash.of(classpathFile);
+                settings.append(classpath).append('\t').append(classpathFileHash == null ? "missing" : classpathFileHash).append('\n');
+            }
+        }
+
+        return ContentHash.of(settings.toString().replace(projectFolderPath, "<project>"));
+    }
+
+    /**
+     * Get the key of the BuildCache entry that holds the outputs of compiling the provided source
+     * files with the provided settings.
+     */
+    private static String getCacheKey(String folderName, String settingsHash, java.util.Map<String,String> sourceFileHashes, CompileResult upstream)
+    {
+        final StringBuilder inputs = new StringBuilder();
+        inputs.append(folderName).append('\n');
+        inputs.append(settingsHash).append('\n');
+        if (upstream != null)
+        {
+            inputs.append(upstream.cacheKey).append('\n');
+        }
+        for (final java.util.Map.Entry<String,String> entry : sourceFileHashes.entrySet())
+        {
+            inputs.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        return ContentHash.of(inputs.toString());
+    }
+
+    /**
+     * The ClassDependencyGraph and BuildState that were stored with a BuildCache entry.
+     */
+    private static class CachedState
+    {
+        final ClassDependencyGraph graph;
+        final BuildState buildState;
+
+        CachedState(ClassDependencyGraph graph, BuildState buildState)
+        {
+            this.graph = graph;
+            this.buildState = buildState;
+        }
+    }
+
+    /**
+     * Replace the outputs of the provided folder with the outputs in the BuildCache entry with the
+     * provided key.
+     * @return The state that was stored with the restored outputs, or null if the outputs weren't
+     * restored.
+     */
+    private static CachedState restoreFromCache(String label, Console console, BuildCache buildCache, String cacheKey, Folder outputFolder, boolean debug)
+    {
+        CachedState result = null;
+        try
+        {
+            final Map<String,String> metadata = buildCache.restore(cacheKey, outputFolder);
+            if (metadata != null)
+            {
+                final ClassDependencyGraph cachedGraph = ClassDependencyGraph.parse(metadata.get("classgraph").getValue());
+                final BuildState cachedBuildState = BuildState.parse(metadata.get("buildstate").getValue());
+                if (cachedGraph != null && cachedBuildState != null)
+                {
+                    console.writeLine("Restored " + label + " from the build cache.");
+                    result = new CachedState(cachedGraph, cachedBuildState);
+                }
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            if (debug)
+            {
+                console.writeLine("Failed to restore " + label + " from the build cache: " + e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store the class files that are in the provided graph in the BuildCache entry with the
+     * provided key.
+     */
+    private static void storeInCache(String label, Console console, BuildCache buildCache, String cacheKey, Folder outputFolder, ClassDependencyGraph graph, BuildState buildState, boolean debug)
+    {
+        final List<String> classFilePaths = new ArrayList<>();
+        for (final String sourceFilePath : graph.getSourceFilePaths())
+        {
+            for (final ClassFile classFile : graph.getClasses(sourceFilePath))
+            {
+                classFilePaths.add(classFile.getClassName() + ".class");
+            }
+        }
+
+        final MutableMap<String,String> metadata = Map.create();
+        metadata.set("classgraph", graph.toString());
+        metadata.set("buildstate", buildState.toString());
+
+        try
+        {
+            buildCache.store(cacheKey, outputFolder, classFilePaths, metadata);
+        }
+        catch (java.io.IOException e)
+        {
+            if (debug)
+            {
+                console.writeLine("Failed to store " + label + " in the build cache: " + e);
+            }
+        }
+    }
+
+    /**
+     * Read the classes that were compiled from the provided source files.
+     * @param outputFolder The folder that the source files were compiled to.
+     * @param sourceFilePaths The paths of the source files that were compiled.
+     * @param graph The graph of the classes that weren't compiled from the provided source files.
+     * @return The classes that were compiled from each of the provided source files.
+     */
+    private static java.util.Map<String,java.util.List<ClassFile>> readCompiledClasses(Folder outputFolder, java.util.Set<String> sourceFilePaths, ClassDependencyGraph graph)
+    {
+        final java.util.Map<String,java.util.List<ClassFile>> result = new java.util.TreeMap<>();
+        final java.util.Set<String> packagePaths = new java.util.TreeSet<>();
+        for (final String sourceFilePath : sourceFilePaths)
+        {
+            result.put(sourceFilePath, new java.util.ArrayList<>());
+            packagePaths.add(sourceFilePath.substring(0, sourceFilePath.lastIndexOf('/') + 1));
+        }
+
+        for (final String packagePath : packagePaths)
+        {
+            final Folder packageFolder = packagePath.isEmpty()
+                ? outputFolder
+                : outputFolder.getFolder(packagePath.substring(0, packagePath.length() - 1)).getValue();
+            final Iterable<File> packageFiles = packageFolder.getFiles().getValue();
+            if (packageFiles != null)
             {
-                return consoleError.dispose();
+                for (final File packageFile : packageFiles)
+                {
+                    final String fileName = packageFile.getName();
+                    // Classes that the graph already attributes to other source files weren't
+                    // part of this compilation, so they don't need to be read.
+                    if (fileName.endsWith(".class") && graph.getClass(packagePath + fileName.substring(0, fileName.length() - ".class".length())) == null)
+                    {
+                        final ClassFile classFile = ClassFile.parse(packageFile.getContents().getValue());
+                        if (classFile != null && result.containsKey(classFile.getSourceFilePath()))
+                        {
+                            result.get(classFile.getSourceFilePath()).add(classFile);
+                        }
+                    }
+                }
             }
-        });
+        }
+
+        return result;
+    }
 
-        addNamedArgument(javac, "-classpath", String.join(";", classpaths));
-        addNamedArgument(javac, "-d", outputFolder.getPath().toString());
-        javac.addArgument("-g");
-        javac.addArgument("-Xlint:unchecked");
-        javac.addArgument("-Xlint:deprecation");
+    /**
+     * Get the javac options that the provided output folder's source files are compiled with.
+     */
+    private static List<String> getJavacOptions(Console console, Iterable<String> classpaths, Folder outputFolder, String javaVersion)
+    {
+        final List<String> javacArguments = new ArrayList<>();
+        addNamedArgument(javacArguments, "-classpath", String.join(";", classpaths));
+        addNamedArgument(javacArguments, "-d", outputFolder.getPath().toString());
+        javacArguments.add("-g");
+        javacArguments.add("-Xlint:unchecked");
+        javacArguments.add("-Xlint:deprecation");
 
         if (javaVersion != null && !javaVersion.isEmpty())
         {
-            javac.addArguments("-source", javaVersion);
-            javac.addArguments("-target", javaVersion);
+            javacArguments.add("-source");
+            javacArguments.add(javaVersion);
+            javacArguments.add("-target");
+            javacArguments.add(javaVersion);
 
             if (javaVersion.equals("1.8") || javaVersion.equals("8"))
             {
                 final Folder javaFolder = QubCLI.getJavaFolder(console);
-                addNamedArgument(javac, "-bootclasspath",
+                addNamedArgument(javacArguments, "-bootclasspath",
                     javaFolder.getPath().
                         concatenateSegment("jre1.8.0_192").
                         concatenateSegment("lib").
@@ -291,16 +850,61 @@ public class BuildAction implements Action
             }
         }
 
-        javac.addArguments(filesToCompile.map(FileSystemEntry::toString));
+        return javacArguments;
+    }
+
+    private static boolean compile(String label, Console console, List<String> javacArguments, Iterable<File> filesToCompile, Folder outputFolder, CompilerType compilerType, boolean debug)
+    {
+        console.writeLine("Compiling " + label + "...");
+
+        final Iterable<String> sourceFilePaths = filesToCompile.map(FileSystemEntry::toString);
 
-        if (debug)
+        if (compilerType == CompilerType.InProcess && !InProcessJavaCompiler.isAvailable())
         {
-            console.writeLine(javac.getCommand());
+            if (debug)
+            {
+                console.writeLine("No in-process Java compiler is available. Falling back to javac.exe.");
+            }
+            compilerType = CompilerType.Fork;
         }
 
         outputFolder.create();
-        final int exitCode = javac.run();
 
+        int exitCode;
+        if (compilerType == CompilerType.InProcess)
+        {
+            if (debug)
+            {
+                console.writeLine("javac (in-process) " + String.join(" ", javacArguments) + " " + String.join(" ", sourceFilePaths));
+            }
+
+            exitCode = InProcessJavaCompiler.compile(javacArguments, sourceFilePaths, createCompilerOutputStream(console, console.getOutputAsByteWriteStream()));
+        }
+        else
+        {
+            final ProcessBuilder javac = console.getProcessBuilder("javac.exe").getValue();
+            javac.redirectOutput(createCompilerOutputStream(console, console.getOutputAsByteWriteStream()));
+            javac.redirectError(createCompilerOutputStream(console, console.getErrorAsByteWriteStream()));
+            javac.addArguments(javacArguments);
+            javac.addArguments(sourceFilePaths);
+
+            if (debug)
+            {
+                console.writeLine(javac.getCommand());
+            }
+
+            exitCode = javac.run();
+        }
+
+        return exitCode == 0;
+    }
+
+    /**
+     * Delete the class files in the provided output folder that weren't compiled from any of the
+     * source files in the provided graph.
+     */
+    private static void deleteStaleClassFiles(Folder outputFolder, ClassDependencyGraph graph)
+    {
         final Iterable<File> outputFolderFiles = outputFolder.getFilesRecursively().getValue();
         if (outputFolderFiles != null)
         {
@@ -308,36 +912,86 @@ public class BuildAction implements Action
             {
                 if (outputFile.getFileExtension().equals(".class"))
                 {
-                    final Path relativeClassFilePath = outputFile.relativeTo(outputFolder).withoutFileExtension();
-
-                    final int dollarSignIndex = relativeClassFilePath.toString().indexOf('$');
-
-                    String relativeJavaFilePath = relativeClassFilePath.toString();
-                    if (dollarSignIndex >= 0)
-                    {
-                        relativeJavaFilePath = relativeJavaFilePath.substring(0, dollarSignIndex);
-                    }
-                    relativeJavaFilePath += ".java";
-
-                    if (!folderToCompile.fileExists(relativeJavaFilePath).getValue())
+                    final String className = getRelativePathString(outputFile, outputFolder);
+                    if (graph.getClass(className.substring(0, className.length() - ".class".length())) == null)
                     {
                         outputFile.delete();
                     }
                 }
             }
         }
+    }
+
+    /**
+     * Create a ByteWriteStream that writes the output of a compilation to the Console's output.
+     * @param console The Console that is running the compilation.
+     * @param lifetimeStream The Console stream that the returned stream's lifetime is tied to.
+     * @return The ByteWriteStream that the compiler's output should be written to.
+     */
+    private static ByteWriteStream createCompilerOutputStream(Console console, ByteWriteStream lifetimeStream)
+    {
+        final ByteWriteStream consoleOutput = console.getOutputAsByteWriteStream();
+        return new ByteWriteStream()
+        {
+            @Override
+            public Result<Integer> writeBytes(byte[] bytes, int startIndex, int length)
+            {
+                return consoleOutput.writeBytes(bytes, startIndex, length);
+            }
 
-        final Duration compilationDuration = stopwatch.stop().toSeconds();
-        console.writeLine(" Done (" + compilationDuration.toString("0.0") + ")");
+            @Override
+            public boolean isDisposed()
+            {
+                return lifetimeStream.isDisposed();
+            }
 
-        return exitCode == 0;
+            @Override
+            public Result<Boolean> dispose()
+            {
+                return lifetimeStream.dispose();
+            }
+        };
     }
 
-    private static void addNamedArgument(ProcessBuilder builder, String argumentName, String argumentValue)
+    private static void addNamedArgument(List<String> arguments, String argumentName, String argumentValue)
     {
         if (argumentValue != null && !argumentValue.isEmpty())
         {
-            builder.addArguments(argumentName, argumentValue);
+            arguments.add(argumentName);
+            arguments.add(argumentValue);
+        }
+    }
+
+    static CompilerType parseCompiler(Console console)
+    {
+        CompilerType result = CompilerType.InProcess;
+
+        final CommandLineArgument compilerArgument = console.getCommandLine().remove("compiler");
+        if (compilerArgument != null)
+        {
+            final CompilerType compilerType = CompilerType.parse(compilerArgument.getValue());
+            if (compilerType == null)
+            {
+                console.writeLine("Unrecognized compiler: " + Strings.escapeAndQuote(compilerArgument.getValue()) + ". Expected \"fork\" or \"inprocess\".");
+            }
+            else
+            {
+                result = compilerType;
+            }
         }
+
+        return result;
+    }
+
+    static boolean parseWatch(Console console)
+    {
+        final CommandLineArgument watchArgument = console.getCommandLine().remove("watch");
+        return watchArgument != null && (watchArgument.getValue() == null || watchArgument.getValue().equalsIgnoreCase("true"));
+    }
+
+    static boolean parseWorkspace(Console console)
+    {
+        final CommandLineArgument workspaceArgument = console.getCommandLine().remove("workspace");
+        return workspaceArgument != null && (workspaceArgument.getValue() == null || workspaceArgument.getValue().equalsIgnoreCase("true"));
     }
 }
@@ -0,0 +1,408 @@
+package qub;
+
+/**
+ * A machine-wide, content-addressable cache of build outputs. Each entry is stored under the hash
+ * of the inputs that produced it, so every checkout of a project that builds the same inputs can
+ * restore the outputs instead of building them again. When the cache grows past its maximum size,
+ * the entries that were used least recently are evicted.
+ */
+public class BuildCache
+{
+    /**
+     * The default maximum number of bytes that the cache's entries can use.
+     */
+    public static final long defaultMaxSizeInBytes = 1024L * 1024L * 1024L;
+
+    private static final String filesFolderName = "files";
+    private static final String metadataFileName = "metadata.properties";
+    private static final String lastUsedFileName = "lastused";
+    private static final String statisticsFileName = "statistics.properties";
+    private static final String statisticsLockFileName = "statistics.lock";
+    private static final String hitsStatistic = "hits";
+    private static final String missesStatistic = "misses";
+
+    /**
+     * Unfinished entries that are older than this were abandoned by a build that didn't finish.
+     */
+    private static final long abandonedEntryAgeInMilliseconds = 60L * 60L * 1000L;
+
+    private final Folder folder;
+    private final long maxSizeInBytes;
+
+    /**
+     * Create a new BuildCache that stores its entries in the provided folder.
+     * @param folder The folder that the cache's entries are stored in.
+     * @param maxSizeInBytes The maximum number of bytes that the cache's entries can use.
+     */
+    public BuildCache(Folder folder, long maxSizeInBytes)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+        PreCondition.assertTrue(maxSizeInBytes > 0, "maxSizeInBytes > 0");
+
+        this.folder = folder;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Get whether or not the machine-wide BuildCache can be stored in the provided Qub folder. It
+     * is shared by every checkout on the machine, so the folder must be on the real file system.
+     */
+    public static boolean canCache(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        return NativeFiles.isNative(qubFolder);
+    }
+
+    /**
+     * Get the BuildCache that is shared by every project on this machine.
+     * @param console The Console that is building.
+     * @return The BuildCache that is shared by every project on this machine, or null if the
+     *         Console's Qub folder isn't on the real file system.
+     */
+    public static BuildCache get(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        BuildCache result = null;
+        final Folder qubFolder = QubCLI.getQubFolder(console);
+        if (canCache(qubFolder))
+        {
+            result = new BuildCache(qubFolder.getFolder("cache").getValue().getFolder("builds").getValue(), defaultMaxSizeInBytes);
+        }
+        return result;
+    }
+
+    public Folder getFolder()
+    {
+        return folder;
+    }
+
+    public long getMaxSizeInBytes()
+    {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * Copy the files of the entry with the provided key into the provided folder.
+     * @param key The hash of the inputs that produced the entry.
+     * @param targetFolder The folder to copy the entry's files into. Files in the folder that
+     *                     have the same relative path as one of the entry's files are replaced.
+     * @return The entry's metadata, or null if the cache doesn't contain an entry with the key.
+     */
+    public Map<String,String> restore(String key, Folder targetFolder) throws java.io.IOException
+    {
+        PreCondition.assertNotNullAndNotEmpty(key, "key");
+        PreCondition.assertNotNull(targetFolder, "targetFolder");
+
+        Map<String,String> result = null;
+
+        final Folder entryFolder = folder.getFolder(key).getValue();
+        if (entryFolder.exists().getValue())
+        {
+            final Map<String,String> metadata = readProperties(entryFolder.getFile(metadataFileName).getValue());
+
+            final Folder entryFilesFolder = entryFolder.getFolder(filesFolderName).getValue();
+            if (entryFilesFolder.exists().getValue())
+            {
+                for (final File entryFile : entryFilesFolder.getFilesRecursively().getValue())
+                {
+                    final String relativePath = entryFile.getPath().relativeTo(entryFilesFolder.getPath()).toString();
+                    targetFolder.getFile(relativePath).getValue().setContents(getContents(entryFile));
+                }
+            }
+
+            writeLastUsed(entryFolder);
+            result = metadata;
+        }
+
+        recordLookup(result != null);
+
+        return result;
+    }
+
+    /**
+     * Store a new entry in the cache. If the cache already contains an entry with the provided
+     * key, then the cache is not changed.
+     * @param key The hash of the inputs that produced the entry's files.
+     * @param sourceFolder The folder that contains the entry's files.
+     * @param relativeFilePaths The paths of the entry's files relative to the source folder.
+     * @param metadata Additional values to store with the entry.
+     * @return Whether or not a new entry was stored.
+     */
+    public boolean store(String key, Folder sourceFolder, Iterable<String> relativeFilePaths, Map<String,String> metadata) throws java.io.IOException
+    {
+        PreCondition.assertNotNullAndNotEmpty(key, "key");
+        PreCondition.assertNotNull(sourceFolder, "sourceFolder");
+        PreCondition.assertNotNull(relativeFilePaths, "relativeFilePaths");
+        PreCondition.assertNotNull(metadata, "metadata");
+
+        boolean result = false;
+
+        final Folder entryFolder = folder.getFolder(key).getValue();
+        if (!entryFolder.exists().getValue())
+        {
+            // Build the entry in a separate folder and then rename it into place so that other
+            // builds never see a partially written entry. The last used file is written first so
+            // that an unfinished entry that is abandoned can be recognized by its age.
+            final Folder unfinishedEntryFolder = folder.getFolder(key + "." + java.util.UUID.randomUUID()).getValue();
+            try
+            {
+                writeLastUsed(unfinishedEntryFolder);
+
+                final Folder unfinishedFilesFolder = unfinishedEntryFolder.getFolder(filesFolderName).getValue();
+                for (final String relativeFilePath : relativeFilePaths)
+                {
+                    unfinishedFilesFolder.getFile(relativeFilePath).getValue().setContents(getContents(sourceFolder.getFile(relativeFilePath).getValue()));
+                }
+                writeProperties(unfinishedEntryFolder.getFile(metadataFileName).getValue(), metadata);
+
+                // If the rename fails, then another build stored the same entry first.
+                result = NativeFiles.rename(unfinishedEntryFolder, entryFolder);
+            }
+            finally
+            {
+                if (unfinishedEntryFolder.exists().getValue())
+                {
+                    unfinishedEntryFolder.delete();
+                }
+            }
+
+            if (result)
+            {
+                prune(maxSizeInBytes);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the entries that are in this cache.
+     * @return The entries that are in this cache, ordered from least to most recently used.
+     */
+    public List<Entry> getEntries() throws java.io.IOException
+    {
+        final java.util.List<Entry> entries = new java.util.ArrayList<>();
+        if (folder.exists().getValue())
+        {
+            for (final Folder entryFolder : folder.getFolders().getValue())
+            {
+                if (isEntryFolderName(entryFolder.getName()))
+                {
+                    entries.add(new Entry(entryFolder.getName(), getSizeInBytes(entryFolder), readLastUsed(entryFolder)));
+                }
+            }
+        }
+        entries.sort(java.util.Comparator.comparingLong(Entry::getLastUsedMilliseconds));
+
+        final List<Entry> result = new ArrayList<>();
+        for (final Entry entry : entries)
+        {
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Evict the least recently used entries until the cache's entries use no more than the
+     * provided number of bytes. Unfinished entries that were abandoned by builds that didn't
+     * finish are removed as well.
+     * @param maxSizeInBytes The maximum number of bytes that the remaining entries can use.
+     * @return The entries that were evicted.
+     */
+    public List<Entry> prune(long maxSizeInBytes) throws java.io.IOException
+    {
+        PreCondition.assertTrue(maxSizeInBytes >= 0, "maxSizeInBytes >= 0");
+
+        final List<Entry> result = new ArrayList<>();
+
+        final List<Entry> entries = getEntries();
+        long totalSizeInBytes = 0;
+        for (final Entry entry : entries)
+        {
+            totalSizeInBytes += entry.getSizeInBytes();
+        }
+
+        for (final Entry entry : entries)
+        {
+            if (totalSizeInBytes <= maxSizeInBytes)
+            {
+                break;
+            }
+            folder.getFolder(entry.getKey()).getValue().delete();
+            totalSizeInBytes -= entry.getSizeInBytes();
+            result.add(entry);
+        }
+
+        if (folder.exists().getValue())
+        {
+            final long abandonedBefore = System.currentTimeMillis() - abandonedEntryAgeInMilliseconds;
+            for (final Folder childFolder : folder.getFolders().getValue())
+            {
+                if (!isEntryFolderName(childFolder.getName()) && readLastUsed(childFolder) < abandonedBefore)
+                {
+                    childFolder.delete();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the number of lookups that found an entry.
+     */
+    public long getHits() throws java.io.IOException
+    {
+        return getStatistic(readProperties(folder.getFile(statisticsFileName).getValue()), hitsStatistic);
+    }
+
+    /**
+     * Get the number of lookups that didn't find an entry.
+     */
+    public long getMisses() throws java.io.IOException
+    {
+        return getStatistic(readProperties(folder.getFile(statisticsFileName).getValue()), missesStatistic);
+    }
+
+    private static long getStatistic(Map<String,String> statistics, String statisticName)
+    {
+        final String statistic = statistics.get(statisticName).getValue();
+        return statistic == null ? 0 : Long.parseLong(statistic);
+    }
+
+    private void recordLookup(boolean hit) throws java.io.IOException
+    {
+        // Several builds can share the cache at the same time, so the statistics file is only
+        // updated while the statistics lock is held.
+        try (final NativeFiles.Lock ignored = NativeFiles.lock(folder.getFile(statisticsLockFileName).getValue()))
+        {
+            final File statisticsFile = folder.getFile(statisticsFileName).getValue();
+            final MutableMap<String,String> statistics = readProperties(statisticsFile);
+
+            final String statisticName = hit ? hitsStatistic : missesStatistic;
+            statistics.set(statisticName, Long.toString(getStatistic(statistics, statisticName) + 1));
+
+            writeProperties(statisticsFile, statistics);
+        }
+    }
+
+    /**
+     * Finished entries are named by their key. Unfinished entries have a '.' in their names.
+     */
+    private static boolean isEntryFolderName(String folderName)
+    {
+        return folderName.indexOf('.') == -1;
+    }
+
+    /**
+     * Get the time that the provided entry folder was stored or last restored, in milliseconds
+     * since the epoch. An entry without a last used time is treated as the oldest entry.
+     */
+    private static long readLastUsed(Folder entryFolder)
+    {
+        long result = 0;
+        final byte[] lastUsedBytes = entryFolder.getFile(lastUsedFileName).getValue().getContents().getValue();
+        if (lastUsedBytes != null)
+        {
+            try
+            {
+                result = Long.parseLong(new String(lastUsedBytes, java.nio.charset.StandardCharsets.UTF_8).trim());
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+        }
+        return result;
+    }
+
+    private static void writeLastUsed(Folder entryFolder)
+    {
+        entryFolder.getFile(lastUsedFileName).getValue().setContents(Long.toString(System.currentTimeMillis()).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    private static long getSizeInBytes(Folder folder) throws java.io.IOException
+    {
+        long result = 0;
+        for (final File file : folder.getFilesRecursively().getValue())
+        {
+            result += NativeFiles.getSize(file);
+        }
+        return result;
+    }
+
+    private static byte[] getContents(File file) throws java.io.IOException
+    {
+        final byte[] result = file.getContents().getValue();
+        if (result == null)
+        {
+            throw new java.io.IOException("Could not read " + file.getPath() + ".");
+        }
+        return result;
+    }
+
+    private static MutableMap<String,String> readProperties(File propertiesFile) throws java.io.IOException
+    {
+        final MutableMap<String,String> result = Map.create();
+        if (propertiesFile.exists().getValue())
+        {
+            final java.util.Properties properties = new java.util.Properties();
+            properties.load(new java.io.ByteArrayInputStream(getContents(propertiesFile)));
+            for (final String propertyName : new java.util.TreeSet<>(properties.stringPropertyNames()))
+            {
+                result.set(propertyName, properties.getProperty(propertyName));
+            }
+        }
+        return result;
+    }
+
+    private static void writeProperties(File propertiesFile, Map<String,String> values) throws java.io.IOException
+    {
+        final java.util.Properties properties = new java.util.Properties();
+        for (final String name : values.getKeys())
+        {
+            properties.setProperty(name, values.get(name).getValue());
+        }
+
+        final java.io.ByteArrayOutputStream propertiesBytes = new java.io.ByteArrayOutputStream();
+        properties.store(propertiesBytes, null);
+        propertiesFile.setContents(propertiesBytes.toByteArray());
+    }
+
+    /**
+     * An entry in a BuildCache.
+     */
+    public static class Entry
+    {
+        private final String key;
+        private final long sizeInBytes;
+        private final long lastUsedMilliseconds;
+
+        Entry(String key, long sizeInBytes, long lastUsedMilliseconds)
+        {
+            this.key = key;
+            this.sizeInBytes = sizeInBytes;
+            this.lastUsedMilliseconds = lastUsedMilliseconds;
+        }
+
+        public String getKey()
+        {
+            return key;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+
+        /**
+         * Get the time that this entry was stored or last restored, in milliseconds since the
+         * epoch.
+         */
+        public long getLastUsedMilliseconds()
+        {
+            return lastUsedMilliseconds;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package qub;
+
+/**
+ * The measurements of one build, test, or install run: how long the run and each of its phases
+ * took, and counts such as the number of compiled files, build cache hits, bytes written, and
+ * tests run. Each run's BuildMetrics is appended as one line to its project's metrics log, which
+ * is next to the project's folder in the Qub folder so that it outlives "qub clean". The stats
+ * action reads the log to find runs that were slower than the runs before them.
+ */
+public class BuildMetrics
+{
+    /**
+     * The extension of a project's metrics log file.
+     */
+    public static final String fileExtension = ".metrics";
+
+    /**
+     * When a metrics log grows past this many bytes, its oldest half is dropped.
+     */
+    static final long maximumLogSize = 512 * 1024;
+
+    /**
+     * The name of the duration of the whole run.
+     */
+    public static final String totalDurationName = "duration";
+
+    private static final String durationSuffix = "ms";
+
+    /**
+     * The BuildMetrics of each run that is being recorded, by the run's Console.
+     */
+    private static final java.util.Map<Console,BuildMetrics> consoleMetrics = new java.util.WeakHashMap<>();
+
+    private final long time;
+    private final String action;
+    private boolean succeeded;
+    private final java.util.Map<String,Long> durations;
+    private final java.util.Map<String,Long> counts;
+
+    BuildMetrics(long time, String action)
+    {
+        PreCondition.assertNotNullAndNotEmpty(action, "action");
+
+        this.time = time;
+        this.action = action;
+        this.durations = new java.util.LinkedHashMap<>();
+        this.counts = new java.util.LinkedHashMap<>();
+    }
+
+    /**
+     * Get the time that the run started in milliseconds since the epoch.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Get the name of the action that was run, such as "build".
+     */
+    public String getAction()
+    {
+        return action;
+    }
+
+    public boolean getSucceeded()
+    {
+        return succeeded;
+    }
+
+    BuildMetrics setSucceeded(boolean succeeded)
+    {
+        this.succeeded = succeeded;
+        return this;
+    }
+
+    /**
+     * Get the durations in milliseconds of the run (totalDurationName) and of its phases, by name.
+     * The run's duration comes first.
+     */
+    public java.util.Map<String,Long> getDurations()
+    {
+        final java.util.Map<String,Long> result = new java.util.LinkedHashMap<>();
+        synchronized (durations)
+        {
+            final Long totalDuration = durations.get(totalDurationName);
+            if (totalDuration != null)
+            {
+                result.put(totalDurationName, totalDuration);
+            }
+            result.putAll(durations);
+        }
+        return result;
+    }
+
+    /**
+     * Get the run's counts, by name.
+     */
+    public java.util.Map<String,Long> getCounts()
+    {
+        synchronized (counts)
+        {
+            return new java.util.LinkedHashMap<>(counts);
+        }
+    }
+
+    BuildMetrics addDuration(String name, long milliseconds)
+    {
+        synchronized (durations)
+        {
+            durations.merge(toKey(name), milliseconds, Long::sum);
+        }
+        return this;
+    }
+
+    BuildMetrics addCount(String name, long count)
+    {
+        synchronized (counts)
+        {
+            counts.merge(toKey(name), count, Long::sum);
+        }
+        return this;
+    }
+
+    private static String toKey(String name)
+    {
+        PreCondition.assertNotNullAndNotEmpty(name, "name");
+
+        return name.replaceAll("[\\s=]", "-");
+    }
+
+    /**
+     * Run the provided action and record its BuildMetrics. If the provided Console's run is
+     * already being recorded (such as the build that a test run starts), the action's
+     * measurements are added to that run instead.
+     * @param console The Console of the run.
+     * @param action The name of the action, such as "build".
+     * @param run The action to run. It returns whether or not it succeeded.
+     * @return Whether or not the action succeeded.
+     */
+    public static boolean record(Console console, String action, Function0<Boolean> run)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNullAndNotEmpty(action, "action");
+        PreCondition.assertNotNull(run, "run");
+
+        boolean result;
+        if (BuildMetrics.get(console) != null)
+        {
+            final Boolean succeeded = run.run();
+            result = succeeded != null && succeeded;
+        }
+        else
+        {
+            final BuildMetrics metrics = new BuildMetrics(System.currentTimeMillis(), action);
+            synchronized (consoleMetrics)
+            {
+                consoleMetrics.put(console, metrics);
+            }
+
+            final long startNanoTime = System.nanoTime();
+            try
+            {
+                final Boolean succeeded = run.run();
+                result = succeeded != null && succeeded;
+            }
+            finally
+            {
+                synchronized (consoleMetrics)
+                {
+                    consoleMetrics.remove(console);
+                }
+            }
+            metrics.addDuration(totalDurationName, (System.nanoTime() - startNanoTime) / 1000000);
+            metrics.setSucceeded(result);
+
+            final File logFile = getLogFile(console);
+            if (logFile != null)
+            {
+                try
+                {
+                    append(logFile, metrics);
+                }
+                catch (java.io.IOException e)
+                {
+                    console.writeLine("Failed to write the build metrics to " + logFile + ": " + e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the BuildMetrics of the provided Console's run.
+     * @return The BuildMetrics, or null if the Console's run isn't being recorded.
+     */
+    static BuildMetrics get(Console console)
+    {
+        BuildMetrics result = null;
+        if (console != null)
+        {
+            synchronized (consoleMetrics)
+            {
+                result = consoleMetrics.get(console);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the provided duration to the phase with the provided name, if the provided Console's run
+     * is being recorded.
+     */
+    public static void addDuration(Console console, String name, long milliseconds)
+    {
+        final BuildMetrics metrics = BuildMetrics.get(console);
+        if (metrics != null)
+        {
+            metrics.addDuration(name, milliseconds);
+        }
+    }
+
+    /**
+     * Add the provided amount to the count with the provided name, if the provided Console's run
+     * is being recorded.
+     */
+    public static void addCount(Console console, String name, long count)
+    {
+        final BuildMetrics metrics = BuildMetrics.get(console);
+        if (metrics != null)
+        {
+            metrics.addCount(name, count);
+        }
+    }
+
+    /**
+     * Get the metrics log of the project in the provided Console's current folder.
+     * @return The metrics log, or null if the current folder doesn't have a project.json file
+     *         with a publisher and a project.
+     */
+    static File getLogFile(Console console)
+    {
+        File result = null;
+        final File projectJsonFile = console.getCurrentFolder().getValue().getFile("project.json").getValue();
+        if (projectJsonFile.exists().getValue())
+        {
+            final ProjectJson projectJson = ProjectJson.parse(console);
+            if (projectJson != null)
+            {
+                result = getLogFile(QubCLI.getQubFolder(console), projectJson.getPublisher(), projectJson.getProject());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the metrics log of the provided project.
+     * @return The metrics log, or null if the publisher or the project is empty.
+     */
+    static File getLogFile(Folder qubFolder, String publisher, String project)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        File result = null;
+        if (publisher != null && !publisher.isEmpty() && project != null && !project.isEmpty())
+        {
+            result = qubFolder.getFolder(publisher).getValue().getFile(project + fileExtension).getValue();
+        }
+        return result;
+    }
+
+    /**
+     * Append the provided BuildMetrics to the provided metrics log. If the log has grown past
+     * maximumLogSize, its oldest half is dropped.
+     */
+    static void append(File logFile, BuildMetrics metrics) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(logFile, "logFile");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        final byte[] line = (metrics.toString() + "\n").getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        long logSize;
+        if (logFile.getFileSystem() instanceof JavaFileSystem)
+        {
+            // A line is appended with a single write, so concurrent runs don't interleave lines.
+            final java.nio.file.Path logPath = java.nio.file.Paths.get(logFile.getPath().toString());
+            java.nio.file.Files.createDirectories(logPath.getParent());
+            java.nio.file.Files.write(logPath, line, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND);
+            logSize = java.nio.file.Files.size(logPath);
+        }
+        else
+        {
+            final byte[] logContents = logFile.exists().getValue() ? logFile.getContents().getValue() : new byte[0];
+            final byte[] newLogContents = java.util.Arrays.copyOf(logContents, logContents.length + line.length);
+            System.arraycopy(line, 0, newLogContents, logContents.length, line.length);
+            logFile.setContents(newLogContents);
+            logSize = newLogContents.length;
+        }
+
+        if (logSize > maximumLogSize)
+        {
+            final java.util.List<BuildMetrics> runs = read(logFile);
+            final LineRecords records = new LineRecords();
+            for (final BuildMetrics run : runs.subList(runs.size() / 2, runs.size()))
+            {
+                records.add(run.toFields());
+            }
+            AtomicInstall.setContents(logFile, CharacterEncoding.UTF_8.encode(records.toString()).getValue());
+        }
+    }
+
+    /**
+     * Read the runs in the provided metrics log. Lines that can't be parsed are skipped.
+     * @return The runs in the order that they were appended, or an empty list if the log doesn't
+     *         exist.
+     */
+    public static java.util.List<BuildMetrics> read(File logFile)
+    {
+        PreCondition.assertNotNull(logFile, "logFile");
+
+        final java.util.List<BuildMetrics> result = new java.util.ArrayList<>();
+        final LineRecords records = LineRecords.read(logFile);
+        if (records != null)
+        {
+            for (final String[] record : records)
+            {
+                final BuildMetrics metrics = fromFields(record);
+                if (metrics != null)
+                {
+                    result.add(metrics);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the fields of this BuildMetrics's line in a metrics log: the time, the action, whether
+     * the run succeeded, and then a "name=value" field for each duration and count.
+     */
+    String[] toFields()
+    {
+        final java.util.List<String> result = new java.util.ArrayList<>();
+        result.add(java.time.Instant.ofEpochMilli(time).toString());
+        result.add(action);
+        result.add(succeeded ? "succeeded" : "failed");
+        for (final java.util.Map.Entry<String,Long> duration : getDurations().entrySet())
+        {
+            result.add(duration.getKey() + '=' + duration.getValue() + durationSuffix);
+        }
+        for (final java.util.Map.Entry<String,Long> count : getCounts().entrySet())
+        {
+            result.add(count.getKey() + '=' + count.getValue());
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static BuildMetrics fromFields(String[] fields)
+    {
+        BuildMetrics result = null;
+        if (fields.length >= 3 && (fields[2].equals("succeeded") || fields[2].equals("failed")))
+        {
+            try
+            {
+                result = new BuildMetrics(java.time.Instant.parse(fields[0]).toEpochMilli(), fields[1])
+                    .setSucceeded(fields[2].equals("succeeded"));
+                for (int i = 3; result != null && i < fields.length; ++i)
+                {
+                    final int equalsIndex = fields[i].indexOf('=');
+                    if (equalsIndex <= 0)
+                    {
+                        result = null;
+                    }
+                    else
+                    {
+                        final String name = fields[i].substring(0, equalsIndex);
+                        final String value = fields[i].substring(equalsIndex + 1);
+                        if (value.endsWith(durationSuffix))
+                        {
+                            result.addDuration(name, Long.parseLong(value.substring(0, value.length() - durationSuffix.length())));
+                        }
+                        else
+                        {
+                            result.addCount(name, Long.parseLong(value));
+                        }
+                    }
+                }
+            }
+            catch (java.time.format.DateTimeParseException | NumberFormatException e)
+            {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parse a single line of a metrics log.
+     * @return The BuildMetrics, or null if the text is null or not a valid metrics log line.
+     */
+    public static BuildMetrics parse(String text)
+    {
+        return text == null ? null : fromFields(LineRecords.split(text));
+    }
+
+    /**
+     * Get the metrics log line of this BuildMetrics, such as
+     * "2026-10-17T10:00:00Z\tbuild\tsucceeded\tduration=1234ms\tsourceFiles=40".
+     */
+    @Override
+    public String toString()
+    {
+        return LineRecords.join(toFields());
+    }
+}
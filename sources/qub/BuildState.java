@@ -0,0 +1,144 @@
+package qub;
+
+/**
+ * The inputs that a source folder was last compiled with. Comparing the current inputs against the
+ * BuildState tells the build exactly which source files changed, regardless of what their
+ * timestamps say.
+ */
+public class BuildState
+{
+    private static final String settingsHashKey = "settings";
+
+    private String settingsHash;
+    private final java.util.Map<String,String> sourceFileHashes;
+
+    /**
+     * Create a new empty BuildState.
+     */
+    public BuildState()
+    {
+        sourceFileHashes = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Get the hash of the compiler settings (the classpath, the Java version, and the compiler
+     * options) that the source folder was compiled with.
+     * @return The hash of the compiler settings, or null if the settings are not known.
+     */
+    public String getSettingsHash()
+    {
+        return settingsHash;
+    }
+
+    public void setSettingsHash(String settingsHash)
+    {
+        this.settingsHash = settingsHash;
+    }
+
+    /**
+     * Get the content hash that the provided source file had when it was last compiled.
+     * @param sourceFilePath The path of the source file relative to its source folder.
+     * @return The content hash of the source file, or null if the source file wasn't compiled.
+     */
+    public String getSourceFileHash(String sourceFilePath)
+    {
+        return sourceFileHashes.get(sourceFilePath);
+    }
+
+    public void setSourceFileHash(String sourceFilePath, String sourceFileHash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(sourceFilePath, "sourceFilePath");
+        PreCondition.assertNotNullAndNotEmpty(sourceFileHash, "sourceFileHash");
+
+        sourceFileHashes.put(sourceFilePath, sourceFileHash);
+    }
+
+    public void removeSourceFile(String sourceFilePath)
+    {
+        sourceFileHashes.remove(sourceFilePath);
+    }
+
+    /**
+     * Get the paths of the source files that this BuildState has content hashes for.
+     * @return The paths of the source files that this BuildState has content hashes for.
+     */
+    public java.util.Set<String> getSourceFilePaths()
+    {
+        return java.util.Collections.unmodifiableSet(sourceFileHashes.keySet());
+    }
+
+    private LineRecords toLineRecords()
+    {
+        final LineRecords result = new LineRecords();
+        if (settingsHash != null)
+        {
+            result.add(settingsHashKey, settingsHash);
+        }
+        for (final java.util.Map.Entry<String,String> entry : sourceFileHashes.entrySet())
+        {
+            result.add(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static BuildState fromLineRecords(LineRecords records)
+    {
+        BuildState result = null;
+        if (records != null)
+        {
+            result = new BuildState();
+            for (final String[] record : records)
+            {
+                if (record.length != 2 || record[0].isEmpty() || record[1].isEmpty())
+                {
+                    result = null;
+                    break;
+                }
+                else if (record[0].equals(settingsHashKey))
+                {
+                    result.setSettingsHash(record[1]);
+                }
+                else
+                {
+                    result.setSourceFileHash(record[0], record[1]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the contents of a .buildstate file: the settings hash, and then one line for each source
+     * file's path and content hash.
+     */
+    @Override
+    public String toString()
+    {
+        return toLineRecords().toString();
+    }
+
+    /**
+     * Parse the contents of a .buildstate file.
+     * @return The BuildState, or null if the text is null or not a valid .buildstate file.
+     */
+    public static BuildState parse(String text)
+    {
+        return fromLineRecords(LineRecords.parse(text));
+    }
+
+    /**
+     * Read the provided .buildstate file.
+     * @return The BuildState, or null if the file doesn't exist or is not valid.
+     */
+    public static BuildState read(File buildStateFile)
+    {
+        return fromLineRecords(LineRecords.read(buildStateFile));
+    }
+
+    public void write(File buildStateFile)
+    {
+        PreCondition.assertNotNull(buildStateFile, "buildStateFile");
+
+        toLineRecords().write(buildStateFile);
+    }
+}
@@ -0,0 +1,340 @@
+package qub;
+
+/**
+ * A graph of build tasks and the tasks that they depend on. A task starts as soon as all of the
+ * tasks that it depends on have finished, so independent tasks run concurrently on a bounded pool
+ * of threads.
+ */
+public class BuildTaskScheduler
+{
+    private final int maximumConcurrency;
+    private final java.util.Map<String,Task> tasks;
+
+    /**
+     * Create a new BuildTaskScheduler.
+     * @param maximumConcurrency The maximum number of tasks that can run at the same time.
+     */
+    public BuildTaskScheduler(int maximumConcurrency)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(maximumConcurrency, 1, "maximumConcurrency");
+
+        this.maximumConcurrency = maximumConcurrency;
+        this.tasks = new java.util.LinkedHashMap<>();
+    }
+
+    /**
+     * Add a task to this scheduler. A task can only depend on tasks that were added before it, so
+     * the tasks always form a graph without cycles.
+     * @param name The name of the task.
+     * @param action The work that the task does.
+     * @param dependencyNames The names of the tasks that must succeed before this task can start.
+     */
+    public void addTask(String name, Function0<BuildTaskStatus> action, String... dependencyNames)
+    {
+        PreCondition.assertNotNullAndNotEmpty(name, "name");
+        PreCondition.assertNotNull(action, "action");
+        PreCondition.assertTrue(!tasks.containsKey(name), "A task named " + Strings.escapeAndQuote(name) + " has already been added.");
+
+        final java.util.List<Task> dependencies = new java.util.ArrayList<>();
+        for (final String dependencyName : dependencyNames)
+        {
+            final Task dependency = tasks.get(dependencyName);
+            PreCondition.assertNotNull(dependency, "The dependency " + Strings.escapeAndQuote(dependencyName));
+            dependencies.add(dependency);
+        }
+
+        tasks.put(name, new Task(name, action, dependencies));
+    }
+
+    /**
+     * Get whether or not this scheduler contains a task with the provided name.
+     */
+    public boolean containsTask(String name)
+    {
+        return tasks.containsKey(name);
+    }
+
+    /**
+     * Get the status that the task with the provided name finished with.
+     * @param name The name of the task.
+     * @return The status of the task, or null if the task hasn't finished.
+     */
+    public BuildTaskStatus getStatus(String name)
+    {
+        final Task task = tasks.get(name);
+        return task == null ? null : task.status;
+    }
+
+    /**
+     * Run this scheduler's tasks. When a task finishes, its status and duration are written to
+     * the Console. The task that started first among the running tasks writes its output to the
+     * Console as it runs, and the output of the other running tasks is held back until they
+     * finish or until they become the first started task, so the lines of concurrent tasks never
+     * interleave.
+     * @param console The Console that the tasks run in.
+     * @return Whether or not every task finished without failing.
+     */
+    public boolean run(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        boolean result = true;
+
+        final ByteWriteStream consoleOutput = console.getOutputAsByteWriteStream();
+        final TaskOutputStream taskOutput = new TaskOutputStream(consoleOutput);
+        console.setOutput(taskOutput);
+
+        final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(
+            java.lang.Math.max(1, java.lang.Math.min(maximumConcurrency, tasks.size())),
+            (Runnable runnable) ->
+            {
+                final Thread thread = new Thread(runnable, "qub-build-task");
+                thread.setDaemon(true);
+                return thread;
+            });
+        final java.util.concurrent.CompletionService<Task> completedTasks = new java.util.concurrent.ExecutorCompletionService<>(executor);
+        try
+        {
+            final java.util.List<Task> waitingTasks = new java.util.ArrayList<>(tasks.values());
+            int runningTaskCount = 0;
+            while (!waitingTasks.isEmpty() || runningTaskCount > 0)
+            {
+                // Tasks are in the order that they were added, so a single pass sees every
+                // dependency's status before the tasks that depend on it.
+                final java.util.Iterator<Task> waitingTaskIterator = waitingTasks.iterator();
+                while (waitingTaskIterator.hasNext())
+                {
+                    final Task task = waitingTaskIterator.next();
+                    if (task.hasUnsuccessfulDependency())
+                    {
+                        task.status = BuildTaskStatus.Skipped;
+                        waitingTaskIterator.remove();
+                        console.writeLine(task.name + ": Skipped");
+                    }
+                    else if (task.dependenciesSucceeded())
+                    {
+                        waitingTaskIterator.remove();
+                        ++runningTaskCount;
+                        completedTasks.submit(() -> runTask(console, taskOutput, task));
+                    }
+                }
+
+                if (runningTaskCount > 0)
+                {
+                    final Task completedTask = completedTasks.take().get();
+                    --runningTaskCount;
+
+                    taskOutput.finish(completedTask);
+                    if (completedTask.status == BuildTaskStatus.Failed)
+                    {
+                        result = false;
+                        console.writeLine(completedTask.name + ": Failed (" + completedTask.duration.toString("0.0") + ")");
+                    }
+                    else if (completedTask.status == BuildTaskStatus.Succeeded)
+                    {
+                        console.writeLine(completedTask.name + ": Done (" + completedTask.duration.toString("0.0") + ")");
+                    }
+                }
+            }
+        }
+        catch (InterruptedException | java.util.concurrent.ExecutionException e)
+        {
+            result = false;
+            console.writeLine(e.toString());
+        }
+        finally
+        {
+            executor.shutdownNow();
+            console.setOutput(consoleOutput);
+        }
+
+        return result;
+    }
+
+    private static Task runTask(Console console, TaskOutputStream taskOutput, Task task)
+    {
+        taskOutput.start(task);
+        try
+        {
+            final Stopwatch stopwatch = console.getStopwatch();
+            stopwatch.start();
+            try (final Profiler.Span taskSpan = Profiler.start(console, task.name))
+            {
+                task.status = task.action.run();
+            }
+            catch (Throwable error)
+            {
+                console.writeLine(error.toString());
+                task.status = BuildTaskStatus.Failed;
+            }
+            task.duration = stopwatch.stop().toSeconds();
+            BuildMetrics.addDuration(console, task.name, (long)task.duration.toMilliseconds().getValue());
+
+            if (task.status == null)
+            {
+                task.status = BuildTaskStatus.Failed;
+            }
+        }
+        finally
+        {
+            taskOutput.stop();
+        }
+        return task;
+    }
+
+    private static class Task
+    {
+        final String name;
+        final Function0<BuildTaskStatus> action;
+        final java.util.List<Task> dependencies;
+        final java.io.ByteArrayOutputStream heldOutput;
+        volatile BuildTaskStatus status;
+        volatile Duration duration;
+
+        Task(String name, Function0<BuildTaskStatus> action, java.util.List<Task> dependencies)
+        {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+            this.heldOutput = new java.io.ByteArrayOutputStream();
+        }
+
+        boolean hasUnsuccessfulDependency()
+        {
+            boolean result = false;
+            for (final Task dependency : dependencies)
+            {
+                if (dependency.status == BuildTaskStatus.Failed || dependency.status == BuildTaskStatus.Skipped)
+                {
+                    result = true;
+                    break;
+                }
+            }
+            return result;
+        }
+
+        boolean dependenciesSucceeded()
+        {
+            boolean result = true;
+            for (final Task dependency : dependencies)
+            {
+                if (dependency.status != BuildTaskStatus.Succeeded && dependency.status != BuildTaskStatus.NothingToDo)
+                {
+                    result = false;
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The output stream that the Console writes to while the tasks run. Writes from the thread of
+     * the task that currently owns the Console go straight through a line at a time, writes from
+     * other tasks are held back, and writes from any other thread go straight through.
+     */
+    private static class TaskOutputStream implements ByteWriteStream
+    {
+        private final ByteWriteStream output;
+        private final InheritableThreadLocal<Task> currentTask;
+        private final java.util.List<Task> runningTasks;
+        private Task owner;
+
+        TaskOutputStream(ByteWriteStream output)
+        {
+            this.output = output;
+            this.currentTask = new InheritableThreadLocal<>();
+            this.runningTasks = new java.util.ArrayList<>();
+        }
+
+        synchronized void start(Task task)
+        {
+            currentTask.set(task);
+            runningTasks.add(task);
+            if (owner == null)
+            {
+                owner = task;
+            }
+        }
+
+        void stop()
+        {
+            currentTask.remove();
+        }
+
+        /**
+         * Write the rest of the provided finished task's held output and give the Console to the
+         * running task that started first.
+         */
+        synchronized void finish(Task task)
+        {
+            writeHeldOutput(task, false);
+            runningTasks.remove(task);
+            if (owner == task)
+            {
+                owner = runningTasks.isEmpty() ? null : runningTasks.get(0);
+                if (owner != null)
+                {
+                    writeHeldOutput(owner, true);
+                }
+            }
+        }
+
+        @Override
+        public synchronized Result<Integer> writeBytes(byte[] bytes, int startIndex, int length)
+        {
+            Result<Integer> result;
+            final Task task = currentTask.get();
+            if (task == null || !runningTasks.contains(task))
+            {
+                result = output.writeBytes(bytes, startIndex, length);
+            }
+            else
+            {
+                task.heldOutput.write(bytes, startIndex, length);
+                if (task == owner)
+                {
+                    writeHeldOutput(task, true);
+                }
+                result = Result.success(length);
+            }
+            return result;
+        }
+
+        /**
+         * Write the provided task's held output.
+         * @param completeLinesOnly Whether or not to hold back the final line if it isn't complete.
+         */
+        private void writeHeldOutput(Task task, boolean completeLinesOnly)
+        {
+            final byte[] heldBytes = task.heldOutput.toByteArray();
+            int writeLength = heldBytes.length;
+            if (completeLinesOnly)
+            {
+                while (writeLength > 0 && heldBytes[writeLength - 1] != '\n')
+                {
+                    --writeLength;
+                }
+            }
+
+            if (writeLength > 0)
+            {
+                output.writeBytes(heldBytes, 0, writeLength);
+                task.heldOutput.reset();
+                task.heldOutput.write(heldBytes, writeLength, heldBytes.length - writeLength);
+            }
+        }
+
+        @Override
+        public boolean isDisposed()
+        {
+            return output.isDisposed();
+        }
+
+        @Override
+        public Result<Boolean> dispose()
+        {
+            return output.dispose();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package qub;
+
+/**
+ * The different ways that a task run by a BuildTaskScheduler can finish.
+ */
+public enum BuildTaskStatus
+{
+    /**
+     * The task did its work successfully.
+     */
+    Succeeded,
+
+    /**
+     * The task found that it had no work to do.
+     */
+    NothingToDo,
+
+    /**
+     * The task failed. The tasks that depend on it are skipped.
+     */
+    Failed,
+
+    /**
+     * The task didn't run because one of the tasks that it depends on failed or was skipped.
+     */
+    Skipped
+}
@@ -0,0 +1,141 @@
+package qub;
+
+/**
+ * A QubCLI action that inspects and prunes the machine-wide build output cache.
+ */
+public class CacheAction implements Action
+{
+    private static final long bytesPerMegabyte = 1024L * 1024L;
+
+    @Override
+    public String getName()
+    {
+        return "Cache";
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Show statistics about or prune the machine-wide build output cache.";
+    }
+
+    @Override
+    public String getArgumentUsage()
+    {
+        return "<stats|prune> [-maxSize=<megabytes>]";
+    }
+
+    @Override
+    public void run(Console console)
+    {
+        final CommandLine commandLine = console.getCommandLine();
+
+        commandLine.removeAt(0); // Remove the "cache" command line argument.
+
+        final BuildCache buildCache = BuildCache.get(console);
+
+        final CommandLineArgument maxSizeArgument = commandLine.remove("maxSize");
+        final CommandLineArgument cacheActionArgument = commandLine.getArguments().first();
+        final String cacheAction = cacheActionArgument == null ? null : cacheActionArgument.toString();
+        try
+        {
+            if (buildCache == null)
+            {
+                console.writeLine("The build cache can only be used when the Qub folder is on the real file system.");
+            }
+            else if ("stats".equalsIgnoreCase(cacheAction))
+            {
+                showStatistics(console, buildCache);
+            }
+            else if ("prune".equalsIgnoreCase(cacheAction))
+            {
+                Long maxSizeInBytes = buildCache.getMaxSizeInBytes();
+                if (maxSizeArgument != null)
+                {
+                    maxSizeInBytes = parseMegabytes(maxSizeArgument.getValue());
+                    if (maxSizeInBytes == null)
+                    {
+                        console.writeLine("Invalid maxSize: " + Strings.escapeAndQuote(maxSizeArgument.getValue()) + ". Expected a non-negative number of megabytes.");
+                    }
+                }
+
+                if (maxSizeInBytes != null)
+                {
+                    console.write("Pruning build cache to " + formatSize(maxSizeInBytes) + "...");
+                    long prunedBytes = 0;
+                    final List<BuildCache.Entry> prunedEntries = buildCache.prune(maxSizeInBytes);
+                    for (final BuildCache.Entry prunedEntry : prunedEntries)
+                    {
+                        prunedBytes += prunedEntry.getSizeInBytes();
+                    }
+                    console.writeLine(" Done. Removed " + prunedEntries.getCount() + " " + (prunedEntries.getCount() == 1 ? "entry" : "entries") + " (" + formatSize(prunedBytes) + ").");
+                }
+            }
+            else if (cacheAction == null)
+            {
+                console.writeLine("Expected a cache action: \"stats\" or \"prune\".");
+            }
+            else
+            {
+                console.writeLine("Unrecognized cache action: " + Strings.escapeAndQuote(cacheAction) + ". Expected \"stats\" or \"prune\".");
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            console.writeLine(e.toString());
+        }
+    }
+
+    private static void showStatistics(Console console, BuildCache buildCache) throws java.io.IOException
+    {
+        long totalSizeInBytes = 0;
+        final List<BuildCache.Entry> entries = buildCache.getEntries();
+        for (final BuildCache.Entry entry : entries)
+        {
+            totalSizeInBytes += entry.getSizeInBytes();
+        }
+
+        final long hits = buildCache.getHits();
+        final long misses = buildCache.getMisses();
+
+        console.writeLine("Build cache folder: " + buildCache.getFolder());
+        console.writeLine("Entries: " + entries.getCount());
+        console.writeLine("Size: " + formatSize(totalSizeInBytes) + " of " + formatSize(buildCache.getMaxSizeInBytes()));
+        console.writeLine("Hits: " + hits);
+        console.writeLine("Misses: " + misses);
+        if (hits + misses > 0)
+        {
+            console.writeLine("Hit rate: " + (hits * 100 / (hits + misses)) + "%");
+        }
+    }
+
+    /**
+     * Parse the provided number of megabytes.
+     * @param text The text to parse.
+     * @return The number of bytes, or null if the text is not a non-negative number.
+     */
+    static Long parseMegabytes(String text)
+    {
+        Long result = null;
+        if (text != null)
+        {
+            try
+            {
+                final double megabytes = Double.parseDouble(text);
+                if (megabytes >= 0)
+                {
+                    result = (long)(megabytes * bytesPerMegabyte);
+                }
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+        }
+        return result;
+    }
+
+    static String formatSize(long sizeInBytes)
+    {
+        return String.format(java.util.Locale.ROOT, "%.1f MB", (double)sizeInBytes / bytesPerMegabyte);
+    }
+}
@@ -0,0 +1,274 @@
+package qub;
+
+/**
+ * A graph of the classes that were compiled from a source folder, the source files that they were
+ * compiled from, and the classes that they refer to. The graph is used to determine which source
+ * files must be recompiled when other source files change.
+ */
+public class ClassDependencyGraph
+{
+    private final java.util.Map<String,ClassFile> classes;
+    private final java.util.Map<String,java.util.Set<String>> sourceFileClassNames;
+
+    /**
+     * Create a new empty ClassDependencyGraph.
+     */
+    public ClassDependencyGraph()
+    {
+        classes = new java.util.TreeMap<>();
+        sourceFileClassNames = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Get the source file paths that are in this graph.
+     * @return The source file paths that are in this graph.
+     */
+    public java.util.Set<String> getSourceFilePaths()
+    {
+        return java.util.Collections.unmodifiableSet(sourceFileClassNames.keySet());
+    }
+
+    /**
+     * Get whether or not this graph contains the provided source file path.
+     * @param sourceFilePath The source file path to look for.
+     * @return Whether or not this graph contains the provided source file path.
+     */
+    public boolean containsSourceFile(String sourceFilePath)
+    {
+        return sourceFileClassNames.containsKey(sourceFilePath);
+    }
+
+    /**
+     * Get the classes that were compiled from the provided source file.
+     * @param sourceFilePath The path of the source file relative to its source folder.
+     * @return The classes that were compiled from the provided source file.
+     */
+    public java.util.List<ClassFile> getClasses(String sourceFilePath)
+    {
+        final java.util.List<ClassFile> result = new java.util.ArrayList<>();
+        final java.util.Set<String> classNames = sourceFileClassNames.get(sourceFilePath);
+        if (classNames != null)
+        {
+            for (final String className : classNames)
+            {
+                result.add(classes.get(className));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the class with the provided name.
+     * @param className The internal name of the class.
+     * @return The class with the provided name, or null if the class isn't in this graph.
+     */
+    public ClassFile getClass(String className)
+    {
+        return classes.get(className);
+    }
+
+    /**
+     * Replace the classes that were compiled from the provided source file.
+     * @param sourceFilePath The path of the source file relative to its source folder.
+     * @param sourceFileClasses The classes that the source file now compiles to.
+     */
+    public void setClasses(String sourceFilePath, java.lang.Iterable<ClassFile> sourceFileClasses)
+    {
+        PreCondition.assertNotNullAndNotEmpty(sourceFilePath, "sourceFilePath");
+        PreCondition.assertNotNull(sourceFileClasses, "sourceFileClasses");
+
+        removeSourceFile(sourceFilePath);
+
+        final java.util.Set<String> classNames = new java.util.TreeSet<>();
+        for (final ClassFile classFile : sourceFileClasses)
+        {
+            classes.put(classFile.getClassName(), classFile);
+            classNames.add(classFile.getClassName());
+        }
+        sourceFileClassNames.put(sourceFilePath, classNames);
+    }
+
+    /**
+     * Add a single class to this graph.
+     * @param classFile The class to add.
+     */
+    public void addClass(ClassFile classFile)
+    {
+        PreCondition.assertNotNull(classFile, "classFile");
+
+        classes.put(classFile.getClassName(), classFile);
+        sourceFileClassNames.computeIfAbsent(classFile.getSourceFilePath(), (String key) -> new java.util.TreeSet<>())
+            .add(classFile.getClassName());
+    }
+
+    /**
+     * Remove the provided source file and the classes that were compiled from it.
+     * @param sourceFilePath The path of the source file relative to its source folder.
+     * @return The classes that were removed.
+     */
+    public java.util.List<ClassFile> removeSourceFile(String sourceFilePath)
+    {
+        final java.util.List<ClassFile> result = getClasses(sourceFilePath);
+        for (final ClassFile classFile : result)
+        {
+            classes.remove(classFile.getClassName());
+        }
+        sourceFileClassNames.remove(sourceFilePath);
+        return result;
+    }
+
+    /**
+     * Get the classes in this graph that extend or implement any of the provided class names,
+     * directly or through other classes in this graph.
+     * @param classNames The internal names of the supertypes.
+     * @return The internal names of the subtypes, not including the provided class names.
+     */
+    public java.util.Set<String> getSubtypeClassNames(java.util.Collection<String> classNames)
+    {
+        PreCondition.assertNotNull(classNames, "classNames");
+
+        final java.util.Set<String> supertypeClassNames = new java.util.HashSet<>(classNames);
+        final java.util.Set<String> result = new java.util.TreeSet<>();
+        boolean addedSubtype = !supertypeClassNames.isEmpty();
+        while (addedSubtype)
+        {
+            addedSubtype = false;
+            for (final ClassFile classFile : classes.values())
+            {
+                if (!supertypeClassNames.contains(classFile.getClassName()))
+                {
+                    for (final String superTypeName : classFile.getSuperTypeNames())
+                    {
+                        if (supertypeClassNames.contains(superTypeName))
+                        {
+                            supertypeClassNames.add(classFile.getClassName());
+                            result.add(classFile.getClassName());
+                            addedSubtype = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        result.removeAll(classNames);
+        return result;
+    }
+
+    /**
+     * Get the source files that contain classes that refer to any of the provided class names or
+     * to any of their subtypes in this graph. A subtype inherits the ABI of the provided classes,
+     * so the classes that call inherited members through the subtype must be recompiled too, even
+     * if the subtype's own ABI didn't change.
+     * @param classNames The internal names of the classes that may be referred to.
+     * @return The paths of the source files that refer to any of the provided class names.
+     */
+    public java.util.Set<String> getDependentSourceFilePaths(java.util.Collection<String> classNames)
+    {
+        PreCondition.assertNotNull(classNames, "classNames");
+
+        final java.util.Set<String> result = new java.util.TreeSet<>();
+        if (!classNames.isEmpty())
+        {
+            final java.util.Set<String> changedClassNames = new java.util.HashSet<>(classNames);
+            changedClassNames.addAll(getSubtypeClassNames(classNames));
+            for (final ClassFile classFile : classes.values())
+            {
+                if (!result.contains(classFile.getSourceFilePath()))
+                {
+                    for (final String referencedClassName : classFile.getReferencedClassNames())
+                    {
+                        if (changedClassNames.contains(referencedClassName))
+                        {
+                            result.add(classFile.getSourceFilePath());
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private LineRecords toLineRecords()
+    {
+        final LineRecords result = new LineRecords();
+        for (final java.util.Map.Entry<String,java.util.Set<String>> entry : sourceFileClassNames.entrySet())
+        {
+            if (entry.getValue().isEmpty())
+            {
+                result.add(entry.getKey());
+            }
+            else
+            {
+                for (final String className : entry.getValue())
+                {
+                    result.add(classes.get(className).toFields());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ClassDependencyGraph fromLineRecords(LineRecords records)
+    {
+        ClassDependencyGraph result = null;
+        if (records != null)
+        {
+            result = new ClassDependencyGraph();
+            for (final String[] record : records)
+            {
+                if (record.length == 1)
+                {
+                    result.setClasses(record[0], java.util.Collections.<ClassFile>emptyList());
+                }
+                else
+                {
+                    final ClassFile classFile = ClassFile.fromFields(record);
+                    if (classFile == null)
+                    {
+                        result = null;
+                        break;
+                    }
+                    result.addClass(classFile);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the contents of a .classgraph file: one line for each class, and one line for each
+     * source file that doesn't declare any classes.
+     */
+    @Override
+    public String toString()
+    {
+        return toLineRecords().toString();
+    }
+
+    /**
+     * Parse the contents of a .classgraph file.
+     * @return The ClassDependencyGraph, or null if the text is null or not a valid .classgraph
+     *         file.
+     */
+    public static ClassDependencyGraph parse(String text)
+    {
+        return fromLineRecords(LineRecords.parse(text));
+    }
+
+    /**
+     * Read the provided .classgraph file.
+     * @return The ClassDependencyGraph, or null if the file doesn't exist or is not valid.
+     */
+    public static ClassDependencyGraph read(File graphFile)
+    {
+        return fromLineRecords(LineRecords.read(graphFile));
+    }
+
+    public void write(File graphFile)
+    {
+        PreCondition.assertNotNull(graphFile, "graphFile");
+
+        toLineRecords().write(graphFile);
+    }
+}
@@ -0,0 +1,466 @@
+package qub;
+
+/**
+ * The parts of a compiled Java class file that matter for deciding what needs to be recompiled
+ * when a source file changes.
+ */
+public class ClassFile
+{
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private final String className;
+    private final String sourceFilePath;
+    private final String abiHash;
+    private final String constantsHash;
+    private final java.util.SortedSet<String> referencedClassNames;
+    private final java.util.SortedSet<String> superTypeNames;
+
+    /**
+     * Create a new ClassFile that has no supertypes outside of the java packages.
+     * @param className The internal (slash-separated) name of the class, such as "qub/ClassFile".
+     * @param sourceFilePath The path of the source file that the class was compiled from, relative
+     *                       to the folder that was compiled.
+     * @param abiHash The hash of the parts of the class that other classes can compile against.
+     * @param constantsHash The hash of the compile-time constants that the class declares.
+     * @param referencedClassNames The internal names of the classes that this class refers to.
+     */
+    public ClassFile(String className, String sourceFilePath, String abiHash, String constantsHash, java.lang.Iterable<String> referencedClassNames)
+    {
+        this(className, sourceFilePath, abiHash, constantsHash, referencedClassNames, java.util.Collections.<String>emptyList());
+    }
+
+    /**
+     * Create a new ClassFile.
+     * @param className The internal (slash-separated) name of the class, such as "qub/ClassFile".
+     * @param sourceFilePath The path of the source file that the class was compiled from, relative
+     *                       to the folder that was compiled.
+     * @param abiHash The hash of the parts of the class that other classes can compile against.
+     * @param constantsHash The hash of the compile-time constants that the class declares.
+     * @param referencedClassNames The internal names of the classes that this class refers to.
+     * @param superTypeNames The internal names of the class's superclass and interfaces that aren't
+     *                       in the java packages.
+     */
+    public ClassFile(String className, String sourceFilePath, String abiHash, String constantsHash, java.lang.Iterable<String> referencedClassNames, java.lang.Iterable<String> superTypeNames)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+        PreCondition.assertNotNullAndNotEmpty(sourceFilePath, "sourceFilePath");
+        PreCondition.assertNotNullAndNotEmpty(abiHash, "abiHash");
+        PreCondition.assertNotNullAndNotEmpty(constantsHash, "constantsHash");
+        PreCondition.assertNotNull(referencedClassNames, "referencedClassNames");
+        PreCondition.assertNotNull(superTypeNames, "superTypeNames");
+
+        this.className = className;
+        this.sourceFilePath = sourceFilePath;
+        this.abiHash = abiHash;
+        this.constantsHash = constantsHash;
+        this.referencedClassNames = new java.util.TreeSet<>();
+        for (final String referencedClassName : referencedClassNames)
+        {
+            this.referencedClassNames.add(referencedClassName);
+        }
+        this.superTypeNames = new java.util.TreeSet<>();
+        for (final String superTypeName : superTypeNames)
+        {
+            this.superTypeNames.add(superTypeName);
+        }
+    }
+
+    public String getClassName()
+    {
+        return className;
+    }
+
+    public String getSourceFilePath()
+    {
+        return sourceFilePath;
+    }
+
+    public String getAbiHash()
+    {
+        return abiHash;
+    }
+
+    public String getConstantsHash()
+    {
+        return constantsHash;
+    }
+
+    public java.util.SortedSet<String> getReferencedClassNames()
+    {
+        return referencedClassNames;
+    }
+
+    /**
+     * Get the internal names of this class's superclass and interfaces that aren't in the java
+     * packages. A class inherits the ABI of its supertypes, so its ABI changes when theirs do.
+     */
+    public java.util.SortedSet<String> getSuperTypeNames()
+    {
+        return superTypeNames;
+    }
+
+    /**
+     * Parse the provided class file bytes.
+     * @param bytes The contents of a .class file.
+     * @return The parsed ClassFile, or null if the bytes are not a valid class file.
+     */
+    public static ClassFile parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        ClassFile result = null;
+        try
+        {
+            result = parse(new java.io.DataInputStream(new java.io.ByteArrayInputStream(bytes)));
+        }
+        catch (java.io.IOException | RuntimeException ignored)
+        {
+        }
+        return result;
+    }
+
+    private static ClassFile parse(java.io.DataInputStream input) throws java.io.IOException
+    {
+        ClassFile result = null;
+
+        if (input.readInt() == 0xCAFEBABE)
+        {
+            input.readUnsignedShort(); // minor_version
+            input.readUnsignedShort(); // major_version
+
+            final int constantPoolCount = input.readUnsignedShort();
+            final int[] tags = new int[constantPoolCount];
+            final Object[] values = new Object[constantPoolCount];
+            final int[] firstIndexes = new int[constantPoolCount];
+            final int[] secondIndexes = new int[constantPoolCount];
+            for (int i = 1; i < constantPoolCount; ++i)
+            {
+                final int tag = input.readUnsignedByte();
+                tags[i] = tag;
+                switch (tag)
+                {
+                    case 1: // Utf8
+                        values[i] = input.readUTF();
+                        break;
+
+                    case 3: // Integer
+                        values[i] = input.readInt();
+                        break;
+
+                    case 4: // Float
+                        values[i] = input.readFloat();
+                        break;
+
+                    case 5: // Long
+                        values[i] = input.readLong();
+                        ++i;
+                        break;
+
+                    case 6: // Double
+                        values[i] = input.readDouble();
+                        ++i;
+                        break;
+
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        firstIndexes[i] = input.readUnsignedShort();
+                        break;
+
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        firstIndexes[i] = input.readUnsignedShort();
+                        secondIndexes[i] = input.readUnsignedShort();
+                        break;
+
+                    case 15: // MethodHandle
+                        firstIndexes[i] = input.readUnsignedByte();
+                        secondIndexes[i] = input.readUnsignedShort();
+                        break;
+
+                    default:
+                        throw new java.io.IOException("Unrecognized constant pool tag: " + tag);
+                }
+            }
+
+            final java.util.Set<String> referencedClassNames = new java.util.HashSet<>();
+            for (int i = 1; i < constantPoolCount; ++i)
+            {
+                switch (tags[i])
+                {
+                    case 7: // Class
+                        addReferencedClassNames(referencedClassNames, (String)values[firstIndexes[i]]);
+                        break;
+
+                    case 12: // NameAndType
+                        addDescriptorClassNames(referencedClassNames, (String)values[secondIndexes[i]]);
+                        break;
+
+                    case 16: // MethodType
+                        addDescriptorClassNames(referencedClassNames, (String)values[firstIndexes[i]]);
+                        break;
+                }
+            }
+
+            final StringBuilder abi = new StringBuilder();
+            final StringBuilder constants = new StringBuilder();
+
+            final int accessFlags = input.readUnsignedShort();
+            final String className = (String)values[firstIndexes[input.readUnsignedShort()]];
+            final int superClassIndex = input.readUnsignedShort();
+            final String superClassName = superClassIndex == 0 ? "" : (String)values[firstIndexes[superClassIndex]];
+            abi.append("class ").append(accessFlags).append(' ').append(className).append(" extends ").append(superClassName);
+
+            final java.util.SortedSet<String> superTypeNames = new java.util.TreeSet<>();
+            superTypeNames.add(superClassName);
+            final int interfacesCount = input.readUnsignedShort();
+            for (int i = 0; i < interfacesCount; ++i)
+            {
+                final String interfaceName = (String)values[firstIndexes[input.readUnsignedShort()]];
+                abi.append(" implements ").append(interfaceName);
+                superTypeNames.add(interfaceName);
+            }
+            abi.append('\n');
+
+            final java.util.SortedSet<String> members = new java.util.TreeSet<>();
+            for (int memberType = 0; memberType < 2; ++memberType)
+            {
+                final boolean isField = (memberType == 0);
+                final int membersCount = input.readUnsignedShort();
+                for (int i = 0; i < membersCount; ++i)
+                {
+                    final int memberAccessFlags = input.readUnsignedShort();
+                    final String memberName = (String)values[input.readUnsignedShort()];
+                    final String memberDescriptor = (String)values[input.readUnsignedShort()];
+                    addDescriptorClassNames(referencedClassNames, memberDescriptor);
+
+                    String memberSignature = null;
+                    Object constantValue = null;
+                    final java.util.SortedSet<String> exceptionNames = new java.util.TreeSet<>();
+                    final int attributesCount = input.readUnsignedShort();
+                    for (int j = 0; j < attributesCount; ++j)
+                    {
+                        final String attributeName = (String)values[input.readUnsignedShort()];
+                        final int attributeLength = input.readInt();
+                        if (attributeName.equals("Signature"))
+                        {
+                            memberSignature = (String)values[input.readUnsignedShort()];
+                            addDescriptorClassNames(referencedClassNames, memberSignature);
+                        }
+                        else if (isField && attributeName.equals("ConstantValue"))
+                        {
+                            final int constantValueIndex = input.readUnsignedShort();
+                            constantValue = tags[constantValueIndex] == 8
+                                ? values[firstIndexes[constantValueIndex]]
+                                : values[constantValueIndex];
+                        }
+                        else if (!isField && attributeName.equals("Exceptions"))
+                        {
+                            final int exceptionsCount = input.readUnsignedShort();
+                            for (int k = 0; k < exceptionsCount; ++k)
+                            {
+                                exceptionNames.add((String)values[firstIndexes[input.readUnsignedShort()]]);
+                            }
+                        }
+                        else
+                        {
+                            input.skipBytes(attributeLength);
+                        }
+                    }
+
+                    if ((memberAccessFlags & ACC_PRIVATE) == 0)
+                    {
+                        // A method's checked exceptions are part of its ABI, since callers that don't
+                        // handle a newly thrown checked exception no longer compile.
+                        members.add((isField ? "field " : "method ") + memberAccessFlags + ' ' + memberName + ' ' + memberDescriptor +
+                            (memberSignature == null ? "" : ' ' + memberSignature) +
+                            (exceptionNames.isEmpty() ? "" : " throws " + String.join(",", exceptionNames)));
+                    }
+
+                    if (constantValue != null && (memberAccessFlags & ACC_PRIVATE) == 0)
+                    {
+                        constants.append(memberName).append('=').append(constantValue).append('\n');
+                    }
+                }
+            }
+
+            String sourceFileName = null;
+            final int classAttributesCount = input.readUnsignedShort();
+            for (int i = 0; i < classAttributesCount; ++i)
+            {
+                final String attributeName = (String)values[input.readUnsignedShort()];
+                final int attributeLength = input.readInt();
+                if (attributeName.equals("SourceFile"))
+                {
+                    sourceFileName = (String)values[input.readUnsignedShort()];
+                }
+                else if (attributeName.equals("Signature"))
+                {
+                    final String classSignature = (String)values[input.readUnsignedShort()];
+                    addDescriptorClassNames(referencedClassNames, classSignature);
+                    abi.append("signature ").append(classSignature).append('\n');
+                }
+                else
+                {
+                    input.skipBytes(attributeLength);
+                }
+            }
+
+            for (final String member : members)
+            {
+                abi.append(member).append('\n');
+            }
+
+            final int lastSlashIndex = className.lastIndexOf('/');
+            final String packagePath = lastSlashIndex == -1 ? "" : className.substring(0, lastSlashIndex + 1);
+            if (sourceFileName == null)
+            {
+                String outerClassName = className.substring(lastSlashIndex + 1);
+                final int dollarSignIndex = outerClassName.indexOf('$');
+                if (dollarSignIndex >= 0)
+                {
+                    outerClassName = outerClassName.substring(0, dollarSignIndex);
+                }
+                sourceFileName = outerClassName + ".java";
+            }
+
+            referencedClassNames.remove(className);
+            final java.util.Iterator<String> referencedClassNamesIterator = referencedClassNames.iterator();
+            while (referencedClassNamesIterator.hasNext())
+            {
+                if (referencedClassNamesIterator.next().startsWith("java/"))
+                {
+                    referencedClassNamesIterator.remove();
+                }
+            }
+            superTypeNames.retainAll(referencedClassNames);
+
+            result = new ClassFile(
+                className,
+                packagePath + sourceFileName,
+                ContentHash.of(abi.toString()),
+                ContentHash.of(constants.toString()),
+                referencedClassNames,
+                superTypeNames);
+        }
+
+        return result;
+    }
+
+    /**
+     * Add the class names that are referred to by a CONSTANT_Class entry. Array classes are
+     * written as descriptors, so their element type is added instead.
+     */
+    private static void addReferencedClassNames(java.util.Set<String> referencedClassNames, String classEntryName)
+    {
+        if (classEntryName.startsWith("["))
+        {
+            addDescriptorClassNames(referencedClassNames, classEntryName);
+        }
+        else
+        {
+            referencedClassNames.add(classEntryName);
+        }
+    }
+
+    /**
+     * Add the class names that appear in the provided field descriptor, method descriptor, or
+     * generic signature. This scan is deliberately liberal: a name that doesn't match any class
+     * only costs a map lookup, but a missed name would cause a stale class file.
+     */
+    static void addDescriptorClassNames(java.util.Set<String> referencedClassNames, String descriptor)
+    {
+        final int descriptorLength = descriptor.length();
+        int index = 0;
+        while (index < descriptorLength)
+        {
+            if (descriptor.charAt(index) == 'L')
+            {
+                final int nameStartIndex = index + 1;
+                int nameEndIndex = nameStartIndex;
+                while (nameEndIndex < descriptorLength && descriptor.charAt(nameEndIndex) != ';' && descriptor.charAt(nameEndIndex) != '<')
+                {
+                    ++nameEndIndex;
+                }
+                if (nameStartIndex < nameEndIndex)
+                {
+                    referencedClassNames.add(descriptor.substring(nameStartIndex, nameEndIndex));
+                }
+                index = nameEndIndex;
+            }
+            ++index;
+        }
+    }
+
+    /**
+     * Get the fields of this ClassFile's line in a .classgraph file.
+     */
+    String[] toFields()
+    {
+        return new String[] { sourceFilePath, className, abiHash, constantsHash, String.join(",", referencedClassNames), String.join(",", superTypeNames) };
+    }
+
+    /**
+     * Get the ClassFile that the provided fields of a .classgraph file line describe.
+     * @return The ClassFile, or null if the fields are not valid.
+     */
+    static ClassFile fromFields(String[] fields)
+    {
+        ClassFile result = null;
+        if (fields.length == 6 && !fields[0].isEmpty() && !fields[1].isEmpty() && !fields[2].isEmpty() && !fields[3].isEmpty())
+        {
+            final java.util.List<String> referencedClassNames = fields[4].isEmpty()
+                ? java.util.Collections.<String>emptyList()
+                : java.util.Arrays.asList(fields[4].split(","));
+            final java.util.List<String> superTypeNames = fields[5].isEmpty()
+                ? java.util.Collections.<String>emptyList()
+                : java.util.Arrays.asList(fields[5].split(","));
+            result = new ClassFile(fields[1], fields[0], fields[2], fields[3], referencedClassNames, superTypeNames);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return LineRecords.join(toFields());
+    }
+
+    /**
+     * Parse a single line of a .classgraph file.
+     * @return The ClassFile, or null if the text is null or not a valid line.
+     */
+    public static ClassFile parse(String text)
+    {
+        return text == null ? null : fromFields(LineRecords.split(text));
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof ClassFile && equals((ClassFile)obj);
+    }
+
+    public boolean equals(ClassFile rhs)
+    {
+        return rhs != null &&
+            className.equals(rhs.getClassName()) &&
+            sourceFilePath.equals(rhs.getSourceFilePath()) &&
+            abiHash.equals(rhs.getAbiHash()) &&
+            constantsHash.equals(rhs.getConstantsHash()) &&
+            referencedClassNames.equals(rhs.getReferencedClassNames()) &&
+            superTypeNames.equals(rhs.getSuperTypeNames());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return className.hashCode() ^ abiHash.hashCode();
+    }
+}
@@ -20,12 +20,14 @@ public class CleanAction implements Action
     @Override
     public String getArgumentUsage()
     {
-        return null;
+        return "[-background]";
     }
 
     @Override
     public void run(Console console)
     {
+        final boolean background = CleanAction.parseBackground(console);
+
         final ProjectJson projectJson = ProjectJson.parse(console);
         if (projectJson != null)
         {
@@ -33,16 +35,37 @@ public class CleanAction implements Action
             if (outputsFolder != null)
             {
                 console.write("Deleting folder " + outputsFolder + "...");
-                final Result<Boolean> deleteResult = outputsFolder.delete();
-                if (deleteResult.getValue())
+                if (ParallelDelete.canDelete(outputsFolder) && outputsFolder.exists().getValue())
                 {
-                    console.writeLine(" Done.");
+                    if (background)
+                    {
+                        console.writeLine(ParallelDelete.deleteInBackground(outputsFolder) ? " Done. The files are being deleted in the background." : " Failed.");
+                    }
+                    else
+                    {
+                        final ParallelDelete.DeleteResult deleteResult = ParallelDelete.delete(outputsFolder, Runtime.getRuntime().availableProcessors());
+                        console.writeLine((deleteResult.succeeded() ? " Done. (" : " Failed. (") + deleteResult + ")");
+                    }
                 }
                 else
                 {
-                    console.writeLine(" Failed.");
+                    final Result<Boolean> deleteResult = outputsFolder.delete();
+                    if (deleteResult.getValue())
+                    {
+                        console.writeLine(" Done.");
+                    }
+                    else
+                    {
+                        console.writeLine(" Failed.");
+                    }
                 }
             }
         }
     }
+
+    static boolean parseBackground(Console console)
+    {
+        final CommandLineArgument backgroundArgument = console.getCommandLine().remove("background");
+        return backgroundArgument != null && (backgroundArgument.getValue() == null || backgroundArgument.getValue().equalsIgnoreCase("true"));
+    }
 }
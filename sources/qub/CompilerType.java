@@ -0,0 +1,39 @@
+package qub;
+
+/**
+ * The different ways that the Java compiler can be invoked by the BuildAction.
+ */
+public enum CompilerType
+{
+    /**
+     * Run javac in a separate javac.exe process.
+     */
+    Fork,
+
+    /**
+     * Run javac inside of the current process through the javax.tools API.
+     */
+    InProcess;
+
+    /**
+     * Parse the provided text into a CompilerType.
+     * @param text The text to parse.
+     * @return The parsed CompilerType, or null if the text doesn't match any CompilerType.
+     */
+    public static CompilerType parse(String text)
+    {
+        CompilerType result = null;
+        if (text != null)
+        {
+            for (final CompilerType compilerType : CompilerType.values())
+            {
+                if (compilerType.toString().equalsIgnoreCase(text))
+                {
+                    result = compilerType;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
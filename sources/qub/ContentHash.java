@@ -0,0 +1,157 @@
+package qub;
+
+/**
+ * Functions for creating the content hashes that are used to detect changed build inputs and
+ * outputs.
+ */
+public class ContentHash
+{
+    private static final char[] hexCharacters = "0123456789abcdef".toCharArray();
+
+    /**
+     * The content hashes of files on the real file system, by path. A file's hash is used again
+     * while its size and last modified time are unchanged, so the jar files on a classpath aren't
+     * read again by every build of a long-running daemon.
+     */
+    private static final java.util.Map<String,FileHash> fileHashes = new java.util.HashMap<>();
+
+    /**
+     * Get the hexadecimal content hash of the provided bytes.
+     * @param bytes The bytes to hash.
+     * @return The hexadecimal content hash of the provided bytes.
+     */
+    public static String of(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        final java.security.MessageDigest digest = createDigest();
+        digest.update(bytes);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Get the hexadecimal content hash of the UTF-8 encoding of the provided text.
+     * @param text The text to hash.
+     * @return The hexadecimal content hash of the provided text.
+     */
+    public static String of(String text)
+    {
+        PreCondition.assertNotNull(text, "text");
+
+        return of(text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the hexadecimal content hash of the provided file's contents. A file on the real file
+     * system is streamed through the digest instead of being read into memory, and its hash is
+     * reused while its size and last modified time are unchanged.
+     * @param file The file to hash.
+     * @return The hexadecimal content hash of the file's contents, or null if the file doesn't
+     *         exist or can't be read.
+     */
+    public static String of(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        String result = null;
+        if (file.getFileSystem() instanceof JavaFileSystem)
+        {
+            final java.nio.file.Path filePath = java.nio.file.Paths.get(file.getPath().toString());
+            try
+            {
+                final java.nio.file.attribute.BasicFileAttributes attributes = java.nio.file.Files.readAttributes(filePath, java.nio.file.attribute.BasicFileAttributes.class);
+                final long size = attributes.size();
+                final long lastModified = attributes.lastModifiedTime().toMillis();
+                final String filePathString = filePath.toString();
+
+                FileHash fileHash;
+                synchronized (fileHashes)
+                {
+                    fileHash = fileHashes.get(filePathString);
+                }
+                if (fileHash == null || fileHash.size != size || fileHash.lastModified != lastModified)
+                {
+                    final java.security.MessageDigest digest = createDigest();
+                    try (final java.io.InputStream fileStream = java.nio.file.Files.newInputStream(filePath))
+                    {
+                        final byte[] buffer = new byte[64 * 1024];
+                        int bytesRead = fileStream.read(buffer);
+                        while (bytesRead >= 0)
+                        {
+                            digest.update(buffer, 0, bytesRead);
+                            bytesRead = fileStream.read(buffer);
+                        }
+                    }
+                    fileHash = new FileHash(size, lastModified, toHex(digest.digest()));
+                    synchronized (fileHashes)
+                    {
+                        fileHashes.put(filePathString, fileHash);
+                    }
+                }
+                result = fileHash.hash;
+            }
+            catch (java.io.IOException | java.nio.file.InvalidPathException ignored)
+            {
+            }
+        }
+        else if (file.exists().getValue())
+        {
+            final byte[] fileContents = file.getContents().getValue();
+            if (fileContents != null)
+            {
+                result = of(fileContents);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create a new MessageDigest that produces the same hashes as the other functions in this
+     * class. This is useful for hashing content as it is streamed.
+     * @return A new MessageDigest.
+     */
+    public static java.security.MessageDigest createDigest()
+    {
+        try
+        {
+            return java.security.MessageDigest.getInstance("MD5");
+        }
+        catch (java.security.NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support MD5.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the hexadecimal representation of the provided digest bytes.
+     * @param digestBytes The bytes of a finished digest.
+     * @return The hexadecimal representation of the provided bytes.
+     */
+    public static String toHex(byte[] digestBytes)
+    {
+        PreCondition.assertNotNull(digestBytes, "digestBytes");
+
+        final char[] result = new char[digestBytes.length * 2];
+        for (int i = 0; i < digestBytes.length; ++i)
+        {
+            result[i * 2] = hexCharacters[(digestBytes[i] >> 4) & 0xF];
+            result[i * 2 + 1] = hexCharacters[digestBytes[i] & 0xF];
+        }
+        return new String(result);
+    }
+
+    private static class FileHash
+    {
+        final long size;
+        final long lastModified;
+        final String hash;
+
+        FileHash(long size, long lastModified, String hash)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package qub;
+
+/**
+ * Computes the line coverage of compiled classes from a JaCoCo execution data file inside of the
+ * current process. The JaCoCo core classes are loaded from jacococli.jar (which bundles them) and
+ * are called reflectively, so there is no compile-time dependency on JaCoCo.
+ */
+public class CoverageAnalyzer implements AutoCloseable
+{
+    private final java.net.URLClassLoader classLoader;
+    private final Class<?> execFileLoaderClass;
+    private final Class<?> coverageBuilderClass;
+    private final java.lang.reflect.Constructor<?> analyzerConstructor;
+    private final java.lang.reflect.Method loadMethod;
+    private final java.lang.reflect.Method getExecutionDataStoreMethod;
+    private final java.lang.reflect.Method analyzeAllMethod;
+    private final java.lang.reflect.Method getClassesMethod;
+    private final java.lang.reflect.Method getNameMethod;
+    private final java.lang.reflect.Method getLineCounterMethod;
+    private final java.lang.reflect.Method getCoveredCountMethod;
+    private final java.lang.reflect.Method getMissedCountMethod;
+
+    private CoverageAnalyzer(java.net.URLClassLoader classLoader) throws ReflectiveOperationException
+    {
+        this.classLoader = classLoader;
+
+        execFileLoaderClass = loadClass("org.jacoco.core.tools.ExecFileLoader");
+        coverageBuilderClass = loadClass("org.jacoco.core.analysis.CoverageBuilder");
+        final Class<?> analyzerClass = loadClass("org.jacoco.core.analysis.Analyzer");
+        final Class<?> executionDataStoreClass = loadClass("org.jacoco.core.data.ExecutionDataStore");
+        final Class<?> coverageVisitorClass = loadClass("org.jacoco.core.analysis.ICoverageVisitor");
+        final Class<?> coverageNodeClass = loadClass("org.jacoco.core.analysis.ICoverageNode");
+        final Class<?> counterClass = loadClass("org.jacoco.core.analysis.ICounter");
+
+        analyzerConstructor = analyzerClass.getConstructor(executionDataStoreClass, coverageVisitorClass);
+        loadMethod = execFileLoaderClass.getMethod("load", java.io.File.class);
+        getExecutionDataStoreMethod = execFileLoaderClass.getMethod("getExecutionDataStore");
+        analyzeAllMethod = analyzerClass.getMethod("analyzeAll", java.io.File.class);
+        getClassesMethod = coverageBuilderClass.getMethod("getClasses");
+        getNameMethod = coverageNodeClass.getMethod("getName");
+        getLineCounterMethod = coverageNodeClass.getMethod("getLineCounter");
+        getCoveredCountMethod = counterClass.getMethod("getCoveredCount");
+        getMissedCountMethod = counterClass.getMethod("getMissedCount");
+    }
+
+    private Class<?> loadClass(String className) throws ClassNotFoundException
+    {
+        return Class.forName(className, true, classLoader);
+    }
+
+    /**
+     * Create a new CoverageAnalyzer that uses the JaCoCo classes in the provided jar file.
+     * @param jacocoJarFile The jar file that contains the JaCoCo core classes.
+     * @param console The Console to write the reason to if the JaCoCo classes can't be loaded.
+     * @return The new CoverageAnalyzer, or null if the JaCoCo classes can't be loaded.
+     */
+    public static CoverageAnalyzer create(File jacocoJarFile, Console console)
+    {
+        PreCondition.assertNotNull(jacocoJarFile, "jacocoJarFile");
+        PreCondition.assertNotNull(console, "console");
+
+        CoverageAnalyzer result = null;
+        java.net.URLClassLoader classLoader = null;
+        try
+        {
+            classLoader = new java.net.URLClassLoader(
+                new java.net.URL[] { new java.io.File(jacocoJarFile.getPath().toString()).toURI().toURL() },
+                ClassLoader.getSystemClassLoader().getParent());
+            result = new CoverageAnalyzer(classLoader);
+        }
+        catch (java.net.MalformedURLException | ReflectiveOperationException | LinkageError e)
+        {
+            console.writeLine("Could not load the JaCoCo classes from " + jacocoJarFile.getPath().toString() + ": " + e);
+            if (classLoader != null)
+            {
+                try
+                {
+                    classLoader.close();
+                }
+                catch (java.io.IOException ignored)
+                {
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the line coverage of every class in the provided folder that contains code.
+     * @param execFile The JaCoCo execution data file that the tests wrote.
+     * @param classesFolder The folder that contains the compiled classes to analyze.
+     * @return The line coverage of each class, ordered by class name.
+     */
+    public java.util.List<ClassCoverage> analyze(File execFile, Folder classesFolder) throws Exception
+    {
+        PreCondition.assertNotNull(execFile, "execFile");
+        PreCondition.assertNotNull(classesFolder, "classesFolder");
+
+        final Object execFileLoader = execFileLoaderClass.getConstructor().newInstance();
+        loadMethod.invoke(execFileLoader, new java.io.File(execFile.getPath().toString()));
+
+        final Object coverageBuilder = coverageBuilderClass.getConstructor().newInstance();
+        final Object analyzer = analyzerConstructor.newInstance(getExecutionDataStoreMethod.invoke(execFileLoader), coverageBuilder);
+        analyzeAllMethod.invoke(analyzer, new java.io.File(classesFolder.getPath().toString()));
+
+        final java.util.List<ClassCoverage> result = new java.util.ArrayList<>();
+        for (final Object classCoverage : (java.util.Collection<?>)getClassesMethod.invoke(coverageBuilder))
+        {
+            final Object lineCounter = getLineCounterMethod.invoke(classCoverage);
+            final int linesCovered = ((Number)getCoveredCountMethod.invoke(lineCounter)).intValue();
+            final int linesMissed = ((Number)getMissedCountMethod.invoke(lineCounter)).intValue();
+            if (linesCovered + linesMissed > 0)
+            {
+                final String className = ((String)getNameMethod.invoke(classCoverage)).replace('/', '.');
+                result.add(new ClassCoverage(className, linesCovered, linesMissed));
+            }
+        }
+        result.sort((ClassCoverage lhs, ClassCoverage rhs) -> lhs.getClassName().compareTo(rhs.getClassName()));
+        return result;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            classLoader.close();
+        }
+        catch (java.io.IOException ignored)
+        {
+        }
+    }
+
+    /**
+     * The line coverage of a single class.
+     */
+    public static class ClassCoverage
+    {
+        private final String className;
+        private final int linesCovered;
+        private final int linesMissed;
+
+        public ClassCoverage(String className, int linesCovered, int linesMissed)
+        {
+            PreCondition.assertNotNullAndNotEmpty(className, "className");
+            PreCondition.assertGreaterThanOrEqualTo(linesCovered, 0, "linesCovered");
+            PreCondition.assertGreaterThanOrEqualTo(linesMissed, 0, "linesMissed");
+
+            this.className = className;
+            this.linesCovered = linesCovered;
+            this.linesMissed = linesMissed;
+        }
+
+        /**
+         * Get the full name of the class.
+         */
+        public String getClassName()
+        {
+            return className;
+        }
+
+        public int getLinesCovered()
+        {
+            return linesCovered;
+        }
+
+        public int getLinesMissed()
+        {
+            return linesMissed;
+        }
+
+        public int getTotalLines()
+        {
+            return linesCovered + linesMissed;
+        }
+
+        /**
+         * Get the percentage (rounded down) of this class's lines that were run.
+         */
+        public int getLineCoverage()
+        {
+            final int totalLines = getTotalLines();
+            return totalLines == 0 ? 100 : (int)(100L * linesCovered / totalLines);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package qub;
+
+/**
+ * The different kinds of code coverage analysis that the TestAction can do.
+ */
+public enum CoverageType
+{
+    /**
+     * Don't measure code coverage.
+     */
+    None,
+
+    /**
+     * Measure the line coverage of each class and check it against the project's line coverage
+     * requirement.
+     */
+    Summary,
+
+    /**
+     * Do everything that Summary does, and also write and open an HTML coverage report.
+     */
+    Html;
+
+    /**
+     * Parse the provided text into a CoverageType.
+     * @param text The text to parse.
+     * @return The parsed CoverageType, or null if the text doesn't match any CoverageType.
+     */
+    public static CoverageType parse(String text)
+    {
+        CoverageType result = null;
+        if (text != null)
+        {
+            for (final CoverageType coverageType : CoverageType.values())
+            {
+                if (coverageType.toString().equalsIgnoreCase(text))
+                {
+                    result = coverageType;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
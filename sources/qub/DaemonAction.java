@@ -0,0 +1,429 @@
+package qub;
+
+/**
+ * A QubCLI action that runs a long-lived build server. While the server is running, other QubCLI
+ * invocations hand their build and test actions to it so that they run in an already warm JVM.
+ * The server writes its port and a random token to a port file that only the current user can
+ * read, and it only serves requests that start with that token.
+ */
+public class DaemonAction implements Action
+{
+    private static final String portFileName = "daemon.port";
+    private static final String runRequest = "run";
+    private static final String stopRequest = "stop";
+    private static final int tokenByteCount = 32;
+
+    @Override
+    public String getName()
+    {
+        return "Daemon";
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Run a background server that keeps the build and test machinery warm.";
+    }
+
+    @Override
+    public String getArgumentUsage()
+    {
+        return "[-stop]";
+    }
+
+    @Override
+    public void run(Console console)
+    {
+        final File portFile = getPortFile(console);
+
+        final CommandLineArgument stopArgument = console.getCommandLine().remove("stop");
+        if (stopArgument != null)
+        {
+            console.write("Stopping daemon...");
+            final DaemonAddress daemonAddress = DaemonAddress.read(portFile);
+            try (final java.net.Socket socket = daemonAddress == null ? null : daemonAddress.connect())
+            {
+                if (socket == null)
+                {
+                    console.writeLine(" No daemon is running.");
+                }
+                else
+                {
+                    final java.io.DataOutputStream request = new java.io.DataOutputStream(socket.getOutputStream());
+                    request.writeUTF(daemonAddress.token);
+                    request.writeUTF(stopRequest);
+                    request.flush();
+                    console.writeLine(" Done.");
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                console.writeLine(" Failed.");
+                console.writeLine(e.toString());
+            }
+        }
+        else
+        {
+            try (final java.net.ServerSocket serverSocket = new java.net.ServerSocket(0, 50, java.net.InetAddress.getLoopbackAddress()))
+            {
+                final DaemonAddress daemonAddress = new DaemonAddress(serverSocket.getLocalPort(), createToken());
+                daemonAddress.write(portFile);
+                console.writeLine("Daemon listening on port " + daemonAddress.port + ". Run \"qub daemon -stop\" to stop it.");
+
+                boolean stopRequested = false;
+                while (!stopRequested)
+                {
+                    try (final java.net.Socket socket = serverSocket.accept())
+                    {
+                        stopRequested = serve(console, socket, daemonAddress.token);
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        console.writeLine(e.toString());
+                    }
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                console.writeLine(e.toString());
+            }
+            finally
+            {
+                portFile.delete();
+            }
+
+            console.writeLine("Daemon stopped.");
+        }
+    }
+
+    /**
+     * Serve a single request from a client QubCLI process. Requests are served one at a time so
+     * that each request can have the process's standard output and error streams to itself.
+     * @param console The Console that the daemon is running in.
+     * @param socket The connection to the client.
+     * @param token The token that the request must start with.
+     * @return Whether or not the client requested that the daemon stop.
+     */
+    private static boolean serve(Console console, java.net.Socket socket, String token) throws java.io.IOException
+    {
+        boolean stopRequested = false;
+
+        final java.io.DataInputStream request = new java.io.DataInputStream(new java.io.BufferedInputStream(socket.getInputStream()));
+        final String requestToken = request.readUTF();
+        if (!java.security.MessageDigest.isEqual(token.getBytes(java.nio.charset.StandardCharsets.UTF_8), requestToken.getBytes(java.nio.charset.StandardCharsets.UTF_8)))
+        {
+            console.writeLine("Rejected a request that didn't have the daemon's token.");
+        }
+        else
+        {
+            final String requestType = request.readUTF();
+            if (stopRequest.equals(requestType))
+            {
+                stopRequested = true;
+            }
+            else if (runRequest.equals(requestType))
+            {
+                final String currentFolderPath = request.readUTF();
+                final String[] arguments = new String[request.readInt()];
+                for (int i = 0; i < arguments.length; ++i)
+                {
+                    arguments[i] = request.readUTF();
+                }
+                serveRun(console, socket, currentFolderPath, arguments);
+            }
+        }
+
+        return stopRequested;
+    }
+
+    /**
+     * Run the provided command line, if it is one of the daemon's actions.
+     */
+    private static void serveRun(Console console, java.net.Socket socket, String currentFolderPath, String[] arguments) throws java.io.IOException
+    {
+        final java.io.PrintStream response = new java.io.PrintStream(new java.io.BufferedOutputStream(socket.getOutputStream()), true, "UTF-8");
+        if (!isDaemonCommandLine(arguments))
+        {
+            response.println("The qub daemon only runs the build and test actions without -watch.");
+            response.flush();
+            console.writeLine("Rejected \"qub " + String.join(" ", arguments) + "\" in " + currentFolderPath);
+        }
+        else
+        {
+            final java.io.PrintStream daemonOutput = System.out;
+            final java.io.PrintStream daemonError = System.err;
+            System.setOut(response);
+            System.setErr(response);
+            try (final Console requestConsole = new Console(arguments))
+            {
+                requestConsole.setCurrentFolderPathString(currentFolderPath);
+                QubCLI.main(requestConsole);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace(response);
+            }
+            finally
+            {
+                response.flush();
+                System.setOut(daemonOutput);
+                System.setErr(daemonError);
+            }
+
+            console.writeLine("Served \"qub " + String.join(" ", arguments) + "\" in " + currentFolderPath);
+        }
+    }
+
+    /**
+     * Run the action on the provided Console's command line in the daemon, if a daemon is running
+     * and the command line is one that the daemon runs.
+     * @param console The Console whose command line should be run.
+     * @return Whether or not the daemon ran the command line. If this returns false, then the
+     * command line should be run in the current process.
+     */
+    static boolean runInDaemon(Console console)
+    {
+        boolean result = false;
+
+        final CommandLine commandLine = console.getCommandLine();
+        final java.util.List<String> arguments = new java.util.ArrayList<>();
+        for (final CommandLineArgument argument : commandLine.getArguments())
+        {
+            arguments.add(argument.toString());
+        }
+
+        if (isDaemonCommandLine(arguments.toArray(new String[0])))
+        {
+            final DaemonAddress daemonAddress = DaemonAddress.read(getPortFile(console));
+            if (daemonAddress != null)
+            {
+                try (final java.net.Socket socket = daemonAddress.connect())
+                {
+                    if (socket != null)
+                    {
+                        final java.io.DataOutputStream request = new java.io.DataOutputStream(new java.io.BufferedOutputStream(socket.getOutputStream()));
+                        request.writeUTF(daemonAddress.token);
+                        request.writeUTF(runRequest);
+                        request.writeUTF(console.getCurrentFolderPath().toString());
+                        request.writeInt(arguments.size());
+                        for (final String argument : arguments)
+                        {
+                            request.writeUTF(argument);
+                        }
+                        request.flush();
+
+                        // Once the request has been sent the daemon owns the command, so even if
+                        // the connection drops it must not also run in the current process.
+                        result = true;
+
+                        final ByteWriteStream output = console.getOutputAsByteWriteStream();
+                        final java.io.InputStream response = socket.getInputStream();
+                        final byte[] buffer = new byte[8192];
+                        int bytesRead;
+                        while ((bytesRead = response.read(buffer)) != -1)
+                        {
+                            output.writeBytes(buffer, 0, bytesRead);
+                        }
+                    }
+                }
+                catch (java.io.IOException e)
+                {
+                    if (result)
+                    {
+                        console.writeLine("Lost the connection to the qub daemon: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static File getPortFile(Console console)
+    {
+        return QubCLI.getQubFolder(console).getFile(portFileName).getValue();
+    }
+
+    /**
+     * Get whether or not the provided action is one that the daemon runs.
+     */
+    static boolean isDaemonAction(String actionName)
+    {
+        return actionName != null && (actionName.equalsIgnoreCase("build") || actionName.equalsIgnoreCase("test"));
+    }
+
+    /**
+     * Get whether or not the daemon runs the provided command line. The daemon serves one request
+     * at a time, so it doesn't run command lines that never finish, such as ones with -watch.
+     * @param arguments The command line's arguments, starting with the action name.
+     */
+    static boolean isDaemonCommandLine(String[] arguments)
+    {
+        PreCondition.assertNotNull(arguments, "arguments");
+
+        boolean result = arguments.length > 0 && isDaemonAction(arguments[0]);
+        for (int i = 1; result && i < arguments.length; ++i)
+        {
+            final String argument = arguments[i];
+            if (argument != null && argument.startsWith("-"))
+            {
+                final int equalsIndex = argument.indexOf('=');
+                final String argumentName = (equalsIndex == -1 ? argument : argument.substring(0, equalsIndex)).replaceFirst("^-+", "");
+                result = !argumentName.equals("watch");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create a new random token for a daemon.
+     */
+    private static String createToken()
+    {
+        final byte[] tokenBytes = new byte[tokenByteCount];
+        new java.security.SecureRandom().nextBytes(tokenBytes);
+        final StringBuilder result = new StringBuilder();
+        for (final byte tokenByte : tokenBytes)
+        {
+            result.append(String.format("%02x", tokenByte));
+        }
+        return result.toString();
+    }
+
+    /**
+     * The port that a daemon listens on and the token that its requests must start with.
+     */
+    static class DaemonAddress
+    {
+        final int port;
+        final String token;
+
+        DaemonAddress(int port, String token)
+        {
+            PreCondition.assertNotNullAndNotEmpty(token, "token");
+
+            this.port = port;
+            this.token = token;
+        }
+
+        /**
+         * Parse the contents of a port file.
+         * @return The DaemonAddress, or null if the contents aren't a port and a token.
+         */
+        static DaemonAddress parse(String text)
+        {
+            DaemonAddress result = null;
+            if (text != null)
+            {
+                final String[] lines = text.trim().split("\r?\n");
+                if (lines.length == 2 && !lines[1].trim().isEmpty())
+                {
+                    try
+                    {
+                        result = new DaemonAddress(Integer.parseInt(lines[0].trim()), lines[1].trim());
+                    }
+                    catch (NumberFormatException ignored)
+                    {
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Read the DaemonAddress that a running daemon wrote to the provided port file.
+         * @return The DaemonAddress, or null if the port file doesn't exist or isn't valid.
+         */
+        static DaemonAddress read(File portFile)
+        {
+            DaemonAddress result = null;
+            if (portFile.exists().getValue())
+            {
+                final byte[] portFileContents = portFile.getContents().getValue();
+                if (portFileContents != null)
+                {
+                    // A port file without a token was written by an older daemon, so it is
+                    // treated the same as a stale port file.
+                    result = parse(new String(portFileContents, java.nio.charset.StandardCharsets.UTF_8));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Write this DaemonAddress to the provided port file so that only the current user can
+         * read it.
+         */
+        void write(File portFile) throws java.io.IOException
+        {
+            final byte[] contents = toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            if (!(portFile.getFileSystem() instanceof JavaFileSystem))
+            {
+                portFile.setContents(contents);
+            }
+            else
+            {
+                // The file is created with owner-only permissions before the token is written to
+                // it, and then moved into place.
+                final java.nio.file.Path portFilePath = java.nio.file.Paths.get(portFile.getPath().toString());
+                final java.nio.file.Path portFolderPath = portFilePath.toAbsolutePath().getParent();
+                java.nio.file.Files.createDirectories(portFolderPath);
+                final java.nio.file.Path temporaryFilePath;
+                if (portFolderPath.getFileSystem().supportedFileAttributeViews().contains("posix"))
+                {
+                    temporaryFilePath = java.nio.file.Files.createTempFile(portFolderPath, "." + portFilePath.getFileName(), ".tmp",
+                        java.nio.file.attribute.PosixFilePermissions.asFileAttribute(java.nio.file.attribute.PosixFilePermissions.fromString("rw-------")));
+                }
+                else
+                {
+                    temporaryFilePath = java.nio.file.Files.createTempFile(portFolderPath, "." + portFilePath.getFileName(), ".tmp");
+                    final java.nio.file.attribute.AclFileAttributeView aclView = java.nio.file.Files.getFileAttributeView(temporaryFilePath, java.nio.file.attribute.AclFileAttributeView.class);
+                    if (aclView != null)
+                    {
+                        aclView.setAcl(java.util.Collections.singletonList(java.nio.file.attribute.AclEntry.newBuilder()
+                            .setType(java.nio.file.attribute.AclEntryType.ALLOW)
+                            .setPrincipal(aclView.getOwner())
+                            .setPermissions(java.util.EnumSet.allOf(java.nio.file.attribute.AclEntryPermission.class))
+                            .build()));
+                    }
+                }
+
+                try
+                {
+                    java.nio.file.Files.write(temporaryFilePath, contents);
+                    java.nio.file.Files.move(temporaryFilePath, portFilePath, java.nio.file.StandardCopyOption.ATOMIC_MOVE, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                }
+                finally
+                {
+                    java.nio.file.Files.deleteIfExists(temporaryFilePath);
+                }
+            }
+        }
+
+        /**
+         * Connect to the daemon.
+         * @return The connection to the daemon, or null if the daemon isn't running.
+         */
+        java.net.Socket connect()
+        {
+            java.net.Socket result = null;
+            try
+            {
+                final java.net.Socket socket = new java.net.Socket();
+                socket.connect(new java.net.InetSocketAddress(java.net.InetAddress.getLoopbackAddress(), port), 1000);
+                result = socket;
+            }
+            catch (java.io.IOException ignored)
+            {
+                // A stale port file means that no daemon is running.
+            }
+            return result;
+        }
+
+        @Override
+        public String toString()
+        {
+            return port + "\n" + token + "\n";
+        }
+    }
+}
@@ -20,7 +20,7 @@ public class DeleteAction implements Action
     @Override
     public String getArgumentUsage()
     {
-        return "[-file] [-folder] <file-folder-or-filter-to-delete> [<additional-file-folder-or-filter-to-delete> ...]";
+        return "[-file] [-folder] [-dryRun] <file-folder-or-filter-to-delete> [<additional-file-folder-or-filter-to-delete> ...]";
     }
 
     @Override
@@ -32,40 +32,92 @@ public class DeleteAction implements Action
 
         final boolean fileFlag = (commandLine.remove("file") != null | commandLine.remove("files") != null);
         final boolean folderFlag = (commandLine.remove("folder") != null | commandLine.remove("folders") != null);
+        final boolean dryRun = (commandLine.remove("dryRun") != null);
 
         final Action2<String, FileSystemEntry> deleteEntry = (String entryType, FileSystemEntry entry) ->
         {
-            console.write("Deleting " + entryType + " " + entry.getPath().toString() + "...");
-            if (entry.delete().getValue())
+            if (dryRun)
             {
-                console.writeLine(" Done.");
+                console.writeLine("Would delete " + entryType + " " + entry.getPath().toString() + ".");
             }
             else
             {
-                console.writeLine(" Failed.");
+                console.write("Deleting " + entryType + " " + entry.getPath().toString() + "...");
+                if (entry.delete().getValue())
+                {
+                    console.writeLine(" Done.");
+                }
+                else
+                {
+                    console.writeLine(" Failed.");
+                }
             }
         };
         final Action1<File> deleteFile = (File file) -> deleteEntry.run("file", file);
-        final Action1<Folder> deleteFolder = (Folder folder) -> deleteEntry.run("folder", folder);
-
-        final Iterable<Path> pathsToDelete = commandLine.getArguments()
-            .map((CommandLineArgument argument) -> Path.parse(argument.toString()));
+        final Action1<Folder> deleteFolder = (Folder folder) ->
+        {
+            if (!dryRun && ParallelDelete.canDelete(folder))
+            {
+                console.write("Deleting folder " + folder.getPath().toString() + "...");
+                final ParallelDelete.DeleteResult deleteResult = ParallelDelete.delete(folder, Runtime.getRuntime().availableProcessors());
+                console.writeLine((deleteResult.succeeded() ? " Done. (" : " Failed. (") + deleteResult + ")");
+            }
+            else
+            {
+                deleteEntry.run("folder", folder);
+            }
+        };
 
         final FileSystem fileSystem = console.getFileSystem();
         final Folder currentFolder = console.getCurrentFolder().getValue();
+
+        // Filters are grouped by the folder that they are relative to, so that each folder is
+        // only walked once no matter how many filters are in it.
+        final java.util.Map<String,Folder> filterFolders = new java.util.LinkedHashMap<>();
+        final java.util.Map<String,java.util.List<GlobPattern>> filterPatterns = new java.util.LinkedHashMap<>();
+        final java.util.Map<String,java.util.List<String>> filterTexts = new java.util.LinkedHashMap<>();
+
+        final java.util.List<Path> pathsToDelete = new java.util.ArrayList<>();
+        for (final CommandLineArgument argument : commandLine.getArguments())
+        {
+            final String argumentText = argument.toString();
+            if (!GlobPattern.isGlob(argumentText))
+            {
+                pathsToDelete.add(Path.parse(argumentText));
+            }
+            else
+            {
+                final int wildcardIndex = java.lang.Math.min(
+                    argumentText.indexOf('*') < 0 ? argumentText.length() : argumentText.indexOf('*'),
+                    argumentText.indexOf('?') < 0 ? argumentText.length() : argumentText.indexOf('?'));
+                final int separatorIndex = java.lang.Math.max(argumentText.lastIndexOf('/', wildcardIndex), argumentText.lastIndexOf('\\', wildcardIndex));
+
+                Folder filterFolder = currentFolder;
+                if (separatorIndex >= 0)
+                {
+                    String folderPathString = argumentText.substring(0, separatorIndex);
+                    if (folderPathString.isEmpty() || folderPathString.endsWith(":"))
+                    {
+                        // Keep the separator of a root folder, such as "/" or "C:/".
+                        folderPathString = argumentText.substring(0, separatorIndex + 1);
+                    }
+                    final Path folderPath = Path.parse(folderPathString);
+                    filterFolder = folderPath.isRooted() ? fileSystem.getFolder(folderPath).getValue() : currentFolder.getFolder(folderPath).getValue();
+                }
+
+                final String filterFolderKey = filterFolder.getPath().toString();
+                filterFolders.put(filterFolderKey, filterFolder);
+                filterPatterns.computeIfAbsent(filterFolderKey, (String key) -> new java.util.ArrayList<>()).add(GlobPattern.parse(argumentText.substring(separatorIndex + 1)));
+                filterTexts.computeIfAbsent(filterFolderKey, (String key) -> new java.util.ArrayList<>()).add(argumentText);
+            }
+        }
+
         for (final Path pathToDelete : pathsToDelete)
         {
             File fileToDelete = null;
             Folder folderToDelete = null;
             final boolean pathIsRooted = pathToDelete.isRooted();
 
-            boolean fileExists = false;
-            if (fileFlag || !folderFlag)
-            {
-                fileToDelete = pathIsRooted ? fileSystem.getFile(pathToDelete).getValue() : currentFolder.getFile(pathToDelete).getValue();
-                fileExists = fileToDelete.exists().getValue();
-            }
-
             boolean folderExists = false;
             if (folderFlag || !fileFlag)
             {
@@ -73,6 +125,15 @@ public class DeleteAction implements Action
                 folderExists = folderToDelete.exists().getValue();
             }
 
+            // A path on the real file system can't be both a file and a folder, so it only needs
+            // to be checked for a file if it isn't a folder.
+            boolean fileExists = false;
+            if ((fileFlag || !folderFlag) && !(folderExists && fileSystem instanceof JavaFileSystem))
+            {
+                fileToDelete = pathIsRooted ? fileSystem.getFile(pathToDelete).getValue() : currentFolder.getFile(pathToDelete).getValue();
+                fileExists = fileToDelete.exists().getValue();
+            }
+
             if (fileFlag && folderFlag)
             {
                 if (folderExists)
@@ -132,5 +193,36 @@ public class DeleteAction implements Action
                 }
             }
         }
+
+        for (final String filterFolderKey : filterFolders.keySet())
+        {
+            final Folder filterFolder = filterFolders.get(filterFolderKey);
+            final String filters = String.join(" ", filterTexts.get(filterFolderKey));
+            final List<FileSystemEntry> matches = GlobWalker.find(filterFolder, filterPatterns.get(filterFolderKey), fileFlag || !folderFlag, folderFlag || !fileFlag);
+            if (!matches.any())
+            {
+                console.writeLine("No files or folders match " + filters + ".");
+            }
+            else if (dryRun || !ParallelDelete.canDelete(filterFolder))
+            {
+                for (final FileSystemEntry match : matches)
+                {
+                    if (match instanceof Folder)
+                    {
+                        deleteEntry.run("folder", match);
+                    }
+                    else
+                    {
+                        deleteEntry.run("file", match);
+                    }
+                }
+            }
+            else
+            {
+                console.write("Deleting " + matches.getCount() + " match" + (matches.getCount() == 1 ? "" : "es") + " for " + filters + "...");
+                final ParallelDelete.DeleteResult deleteResult = ParallelDelete.delete(matches, Runtime.getRuntime().availableProcessors());
+                console.writeLine((deleteResult.succeeded() ? " Done. (" : " Failed. (") + deleteResult + ")");
+            }
+        }
     }
 }
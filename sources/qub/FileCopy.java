@@ -0,0 +1,155 @@
+package qub;
+
+/**
+ * Copies files and computes a SHA-256 digest of the copied bytes. On the real file system the file
+ * is streamed through a fixed-size buffer between two FileChannels, so large files aren't loaded
+ * into memory.
+ */
+public class FileCopy
+{
+    /**
+     * The size of the buffer that the file is streamed through.
+     */
+    private static final int bufferSize = 1024 * 1024;
+
+    /**
+     * Copy the provided source file to the provided destination file. The destination's folder is
+     * created if it doesn't exist, and an existing destination file is replaced.
+     * @param source The file to copy.
+     * @param destination The file to copy to.
+     * @return The result of the copy.
+     * @throws java.io.IOException If the file couldn't be copied, or if the source file changed
+     *                             while it was being copied.
+     */
+    public static CopyResult copy(File source, File destination) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(source, "source");
+        PreCondition.assertNotNull(destination, "destination");
+
+        final long startTime = System.nanoTime();
+
+        final java.security.MessageDigest digest;
+        try
+        {
+            digest = java.security.MessageDigest.getInstance("SHA-256");
+        }
+        catch (java.security.NoSuchAlgorithmException e)
+        {
+            throw new java.io.IOException(e);
+        }
+
+        final long byteCount;
+        if (NativeFiles.isNative(source) && NativeFiles.isNative(destination))
+        {
+            byteCount = copyNative(java.nio.file.Paths.get(source.getPath().toString()), java.nio.file.Paths.get(destination.getPath().toString()), digest);
+        }
+        else
+        {
+            final byte[] contents = source.getContents().getValue();
+            if (contents == null)
+            {
+                throw new java.io.IOException("Could not read " + source + ".");
+            }
+            digest.update(contents);
+            destination.setContents(contents);
+            byteCount = contents.length;
+        }
+
+        final StringBuilder sha256 = new StringBuilder();
+        for (final byte digestByte : digest.digest())
+        {
+            sha256.append(String.format("%02x", digestByte));
+        }
+
+        return new CopyResult(byteCount, (System.nanoTime() - startTime) / 1000000, sha256.toString());
+    }
+
+    /**
+     * Stream the provided source file to the provided destination file on the real file system.
+     * @return The number of bytes that were copied.
+     */
+    private static long copyNative(java.nio.file.Path source, java.nio.file.Path destination, java.security.MessageDigest digest) throws java.io.IOException
+    {
+        final java.nio.file.attribute.BasicFileAttributes sourceAttributes = java.nio.file.Files.readAttributes(source, java.nio.file.attribute.BasicFileAttributes.class);
+        final java.nio.file.Path destinationFolder = destination.toAbsolutePath().getParent();
+        if (destinationFolder != null)
+        {
+            java.nio.file.Files.createDirectories(destinationFolder);
+        }
+
+        long result = 0;
+        try (final java.nio.channels.FileChannel sourceChannel = java.nio.channels.FileChannel.open(source, java.nio.file.StandardOpenOption.READ);
+             final java.nio.channels.FileChannel destinationChannel = java.nio.channels.FileChannel.open(destination, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.TRUNCATE_EXISTING, java.nio.file.StandardOpenOption.WRITE))
+        {
+            final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocateDirect((int)java.lang.Math.max(1, java.lang.Math.min(bufferSize, sourceAttributes.size())));
+            while (sourceChannel.read(buffer) >= 0)
+            {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining())
+                {
+                    result += destinationChannel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+
+        // A build that rewrites the source file while it is being copied would leave a destination
+        // file that doesn't match either version of the source file.
+        final java.nio.file.attribute.BasicFileAttributes sourceAttributesAfterCopy = java.nio.file.Files.readAttributes(source, java.nio.file.attribute.BasicFileAttributes.class);
+        if (result != sourceAttributes.size() ||
+            sourceAttributesAfterCopy.size() != sourceAttributes.size() ||
+            !sourceAttributesAfterCopy.lastModifiedTime().equals(sourceAttributes.lastModifiedTime()) ||
+            java.nio.file.Files.size(destination) != result)
+        {
+            java.nio.file.Files.deleteIfExists(destination);
+            throw new java.io.IOException(source + " changed while it was being copied.");
+        }
+
+        return result;
+    }
+
+    /**
+     * The result of a FileCopy.
+     */
+    public static class CopyResult
+    {
+        private final long byteCount;
+        private final long durationMilliseconds;
+        private final String sha256;
+
+        CopyResult(long byteCount, long durationMilliseconds, String sha256)
+        {
+            this.byteCount = byteCount;
+            this.durationMilliseconds = durationMilliseconds;
+            this.sha256 = sha256;
+        }
+
+        public long getByteCount()
+        {
+            return byteCount;
+        }
+
+        public long getDurationMilliseconds()
+        {
+            return durationMilliseconds;
+        }
+
+        /**
+         * Get the lowercase hexadecimal SHA-256 digest of the copied bytes.
+         */
+        public String getSha256()
+        {
+            return sha256;
+        }
+
+        @Override
+        public String toString()
+        {
+            final double seconds = java.lang.Math.max(durationMilliseconds, 1) / 1000.0;
+            return ParallelDelete.DeleteResult.toSizeString(byteCount) + " in " +
+                String.format(java.util.Locale.ROOT, "%.1f", durationMilliseconds / 1000.0) + " seconds, " +
+                ParallelDelete.DeleteResult.toSizeString((long)(byteCount / seconds)) + "/s";
+        }
+    }
+}
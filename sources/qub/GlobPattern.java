@@ -0,0 +1,236 @@
+package qub;
+
+/**
+ * A pattern that matches relative file paths, such as "generated/**" or "**&#47;*Tests.java".
+ * "*" matches any characters except '/', "?" matches any one character except '/', and "**"
+ * matches any characters including '/'. A "**&#47;" prefix also matches no folders at all.
+ */
+public class GlobPattern
+{
+    private final String text;
+    private final java.util.regex.Pattern regex;
+    /**
+     * The compiled regex of each '/' separated segment of this pattern, or null for a segment that
+     * contains "**" and so can match any number of folders.
+     */
+    private final java.util.List<java.util.regex.Pattern> segmentRegexes;
+
+    private GlobPattern(String text)
+    {
+        this.text = text;
+        this.regex = java.util.regex.Pattern.compile(toRegex(text));
+        this.segmentRegexes = new java.util.ArrayList<>();
+        for (final String segment : text.split("/"))
+        {
+            segmentRegexes.add(segment.contains("**") ? null : java.util.regex.Pattern.compile(toRegex(segment)));
+        }
+    }
+
+    /**
+     * Get whether or not the provided text contains any of the wildcards that GlobPattern
+     * supports.
+     */
+    public static boolean isGlob(String text)
+    {
+        PreCondition.assertNotNull(text, "text");
+
+        return text.indexOf('*') >= 0 || text.indexOf('?') >= 0;
+    }
+
+    /**
+     * Parse a GlobPattern from the provided text.
+     * @param text The text of the pattern. Backslashes are treated as '/'.
+     * @return The parsed GlobPattern.
+     */
+    public static GlobPattern parse(String text)
+    {
+        PreCondition.assertNotNullAndNotEmpty(text, "text");
+
+        return new GlobPattern(normalize(text));
+    }
+
+    private static String normalize(String path)
+    {
+        String result = path.replace('\\', '/');
+        while (result.startsWith("./"))
+        {
+            result = result.substring(2);
+        }
+        return result;
+    }
+
+    private static String toRegex(String text)
+    {
+        final StringBuilder builder = new StringBuilder();
+        int i = 0;
+        while (i < text.length())
+        {
+            final char c = text.charAt(i);
+            if (c == '*')
+            {
+                if (i + 1 < text.length() && text.charAt(i + 1) == '*')
+                {
+                    if (i + 2 < text.length() && text.charAt(i + 2) == '/')
+                    {
+                        builder.append("(?:.*/)?");
+                        i += 3;
+                    }
+                    else
+                    {
+                        builder.append(".*");
+                        i += 2;
+                    }
+                }
+                else
+                {
+                    builder.append("[^/]*");
+                    ++i;
+                }
+            }
+            else if (c == '?')
+            {
+                builder.append("[^/]");
+                ++i;
+            }
+            else
+            {
+                builder.append(java.util.regex.Pattern.quote(Character.toString(c)));
+                ++i;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get whether or not this pattern matches the provided relative path.
+     * @param relativePath The '/' separated path to match.
+     */
+    public boolean matches(String relativePath)
+    {
+        PreCondition.assertNotNull(relativePath, "relativePath");
+
+        return regex.matcher(normalize(relativePath)).matches();
+    }
+
+    /**
+     * Get whether or not this pattern matches every path under the provided relative folder path.
+     * This is used to skip walking excluded folders.
+     * @param relativeFolderPath The '/' separated path of the folder.
+     */
+    public boolean matchesEverythingUnder(String relativeFolderPath)
+    {
+        PreCondition.assertNotNull(relativeFolderPath, "relativeFolderPath");
+
+        boolean result;
+        if (text.equals("**"))
+        {
+            result = true;
+        }
+        else if (text.endsWith("/**"))
+        {
+            result = new GlobPattern(text.substring(0, text.length() - "/**".length())).matches(relativeFolderPath);
+        }
+        else
+        {
+            result = false;
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not this pattern might match a path under the provided relative folder path.
+     * This is used to skip walking folders that can't contain any matches.
+     * @param relativeFolderPath The '/' separated path of the folder, or the empty string for the
+     *                           folder that the pattern is relative to.
+     */
+    public boolean mightMatchUnder(String relativeFolderPath)
+    {
+        PreCondition.assertNotNull(relativeFolderPath, "relativeFolderPath");
+
+        boolean result = true;
+        final String normalizedFolderPath = normalize(relativeFolderPath);
+        if (!normalizedFolderPath.isEmpty())
+        {
+            final String[] folderSegments = normalizedFolderPath.split("/");
+            boolean foundRecursiveSegment = false;
+            for (int i = 0; result && !foundRecursiveSegment && i < folderSegments.length; ++i)
+            {
+                if (i >= segmentRegexes.size())
+                {
+                    result = false;
+                }
+                else if (segmentRegexes.get(i) == null)
+                {
+                    foundRecursiveSegment = true;
+                }
+                else
+                {
+                    result = segmentRegexes.get(i).matcher(folderSegments[i]).matches();
+                }
+            }
+
+            if (result && !foundRecursiveSegment)
+            {
+                // A path under the folder has at least one more segment than the folder.
+                result = segmentRegexes.size() > folderSegments.length;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not the provided path is selected by the provided patterns. A path is
+     * selected if it matches one of the include patterns (or there are no include patterns) and
+     * doesn't match any of the exclude patterns.
+     */
+    public static boolean isSelected(String relativePath, java.lang.Iterable<GlobPattern> includes, java.lang.Iterable<GlobPattern> excludes)
+    {
+        PreCondition.assertNotNull(relativePath, "relativePath");
+        PreCondition.assertNotNull(includes, "includes");
+        PreCondition.assertNotNull(excludes, "excludes");
+
+        boolean result = true;
+        if (includes.iterator().hasNext())
+        {
+            result = false;
+            for (final GlobPattern include : includes)
+            {
+                if (include.matches(relativePath))
+                {
+                    result = true;
+                    break;
+                }
+            }
+        }
+        if (result)
+        {
+            for (final GlobPattern exclude : excludes)
+            {
+                if (exclude.matches(relativePath))
+                {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof GlobPattern && text.equals(((GlobPattern)obj).text);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return text.hashCode();
+    }
+}
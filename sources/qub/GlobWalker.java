@@ -0,0 +1,166 @@
+package qub;
+
+/**
+ * Finds the files and folders under a folder that match a set of GlobPatterns. The folder is
+ * walked once for all of the patterns, and folders that can't contain a match aren't walked at
+ * all. When a folder matches, it is returned instead of the entries under it.
+ */
+public class GlobWalker
+{
+    /**
+     * Get the files and folders under the provided folder that match any of the provided
+     * patterns.
+     * @param folder The folder to search. The patterns are relative to this folder.
+     * @param patterns The patterns to match.
+     * @param includeFiles Whether or not matching files should be returned.
+     * @param includeFolders Whether or not matching folders should be returned.
+     * @return The matching files and folders in path order, or an empty list if the folder
+     *         doesn't exist.
+     */
+    public static List<FileSystemEntry> find(Folder folder, java.lang.Iterable<GlobPattern> patterns, boolean includeFiles, boolean includeFolders)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+        PreCondition.assertNotNull(patterns, "patterns");
+
+        final java.util.List<FileSystemEntry> entries = new java.util.ArrayList<>();
+        if (folder.getFileSystem() instanceof JavaFileSystem)
+        {
+            walk(folder, patterns, includeFiles, includeFolders, entries);
+        }
+        else
+        {
+            walk("", folder, patterns, includeFiles, includeFolders, entries);
+        }
+
+        entries.sort((FileSystemEntry lhs, FileSystemEntry rhs) -> lhs.getPath().toString().compareTo(rhs.getPath().toString()));
+        final List<FileSystemEntry> result = new ArrayList<>();
+        for (final FileSystemEntry entry : entries)
+        {
+            result.add(entry);
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static void walk(Folder folder, java.lang.Iterable<GlobPattern> patterns, boolean includeFiles, boolean includeFolders, java.util.List<FileSystemEntry> result)
+    {
+        final java.nio.file.Path root = java.nio.file.Paths.get(folder.getPath().toString());
+        if (java.nio.file.Files.isDirectory(root))
+        {
+            try
+            {
+                java.nio.file.Files.walkFileTree(root, new java.nio.file.SimpleFileVisitor<java.nio.file.Path>()
+                {
+                    @Override
+                    public java.nio.file.FileVisitResult preVisitDirectory(java.nio.file.Path directory, java.nio.file.attribute.BasicFileAttributes attributes)
+                    {
+                        java.nio.file.FileVisitResult visitResult = java.nio.file.FileVisitResult.CONTINUE;
+                        if (!directory.equals(root))
+                        {
+                            final String relativePath = root.relativize(directory).toString().replace('\\', '/');
+                            if (includeFolders && matchesAny(relativePath, patterns))
+                            {
+                                result.add(folder.getFolder(relativePath).getValue());
+                                visitResult = java.nio.file.FileVisitResult.SKIP_SUBTREE;
+                            }
+                            else if (!mightMatchAnyUnder(relativePath, patterns))
+                            {
+                                visitResult = java.nio.file.FileVisitResult.SKIP_SUBTREE;
+                            }
+                        }
+                        return visitResult;
+                    }
+
+                    @Override
+                    public java.nio.file.FileVisitResult visitFile(java.nio.file.Path file, java.nio.file.attribute.BasicFileAttributes attributes)
+                    {
+                        if (includeFiles && !attributes.isDirectory())
+                        {
+                            final String relativePath = root.relativize(file).toString().replace('\\', '/');
+                            if (matchesAny(relativePath, patterns))
+                            {
+                                result.add(folder.getFile(relativePath).getValue());
+                            }
+                        }
+                        return java.nio.file.FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public java.nio.file.FileVisitResult visitFileFailed(java.nio.file.Path file, java.io.IOException e)
+                    {
+                        return java.nio.file.FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            catch (java.io.IOException e)
+            {
+                Exceptions.throwAsRuntime(e);
+            }
+        }
+    }
+
+    private static void walk(String relativeFolderPath, Folder folder, java.lang.Iterable<GlobPattern> patterns, boolean includeFiles, boolean includeFolders, java.util.List<FileSystemEntry> result)
+    {
+        if (includeFiles)
+        {
+            final Iterable<File> files = folder.getFiles().getValue();
+            if (files != null)
+            {
+                for (final File file : files)
+                {
+                    if (matchesAny(relativeFolderPath + file.getName(), patterns))
+                    {
+                        result.add(file);
+                    }
+                }
+            }
+        }
+
+        final Iterable<Folder> childFolders = folder.getFolders().getValue();
+        if (childFolders != null)
+        {
+            for (final Folder childFolder : childFolders)
+            {
+                final String relativePath = relativeFolderPath + childFolder.getName();
+                if (includeFolders && matchesAny(relativePath, patterns))
+                {
+                    result.add(childFolder);
+                }
+                else if (mightMatchAnyUnder(relativePath, patterns))
+                {
+                    walk(relativePath + "/", childFolder, patterns, includeFiles, includeFolders, result);
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAny(String relativePath, java.lang.Iterable<GlobPattern> patterns)
+    {
+        boolean result = false;
+        for (final GlobPattern pattern : patterns)
+        {
+            if (pattern.matches(relativePath))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static boolean mightMatchAnyUnder(String relativeFolderPath, java.lang.Iterable<GlobPattern> patterns)
+    {
+        boolean result = false;
+        for (final GlobPattern pattern : patterns)
+        {
+            if (pattern.mightMatchUnder(relativeFolderPath))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package qub;
+
+/**
+ * A Java compiler that runs javac inside of the current process through the javax.tools API. The
+ * underlying compiler is created once and then reused for every compilation so that only the first
+ * compilation pays for loading javac. Each compilation gets its own file manager, which is closed
+ * when the compilation finishes, so a long-running daemon never compiles against the stale
+ * contents of a jar file that has been rebuilt since an earlier compilation opened it.
+ */
+public class InProcessJavaCompiler
+{
+    private static javax.tools.JavaCompiler compiler;
+
+    /**
+     * Get whether or not the current Java runtime contains a Java compiler that can be run
+     * in-process.
+     * @return Whether or not the current Java runtime contains a Java compiler.
+     */
+    public static synchronized boolean isAvailable()
+    {
+        if (compiler == null)
+        {
+            compiler = javax.tools.ToolProvider.getSystemJavaCompiler();
+        }
+        return compiler != null;
+    }
+
+    /**
+     * Compile the provided source files with the provided javac options.
+     * @param options The javac options (such as -classpath and -d) to compile with.
+     * @param sourceFilePaths The paths to the source files that will be compiled.
+     * @param output The stream that javac's diagnostics will be written to.
+     * @return The exit code that javac.exe would have returned for the same compilation.
+     */
+    public static synchronized int compile(Iterable<String> options, Iterable<String> sourceFilePaths, ByteWriteStream output)
+    {
+        PreCondition.assertNotNull(options, "options");
+        PreCondition.assertNotNull(sourceFilePaths, "sourceFilePaths");
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertTrue(isAvailable(), "isAvailable()");
+
+        final java.util.List<String> optionsList = new java.util.ArrayList<>();
+        for (final String option : options)
+        {
+            optionsList.add(option);
+        }
+
+        final java.util.List<String> sourceFilePathsList = new java.util.ArrayList<>();
+        for (final String sourceFilePath : sourceFilePaths)
+        {
+            sourceFilePathsList.add(sourceFilePath);
+        }
+
+        final java.io.Writer diagnosticsWriter = new java.io.Writer()
+        {
+            @Override
+            public void write(char[] characters, int startIndex, int length)
+            {
+                final byte[] bytes = CharacterEncoding.UTF_8.encode(new String(characters, startIndex, length)).getValue();
+                output.writeBytes(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+
+        final javax.tools.StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, java.nio.charset.StandardCharsets.UTF_8);
+        int result;
+        try
+        {
+            final javax.tools.JavaCompiler.CompilationTask task = compiler.getTask(
+                diagnosticsWriter,
+                fileManager,
+                null,
+                optionsList,
+                null,
+                fileManager.getJavaFileObjectsFromStrings(sourceFilePathsList));
+            result = task.call() ? 0 : 1;
+        }
+        catch (IllegalArgumentException | IllegalStateException e)
+        {
+            // Invalid options are reported by javax.tools as exceptions instead of diagnostics.
+            final byte[] bytes = CharacterEncoding.UTF_8.encode("javac: " + e.getMessage() + System.lineSeparator()).getValue();
+            output.writeBytes(bytes, 0, bytes.length);
+            result = 2;
+        }
+        finally
+        {
+            try
+            {
+                fileManager.close();
+            }
+            catch (java.io.IOException ignored)
+            {
+                // The compilation has already finished, so failing to close the jar files that
+                // the file manager opened doesn't change its result.
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,821 @@
+package qub;
+
+/**
+ * Runs a project's tests inside of the current process instead of in a separate java.exe
+ * process. The tests are loaded through an isolated class loader that only sees the project's
+ * classpath, and each test class is run by its own qub.ConsoleTestRunner from that classpath so
+ * that test classes can run concurrently.
+ */
+public class InProcessTestRunner implements AutoCloseable
+{
+    private static final String consoleTestRunnerClassName = "qub.ConsoleTestRunner";
+    private static final String testRunnerClassName = "qub.TestRunner";
+
+    private final java.net.URLClassLoader classLoader;
+    private final java.lang.reflect.Constructor<?> runnerConstructor;
+    private final java.lang.reflect.Method testClassMethod;
+    private final java.lang.reflect.Method getPassedTestCountMethod;
+    private final java.lang.reflect.Method getFailedTestCountMethod;
+    private final java.lang.reflect.Method getSkippedTestCountMethod;
+    private final java.lang.reflect.Method writeSummaryMethod;
+    private final java.lang.reflect.Method getStopwatchMethod;
+    private final java.lang.reflect.Method startStopwatchMethod;
+    private final java.lang.reflect.Method beforeTestMethod;
+    private final java.lang.reflect.Method afterTestSuccessMethod;
+    private final java.lang.reflect.Method afterTestFailureMethod;
+    private final java.lang.reflect.Method afterTestSkippedMethod;
+    private final java.util.concurrent.atomic.AtomicBoolean stopped;
+
+    private InProcessTestRunner(java.net.URLClassLoader classLoader, Class<?> runnerClass) throws ReflectiveOperationException
+    {
+        this.classLoader = classLoader;
+        this.runnerConstructor = runnerClass.getConstructor(String[].class);
+        this.testClassMethod = runnerClass.getMethod("testClass", Class.class);
+        this.getPassedTestCountMethod = runnerClass.getMethod("getPassedTestCount");
+        this.getFailedTestCountMethod = runnerClass.getMethod("getFailedTestCount");
+        this.getSkippedTestCountMethod = runnerClass.getMethod("getSkippedTestCount");
+        this.getStopwatchMethod = runnerClass.getMethod("getStopwatch");
+        this.startStopwatchMethod = getStopwatchMethod.getReturnType().getMethod("start");
+        this.writeSummaryMethod = runnerClass.getMethod("writeSummary", getStopwatchMethod.getReturnType());
+
+        // Versions of qub.ConsoleTestRunner without these callbacks only report counts per test
+        // class.
+        this.beforeTestMethod = getCallbackMethod(runnerClass, "beforeTest");
+        this.afterTestSuccessMethod = getCallbackMethod(runnerClass, "afterTestSuccess");
+        this.afterTestFailureMethod = getCallbackMethod(runnerClass, "afterTestFailure");
+        this.afterTestSkippedMethod = getCallbackMethod(runnerClass, "afterTestSkipped");
+
+        this.stopped = new java.util.concurrent.atomic.AtomicBoolean();
+    }
+
+    /**
+     * Get the runner method with the provided name that registers a callback, such as
+     * beforeTest(Action1<Test>).
+     * @return The method, or null if the runner doesn't have a method with that name whose only
+     * parameter is a callback interface.
+     */
+    private static java.lang.reflect.Method getCallbackMethod(Class<?> runnerClass, String methodName)
+    {
+        java.lang.reflect.Method result = null;
+        for (final java.lang.reflect.Method method : runnerClass.getMethods())
+        {
+            if (method.getName().equals(methodName) && method.getParameterCount() == 1 && method.getParameterTypes()[0].isInterface())
+            {
+                result = method;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Register a callback with the provided runner through the provided callback method.
+     * @param runner The runner to register the callback with.
+     * @param callbackMethod The runner's method that registers the callback, or null if the runner
+     *                       doesn't support the callback.
+     * @param callback The action to run with the callback's arguments.
+     */
+    private void registerCallback(Object runner, java.lang.reflect.Method callbackMethod, Action1<Object[]> callback) throws ReflectiveOperationException
+    {
+        if (callbackMethod != null)
+        {
+            final Class<?> callbackType = callbackMethod.getParameterTypes()[0];
+            final Object callbackProxy = java.lang.reflect.Proxy.newProxyInstance(
+                classLoader,
+                new Class<?>[] { callbackType },
+                (Object proxy, java.lang.reflect.Method method, Object[] arguments) ->
+                {
+                    Object result = null;
+                    if (method.getDeclaringClass() == Object.class)
+                    {
+                        switch (method.getName())
+                        {
+                            case "equals":
+                                result = proxy == arguments[0];
+                                break;
+
+                            case "hashCode":
+                                result = System.identityHashCode(proxy);
+                                break;
+
+                            default:
+                                result = callbackType.getName() + " callback";
+                                break;
+                        }
+                    }
+                    else if (!method.isDefault())
+                    {
+                        callback.run(arguments == null ? new Object[0] : arguments);
+                    }
+                    return result;
+                });
+            callbackMethod.invoke(runner, callbackProxy);
+        }
+    }
+
+    /**
+     * Get the full name of the provided qub.Test object.
+     */
+    private static String getTestName(Object test)
+    {
+        String result;
+        try
+        {
+            result = String.valueOf(test.getClass().getMethod("getFullName").invoke(test));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            result = String.valueOf(test);
+        }
+        return result;
+    }
+
+    /**
+     * Get the URL that a URLClassLoader loads the provided classpath entry from. A URLClassLoader
+     * only reads the local file system and needs a folder's URL to end with a slash, which
+     * java.io.File adds for folders that exist.
+     */
+    private static java.net.URL toUrl(String classpath) throws java.net.MalformedURLException
+    {
+        return new java.io.File(classpath).toURI().toURL();
+    }
+
+    /**
+     * Create a new InProcessTestRunner that loads classes from the provided classpath.
+     * @param classpaths The folders and jar files that the tests and their dependencies are
+     *                   loaded from.
+     * @param console The Console to write the reason to if the tests can't be run in-process.
+     * @return The new InProcessTestRunner, or null if the classpath doesn't contain a
+     * qub.ConsoleTestRunner that can be run in-process.
+     */
+    public static InProcessTestRunner create(Iterable<String> classpaths, Console console)
+    {
+        PreCondition.assertNotNull(classpaths, "classpaths");
+        PreCondition.assertNotNull(console, "console");
+
+        InProcessTestRunner result = null;
+
+        if (!(console.getFileSystem() instanceof JavaFileSystem))
+        {
+            console.writeLine("The tests can't be run in-process (the classpath isn't on the local file system), so they will be run in a separate process.");
+        }
+        else
+        {
+            final java.util.List<java.net.URL> classpathUrls = new java.util.ArrayList<>();
+            try
+            {
+                for (final String classpath : classpaths)
+                {
+                    classpathUrls.add(toUrl(classpath));
+                }
+            }
+            catch (java.net.MalformedURLException e)
+            {
+                console.writeLine(e.toString());
+            }
+
+            // The parent is the platform class loader so that the classes of this process (which
+            // include its own version of qub) aren't visible to the tests.
+            final java.net.URLClassLoader classLoader = new java.net.URLClassLoader(
+                classpathUrls.toArray(new java.net.URL[classpathUrls.size()]),
+                ClassLoader.getSystemClassLoader().getParent());
+            try
+            {
+                result = new InProcessTestRunner(classLoader, Class.forName(consoleTestRunnerClassName, false, classLoader));
+            }
+            catch (ReflectiveOperationException | LinkageError e)
+            {
+                console.writeLine("The tests can't be run in-process (" + e + "), so they will be run in a separate process.");
+                try
+                {
+                    classLoader.close();
+                }
+                catch (java.io.IOException ignored)
+                {
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get whether or not the provided class has the static test(TestRunner) method that test
+     * classes use to define their tests.
+     */
+    private static boolean isTestClass(Class<?> testClass)
+    {
+        boolean result = false;
+        for (final java.lang.reflect.Method method : testClass.getDeclaredMethods())
+        {
+            if (method.getName().equals("test") &&
+                java.lang.reflect.Modifier.isStatic(method.getModifiers()) &&
+                method.getParameterCount() == 1 &&
+                method.getParameterTypes()[0].getName().equals(testRunnerClassName))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stop starting new test classes. Test classes that are already running are allowed to
+     * finish, and test classes that haven't started yet are left out of the results.
+     */
+    public void stop()
+    {
+        stopped.set(true);
+    }
+
+    /**
+     * Run the tests in the provided test classes. Test classes run concurrently, but their output
+     * is written in the order of their names once each class finishes, so the output is the same
+     * no matter how the classes were scheduled.
+     * @param testClassNames The full names of the classes that may contain tests. Classes without
+     *                       a static test(TestRunner) method are ignored.
+     * @param pattern The pattern that test names must match to run, or null to run every test.
+     * @param debug Whether or not the test runners should write debug output.
+     * @param parallelism The maximum number of test classes to run at the same time.
+     * @param failFast Whether or not to stop starting new test classes after the first failure.
+     * @param timeoutMilliseconds How long each test (or each test class, if the runner doesn't
+     *                            report individual tests) may run before it is abandoned, or 0 if
+     *                            there is no timeout.
+     * @param output The stream to write each test class's output to (in the order of the test
+     *               class names) as soon as it is available, or null to only keep the output in
+     *               the results.
+     * @param eventListener The action to report each TestEvent to as it happens, or null if the
+     *                      events aren't needed. Events are reported one at a time.
+     * @return The results of the test classes that were run, ordered by test class name.
+     */
+    public java.util.List<TestClassResult> runTestClasses(Iterable<String> testClassNames, String pattern, boolean debug, int parallelism, boolean failFast, long timeoutMilliseconds, ByteWriteStream output, Action1<TestEvent> eventListener)
+    {
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+        PreCondition.assertTrue(timeoutMilliseconds >= 0, "timeoutMilliseconds must be greater than or equal to 0.");
+
+        final java.util.List<String> runnerArguments = new java.util.ArrayList<>();
+        if (pattern != null && !pattern.isEmpty())
+        {
+            runnerArguments.add("-pattern=" + pattern);
+        }
+        if (debug)
+        {
+            runnerArguments.add("-debug");
+        }
+
+        final Action1<TestEvent> reportEvent = (TestEvent event) ->
+        {
+            if (eventListener != null)
+            {
+                synchronized (eventListener)
+                {
+                    eventListener.run(event);
+                }
+            }
+        };
+
+        final java.util.SortedSet<String> sortedTestClassNames = new java.util.TreeSet<>();
+        for (final String testClassName : testClassNames)
+        {
+            sortedTestClassNames.add(testClassName);
+        }
+        final java.util.List<TestClassRun> runs = new java.util.ArrayList<>();
+        for (final String testClassName : sortedTestClassNames)
+        {
+            runs.add(new TestClassRun(testClassName));
+        }
+
+        final java.io.PrintStream originalOut = System.out;
+        final java.io.PrintStream originalErr = System.err;
+        final ThreadOutputStream threadOutput = new ThreadOutputStream(originalOut);
+        final java.io.PrintStream threadOutputPrintStream = new java.io.PrintStream(threadOutput, true);
+
+        // A test class that times out is abandoned instead of waited for, so each test class gets
+        // its own thread and a permit limits how many of them run at the same time. A test class's
+        // permit is released when its thread stops, even if the test class was abandoned.
+        final java.util.concurrent.Semaphore permits = new java.util.concurrent.Semaphore(parallelism);
+        final Thread dispatcherThread = new Thread(() ->
+        {
+            for (final TestClassRun run : runs)
+            {
+                boolean acquired = false;
+                if (!stopped.get())
+                {
+                    try
+                    {
+                        permits.acquire();
+                        acquired = true;
+                    }
+                    catch (InterruptedException e)
+                    {
+                        stop();
+                    }
+                }
+
+                if (!acquired || stopped.get())
+                {
+                    if (acquired)
+                    {
+                        permits.release();
+                    }
+                    run.result.complete(null);
+                }
+                else
+                {
+                    final Thread runThread = new Thread(() ->
+                    {
+                        final Action1<TestEvent> reportRunEvent = (TestEvent event) ->
+                        {
+                            synchronized (run)
+                            {
+                                if (!run.result.isDone())
+                                {
+                                    run.update(event);
+                                    reportEvent.run(event);
+                                    if (failFast && event.getType() == TestEventType.TestFailed)
+                                    {
+                                        stop();
+                                    }
+                                }
+                            }
+                        };
+                        try
+                        {
+                            final TestClassResult result = runTestClass(run, runnerArguments, threadOutput, reportRunEvent);
+                            finishTestClass(run, result, failFast, reportEvent);
+                        }
+                        finally
+                        {
+                            run.releasePermit(permits);
+                        }
+                    }, "qub-test-runner");
+                    runThread.setDaemon(true);
+                    runThread.setContextClassLoader(classLoader);
+                    run.start(runThread);
+                    runThread.start();
+                }
+            }
+        }, "qub-test-dispatcher");
+        dispatcherThread.setDaemon(true);
+
+        java.util.concurrent.ScheduledExecutorService watchdog = null;
+        if (timeoutMilliseconds > 0)
+        {
+            watchdog = java.util.concurrent.Executors.newSingleThreadScheduledExecutor((Runnable runnable) ->
+            {
+                final Thread thread = new Thread(runnable, "qub-test-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long checkIntervalMilliseconds = java.lang.Math.max(10, java.lang.Math.min(100, timeoutMilliseconds / 10));
+            watchdog.scheduleAtFixedRate(() ->
+            {
+                for (final TestClassRun run : runs)
+                {
+                    if (run.isRunning() && System.nanoTime() - run.budgetStartTime > timeoutMilliseconds * 1000000)
+                    {
+                        timeOutTestClass(run, timeoutMilliseconds, failFast, reportEvent);
+                    }
+                    else if (run.isLeaking(timeoutMilliseconds))
+                    {
+                        // The abandoned thread ignored its interrupt for another timeout, so its
+                        // permit is given to the next test class. The leaked thread is reported
+                        // once every test class has finished.
+                        run.releasePermit(permits);
+                    }
+                }
+            }, checkIntervalMilliseconds, checkIntervalMilliseconds, java.util.concurrent.TimeUnit.MILLISECONDS);
+        }
+
+        final java.util.List<TestClassResult> results = new java.util.ArrayList<>();
+        try
+        {
+            // The test runners write to the process's standard output, so it is replaced with a
+            // stream that keeps each thread's output separate.
+            System.setOut(threadOutputPrintStream);
+            System.setErr(threadOutputPrintStream);
+
+            dispatcherThread.start();
+            for (final TestClassRun run : runs)
+            {
+                final TestClassResult result = run.result.get();
+                if (result != null)
+                {
+                    if (output != null && result.getOutput().length > 0)
+                    {
+                        output.writeBytes(result.getOutput(), 0, result.getOutput().length);
+                    }
+                    results.add(result);
+                }
+            }
+
+            for (final TestClassRun run : runs)
+            {
+                if (run.abandonedTime != 0 && run.thread.isAlive())
+                {
+                    final TestClassResult result = run.result.get();
+                    final String leakMessage = "The thread of " + run.testClassName + " is still running after it was interrupted.";
+                    result.setErrorMessage(result.getErrorMessage() + " " + leakMessage);
+                    if (output != null)
+                    {
+                        final byte[] leakOutput = (leakMessage + System.lineSeparator()).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                        output.writeBytes(leakOutput, 0, leakOutput.length);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException | java.util.concurrent.ExecutionException e)
+        {
+            results.add(new TestClassResult("").setErrorMessage(e.toString()));
+        }
+        finally
+        {
+            if (watchdog != null)
+            {
+                watchdog.shutdownNow();
+            }
+            dispatcherThread.interrupt();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+
+        return results;
+    }
+
+    /**
+     * Record the provided result as the result of the provided test class run, unless the run
+     * already has a result because it timed out.
+     */
+    private void finishTestClass(TestClassRun run, TestClassResult result, boolean failFast, Action1<TestEvent> reportEvent)
+    {
+        synchronized (run)
+        {
+            if (!run.result.isDone())
+            {
+                if (run.started || result.getErrorMessage() != null)
+                {
+                    reportEvent.run(new TestEvent(TestEventType.ClassFinished, run.testClassName)
+                        .setDurationMilliseconds(result.getDurationMilliseconds())
+                        .setMessage(result.getErrorMessage())
+                        .setTestCounts(result.getPassedTestCount(), result.getFailedTestCount(), result.getSkippedTestCount()));
+                }
+                if (failFast && !result.succeeded())
+                {
+                    stop();
+                }
+                run.result.complete(result);
+            }
+        }
+    }
+
+    /**
+     * Give up on a test class whose current test (or the test class itself) has run for longer
+     * than the timeout. The test class's result says which test exceeded the timeout and includes
+     * a dump of every thread's stack, and its thread is interrupted in case the test can still
+     * notice. The test class keeps its permit until its thread stops.
+     */
+    private void timeOutTestClass(TestClassRun run, long timeoutMilliseconds, boolean failFast, Action1<TestEvent> reportEvent)
+    {
+        final String testName = run.currentTestName;
+        final String message = (testName == null ? "Test class " + run.testClassName : "Test " + Strings.escapeAndQuote(testName) + " in " + run.testClassName) +
+            " exceeded the timeout of " + timeoutMilliseconds + " milliseconds.";
+
+        final java.io.ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+        final java.io.ByteArrayOutputStream runOutput = run.output;
+        if (runOutput != null)
+        {
+            synchronized (runOutput)
+            {
+                output.write(runOutput.toByteArray(), 0, runOutput.size());
+            }
+        }
+        final byte[] timeoutOutput = (message + System.lineSeparator() + TestProcessWatchdog.getThreadDump()).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        output.write(timeoutOutput, 0, timeoutOutput.length);
+
+        synchronized (run)
+        {
+            if (!run.result.isDone())
+            {
+                if (testName != null)
+                {
+                    reportEvent.run(new TestEvent(TestEventType.TestFailed, run.testClassName)
+                        .setTestName(testName)
+                        .setDurationMilliseconds((System.nanoTime() - run.budgetStartTime) / 1000000)
+                        .setMessage(message));
+                }
+                finishTestClass(
+                    run,
+                    new TestClassResult(run.testClassName)
+                        .setErrorMessage(message)
+                        .setDurationMilliseconds((System.nanoTime() - run.startTime) / 1000000)
+                        .setOutput(output.toByteArray()),
+                    failFast,
+                    reportEvent);
+                run.abandonedTime = System.nanoTime();
+                run.thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Write the combined test counts of the provided test class results.
+     * @param console The Console to write the summary to.
+     * @param results The results of the test classes that were run.
+     * @param testDuration How long it took to run the test classes.
+     * @return Whether or not every test passed.
+     */
+    public static boolean writeSummary(Console console, java.util.List<TestClassResult> results, Duration testDuration)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(results, "results");
+        PreCondition.assertNotNull(testDuration, "testDuration");
+
+        int passedTestCount = 0;
+        int failedTestCount = 0;
+        int skippedTestCount = 0;
+        final java.util.List<String> erroredTestClassNames = new java.util.ArrayList<>();
+        for (final TestClassResult result : results)
+        {
+            passedTestCount += result.getPassedTestCount();
+            failedTestCount += result.getFailedTestCount();
+            skippedTestCount += result.getSkippedTestCount();
+            if (result.getErrorMessage() != null)
+            {
+                erroredTestClassNames.add(result.getTestClassName());
+            }
+        }
+
+        console.writeLine();
+        console.writeLine("Tests Run:      " + (passedTestCount + failedTestCount + skippedTestCount));
+        console.writeLine("Tests Passed:   " + passedTestCount);
+        console.writeLine("Tests Failed:   " + failedTestCount);
+        console.writeLine("Tests Skipped:  " + skippedTestCount);
+        if (!erroredTestClassNames.isEmpty())
+        {
+            console.writeLine("Tests Errored:  " + String.join(", ", erroredTestClassNames));
+        }
+        console.writeLine("Tests Duration: " + testDuration.toString("0.0"));
+
+        return failedTestCount == 0 && erroredTestClassNames.isEmpty();
+    }
+
+    /**
+     * Run the tests in a single test class with its own qub.ConsoleTestRunner.
+     */
+    private TestClassResult runTestClass(TestClassRun run, java.util.List<String> runnerArguments, ThreadOutputStream threadOutput, Action1<TestEvent> reportEvent)
+    {
+        final String testClassName = run.testClassName;
+        final TestClassResult result = new TestClassResult(testClassName);
+
+        final long startTime = System.nanoTime();
+        final java.io.ByteArrayOutputStream output = threadOutput.startCapturing();
+        run.output = output;
+        try
+        {
+            final Class<?> testClass = Class.forName(testClassName, true, classLoader);
+            if (isTestClass(testClass))
+            {
+                reportEvent.run(new TestEvent(TestEventType.ClassStarted, testClassName));
+
+                final Object runner = runnerConstructor.newInstance((Object)runnerArguments.toArray(new String[runnerArguments.size()]));
+                final Object runnerStopwatch = getStopwatchMethod.invoke(runner);
+                startStopwatchMethod.invoke(runnerStopwatch);
+
+                // A runner only runs one test at a time, so the start time of the current test is
+                // all that needs to be remembered.
+                final long[] testStartTime = new long[] { System.nanoTime() };
+                final Function0<Long> getTestDuration = () -> (System.nanoTime() - testStartTime[0]) / 1000000;
+                registerCallback(runner, beforeTestMethod, (Object[] arguments) ->
+                {
+                    testStartTime[0] = System.nanoTime();
+                    reportEvent.run(new TestEvent(TestEventType.TestStarted, testClassName).setTestName(getTestName(arguments[0])));
+                });
+                registerCallback(runner, afterTestSuccessMethod, (Object[] arguments) ->
+                {
+                    reportEvent.run(new TestEvent(TestEventType.TestPassed, testClassName)
+                        .setTestName(getTestName(arguments[0]))
+                        .setDurationMilliseconds(getTestDuration.run()));
+                });
+                registerCallback(runner, afterTestFailureMethod, (Object[] arguments) ->
+                {
+                    reportEvent.run(new TestEvent(TestEventType.TestFailed, testClassName)
+                        .setTestName(getTestName(arguments[0]))
+                        .setDurationMilliseconds(getTestDuration.run())
+                        .setMessage(arguments.length > 1 ? String.valueOf(arguments[1]) : null));
+                });
+                registerCallback(runner, afterTestSkippedMethod, (Object[] arguments) ->
+                {
+                    reportEvent.run(new TestEvent(TestEventType.TestSkipped, testClassName)
+                        .setTestName(getTestName(arguments[0])));
+                });
+
+                testClassMethod.invoke(runner, testClass);
+
+                result.setTestCounts(
+                    ((Number)getPassedTestCountMethod.invoke(runner)).intValue(),
+                    ((Number)getFailedTestCountMethod.invoke(runner)).intValue(),
+                    ((Number)getSkippedTestCountMethod.invoke(runner)).intValue());
+                if (result.getFailedTestCount() > 0)
+                {
+                    // The runner's summary is the only place that the failures' details are
+                    // written.
+                    writeSummaryMethod.invoke(runner, runnerStopwatch);
+                }
+            }
+        }
+        catch (Throwable error)
+        {
+            final Throwable cause = error instanceof java.lang.reflect.InvocationTargetException ? error.getCause() : error;
+            result.setErrorMessage(cause.toString());
+            cause.printStackTrace(System.out);
+        }
+        finally
+        {
+            threadOutput.stopCapturing();
+            System.out.flush();
+        }
+
+        result
+            .setDurationMilliseconds((System.nanoTime() - startTime) / 1000000)
+            .setOutput(output.toByteArray());
+
+        return result;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            classLoader.close();
+        }
+        catch (java.io.IOException ignored)
+        {
+        }
+    }
+
+    /**
+     * A test class that has been scheduled to run, and what it is doing right now.
+     */
+    private static class TestClassRun
+    {
+        final String testClassName;
+        final java.util.concurrent.CompletableFuture<TestClassResult> result;
+        volatile Thread thread;
+        volatile java.io.ByteArrayOutputStream output;
+        volatile boolean started;
+        volatile long startTime;
+        volatile long budgetStartTime;
+        volatile String currentTestName;
+        volatile long abandonedTime;
+        private final java.util.concurrent.atomic.AtomicBoolean permitReleased;
+
+        TestClassRun(String testClassName)
+        {
+            this.testClassName = testClassName;
+            this.result = new java.util.concurrent.CompletableFuture<>();
+            this.permitReleased = new java.util.concurrent.atomic.AtomicBoolean();
+        }
+
+        void start(Thread thread)
+        {
+            this.startTime = System.nanoTime();
+            this.budgetStartTime = startTime;
+            this.thread = thread;
+        }
+
+        boolean isRunning()
+        {
+            return thread != null && !result.isDone();
+        }
+
+        /**
+         * Get whether or not this test class timed out more than the provided number of
+         * milliseconds ago and its thread still hasn't stopped or released its permit.
+         */
+        boolean isLeaking(long timeoutMilliseconds)
+        {
+            return abandonedTime != 0 &&
+                !permitReleased.get() &&
+                System.nanoTime() - abandonedTime > timeoutMilliseconds * 1000000 &&
+                thread.isAlive();
+        }
+
+        /**
+         * Release this test class's permit, if it hasn't been released already.
+         */
+        void releasePermit(java.util.concurrent.Semaphore permits)
+        {
+            if (permitReleased.compareAndSet(false, true))
+            {
+                permits.release();
+            }
+        }
+
+        /**
+         * Track the test that is running so that the timeout applies to each test instead of to
+         * the whole test class.
+         */
+        void update(TestEvent event)
+        {
+            switch (event.getType())
+            {
+                case ClassStarted:
+                    started = true;
+                    break;
+
+                case TestStarted:
+                    currentTestName = event.getTestName();
+                    budgetStartTime = System.nanoTime();
+                    break;
+
+                case TestPassed:
+                case TestFailed:
+                case TestSkipped:
+                    currentTestName = null;
+                    budgetStartTime = System.nanoTime();
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * An OutputStream that sends the output of each thread that is capturing its output (and of
+     * the threads that it starts) to that thread's buffer, and sends all other output to the
+     * original stream.
+     */
+    private static class ThreadOutputStream extends java.io.OutputStream
+    {
+        private final java.io.OutputStream originalStream;
+        private final InheritableThreadLocal<java.io.ByteArrayOutputStream> threadBuffer;
+
+        ThreadOutputStream(java.io.OutputStream originalStream)
+        {
+            this.originalStream = originalStream;
+            this.threadBuffer = new InheritableThreadLocal<>();
+        }
+
+        java.io.ByteArrayOutputStream startCapturing()
+        {
+            final java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
+            threadBuffer.set(buffer);
+            return buffer;
+        }
+
+        void stopCapturing()
+        {
+            threadBuffer.remove();
+        }
+
+        @Override
+        public void write(int b) throws java.io.IOException
+        {
+            final java.io.ByteArrayOutputStream buffer = threadBuffer.get();
+            if (buffer == null)
+            {
+                synchronized (originalStream)
+                {
+                    originalStream.write(b);
+                }
+            }
+            else
+            {
+                synchronized (buffer)
+                {
+                    buffer.write(b);
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws java.io.IOException
+        {
+            final java.io.ByteArrayOutputStream buffer = threadBuffer.get();
+            if (buffer == null)
+            {
+                synchronized (originalStream)
+                {
+                    originalStream.write(bytes, offset, length);
+                }
+            }
+            else
+            {
+                synchronized (buffer)
+                {
+                    buffer.write(bytes, offset, length);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws java.io.IOException
+        {
+            originalStream.flush();
+        }
+    }
+}
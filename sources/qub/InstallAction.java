@@ -20,13 +20,33 @@ public class InstallAction implements Action
     @Override
     public String getArgumentUsage()
     {
-        return null;
+        return "[-workspace]";
     }
 
     @Override
     public void run(Console console)
     {
         final boolean runTests = parseRunTests(console);
+        final boolean workspace = BuildAction.parseWorkspace(console);
+
+        if (workspace)
+        {
+            Workspace.run(console, "Installing", (Console projectConsole) -> BuildMetrics.record(projectConsole, "install", () -> run(projectConsole, runTests)));
+        }
+        else
+        {
+            BuildMetrics.record(console, "install", () -> run(console, runTests));
+        }
+    }
+
+    /**
+     * Build the project in the provided Console's current folder, and install it into the Qub
+     * folder.
+     * @return Whether or not the project was installed.
+     */
+    public static boolean run(Console console, boolean runTests)
+    {
+        boolean installed = false;
 
         final ProjectJson projectJson = ProjectJson.parse(console);
         if (projectJson == null)
@@ -123,55 +143,88 @@ public class InstallAction implements Action
                                         }
                                         else
                                         {
-                                            final File installedJarFile = versionFolder.getFile(jarFileName).getValue();
-
-                                            final Stopwatch stopwatch = console.getStopwatch();
-                                            console.write("Copying " + outputsJarFile + " to " + installedJarFile + "...");
-                                            stopwatch.start();
-                                            installedJarFile.setContents(outputsJarFile.getContents().getValue());
-                                            console.writeLine(" Done (" + stopwatch.stop().toSeconds().toString("#.#") + ")");
-
-                                            final File installedProjectJsonFile = versionFolder.getFile("project.json").getValue();
-                                            console.write("Copying project.json to " + installedProjectJsonFile + "...");
-                                            stopwatch.start();
-                                            installedProjectJsonFile.setContents(CharacterEncoding.UTF_8.encode(rootObject.toString()).getValue());
-                                            console.writeLine(" Done (" + stopwatch.stop().toSeconds().toString("#.#") + ")");
-
-                                            final String mainClass = projectJson.getMainClass();
-                                            if (mainClass != null)
+                                            // The package's files are written to a staging folder and published all
+                                            // at once so that builds never resolve against a partial version folder.
+                                            try (final AtomicInstall install = AtomicInstall.begin(versionFolder))
                                             {
-                                                String shortcutName = null;
-                                                final JSONSegment shortcutNameSegment = javaObject.getPropertyValue("shortcutName");
-                                                if (shortcutNameSegment != null)
+                                                if (install.versionExists())
+                                                {
+                                                    console.writeLine("This package (" + publisher + "/" + project + ":" + version + ") can't be installed because a package with that signature already exists.");
+                                                }
+                                                else
                                                 {
-                                                    if (!(shortcutNameSegment instanceof JSONQuotedString))
+                                                    final Folder stagingFolder = install.getStagingFolder();
+                                                    final File installedJarFile = versionFolder.getFile(jarFileName).getValue();
+                                                    final File stagedJarFile = stagingFolder.getFile(jarFileName).getValue();
+
+                                                    final Stopwatch stopwatch = console.getStopwatch();
+                                                    console.write("Copying " + outputsJarFile + " to " + installedJarFile + "...");
+                                                    try (final Profiler.Span span = Profiler.start(console, "copy jar"))
                                                     {
-                                                        console.writeLine("The \"shortcutName\" property in the java section of the project.json file must be a quoted-string.");
+                                                        final FileCopy.CopyResult copyResult = FileCopy.copy(outputsJarFile, stagedJarFile);
+                                                        console.writeLine(" Done (" + copyResult + ")");
+                                                        console.writeLine("SHA-256: " + copyResult.getSha256());
+                                                        BuildMetrics.addCount(console, "bytesWritten", copyResult.getByteCount());
+                                                    }
+
+                                                    final File installedProjectJsonFile = versionFolder.getFile("project.json").getValue();
+                                                    console.write("Copying project.json to " + installedProjectJsonFile + "...");
+                                                    stopwatch.start();
+                                                    stagingFolder.getFile("project.json").getValue().setContents(CharacterEncoding.UTF_8.encode(rootObject.toString()).getValue());
+                                                    console.writeLine(" Done (" + stopwatch.stop().toSeconds().toString("#.#") + ")");
+
+                                                    if (!install.publish())
+                                                    {
+                                                        console.writeLine("This package (" + publisher + "/" + project + ":" + version + ") can't be installed because a package with that signature already exists.");
                                                     }
                                                     else
                                                     {
-                                                        shortcutName = ((JSONQuotedString)shortcutNameSegment).toUnquotedString();
+                                                        installed = true;
+                                                        VersionIndex.update(projectFolder);
+
+                                                        final String mainClass = projectJson.getMainClass();
+                                                        if (mainClass != null)
+                                                        {
+                                                            String shortcutName = null;
+                                                            final JSONSegment shortcutNameSegment = javaObject.getPropertyValue("shortcutName");
+                                                            if (shortcutNameSegment != null)
+                                                            {
+                                                                if (!(shortcutNameSegment instanceof JSONQuotedString))
+                                                                {
+                                                                    console.writeLine("The \"shortcutName\" property in the java section of the project.json file must be a quoted-string.");
+                                                                }
+                                                                else
+                                                                {
+                                                                    shortcutName = ((JSONQuotedString)shortcutNameSegment).toUnquotedString();
+                                                                }
+                                                            }
+                                                            if (shortcutName == null || shortcutName.isEmpty())
+                                                            {
+                                                                shortcutName = installedJarFile.getNameWithoutFileExtension();
+                                                            }
+
+                                                            String classpath = "%~dp0" + installedJarFile.relativeTo(qubFolder);
+                                                            for (final Dependency dependency : projectJson.getResolvedDependencies(qubFolder, console))
+                                                            {
+                                                                classpath += ";%~dp0" + dependency.toString();
+                                                            }
+
+                                                            final File shortcutFile = qubFolder.getFile(shortcutName + ".cmd").getValue();
+                                                            final String shortcutFileContents =
+                                                                "@echo OFF\n" +
+                                                                "java -cp " + classpath + " " + mainClass + " %*\n";
+                                                            console.write("Writing " + shortcutFile + "...");
+                                                            stopwatch.start();
+                                                            AtomicInstall.setContents(shortcutFile, CharacterEncoding.UTF_8.encode(shortcutFileContents).getValue());
+                                                            console.writeLine(" Done (" + stopwatch.stop().toSeconds().toString("#.#") + ")");
+                                                        }
                                                     }
                                                 }
-                                                if (shortcutName == null || shortcutName.isEmpty())
-                                                {
-                                                    shortcutName = installedJarFile.getNameWithoutFileExtension();
-                                                }
-
-                                                String classpath = "%~dp0" + installedJarFile.relativeTo(qubFolder);
-                                                for (final Dependency dependency : projectJson.getResolvedDependencies(qubFolder))
-                                                {
-                                                    classpath += ";%~dp0" + dependency.toString();
-                                                }
-
-                                                final File shortcutFile = qubFolder.getFile(shortcutName + ".cmd").getValue();
-                                                final String shortcutFileContents =
-                                                    "@echo OFF\n" +
-                                                    "java -cp " + classpath + " " + mainClass + " %*\n";
-                                                console.write("Writing " + shortcutFile + "...");
-                                                stopwatch.start();
-                                                shortcutFile.setContents(CharacterEncoding.UTF_8.encode(shortcutFileContents).getValue());
-                                                console.writeLine(" Done (" + stopwatch.stop().toSeconds().toString("#.#") + ")");
+                                            }
+                                            catch (java.io.IOException e)
+                                            {
+                                                console.writeLine();
+                                                console.writeLine("Failed to install " + publisher + "/" + project + ":" + version + ": " + e.getMessage());
                                             }
                                         }
                                     }
@@ -183,8 +236,11 @@ public class InstallAction implements Action
 
                 final Duration totalBuildDuration = totalInstall.stop().toSeconds();
                 console.writeLine("Install Duration: " + totalBuildDuration.toString("0.0"));
+                BuildMetrics.addDuration(console, "install", (long)totalBuildDuration.toMilliseconds().getValue());
             }
         }
+
+        return installed;
     }
 
     static boolean parseRunTests(Console console)
@@ -0,0 +1,101 @@
+package qub;
+
+/**
+ * Functions for converting between text and the quoted JSON strings in the JSON that qub writes,
+ * such as test events, test reports, lock files, and traces. qub's JSON parser finds the strings in
+ * a JSON document, and these functions convert them to and from the text that they contain.
+ */
+public class JSONStrings
+{
+    /**
+     * Get the provided text as a quoted JSON string.
+     * @param text The text to quote.
+     * @return The quoted JSON string.
+     */
+    public static String quote(String text)
+    {
+        PreCondition.assertNotNull(text, "text");
+
+        final StringBuilder builder = new StringBuilder(text.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < text.length(); ++i)
+        {
+            final char c = text.charAt(i);
+            switch (c)
+            {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                    {
+                        builder.append(String.format("\\u%04x", (int)c));
+                    }
+                    else
+                    {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        builder.append('"');
+        return builder.toString();
+    }
+
+    /**
+     * Get the text that the provided quoted JSON string contains.
+     * @param quotedString The quoted JSON string.
+     * @return The unescaped text, or null if the string has an invalid escape sequence.
+     */
+    public static String unquote(JSONQuotedString quotedString)
+    {
+        PreCondition.assertNotNull(quotedString, "quotedString");
+
+        // The quoted string's text is its JSON source, so it still has its quotes and escapes.
+        final String quotedText = quotedString.toString();
+        final int endIndex = quotedText.length() >= 2 && quotedText.endsWith("\"") ? quotedText.length() - 1 : quotedText.length();
+        final String escapedText = quotedText.substring(java.lang.Math.min(1, endIndex), endIndex);
+
+        final StringBuilder builder = new StringBuilder(escapedText.length());
+        boolean valid = true;
+        for (int i = 0; valid && i < escapedText.length(); ++i)
+        {
+            char c = escapedText.charAt(i);
+            if (c == '\\')
+            {
+                ++i;
+                c = i < escapedText.length() ? escapedText.charAt(i) : '\0';
+                switch (c)
+                {
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    case 'u':
+                        try
+                        {
+                            c = (char)Integer.parseInt(escapedText.substring(i + 1, i + 5), 16);
+                            i += 4;
+                        }
+                        catch (NumberFormatException | IndexOutOfBoundsException e)
+                        {
+                            valid = false;
+                        }
+                        break;
+                    default:
+                        valid = false;
+                        break;
+                }
+            }
+            builder.append(c);
+        }
+        return valid ? builder.toString() : null;
+    }
+}
@@ -0,0 +1,278 @@
+package qub;
+
+/**
+ * Writes the files in a folder to a jar file without starting the jar tool. The entries are
+ * always written in the same order with the same timestamp, so the same folder contents always
+ * produce the same jar file. When a jar file already exists with the same entries and contents,
+ * it isn't written again. A jar file that changed is always written from scratch, so that it is
+ * byte for byte the same as a jar file that is written for the first time.
+ */
+public class JarFileWriter
+{
+    private static final String manifestFolderEntryName = "META-INF/";
+    private static final String manifestEntryName = "META-INF/MANIFEST.MF";
+
+    /**
+     * The time that every entry is stamped with. It is created from local date fields so that
+     * the DOS date and time that are written to the jar file are the same in every time zone.
+     */
+    private static final long entryTime = new java.util.GregorianCalendar(1980, java.util.Calendar.FEBRUARY, 1).getTimeInMillis();
+
+    private int compressionLevel;
+    private String mainClass;
+
+    /**
+     * Create a new JarFileWriter that deflates entries with the default compression level.
+     */
+    public JarFileWriter()
+    {
+        compressionLevel = java.util.zip.Deflater.DEFAULT_COMPRESSION;
+    }
+
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * Set the compression level that entries are written with.
+     * @param compressionLevel Deflater.NO_COMPRESSION (0) to store entries without compressing
+     *                         them, a deflate level from 1 to 9, or
+     *                         Deflater.DEFAULT_COMPRESSION (-1).
+     * @return This JarFileWriter.
+     */
+    public JarFileWriter setCompressionLevel(int compressionLevel)
+    {
+        PreCondition.assertBetween(java.util.zip.Deflater.DEFAULT_COMPRESSION, compressionLevel, java.util.zip.Deflater.BEST_COMPRESSION, "compressionLevel");
+
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    public String getMainClass()
+    {
+        return mainClass;
+    }
+
+    /**
+     * Set the class whose main method runs when the jar file is executed.
+     * @param mainClass The fully qualified name of the main class, or null if the jar file is not
+     *                  executable.
+     * @return This JarFileWriter.
+     */
+    public JarFileWriter setMainClass(String mainClass)
+    {
+        this.mainClass = mainClass;
+        return this;
+    }
+
+    /**
+     * Get the contents of the manifest that is written to the jar file.
+     * @return The contents of the manifest.
+     */
+    public byte[] getManifestBytes()
+    {
+        final java.util.jar.Manifest manifest = new java.util.jar.Manifest();
+        final java.util.jar.Attributes attributes = manifest.getMainAttributes();
+        attributes.put(java.util.jar.Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null && !mainClass.isEmpty())
+        {
+            attributes.put(java.util.jar.Attributes.Name.MAIN_CLASS, mainClass);
+        }
+
+        final java.io.ByteArrayOutputStream result = new java.io.ByteArrayOutputStream();
+        try
+        {
+            manifest.write(result);
+        }
+        catch (java.io.IOException e)
+        {
+            // Writing to a ByteArrayOutputStream doesn't throw.
+            throw new RuntimeException(e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Write the files in the provided folder to the provided jar file. A manifest file in the
+     * folder is replaced by this JarFileWriter's manifest.
+     * @param contentFolder The folder that contains the files to write.
+     * @param jarFile The jar file to write.
+     * @return The number of entries that were written. If the jar file already contained the same
+     * entries with the same contents, it isn't written again and this is 0.
+     */
+    public int write(Folder contentFolder, File jarFile) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(contentFolder, "contentFolder");
+        PreCondition.assertNotNull(jarFile, "jarFile");
+
+        final java.util.SortedMap<String,byte[]> entries = new java.util.TreeMap<>();
+        addEntries(contentFolder, "", entries);
+        entries.remove(manifestFolderEntryName);
+        entries.remove(manifestEntryName);
+
+        final byte[] manifestBytes = getManifestBytes();
+
+        return isUpToDate(jarFile, entries, manifestBytes)
+            ? 0
+            : writeAll(jarFile, entries, manifestBytes);
+    }
+
+    /**
+     * Add the entries that the jar file should contain for the provided folder. The manifest
+     * entries are removed by the caller.
+     * @param entries The entry names mapped to the contents of the files that they are read from.
+     * Folder entries are mapped to null.
+     */
+    private static void addEntries(Folder folder, String entryNamePrefix, java.util.SortedMap<String,byte[]> entries) throws java.io.IOException
+    {
+        for (final FileSystemEntry entry : folder.getFilesAndFolders().getValue())
+        {
+            final String entryName = entryNamePrefix + entry.getName();
+            if (entry instanceof Folder)
+            {
+                entries.put(entryName + '/', null);
+                addEntries((Folder)entry, entryName + '/', entries);
+            }
+            else
+            {
+                final byte[] contents = ((File)entry).getContents().getValue();
+                if (contents == null)
+                {
+                    throw new java.io.IOException("Could not read " + entry.getPath() + ".");
+                }
+                entries.put(entryName, contents);
+            }
+        }
+    }
+
+    /**
+     * Get whether or not the existing jar file already contains the provided entries and
+     * manifest, so that writing it again would produce the same bytes.
+     * @return Whether or not the jar file is up to date. It isn't if it doesn't exist, has
+     * different entries or entry contents, or may have been written with a different compression
+     * level.
+     */
+    private boolean isUpToDate(File jarFile, java.util.SortedMap<String,byte[]> entries, byte[] manifestBytes) throws java.io.IOException
+    {
+        boolean result = false;
+
+        // The deflate level of an entry isn't recorded in the jar file, so only the default level
+        // and no compression can be told apart.
+        final boolean canCompare = compressionLevel == java.util.zip.Deflater.DEFAULT_COMPRESSION || compressionLevel == java.util.zip.Deflater.NO_COMPRESSION;
+        final byte[] jarFileBytes = canCompare ? jarFile.getContents().getValue() : null;
+        if (jarFileBytes != null)
+        {
+            final int expectedMethod = compressionLevel == java.util.zip.Deflater.NO_COMPRESSION ? java.util.zip.ZipEntry.STORED : java.util.zip.ZipEntry.DEFLATED;
+            try (final java.util.zip.ZipInputStream jarStream = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarFileBytes)))
+            {
+                result = true;
+
+                final java.util.Set<String> jarEntryNames = new java.util.HashSet<>();
+                java.util.zip.ZipEntry jarEntry = jarStream.getNextEntry();
+                while (result && jarEntry != null)
+                {
+                    final String jarEntryName = jarEntry.getName();
+                    jarEntryNames.add(jarEntryName);
+
+                    if (manifestEntryName.equals(jarEntryName))
+                    {
+                        result = jarEntry.getMethod() == expectedMethod &&
+                                 java.util.Arrays.equals(manifestBytes, readEntry(jarStream));
+                    }
+                    else if (!entries.containsKey(jarEntryName))
+                    {
+                        result = false;
+                    }
+                    else
+                    {
+                        final byte[] entryContents = entries.get(jarEntryName);
+                        if (entryContents != null)
+                        {
+                            result = jarEntry.getMethod() == expectedMethod &&
+                                     java.util.Arrays.equals(entryContents, readEntry(jarStream));
+                        }
+                    }
+
+                    jarEntry = result ? jarStream.getNextEntry() : null;
+                }
+
+                if (result && (jarEntryNames.size() != entries.size() + 1 || !jarEntryNames.containsAll(entries.keySet())))
+                {
+                    result = false;
+                }
+            }
+            catch (java.util.zip.ZipException e)
+            {
+                // The existing jar file is corrupt, so write it from scratch.
+                result = false;
+            }
+        }
+
+        return result;
+    }
+
+    private static byte[] readEntry(java.util.zip.ZipInputStream jarStream) throws java.io.IOException
+    {
+        final java.io.ByteArrayOutputStream result = new java.io.ByteArrayOutputStream();
+        final byte[] buffer = new byte[8 * 1024];
+        int bytesRead = jarStream.read(buffer);
+        while (bytesRead >= 0)
+        {
+            result.write(buffer, 0, bytesRead);
+            bytesRead = jarStream.read(buffer);
+        }
+        return result.toByteArray();
+    }
+
+    private int writeAll(File jarFile, java.util.SortedMap<String,byte[]> entries, byte[] manifestBytes) throws java.io.IOException
+    {
+        final java.io.ByteArrayOutputStream jarBytes = new java.io.ByteArrayOutputStream();
+        try (final java.util.jar.JarOutputStream jarStream = new java.util.jar.JarOutputStream(jarBytes))
+        {
+            jarStream.setLevel(compressionLevel);
+
+            // The manifest must be the first file in the jar file so that JarInputStream can
+            // find it.
+            writeEntry(jarStream, manifestEntryName, manifestBytes);
+
+            for (final java.util.Map.Entry<String,byte[]> entry : entries.entrySet())
+            {
+                writeEntry(jarStream, entry.getKey(), entry.getValue());
+            }
+        }
+
+        // A failed write must not leave a truncated jar file behind.
+        NativeFiles.replaceContents(jarFile, jarBytes.toByteArray());
+
+        return entries.size() + 1;
+    }
+
+    private void writeEntry(java.util.jar.JarOutputStream jarStream, String entryName, byte[] entryContents) throws java.io.IOException
+    {
+        final java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(entryName);
+        entry.setTime(entryTime);
+        if (entryContents == null || compressionLevel == java.util.zip.Deflater.NO_COMPRESSION)
+        {
+            // Stored entries must declare their size and checksum before their contents.
+            final byte[] contents = entryContents == null ? new byte[0] : entryContents;
+            entry.setMethod(java.util.zip.ZipEntry.STORED);
+            entry.setSize(contents.length);
+            entry.setCompressedSize(contents.length);
+            entry.setCrc(getCrc(contents));
+        }
+        jarStream.putNextEntry(entry);
+        if (entryContents != null)
+        {
+            jarStream.write(entryContents);
+        }
+        jarStream.closeEntry();
+    }
+
+    private static long getCrc(byte[] bytes)
+    {
+        final java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+}
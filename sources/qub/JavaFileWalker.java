@@ -0,0 +1,154 @@
+package qub;
+
+/**
+ * Finds the .java files under a folder. On the real file system the folder is walked once with
+ * Files.walkFileTree(), hidden folders (such as .git) and excluded folders are skipped without
+ * being listed, and only the files whose names end in ".java" become File objects.
+ */
+public class JavaFileWalker
+{
+    private static final String javaFileExtension = ".java";
+
+    /**
+     * Get the .java files under the provided folder that are selected by the provided patterns.
+     * @param folder The folder to search.
+     * @param includes The patterns of the relative paths to include. If there aren't any, all
+     *                 .java files are included.
+     * @param excludes The patterns of the relative paths to exclude.
+     * @return The selected .java files in path order, or an empty list if the folder doesn't
+     *         exist.
+     */
+    public static List<File> getJavaFiles(Folder folder, java.lang.Iterable<GlobPattern> includes, java.lang.Iterable<GlobPattern> excludes)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+        PreCondition.assertNotNull(includes, "includes");
+        PreCondition.assertNotNull(excludes, "excludes");
+
+        final java.util.List<File> files = new java.util.ArrayList<>();
+        if (folder.getFileSystem() instanceof JavaFileSystem)
+        {
+            walk(folder, includes, excludes, files);
+        }
+        else
+        {
+            final Iterable<File> folderFiles = folder.getFilesRecursively().getValue();
+            if (folderFiles != null)
+            {
+                for (final File file : folderFiles)
+                {
+                    if (file.getName().endsWith(javaFileExtension))
+                    {
+                        final String relativePath = file.relativeTo(folder).toString().replace('\\', '/');
+                        if (!isInSkippedFolder(relativePath, excludes) && GlobPattern.isSelected(relativePath, includes, excludes))
+                        {
+                            files.add(file);
+                        }
+                    }
+                }
+            }
+        }
+
+        // The build's javac arguments and caches shouldn't depend on the order that the file
+        // system lists files in.
+        files.sort((File lhs, File rhs) -> lhs.getPath().toString().compareTo(rhs.getPath().toString()));
+        final List<File> result = new ArrayList<>();
+        for (final File file : files)
+        {
+            result.add(file);
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private static void walk(Folder folder, java.lang.Iterable<GlobPattern> includes, java.lang.Iterable<GlobPattern> excludes, java.util.List<File> result)
+    {
+        final java.nio.file.Path root = java.nio.file.Paths.get(folder.getPath().toString());
+        if (java.nio.file.Files.isDirectory(root))
+        {
+            try
+            {
+                java.nio.file.Files.walkFileTree(root, new java.nio.file.SimpleFileVisitor<java.nio.file.Path>()
+                {
+                    @Override
+                    public java.nio.file.FileVisitResult preVisitDirectory(java.nio.file.Path directory, java.nio.file.attribute.BasicFileAttributes attributes)
+                    {
+                        java.nio.file.FileVisitResult visitResult = java.nio.file.FileVisitResult.CONTINUE;
+                        if (!directory.equals(root))
+                        {
+                            final String relativePath = root.relativize(directory).toString().replace('\\', '/');
+                            if (isSkippedFolder(directory.getFileName().toString(), relativePath, excludes))
+                            {
+                                visitResult = java.nio.file.FileVisitResult.SKIP_SUBTREE;
+                            }
+                        }
+                        return visitResult;
+                    }
+
+                    @Override
+                    public java.nio.file.FileVisitResult visitFile(java.nio.file.Path file, java.nio.file.attribute.BasicFileAttributes attributes)
+                    {
+                        if (attributes.isRegularFile() && file.getFileName().toString().endsWith(javaFileExtension))
+                        {
+                            final String relativePath = root.relativize(file).toString().replace('\\', '/');
+                            if (GlobPattern.isSelected(relativePath, includes, excludes))
+                            {
+                                result.add(folder.getFile(relativePath).getValue());
+                            }
+                        }
+                        return java.nio.file.FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public java.nio.file.FileVisitResult visitFileFailed(java.nio.file.Path file, java.io.IOException e)
+                    {
+                        return java.nio.file.FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            catch (java.io.IOException e)
+            {
+                Exceptions.throwAsRuntime(e);
+            }
+        }
+    }
+
+    /**
+     * Get whether or not the folder with the provided name and relative path should be skipped.
+     */
+    private static boolean isSkippedFolder(String folderName, String relativeFolderPath, java.lang.Iterable<GlobPattern> excludes)
+    {
+        boolean result = folderName.startsWith(".");
+        if (!result)
+        {
+            for (final GlobPattern exclude : excludes)
+            {
+                if (exclude.matchesEverythingUnder(relativeFolderPath))
+                {
+                    result = true;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not the file with the provided relative path is in a folder that
+     * getJavaFiles() skips.
+     */
+    private static boolean isInSkippedFolder(String relativeFilePath, java.lang.Iterable<GlobPattern> excludes)
+    {
+        boolean result = false;
+        int separatorIndex = relativeFilePath.indexOf('/');
+        while (!result && separatorIndex >= 0)
+        {
+            final String relativeFolderPath = relativeFilePath.substring(0, separatorIndex);
+            final String folderName = relativeFolderPath.substring(relativeFolderPath.lastIndexOf('/') + 1);
+            result = isSkippedFolder(folderName, relativeFolderPath, excludes);
+            separatorIndex = relativeFilePath.indexOf('/', separatorIndex + 1);
+        }
+        return result;
+    }
+}
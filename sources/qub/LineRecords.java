@@ -0,0 +1,152 @@
+package qub;
+
+/**
+ * The text format of the files that the build keeps its state in, such as the .classgraph,
+ * .buildstate, and tests.timings files. Each line is one record, and the fields of a record are
+ * separated by tabs, so a field can't contain a tab or a line break. Empty lines are ignored.
+ */
+public class LineRecords implements java.lang.Iterable<String[]>
+{
+    private static final char fieldSeparator = '\t';
+
+    private final java.util.List<String[]> records;
+
+    /**
+     * Create a new empty LineRecords.
+     */
+    public LineRecords()
+    {
+        records = new java.util.ArrayList<>();
+    }
+
+    /**
+     * Add a record with the provided fields.
+     * @param fields The fields of the record. None of them can contain a tab or a line break.
+     * @return This object for method chaining.
+     */
+    public LineRecords add(String... fields)
+    {
+        assertValidFields(fields);
+
+        records.add(fields.clone());
+        return this;
+    }
+
+    /**
+     * Get the number of records.
+     */
+    public int getCount()
+    {
+        return records.size();
+    }
+
+    @Override
+    public java.util.Iterator<String[]> iterator()
+    {
+        return java.util.Collections.unmodifiableList(records).iterator();
+    }
+
+    /**
+     * Get the line of a single record with the provided fields, without a line break.
+     * @param fields The fields of the record. None of them can contain a tab or a line break.
+     */
+    public static String join(String... fields)
+    {
+        assertValidFields(fields);
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields.length; ++i)
+        {
+            if (i > 0)
+            {
+                builder.append(fieldSeparator);
+            }
+            builder.append(fields[i]);
+        }
+        return builder.toString();
+    }
+
+    private static void assertValidFields(String[] fields)
+    {
+        PreCondition.assertNotNull(fields, "fields");
+        for (int i = 0; i < fields.length; ++i)
+        {
+            PreCondition.assertNotNull(fields[i], "fields[" + i + "]");
+            PreCondition.assertTrue(fields[i].indexOf(fieldSeparator) < 0 && fields[i].indexOf('\n') < 0 && fields[i].indexOf('\r') < 0, "fields[" + i + "] must not contain a tab or a line break.");
+        }
+    }
+
+    /**
+     * Split the line of a single record into its fields. Empty fields are kept.
+     * @param line The line to split.
+     */
+    public static String[] split(String line)
+    {
+        PreCondition.assertNotNull(line, "line");
+
+        return line.split(java.lang.String.valueOf(fieldSeparator), -1);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final String[] record : records)
+        {
+            builder.append(join(record)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parse the records in the provided text.
+     * @param text The text to parse.
+     * @return The records, or null if the text is null.
+     */
+    public static LineRecords parse(String text)
+    {
+        LineRecords result = null;
+        if (text != null)
+        {
+            result = new LineRecords();
+            for (final String line : text.split("\r?\n"))
+            {
+                if (!line.isEmpty())
+                {
+                    result.records.add(split(line));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the records in the provided file.
+     * @param file The file to read.
+     * @return The records, or null if the file doesn't exist or can't be read.
+     */
+    public static LineRecords read(File file)
+    {
+        LineRecords result = null;
+        if (file != null && file.exists().getValue())
+        {
+            final byte[] fileContents = file.getContents().getValue();
+            if (fileContents != null)
+            {
+                result = parse(new String(fileContents, java.nio.charset.StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write these records to the provided file, replacing its contents.
+     * @param file The file to write to.
+     */
+    public void write(File file)
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        file.setContents(CharacterEncoding.UTF_8.encode(toString()).getValue());
+    }
+}
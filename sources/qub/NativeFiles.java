@@ -0,0 +1,232 @@
+package qub;
+
+/**
+ * The file operations that Folder and File don't provide, such as atomic renames and locks that
+ * other processes respect. On the real file system they use java.nio.file directly. On any other
+ * file system they fall back to Folder and File, which is enough for a file system that only one
+ * process can see.
+ */
+public class NativeFiles
+{
+    /**
+     * The in-process locks, by lock file path. A FileChannel lock is held by the whole process,
+     * so threads of the same process (such as daemon requests) must also wait for each other.
+     */
+    private static final java.util.concurrent.ConcurrentMap<String,java.util.concurrent.locks.ReentrantLock> processLocks = new java.util.concurrent.ConcurrentHashMap<>();
+
+    /**
+     * Get whether or not the provided file or folder is on the real file system.
+     */
+    public static boolean isNative(FileSystemEntry entry)
+    {
+        PreCondition.assertNotNull(entry, "entry");
+
+        return entry.getFileSystem() instanceof JavaFileSystem;
+    }
+
+    private static java.nio.file.Path toPath(FileSystemEntry entry)
+    {
+        return java.nio.file.Paths.get(entry.getPath().toString());
+    }
+
+    /**
+     * Get the number of bytes in the provided file. A symbolic link on the real file system is
+     * not followed, so this is the size of the link itself.
+     * @param file The file to get the size of.
+     * @return The number of bytes in the file, or 0 if the file doesn't exist.
+     */
+    public static long getSize(File file) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(file, "file");
+
+        long result = 0;
+        if (isNative(file))
+        {
+            try
+            {
+                result = java.nio.file.Files.readAttributes(toPath(file), java.nio.file.attribute.BasicFileAttributes.class, java.nio.file.LinkOption.NOFOLLOW_LINKS).size();
+            }
+            catch (java.nio.file.NoSuchFileException ignored)
+            {
+            }
+        }
+        else if (file.exists().getValue())
+        {
+            result = file.getContents().getValue().length;
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not the provided file or folder is a symbolic link on the real file system. A
+     * symbolic link to a folder looks like a Folder, but deleting that Folder deletes the contents
+     * of the folder that it links to.
+     */
+    public static boolean isSymbolicLink(FileSystemEntry entry)
+    {
+        PreCondition.assertNotNull(entry, "entry");
+
+        return isNative(entry) && java.nio.file.Files.isSymbolicLink(toPath(entry));
+    }
+
+    /**
+     * Delete the provided symbolic link without changing the file or folder that it links to.
+     * @param link The symbolic link to delete.
+     */
+    public static void deleteSymbolicLink(FileSystemEntry link) throws java.io.IOException
+    {
+        PreCondition.assertTrue(isSymbolicLink(link), "isSymbolicLink(link)");
+
+        java.nio.file.Files.deleteIfExists(toPath(link));
+    }
+
+    /**
+     * Rename the provided folder in one step, so that other builds see either no destination
+     * folder or the whole destination folder.
+     * @param source The folder to rename.
+     * @param destination The folder to rename the source folder to. Its parent folder is created
+     *                    if it doesn't exist.
+     * @return Whether or not the folder was renamed. It isn't renamed if the destination folder
+     *         already exists.
+     */
+    public static boolean rename(Folder source, Folder destination) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(source, "source");
+        PreCondition.assertNotNull(destination, "destination");
+        PreCondition.assertTrue(source.getFileSystem() == destination.getFileSystem(), "source.getFileSystem() == destination.getFileSystem()");
+
+        boolean result;
+        if (isNative(source))
+        {
+            final java.nio.file.Path destinationPath = toPath(destination);
+            java.nio.file.Files.createDirectories(destinationPath.toAbsolutePath().getParent());
+            try
+            {
+                java.nio.file.Files.move(toPath(source), destinationPath, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                result = true;
+            }
+            catch (java.nio.file.FileAlreadyExistsException | java.nio.file.DirectoryNotEmptyException ignored)
+            {
+                result = false;
+            }
+        }
+        else if (destination.exists().getValue())
+        {
+            result = false;
+        }
+        else
+        {
+            destination.create();
+            for (final File sourceFile : source.getFilesRecursively().getValue())
+            {
+                final String relativePath = sourceFile.getPath().relativeTo(source.getPath()).toString();
+                destination.getFile(relativePath).getValue().setContents(sourceFile.getContents().getValue());
+            }
+            source.delete();
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Replace the contents of the provided file so that readers see either its old contents or its
+     * new contents, but never a partially written file.
+     * @param file The file to replace the contents of. Its folder is created if it doesn't exist.
+     * @param contents The file's new contents.
+     */
+    public static void replaceContents(File file, byte[] contents) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(file, "file");
+        PreCondition.assertNotNull(contents, "contents");
+
+        if (!isNative(file))
+        {
+            file.setContents(contents);
+        }
+        else
+        {
+            final java.nio.file.Path filePath = toPath(file).toAbsolutePath();
+            java.nio.file.Files.createDirectories(filePath.getParent());
+            final java.nio.file.Path temporaryFilePath = java.nio.file.Files.createTempFile(filePath.getParent(), "." + filePath.getFileName(), ".tmp");
+            try
+            {
+                java.nio.file.Files.write(temporaryFilePath, contents);
+                java.nio.file.Files.move(temporaryFilePath, filePath, java.nio.file.StandardCopyOption.ATOMIC_MOVE, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            finally
+            {
+                java.nio.file.Files.deleteIfExists(temporaryFilePath);
+            }
+        }
+    }
+
+    /**
+     * Wait for the lock that the provided lock file stands for and take it. The lock is respected
+     * by the other threads of this process and, on the real file system, by other processes.
+     * @param lockFile The file that stands for the lock. It is created if it doesn't exist.
+     * @return The lock. It must be closed to release it.
+     */
+    public static Lock lock(File lockFile) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(lockFile, "lockFile");
+
+        final java.util.concurrent.locks.ReentrantLock processLock = processLocks.computeIfAbsent(lockFile.getPath().toString(), (String key) -> new java.util.concurrent.locks.ReentrantLock());
+        processLock.lock();
+
+        java.nio.channels.FileChannel lockChannel = null;
+        try
+        {
+            if (isNative(lockFile))
+            {
+                final java.nio.file.Path lockFilePath = toPath(lockFile);
+                java.nio.file.Files.createDirectories(lockFilePath.toAbsolutePath().getParent());
+                lockChannel = java.nio.channels.FileChannel.open(lockFilePath, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.WRITE);
+                lockChannel.lock();
+            }
+        }
+        catch (java.io.IOException | RuntimeException e)
+        {
+            if (lockChannel != null)
+            {
+                lockChannel.close();
+            }
+            processLock.unlock();
+            throw e;
+        }
+        return new Lock(processLock, lockChannel);
+    }
+
+    /**
+     * A lock that was taken with NativeFiles.lock(File).
+     */
+    public static class Lock implements AutoCloseable
+    {
+        private final java.util.concurrent.locks.ReentrantLock processLock;
+        private final java.nio.channels.FileChannel lockChannel;
+
+        private Lock(java.util.concurrent.locks.ReentrantLock processLock, java.nio.channels.FileChannel lockChannel)
+        {
+            this.processLock = processLock;
+            this.lockChannel = lockChannel;
+        }
+
+        /**
+         * Release this lock.
+         */
+        @Override
+        public void close() throws java.io.IOException
+        {
+            try
+            {
+                if (lockChannel != null)
+                {
+                    lockChannel.close();
+                }
+            }
+            finally
+            {
+                processLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package qub;
+
+/**
+ * Deletes large folders. The folder is walked once, its files are deleted by a bounded pool of
+ * worker threads, and then its folders are deleted bottom-up. A folder on the real file system can
+ * also be renamed out of the way and deleted by a background process so that the caller doesn't
+ * have to wait for it.
+ */
+public class ParallelDelete
+{
+    /**
+     * The number of files that each worker task deletes. Deleting files in batches keeps the
+     * per-task overhead small compared to the cost of deleting a file.
+     */
+    private static final int filesPerTask = 128;
+
+    /**
+     * The part of the name of a folder that has been renamed so that it can be deleted in the
+     * background.
+     */
+    static final String backgroundDeleteMarker = ".deleting.";
+
+    /**
+     * Get whether or not the provided folder should be deleted by ParallelDelete instead of
+     * Folder.delete(). Deleting files in parallel and in the background only pays off on the real
+     * file system.
+     */
+    public static boolean canDelete(Folder folder)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+
+        return NativeFiles.isNative(folder);
+    }
+
+    /**
+     * Delete the provided folder and everything in it.
+     * @param folder The folder to delete.
+     * @param parallelism The maximum number of files to delete at the same time.
+     * @return The result of the delete.
+     */
+    public static DeleteResult delete(Folder folder, int parallelism)
+    {
+        PreCondition.assertNotNull(folder, "folder");
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+
+        final List<FileSystemEntry> entries = new ArrayList<>();
+        entries.add(folder);
+        return delete(entries, parallelism);
+    }
+
+    /**
+     * Delete the provided files and folders, including everything in the folders, as one batch.
+     * @param entries The files and folders to delete. They may overlap.
+     * @param parallelism The maximum number of files to delete at the same time.
+     * @return The result of the delete.
+     */
+    public static DeleteResult delete(java.lang.Iterable<? extends FileSystemEntry> entries, int parallelism)
+    {
+        PreCondition.assertNotNull(entries, "entries");
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+
+        final DeleteResult result = new DeleteResult();
+        final long startTime = System.nanoTime();
+
+        // The entries may overlap, so each path is only deleted once. Folders are added after the
+        // entries in them, so the folders are deleted bottom-up.
+        final java.util.Map<String,FileSystemEntry> files = new java.util.LinkedHashMap<>();
+        final java.util.Map<String,Folder> folders = new java.util.LinkedHashMap<>();
+        boolean isNative = true;
+        for (final FileSystemEntry entry : entries)
+        {
+            collect(entry, files, folders, result);
+            isNative = isNative && NativeFiles.isNative(entry);
+        }
+
+        // Deleting from an in-memory file system doesn't get faster with more threads.
+        deleteFiles(new java.util.ArrayList<>(files.values()), isNative ? parallelism : 1, result);
+
+        for (final Folder folder : folders.values())
+        {
+            if (deleteEntry(folder, result))
+            {
+                result.folderCount.incrementAndGet();
+            }
+        }
+
+        result.durationMilliseconds = (System.nanoTime() - startTime) / 1000000;
+        return result;
+    }
+
+    private static void collect(FileSystemEntry entry, java.util.Map<String,FileSystemEntry> files, java.util.Map<String,Folder> folders, DeleteResult result)
+    {
+        final String entryPath = entry.getPath().toString();
+        if (!(entry instanceof Folder) || NativeFiles.isSymbolicLink(entry))
+        {
+            // A symbolic link is deleted like a file, so the folder that it links to is left alone.
+            if (!files.containsKey(entryPath) && entry.exists().getValue())
+            {
+                files.put(entryPath, entry);
+                try
+                {
+                    if (entry instanceof File)
+                    {
+                        result.byteCount.addAndGet(NativeFiles.getSize((File)entry));
+                    }
+                }
+                catch (java.io.IOException e)
+                {
+                    result.failedCount.incrementAndGet();
+                }
+            }
+        }
+        else if (!folders.containsKey(entryPath))
+        {
+            final Folder folder = (Folder)entry;
+            final Iterable<FileSystemEntry> childEntries = folder.getFilesAndFolders().getValue();
+            if (childEntries == null)
+            {
+                if (folder.exists().getValue())
+                {
+                    result.failedCount.incrementAndGet();
+                }
+            }
+            else
+            {
+                for (final FileSystemEntry childEntry : childEntries)
+                {
+                    collect(childEntry, files, folders, result);
+                }
+                folders.put(entryPath, folder);
+            }
+        }
+    }
+
+    private static void deleteFiles(java.util.List<FileSystemEntry> files, int parallelism, DeleteResult result)
+    {
+        final int taskCount = (files.size() + filesPerTask - 1) / filesPerTask;
+        final int threadCount = java.lang.Math.min(parallelism, taskCount);
+        if (threadCount <= 1)
+        {
+            deleteFiles(files, result);
+        }
+        else
+        {
+            final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(threadCount, (Runnable runnable) ->
+            {
+                final Thread thread = new Thread(runnable, "qub-delete");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try
+            {
+                final java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+                for (int start = 0; start < files.size(); start += filesPerTask)
+                {
+                    final java.util.List<FileSystemEntry> taskFiles = files.subList(start, java.lang.Math.min(start + filesPerTask, files.size()));
+                    futures.add(executor.submit(() -> deleteFiles(taskFiles, result)));
+                }
+                for (final java.util.concurrent.Future<?> future : futures)
+                {
+                    future.get();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (java.util.concurrent.ExecutionException e)
+            {
+                Exceptions.throwAsRuntime(e.getCause());
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static void deleteFiles(java.util.List<FileSystemEntry> files, DeleteResult result)
+    {
+        for (final FileSystemEntry file : files)
+        {
+            if (deleteEntry(file, result))
+            {
+                result.fileCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static boolean deleteEntry(FileSystemEntry entry, DeleteResult result)
+    {
+        boolean deleted = false;
+        try
+        {
+            if (NativeFiles.isSymbolicLink(entry))
+            {
+                NativeFiles.deleteSymbolicLink(entry);
+                deleted = true;
+            }
+            else
+            {
+                deleted = !entry.delete().hasError();
+            }
+        }
+        catch (java.io.IOException ignored)
+        {
+        }
+
+        if (!deleted)
+        {
+            result.failedCount.incrementAndGet();
+        }
+        return deleted;
+    }
+
+    /**
+     * Rename the provided folder out of the way and start a separate process that deletes it, so
+     * that the folder's path is free as soon as this returns. Folders from earlier background
+     * deletes that didn't finish are deleted by the same process.
+     * @param folder The folder to delete. It must be on the real file system.
+     * @return Whether or not the folder was renamed and the background process was started. If
+     *         the folder couldn't be renamed, it hasn't been changed.
+     */
+    public static boolean deleteInBackground(Folder folder)
+    {
+        PreCondition.assertTrue(canDelete(folder), "canDelete(folder)");
+
+        boolean result = false;
+        final Folder parentFolder = folder.getParentFolder();
+        if (parentFolder != null && folder.exists().getValue())
+        {
+            final String trashFolderPrefix = "." + folder.getName() + backgroundDeleteMarker;
+            final Folder trashFolder = parentFolder.getFolder(trashFolderPrefix + System.currentTimeMillis()).getValue();
+            try
+            {
+                if (NativeFiles.rename(folder, trashFolder))
+                {
+                    final java.util.List<String> command = new java.util.ArrayList<>();
+                    command.add(java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+                    command.add("-cp");
+                    command.add(System.getProperty("java.class.path"));
+                    command.add(ParallelDelete.class.getName());
+                    for (final Folder siblingFolder : parentFolder.getFolders().getValue())
+                    {
+                        if (siblingFolder.getName().startsWith(trashFolderPrefix))
+                        {
+                            command.add(siblingFolder.getPath().toString());
+                        }
+                    }
+
+                    final java.io.File nullDevice = new java.io.File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+                    new java.lang.ProcessBuilder(command)
+                        .redirectOutput(java.lang.ProcessBuilder.Redirect.appendTo(nullDevice))
+                        .redirectError(java.lang.ProcessBuilder.Redirect.appendTo(nullDevice))
+                        .start();
+                    result = true;
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                // If the folder was renamed but the process couldn't be started, the renamed
+                // folder is deleted by the next background delete of the same folder.
+                result = !folder.exists().getValue();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The entry point of the background delete process.
+     * @param args The paths of the folders to delete.
+     */
+    public static void main(String[] args)
+    {
+        try (final Console console = new Console(args))
+        {
+            for (final String folderPath : args)
+            {
+                delete(console.getFileSystem().getFolder(folderPath).getValue(), Runtime.getRuntime().availableProcessors());
+            }
+        }
+    }
+
+    /**
+     * The result of a ParallelDelete.
+     */
+    public static class DeleteResult
+    {
+        final java.util.concurrent.atomic.AtomicLong fileCount = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong folderCount = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong byteCount = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong failedCount = new java.util.concurrent.atomic.AtomicLong();
+        long durationMilliseconds;
+
+        public long getFileCount()
+        {
+            return fileCount.get();
+        }
+
+        public long getFolderCount()
+        {
+            return folderCount.get();
+        }
+
+        /**
+         * Get the total size of the files that were found.
+         */
+        public long getByteCount()
+        {
+            return byteCount.get();
+        }
+
+        /**
+         * Get the number of files and folders that couldn't be read or deleted.
+         */
+        public long getFailedCount()
+        {
+            return failedCount.get();
+        }
+
+        public long getDurationMilliseconds()
+        {
+            return durationMilliseconds;
+        }
+
+        public boolean succeeded()
+        {
+            return getFailedCount() == 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringBuilder builder = new StringBuilder();
+            builder.append(getFileCount()).append(getFileCount() == 1 ? " file, " : " files, ")
+                .append(getFolderCount()).append(getFolderCount() == 1 ? " folder, " : " folders, ")
+                .append(toSizeString(getByteCount())).append(", ")
+                .append(String.format(java.util.Locale.ROOT, "%.1f", getDurationMilliseconds() / 1000.0)).append(" seconds");
+            if (!succeeded())
+            {
+                builder.append(", ").append(getFailedCount()).append(" couldn't be deleted");
+            }
+            return builder.toString();
+        }
+
+        static String toSizeString(long byteCount)
+        {
+            final String result;
+            if (byteCount < 1024)
+            {
+                result = byteCount + (byteCount == 1 ? " byte" : " bytes");
+            }
+            else if (byteCount < 1024 * 1024)
+            {
+                result = String.format(java.util.Locale.ROOT, "%.1f KB", byteCount / 1024.0);
+            }
+            else if (byteCount < 1024L * 1024 * 1024)
+            {
+                result = String.format(java.util.Locale.ROOT, "%.1f MB", byteCount / (1024.0 * 1024));
+            }
+            else
+            {
+                result = String.format(java.util.Locale.ROOT, "%.1f GB", byteCount / (1024.0 * 1024 * 1024));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package qub;
+
+/**
+ * Records how long the phases of a -profile run take. Each phase is a Span, and a Span that is
+ * started while another Span is open on the same thread (or on the thread that started the
+ * current thread) is that Span's child. The recorded Spans can be written as a Chrome trace-event
+ * file (which chrome://tracing and https://ui.perfetto.dev can open) and as a summary table.
+ * When a Console isn't being profiled, starting a Span does nothing.
+ */
+public class Profiler
+{
+    /**
+     * The name of the trace file that is written to the current folder if -profile doesn't
+     * provide one.
+     */
+    static final String defaultTraceFileName = "qub.trace.json";
+
+    /**
+     * The Profiler of each Console that is being profiled.
+     */
+    private static final java.util.Map<Console,Profiler> consoleProfilers = new java.util.WeakHashMap<>();
+
+    /**
+     * The Span that is returned when a Console isn't being profiled.
+     */
+    private static final Span disabledSpan = new Span(null, null, null, 0);
+
+    private final long startNanoTime;
+    private final java.util.List<SpanEvent> events;
+    private final java.util.Map<Long,String> threadNames;
+    private final InheritableThreadLocal<Span> currentSpan;
+
+    Profiler()
+    {
+        this.startNanoTime = System.nanoTime();
+        this.events = new java.util.ArrayList<>();
+        this.threadNames = new java.util.TreeMap<>();
+        this.currentSpan = new InheritableThreadLocal<>();
+    }
+
+    /**
+     * Start profiling the provided Console.
+     * @return The Console's Profiler.
+     */
+    public static Profiler enable(Console console)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        Profiler result;
+        synchronized (consoleProfilers)
+        {
+            result = consoleProfilers.get(console);
+            if (result == null)
+            {
+                result = new Profiler();
+                consoleProfilers.put(console, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the Profiler of the provided Console.
+     * @return The Profiler, or null if the Console isn't being profiled.
+     */
+    public static Profiler get(Console console)
+    {
+        Profiler result = null;
+        if (console != null)
+        {
+            synchronized (consoleProfilers)
+            {
+                result = consoleProfilers.get(console);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record the Spans of the provided child Console (such as a project Console of a -workspace
+     * run) in the provided parent Console's Profiler, if the parent Console is being profiled.
+     */
+    static void share(Console parentConsole, Console childConsole)
+    {
+        PreCondition.assertNotNull(parentConsole, "parentConsole");
+        PreCondition.assertNotNull(childConsole, "childConsole");
+
+        final Profiler profiler = Profiler.get(parentConsole);
+        if (profiler != null)
+        {
+            synchronized (consoleProfilers)
+            {
+                consoleProfilers.put(childConsole, profiler);
+            }
+        }
+    }
+
+    /**
+     * Start a Span with the provided name. The Span ends when it is closed, so it should be
+     * started in a try-with-resources statement.
+     * @param console The Console whose Profiler should record the Span.
+     * @param name The name of the Span.
+     * @return The started Span. If the Console isn't being profiled, the Span doesn't record
+     *         anything.
+     */
+    public static Span start(Console console, String name)
+    {
+        PreCondition.assertNotNullAndNotEmpty(name, "name");
+
+        final Profiler profiler = Profiler.get(console);
+        return profiler == null ? disabledSpan : profiler.start(name);
+    }
+
+    Span start(String name)
+    {
+        final Span result = new Span(this, currentSpan.get(), name, System.nanoTime());
+        currentSpan.set(result);
+        return result;
+    }
+
+    private void end(Span span, long endNanoTime)
+    {
+        currentSpan.set(span.parent);
+
+        final Thread thread = Thread.currentThread();
+        synchronized (events)
+        {
+            events.add(new SpanEvent(span.getPath(), span.parent == null ? null : span.parent.getPath(), span.name, thread.getId(), span.startNanoTime - startNanoTime, endNanoTime - span.startNanoTime));
+            threadNames.put(thread.getId(), thread.getName());
+        }
+    }
+
+    /**
+     * Get the Chrome trace-event JSON of the Spans that have ended. Each Span is a complete ("X")
+     * event whose timestamp and duration are in microseconds, and the trace viewer nests the
+     * events of each thread by their times.
+     */
+    public String toTraceJson()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        synchronized (events)
+        {
+            boolean firstEvent = true;
+            for (final java.util.Map.Entry<Long,String> threadName : threadNames.entrySet())
+            {
+                builder.append(firstEvent ? "\n" : ",\n");
+                firstEvent = false;
+                builder.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(threadName.getKey())
+                    .append(",\"args\":{\"name\":").append(JSONStrings.quote(threadName.getValue())).append("}}");
+            }
+            for (final SpanEvent event : events)
+            {
+                builder.append(firstEvent ? "\n" : ",\n");
+                firstEvent = false;
+                builder.append("{\"name\":").append(JSONStrings.quote(event.name))
+                    .append(",\"cat\":\"qub\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(event.threadId)
+                    .append(",\"ts\":").append(event.startNanoTime / 1000)
+                    .append(",\"dur\":").append(event.durationNanoTime / 1000)
+                    .append("}");
+            }
+        }
+        builder.append("\n]}\n");
+        return builder.toString();
+    }
+
+    /**
+     * Get the summary table of the Spans that have ended. Spans with the same name and the same
+     * ancestors are added together, and each row is indented under its parent's row.
+     */
+    public String toSummary()
+    {
+        final java.util.Map<String,SummaryRow> rows = new java.util.LinkedHashMap<>();
+        synchronized (events)
+        {
+            // A Span always starts before its children, so sorting by start time creates each
+            // parent row before its child rows.
+            final java.util.List<SpanEvent> sortedEvents = new java.util.ArrayList<>(events);
+            sortedEvents.sort((SpanEvent lhs, SpanEvent rhs) -> Long.compare(lhs.startNanoTime, rhs.startNanoTime));
+            for (final SpanEvent event : sortedEvents)
+            {
+                SummaryRow row = rows.get(event.path);
+                if (row == null)
+                {
+                    final SummaryRow parentRow = event.parentPath == null ? null : rows.get(event.parentPath);
+                    row = new SummaryRow(event.name, parentRow == null ? 0 : parentRow.depth + 1);
+                    rows.put(event.path, row);
+                    if (parentRow != null)
+                    {
+                        parentRow.childRows.add(row);
+                    }
+                }
+                ++row.count;
+                row.totalNanoTime += event.durationNanoTime;
+                row.maximumNanoTime = java.lang.Math.max(row.maximumNanoTime, event.durationNanoTime);
+            }
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format(java.util.Locale.ROOT, "%10s %10s %7s  %s%n", "Total (s)", "Max (s)", "Count", "Span"));
+        for (final SummaryRow row : rows.values())
+        {
+            if (row.depth == 0)
+            {
+                appendSummaryRows(builder, row);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendSummaryRows(StringBuilder builder, SummaryRow row)
+    {
+        final StringBuilder indentation = new StringBuilder();
+        for (int i = 0; i < row.depth; ++i)
+        {
+            indentation.append("  ");
+        }
+        builder.append(String.format(java.util.Locale.ROOT, "%10.3f %10.3f %7d  %s%s%n",
+            row.totalNanoTime / 1000000000.0,
+            row.maximumNanoTime / 1000000000.0,
+            row.count,
+            indentation,
+            row.name));
+
+        for (final SummaryRow childRow : row.childRows)
+        {
+            appendSummaryRows(builder, childRow);
+        }
+    }
+
+    /**
+     * Write the trace file and the summary table of the provided Console's Profiler, if the
+     * Console is being profiled.
+     * @param console The Console to write the summary table to.
+     * @param traceFile The file to write the Chrome trace-event JSON to.
+     */
+    public static void finish(Console console, File traceFile)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(traceFile, "traceFile");
+
+        final Profiler profiler = Profiler.get(console);
+        if (profiler != null)
+        {
+            console.writeLine();
+            console.writeLine("Profile:");
+            console.write(profiler.toSummary());
+            try
+            {
+                AtomicInstall.setContents(traceFile, profiler.toTraceJson().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                console.writeLine("Trace written to " + traceFile + ".");
+            }
+            catch (java.io.IOException e)
+            {
+                console.writeLine("Failed to write the trace to " + traceFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Remove the -profile argument from the provided Console's command line, and get the trace
+     * file that it names.
+     * @return The trace file, or null if the Console's command line doesn't have a -profile
+     *         argument (or has -profile=false).
+     */
+    static File parseProfile(Console console)
+    {
+        File result = null;
+        final CommandLineArgument profileArgument = console.getCommandLine().remove("profile");
+        if (profileArgument != null)
+        {
+            final String value = profileArgument.getValue();
+            if (value == null || value.isEmpty() || value.equalsIgnoreCase("true"))
+            {
+                result = console.getCurrentFolder().getValue().getFile(defaultTraceFileName).getValue();
+            }
+            else if (!value.equalsIgnoreCase("false"))
+            {
+                final Path tracePath = Path.parse(value);
+                result = tracePath.isRooted()
+                    ? console.getFileSystem().getFile(tracePath).getValue()
+                    : console.getCurrentFolder().getValue().getFile(tracePath).getValue();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A timed phase of a profiled run.
+     */
+    public static class Span implements AutoCloseable
+    {
+        private final Profiler profiler;
+        private final Span parent;
+        private final String name;
+        private final long startNanoTime;
+        private boolean closed;
+
+        Span(Profiler profiler, Span parent, String name, long startNanoTime)
+        {
+            this.profiler = profiler;
+            this.parent = parent;
+            this.name = name;
+            this.startNanoTime = startNanoTime;
+        }
+
+        /**
+         * Get the names of this Span and its ancestors, separated by " > ".
+         */
+        String getPath()
+        {
+            return parent == null ? name : parent.getPath() + " > " + name;
+        }
+
+        /**
+         * End this Span.
+         */
+        @Override
+        public void close()
+        {
+            if (profiler != null && !closed)
+            {
+                closed = true;
+                profiler.end(this, System.nanoTime());
+            }
+        }
+    }
+
+    private static class SpanEvent
+    {
+        final String path;
+        final String parentPath;
+        final String name;
+        final long threadId;
+        final long startNanoTime;
+        final long durationNanoTime;
+
+        SpanEvent(String path, String parentPath, String name, long threadId, long startNanoTime, long durationNanoTime)
+        {
+            this.path = path;
+            this.parentPath = parentPath;
+            this.name = name;
+            this.threadId = threadId;
+            this.startNanoTime = startNanoTime;
+            this.durationNanoTime = durationNanoTime;
+        }
+    }
+
+    private static class SummaryRow
+    {
+        final String name;
+        final int depth;
+        final java.util.List<SummaryRow> childRows;
+        int count;
+        long totalNanoTime;
+        long maximumNanoTime;
+
+        SummaryRow(String name, int depth)
+        {
+            this.name = name;
+            this.depth = depth;
+            this.childRows = new java.util.ArrayList<>();
+        }
+    }
+}
@@ -2,22 +2,30 @@ package qub;
 
 public class ProjectJson
 {
-    private final JSONObject rootObject;
+    private JSONObject rootObject;
     private final String publisher;
     private final String project;
     private final String version;
-    private final JSONObject javaObject;
+    private JSONObject javaObject;
     private final String mainClass;
     private final Iterable<String> classpath;
-    private final JSONObject javaSourcesObject;
+    private JSONObject javaSourcesObject;
     private final Folder javaSourcesFolder;
     private final String javaSourcesVersion;
-    private final JSONObject javaTestsObject;
+    private final Iterable<GlobPattern> javaSourcesIncludes;
+    private final Iterable<GlobPattern> javaSourcesExcludes;
+    private JSONObject javaTestsObject;
     private final Folder javaTestsFolder;
     private final String javaTestsVersion;
+    private final Iterable<GlobPattern> javaTestsIncludes;
+    private final Iterable<GlobPattern> javaTestsExcludes;
     private final Double javaTestsLineCoverageRequirement;
     private final Folder javaOutputsFolder;
     private final Iterable<Dependency> dependencies;
+    private final Folder projectFolder;
+    private boolean jsonObjectsLoaded;
+    private List<File> javaSourceFiles;
+    private List<File> javaTestFiles;
 
     ProjectJson(JSONObject rootObject,
                 String publisher,
@@ -29,12 +37,17 @@ public class ProjectJson
                 JSONObject javaSourcesObject,
                 Folder javaSourcesFolder,
                 String javaSourcesVersion,
+                Iterable<GlobPattern> javaSourcesIncludes,
+                Iterable<GlobPattern> javaSourcesExcludes,
                 JSONObject javaTestsObject,
                 Folder javaTestsFolder,
                 String javaTestsVersion,
+                Iterable<GlobPattern> javaTestsIncludes,
+                Iterable<GlobPattern> javaTestsExcludes,
                 Double javaTestsLineCoverageRequirement,
                 Folder javaOutputsFolder,
-                Iterable<Dependency> dependencies)
+                Iterable<Dependency> dependencies,
+                Folder projectFolder)
     {
         this.rootObject = rootObject;
         this.publisher = publisher;
@@ -46,16 +59,42 @@ public class ProjectJson
         this.javaSourcesObject = javaSourcesObject;
         this.javaSourcesFolder = javaSourcesFolder;
         this.javaSourcesVersion = javaSourcesVersion;
+        this.javaSourcesIncludes = javaSourcesIncludes;
+        this.javaSourcesExcludes = javaSourcesExcludes;
         this.javaTestsObject = javaTestsObject;
         this.javaTestsFolder = javaTestsFolder;
         this.javaTestsVersion = javaTestsVersion;
+        this.javaTestsIncludes = javaTestsIncludes;
+        this.javaTestsExcludes = javaTestsExcludes;
         this.javaTestsLineCoverageRequirement = javaTestsLineCoverageRequirement;
         this.javaOutputsFolder = javaOutputsFolder;
         this.dependencies = dependencies;
+        this.projectFolder = projectFolder;
+        this.jsonObjectsLoaded = rootObject != null;
+    }
+
+    private synchronized void loadJSONObjects()
+    {
+        if (!jsonObjectsLoaded)
+        {
+            jsonObjectsLoaded = true;
+
+            final File projectJsonFile = projectFolder == null ? null : projectFolder.getFile("project.json").getValue();
+            final byte[] projectJsonContents = projectJsonFile == null || !projectJsonFile.exists().getValue() ? null : projectJsonFile.getContents().getValue();
+            if (projectJsonContents != null)
+            {
+                final ProjectJson parsedProjectJson = parse(projectFolder, projectJsonContents, new ArrayList<>());
+                rootObject = parsedProjectJson.rootObject;
+                javaObject = parsedProjectJson.javaObject;
+                javaSourcesObject = parsedProjectJson.javaSourcesObject;
+                javaTestsObject = parsedProjectJson.javaTestsObject;
+            }
+        }
     }
 
     public JSONObject getRootObject()
     {
+        loadJSONObjects();
         return rootObject;
     }
 
@@ -76,6 +115,7 @@ public class ProjectJson
 
     public JSONObject getJavaObject()
     {
+        loadJSONObjects();
         return javaObject;
     }
 
@@ -91,25 +131,19 @@ public class ProjectJson
 
     public Iterable<Dependency> getResolvedDependencies(Folder qubFolder)
     {
-        final List<Dependency> result = new ArrayList<>();
+        return getResolvedDependencies(qubFolder, null);
+    }
 
-        for (final Dependency dependency : dependencies)
+    public Iterable<Dependency> getResolvedDependencies(Folder qubFolder, Console console)
+    {
+        Iterable<Dependency> result;
+        if (!dependencies.any())
         {
-            final VersionRange dependencyVersionRange = VersionRange.parse(dependency.getVersionRange());
-            if (dependencyVersionRange instanceof ExactVersionRange)
-            {
-                result.add(dependency);
-            }
-            else
-            {
-                final Folder projectFolder = dependency.getProjectFolder(qubFolder);
-                final Iterable<Folder> projectVersionFolders = projectFolder.getFolders().getValue();
-                final Iterable<String> projectVersionStrings = projectVersionFolders.map(Folder::getName);
-                final Iterable<VersionNumber> projectVersionNumbers = projectVersionStrings.map(VersionNumber::parse);
-                final Iterable<VersionNumber> matchingProjectVersionNumbers = projectVersionNumbers.where(dependencyVersionRange::matches);
-                final VersionNumber maximumMatch = Comparer.maximum(matchingProjectVersionNumbers);
-                result.add(new Dependency(dependency.getPublisher(), dependency.getProject(), maximumMatch.toString()));
-            }
+            result = new ArrayList<>();
+        }
+        else
+        {
+            result = ProjectLock.get(dependencies, projectFolder, qubFolder, console).getResolvedDependencies();
         }
 
         PostCondition.assertNotNull(result, "result");
@@ -118,15 +152,32 @@ public class ProjectJson
     }
 
     public Iterable<String> getAllClasspaths(Folder qubFolder)
+    {
+        return getAllClasspaths(qubFolder, null);
+    }
+
+    public Iterable<String> getAllClasspaths(Folder qubFolder, Console console)
     {
         final List<String> result = ArrayList.fromValues(classpath);
-        final Iterable<Dependency> resolvedDependencies = getResolvedDependencies(qubFolder);
-        result.addAll(resolvedDependencies.map((Dependency dependency) -> dependency.toString(qubFolder)));
+        try (final Profiler.Span span = Profiler.start(console, "resolve dependencies"))
+        {
+            final Workspace workspace = Workspace.get(console);
+            if (workspace != null)
+            {
+                result.addAll(workspace.getDependencyClasspaths(this, qubFolder, console));
+            }
+            else
+            {
+                final Iterable<Dependency> resolvedDependencies = getResolvedDependencies(qubFolder, console);
+                result.addAll(resolvedDependencies.map((Dependency dependency) -> dependency.toString(qubFolder)));
+            }
+        }
         return result;
     }
 
     public JSONObject getJavaSourcesObject()
     {
+        loadJSONObjects();
         return javaSourcesObject;
     }
 
@@ -135,26 +186,21 @@ public class ProjectJson
         return javaSourcesFolder;
     }
 
-    public Iterable<File> getJavaSourceFiles()
+    public synchronized Iterable<File> getJavaSourceFiles()
     {
-        Iterable<File> result;
-        if (javaSourcesFolder == null)
+        if (javaSourceFiles == null)
         {
-            result = new Array<File>(0);
-        }
-        else
-        {
-            final Result<Iterable<File>> javaSourcesFolderFiles = javaSourcesFolder.getFilesRecursively();
-            if (javaSourcesFolderFiles.getValue() == null)
-            {
-                result = new Array<File>(0);
-            }
-            else
-            {
-                result = javaSourcesFolderFiles.getValue().where((File file) -> file.getFileExtension().equals(".java"));
-            }
+            javaSourceFiles = javaSourcesFolder == null
+                ? new ArrayList<>()
+                : JavaFileWalker.getJavaFiles(javaSourcesFolder, javaSourcesIncludes, javaSourcesExcludes);
         }
-        return result;
+        return javaSourceFiles;
+    }
+
+    synchronized void clearJavaFiles()
+    {
+        javaSourceFiles = null;
+        javaTestFiles = null;
     }
 
     public String getJavaSourcesVersion()
@@ -162,8 +208,19 @@ public class ProjectJson
         return javaSourcesVersion;
     }
 
+    public Iterable<GlobPattern> getJavaSourcesIncludes()
+    {
+        return javaSourcesIncludes;
+    }
+
+    public Iterable<GlobPattern> getJavaSourcesExcludes()
+    {
+        return javaSourcesExcludes;
+    }
+
     public JSONObject getJavaTestsObject()
     {
+        loadJSONObjects();
         return javaTestsObject;
     }
 
@@ -172,26 +229,15 @@ public class ProjectJson
         return javaTestsFolder;
     }
 
-    public Iterable<File> getJavaTestFiles()
+    public synchronized Iterable<File> getJavaTestFiles()
     {
-        Iterable<File> result;
-        if (javaTestsFolder == null)
-        {
-            result = new Array<File>(0);
-        }
-        else
+        if (javaTestFiles == null)
         {
-            final Result<Iterable<File>> javaSourcesFolderFiles = javaTestsFolder.getFilesRecursively();
-            if (javaSourcesFolderFiles.getValue() == null)
-            {
-                result = new Array<File>(0);
-            }
-            else
-            {
-                result = javaSourcesFolderFiles.getValue().where((File file) -> file.getFileExtension().equals(".java"));
-            }
+            javaTestFiles = javaTestsFolder == null
+                ? new ArrayList<>()
+                : JavaFileWalker.getJavaFiles(javaTestsFolder, javaTestsIncludes, javaTestsExcludes);
         }
-        return result;
+        return javaTestFiles;
     }
 
     public String getJavaTestsVersion()
@@ -199,6 +245,16 @@ public class ProjectJson
         return javaTestsVersion;
     }
 
+    public Iterable<GlobPattern> getJavaTestsIncludes()
+    {
+        return javaTestsIncludes;
+    }
+
+    public Iterable<GlobPattern> getJavaTestsExcludes()
+    {
+        return javaTestsExcludes;
+    }
+
     public Double getJavaTestsLineCoverageRequirement()
     {
         return javaTestsLineCoverageRequirement;
@@ -220,463 +276,537 @@ public class ProjectJson
 
         if (console != null)
         {
-            final File projectJsonFile = console.getCurrentFolder().getValue().getFile("project.json").getValue();
-            if (!projectJsonFile.exists().getValue())
+            try (final Profiler.Span span = Profiler.start(console, "parse project.json"))
             {
-                console.writeLine("project.json file doesn't exist in the current folder.");
+                final File projectJsonFile = console.getCurrentFolder().getValue().getFile("project.json").getValue();
+                if (!projectJsonFile.exists().getValue())
+                {
+                    console.writeLine("project.json file doesn't exist in the current folder.");
+                }
+                else
+                {
+                    result = ProjectJsonCache.get(console, projectJsonFile);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    static ProjectJson parse(Folder projectFolder, byte[] projectJsonContents, List<String> errors)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertNotNull(projectJsonContents, "projectJsonContents");
+        PreCondition.assertNotNull(errors, "errors");
+
+        JSONDocument projectJsonDocument = null;
+        try
+        {
+            projectJsonDocument = JSON.parse(new String(projectJsonContents, java.nio.charset.StandardCharsets.UTF_8));
+        }
+        catch (Exception e)
+        {
+            errors.add(e.toString());
+        }
+
+        JSONObject rootObject = null;
+        String publisher = null;
+        String project = null;
+        String version = null;
+        JSONObject javaObject = null;
+        String mainClass = null;
+        List<String> classpath = new ArrayList<>();
+        JSONObject javaTestsObject = null;
+        Folder javaSourcesFolder = null;
+        String javaSourcesVersion = null;
+        List<GlobPattern> javaSourcesIncludes = new ArrayList<>();
+        List<GlobPattern> javaSourcesExcludes = new ArrayList<>();
+        JSONObject javaSourcesObject = null;
+        Folder javaTestsFolder = null;
+        String javaTestsVersion = null;
+        List<GlobPattern> javaTestsIncludes = new ArrayList<>();
+        List<GlobPattern> javaTestsExcludes = new ArrayList<>();
+        Double javaTestsLineCoverageRequirement = null;
+        Folder javaOutputsFolder = null;
+        Iterable<Dependency> dependencies = new ArrayList<>();
+
+        final JSONSegment rootSegment = projectJsonDocument.getRoot();
+        if (!(rootSegment instanceof JSONObject))
+        {
+            errors.add("project.json root segment must be a JSON object.");
+        }
+        else
+        {
+            rootObject = (JSONObject)rootSegment;
+
+            final JSONSegment publisherSegment = rootObject.getPropertyValue("publisher");
+            if (publisherSegment == null)
+            {
+                errors.add("A \"publisher\" quoted-string property must be specified in the rootObject object of the project.json file.");
+            }
+            else if (!(publisherSegment instanceof JSONQuotedString))
+            {
+                errors.add("The \"publisher\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
             }
             else
             {
-                JSONDocument projectJsonDocument = null;
-                try (final CharacterReadStream projectJsonFileReadStream = projectJsonFile.getContentByteReadStream().getValue().asCharacterReadStream())
+                publisher = ((JSONQuotedString)publisherSegment).toUnquotedString();
+                if (publisher.isEmpty())
                 {
-                    projectJsonDocument = JSON.parse(projectJsonFileReadStream);
+                    errors.add("The \"publisher\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
+                    publisher = null;
                 }
-                catch (Exception e)
+            }
+
+            final JSONSegment projectSegment = rootObject.getPropertyValue("project");
+            if (projectSegment == null)
+            {
+                errors.add("A \"project\" quoted-string property must be specified in the rootObject object of the project.json file.");
+            }
+            else if (!(projectSegment instanceof JSONQuotedString))
+            {
+                errors.add("The \"project\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
+            }
+            else
+            {
+                project = ((JSONQuotedString)projectSegment).toUnquotedString();
+                if (project.isEmpty())
                 {
-                    console.writeLine(e.toString());
+                    errors.add("The \"project\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
+                    project = null;
                 }
+            }
 
-                JSONObject rootObject = null;
-                String publisher = null;
-                String project = null;
-                String version = null;
-                JSONObject javaObject = null;
-                String mainClass = null;
-                List<String> classpath = new ArrayList<>();
-                JSONObject javaTestsObject = null;
-                Folder javaSourcesFolder = null;
-                String javaSourcesVersion = null;
-                JSONObject javaSourcesObject = null;
-                Folder javaTestsFolder = null;
-                String javaTestsVersion = null;
-                Double javaTestsLineCoverageRequirement = null;
-                Folder javaOutputsFolder = null;
-                List<Dependency> dependencies = new ArrayList<>();
-
-                final JSONSegment rootSegment = projectJsonDocument.getRoot();
-                if (!(rootSegment instanceof JSONObject))
+            final JSONSegment versionSegment = rootObject.getPropertyValue("version");
+            if (versionSegment == null)
+            {
+                errors.add("A \"version\" quoted-string property must be specified in the rootObject object of the project.json file.");
+            }
+            else if (!(versionSegment instanceof JSONQuotedString))
+            {
+                errors.add("The \"version\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
+            }
+            else
+            {
+                version = ((JSONQuotedString)versionSegment).toUnquotedString();
+                if (version.isEmpty())
                 {
-                    console.writeLine("project.json root segment must be a JSON object.");
+                    errors.add("The \"version\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
+                    version = null;
                 }
-                else
-                {
-                    rootObject = (JSONObject)rootSegment;
+            }
 
-                    final JSONSegment publisherSegment = rootObject.getPropertyValue("publisher");
-                    if (publisherSegment == null)
-                    {
-                        console.writeLine("A \"publisher\" quoted-string property must be specified in the rootObject object of the project.json file.");
-                    }
-                    else if (!(publisherSegment instanceof JSONQuotedString))
-                    {
-                        console.writeLine("The \"publisher\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
-                    }
-                    else
+            final JSONSegment javaSegment = rootObject.getPropertyValue("java");
+            if (javaSegment == null)
+            {
+                errors.add("project.json root object must contain a \"java\" property.");
+            }
+            else if (!(javaSegment instanceof JSONObject))
+            {
+                errors.add("\"java\" property must be a JSON object.");
+            }
+            else
+            {
+                javaObject = (JSONObject)javaSegment;
+
+                final JSONSegment mainClassSegment = javaObject.getPropertyValue("mainClass");
+                if (mainClassSegment != null)
+                {
+                    if (mainClassSegment instanceof JSONQuotedString)
                     {
-                        publisher = ((JSONQuotedString)publisherSegment).toUnquotedString();
-                        if (publisher.isEmpty())
+                        mainClass = ((JSONQuotedString)mainClassSegment).toUnquotedString();
+                        if (mainClass.isEmpty())
                         {
-                            console.writeLine("The \"publisher\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
-                            publisher = null;
+                            errors.add("The \"mainClass\" property in the java object of the project.json file must be a non-empty quoted-string.");
+                            mainClass = null;
                         }
                     }
-
-                    final JSONSegment projectSegment = rootObject.getPropertyValue("project");
-                    if (projectSegment == null)
-                    {
-                        console.writeLine("A \"project\" quoted-string property must be specified in the rootObject object of the project.json file.");
-                    }
-                    else if (!(projectSegment instanceof JSONQuotedString))
-                    {
-                        console.writeLine("The \"project\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
-                    }
                     else
                     {
-                        project = ((JSONQuotedString)projectSegment).toUnquotedString();
-                        if (project.isEmpty())
-                        {
-                            console.writeLine("The \"project\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
-                            project = null;
-                        }
+                        errors.add("The \"mainClass\" property in the java object of the project.json file must be a non-empty quoted-string.");
                     }
+                }
 
-                    final JSONSegment versionSegment = rootObject.getPropertyValue("version");
-                    if (versionSegment == null)
-                    {
-                        console.writeLine("A \"version\" quoted-string property must be specified in the rootObject object of the project.json file.");
-                    }
-                    else if (!(versionSegment instanceof JSONQuotedString))
-                    {
-                        console.writeLine("The \"version\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
-                    }
-                    else
+                final JSONSegment classpathSegment = javaObject.getPropertyValue("classpath");
+                if (classpathSegment != null)
+                {
+                    if (classpathSegment instanceof JSONQuotedString)
                     {
-                        version = ((JSONQuotedString)versionSegment).toUnquotedString();
-                        if (version.isEmpty())
+                        final JSONQuotedString classpathQuotedString = (JSONQuotedString)classpathSegment;
+                        final String classpathQuotedStringValue = classpathQuotedString.toUnquotedString();
+                        if (!classpathQuotedStringValue.isEmpty())
                         {
-                            console.writeLine("The \"version\" property in the rootObject object of the project.json file must be a non-empty quoted-string.");
-                            version = null;
+                            classpath.add(classpathQuotedString.toUnquotedString());
                         }
                     }
-
-                    final JSONSegment javaSegment = rootObject.getPropertyValue("java");
-                    if (javaSegment == null)
+                    else if (classpathSegment instanceof JSONArray)
                     {
-                        console.writeLine("project.json root object must contain a \"java\" property.");
-                    }
-                    else if (!(javaSegment instanceof JSONObject))
-                    {
-                        console.writeLine("\"java\" property must be a JSON object.");
-                    }
-                    else
-                    {
-                        javaObject = (JSONObject)javaSegment;
-
-                        final JSONSegment mainClassSegment = javaObject.getPropertyValue("mainClass");
-                        if (mainClassSegment != null)
+                        final JSONArray classpathArray = (JSONArray)classpathSegment;
+                        for (final JSONSegment classpathElementSegment : classpathArray.getElements())
                         {
-                            if (mainClassSegment instanceof JSONQuotedString)
+                            if (!(classpathElementSegment instanceof JSONQuotedString))
                             {
-                                mainClass = ((JSONQuotedString)mainClassSegment).toUnquotedString();
-                                if (mainClass.isEmpty())
-                                {
-                                    console.writeLine("The \"mainClass\" property in the java object of the project.json file must be a non-empty quoted-string.");
-                                    mainClass = null;
-                                }
+                                errors.add("Expected element of \"classpath\" array to be a quoted string.");
                             }
                             else
                             {
-                                console.writeLine("The \"mainClass\" property in the java object of the project.json file must be a non-empty quoted-string.");
-                            }
-                        }
-
-                        final JSONSegment classpathSegment = javaObject.getPropertyValue("classpath");
-                        if (classpathSegment != null)
-                        {
-                            if (classpathSegment instanceof JSONQuotedString)
-                            {
-                                final JSONQuotedString classpathQuotedString = (JSONQuotedString)classpathSegment;
+                                final JSONQuotedString classpathQuotedString = (JSONQuotedString)classpathElementSegment;
                                 final String classpathQuotedStringValue = classpathQuotedString.toUnquotedString();
                                 if (!classpathQuotedStringValue.isEmpty())
                                 {
                                     classpath.add(classpathQuotedString.toUnquotedString());
                                 }
                             }
-                            else if (classpathSegment instanceof JSONArray)
-                            {
-                                final JSONArray classpathArray = (JSONArray)classpathSegment;
-                                for (final JSONSegment classpathElementSegment : classpathArray.getElements())
-                                {
-                                    if (!(classpathElementSegment instanceof JSONQuotedString))
-                                    {
-                                        console.writeLine("Expected element of \"classpath\" array to be a quoted string.");
-                                    }
-                                    else
-                                    {
-                                        final JSONQuotedString classpathQuotedString = (JSONQuotedString)classpathElementSegment;
-                                        final String classpathQuotedStringValue = classpathQuotedString.toUnquotedString();
-                                        if (!classpathQuotedStringValue.isEmpty())
-                                        {
-                                            classpath.add(classpathQuotedString.toUnquotedString());
-                                        }
-                                    }
-                                }
-                            }
-                            else
-                            {
-                                console.writeLine("Expected \"classpath\" to be either a quoted string or an array of quoted strings.");
-                            }
                         }
+                    }
+                    else
+                    {
+                        errors.add("Expected \"classpath\" to be either a quoted string or an array of quoted strings.");
+                    }
+                }
 
-                        final Folder currentFolder = console.getCurrentFolder().getValue();
+                final Folder currentFolder = projectFolder;
+
+                final JSONSegment javaSourcesSegment = javaObject.getPropertyValue("sources");
+                String sources = null;
+                if (javaSourcesSegment == null)
+                {
+                    sources = "sources";
+                }
+                else if (javaSourcesSegment instanceof JSONQuotedString)
+                {
+                    sources = ((JSONQuotedString)javaSourcesSegment).toUnquotedString();
+                    if (sources.isEmpty())
+                    {
+                        errors.add("Expected \"sources\" to not exist, be a non-empty quoted-string property, or be an object property.");
+                        sources = null;
+                    }
+                }
+                else if (javaSourcesSegment instanceof JSONObject)
+                {
+                    javaSourcesObject = (JSONObject)javaSourcesSegment;
 
-                        final JSONSegment javaSourcesSegment = javaObject.getPropertyValue("sources");
-                        String sources = null;
-                        if (javaSourcesSegment == null)
+                    final JSONSegment javaSourcesFolderSegment = javaSourcesObject.getPropertyValue("folder");
+                    if (javaSourcesFolderSegment == null)
+                    {
+                        sources = "sources";
+                    }
+                    else if (javaSourcesFolderSegment instanceof JSONQuotedString)
+                    {
+                        sources = ((JSONQuotedString)javaSourcesFolderSegment).toUnquotedString();
+                        if (sources.isEmpty())
                         {
-                            sources = "sources";
+                            errors.add("Expected \"folder\" property in \"sources\" section to not exist, be a non-empty quoted-string property, or be an object property.");
+                            sources = null;
                         }
-                        else if (javaSourcesSegment instanceof JSONQuotedString)
+                    }
+                    else
+                    {
+                        errors.add("Expected \"folder\" property in the \"sources\" section to be a non-empty quoted-string property.");
+                    }
+
+                    final JSONSegment javaSourcesVersionSegment = javaSourcesObject.getPropertyValue("version");
+                    if (javaSourcesVersionSegment != null)
+                    {
+                        if (!(javaSourcesVersionSegment instanceof JSONQuotedString))
                         {
-                            sources = ((JSONQuotedString)javaSourcesSegment).toUnquotedString();
-                            if (sources.isEmpty())
-                            {
-                                console.writeLine("Expected \"sources\" to not exist, be a non-empty quoted-string property, or be an object property.");
-                                sources = null;
-                            }
+                            errors.add("Expected \"version\" property in \"sources\" section to be a non-empty quoted-string property.");
                         }
-                        else if (javaSourcesSegment instanceof JSONObject)
+                        else
                         {
-                            javaSourcesObject = (JSONObject)javaSourcesSegment;
-
-                            final JSONSegment javaSourcesFolderSegment = javaSourcesObject.getPropertyValue("folder");
-                            if (javaSourcesFolderSegment == null)
-                            {
-                                sources = "sources";
-                            }
-                            else if (javaSourcesFolderSegment instanceof JSONQuotedString)
+                            javaSourcesVersion = ((JSONQuotedString)javaSourcesVersionSegment).toUnquotedString();
+                            if (javaSourcesVersion.isEmpty())
                             {
-                                sources = ((JSONQuotedString)javaSourcesFolderSegment).toUnquotedString();
-                                if (sources.isEmpty())
-                                {
-                                    console.writeLine("Expected \"folder\" property in \"sources\" section to not exist, be a non-empty quoted-string property, or be an object property.");
-                                    sources = null;
-                                }
+                                errors.add("Expected \"version\" property in \"sources\" section to be a non-empty quoted-string property.");
+                                javaSourcesVersion = null;
                             }
-                            else
-                            {
-                                console.writeLine("Expected \"folder\" property in the \"sources\" section to be a non-empty quoted-string property.");
-                            }
-
-                            final JSONSegment javaSourcesVersionSegment = javaSourcesObject.getPropertyValue("version");
-                            if (javaSourcesVersionSegment != null)
-                            {
-                                if (!(javaSourcesVersionSegment instanceof JSONQuotedString))
-                                {
-                                    console.writeLine("Expected \"version\" property in \"sources\" section to be a non-empty quoted-string property.");
-                                }
-                                else
-                                {
-                                    javaSourcesVersion = ((JSONQuotedString)javaSourcesVersionSegment).toUnquotedString();
-                                    if (javaSourcesVersion.isEmpty())
-                                    {
-                                        console.writeLine("Expected \"version\" property in \"sources\" section to be a non-empty quoted-string property.");
-                                        javaSourcesVersion = null;
-                                    }
-                                }
-                            }
-                        }
-                        else
-                        {
-                            console.writeLine("Expected \"sources\" to not exist, be a non-empty quoted-string property, or be an object property.");
                         }
+                    }
+
+                    javaSourcesIncludes = parseGlobPatterns(javaSourcesObject, "include", "sources", errors);
+                    javaSourcesExcludes = parseGlobPatterns(javaSourcesObject, "exclude", "sources", errors);
+                }
+                else
+                {
+                    errors.add("Expected \"sources\" to not exist, be a non-empty quoted-string property, or be an object property.");
+                }
+
+                if (sources != null)
+                {
+                    javaSourcesFolder = currentFolder.getFolder(sources).getValue();
+                }
+
+                final JSONSegment testsSegment = javaObject.getPropertyValue("tests");
+                String tests = null;
+                if (testsSegment == null)
+                {
+                    tests = "tests";
+                }
+                else if (testsSegment instanceof JSONQuotedString)
+                {
+                    tests = ((JSONQuotedString)testsSegment).toUnquotedString();
+                    if (tests.isEmpty())
+                    {
+                        errors.add("Expected \"tests\" to not exist, be a non-empty quoted-string property, or be an object property.");
+                        tests = null;
+                    }
+                }
+                else if (testsSegment instanceof JSONObject)
+                {
+                    javaTestsObject = (JSONObject)testsSegment;
 
-                        if (sources != null)
+                    final JSONSegment javaTestsFolderSegment = javaTestsObject.getPropertyValue("folder");
+                    if (javaTestsFolderSegment == null)
+                    {
+                        tests = "tests";
+                    }
+                    else if (javaTestsFolderSegment instanceof JSONQuotedString)
+                    {
+                        tests = ((JSONQuotedString)javaTestsFolderSegment).toUnquotedString();
+                        if (tests.isEmpty())
                         {
-                            javaSourcesFolder = currentFolder.getFolder(sources).getValue();
+                            errors.add("Expected \"folder\" property in \"tests\" section to be a non-empty quoted-string property.");
+                            tests = null;
                         }
+                    }
+                    else
+                    {
+                        errors.add("Expected \"folder\" property in the \"tests\" section to be a non-empty quoted-string property.");
+                    }
 
-                        final JSONSegment testsSegment = javaObject.getPropertyValue("tests");
-                        String tests = null;
-                        if (testsSegment == null)
+                    final JSONSegment javaTestsVersionSegment = javaTestsObject.getPropertyValue("version");
+                    if (javaTestsVersionSegment != null)
+                    {
+                        if (!(javaTestsVersionSegment instanceof JSONQuotedString))
                         {
-                            tests = "tests";
+                            errors.add("Expected \"version\" property in \"tests\" section to be a non-empty quoted-string property.");
                         }
-                        else if (testsSegment instanceof JSONQuotedString)
+                        else
                         {
-                            tests = ((JSONQuotedString)testsSegment).toUnquotedString();
-                            if (tests.isEmpty())
+                            javaTestsVersion = ((JSONQuotedString)javaTestsVersionSegment).toUnquotedString();
+                            if (javaTestsVersion.isEmpty())
                             {
-                                console.writeLine("Expected \"tests\" to not exist, be a non-empty quoted-string property, or be an object property.");
-                                tests = null;
+                                errors.add("Expected \"version\" property in \"tests\" section to be a non-empty quoted-string property.");
+                                javaTestsVersion = null;
                             }
                         }
-                        else if (testsSegment instanceof JSONObject)
-                        {
-                            javaTestsObject = (JSONObject)testsSegment;
+                    }
 
-                            final JSONSegment javaTestsFolderSegment = javaTestsObject.getPropertyValue("folder");
-                            if (javaTestsFolderSegment == null)
-                            {
-                                tests = "tests";
-                            }
-                            else if (javaTestsFolderSegment instanceof JSONQuotedString)
-                            {
-                                tests = ((JSONQuotedString)javaTestsFolderSegment).toUnquotedString();
-                                if (tests.isEmpty())
-                                {
-                                    console.writeLine("Expected \"folder\" property in \"tests\" section to be a non-empty quoted-string property.");
-                                    tests = null;
-                                }
-                            }
-                            else
-                            {
-                                console.writeLine("Expected \"folder\" property in the \"tests\" section to be a non-empty quoted-string property.");
-                            }
+                    javaTestsIncludes = parseGlobPatterns(javaTestsObject, "include", "tests", errors);
+                    javaTestsExcludes = parseGlobPatterns(javaTestsObject, "exclude", "tests", errors);
+                }
+                else
+                {
+                    errors.add("Expected \"tests\" to not exist, be a non-empty quoted-string property, or be an object property.");
+                }
 
-                            final JSONSegment javaTestsVersionSegment = javaTestsObject.getPropertyValue("version");
-                            if (javaTestsVersionSegment != null)
-                            {
-                                if (!(javaTestsVersionSegment instanceof JSONQuotedString))
-                                {
-                                    console.writeLine("Expected \"version\" property in \"tests\" section to be a non-empty quoted-string property.");
-                                }
-                                else
-                                {
-                                    javaTestsVersion = ((JSONQuotedString)javaTestsVersionSegment).toUnquotedString();
-                                    if (javaTestsVersion.isEmpty())
-                                    {
-                                        console.writeLine("Expected \"version\" property in \"tests\" section to be a non-empty quoted-string property.");
-                                        javaTestsVersion = null;
-                                    }
-                                }
-                            }
+                if (tests != null)
+                {
+                    javaTestsFolder = currentFolder.getFolder(tests).getValue();
+                }
 
+                final JSONSegment outputsSegment = javaObject.getPropertyValue("outputs");
+                String outputs = null;
+                if (outputsSegment == null)
+                {
+                    outputs = "outputs";
+                }
+                else if (outputsSegment instanceof JSONQuotedString)
+                {
+                    outputs = ((JSONQuotedString)outputsSegment).toUnquotedString();
+                    if (outputs.isEmpty())
+                    {
+                        errors.add("Expected \"outputs\" property in \"java\" section to be a non-empty quoted-string.");
+                        outputs = null;
+                    }
+                }
+                else
+                {
+                    errors.add("Expected \"outputs\" property in \"java\" section to be a non-empty quoted-string.");
+                }
 
-                        }
-                        else
-                        {
-                            console.writeLine("Expected \"tests\" to not exist, be a non-empty quoted-string property, or be an object property.");
-                        }
+                if (outputs != null)
+                {
+                    javaOutputsFolder = currentFolder.getFolder(outputs).getValue();
+                }
 
-                        if (tests != null)
-                        {
-                            javaTestsFolder = currentFolder.getFolder(tests).getValue();
-                        }
+                dependencies = parseDependencies(javaObject.getPropertyValue("dependencies"), errors);
 
-                        final JSONSegment outputsSegment = javaObject.getPropertyValue("outputs");
-                        String outputs = null;
-                        if (outputsSegment == null)
+                final JSONSegment javaTestsLineCoverageRequirementSegment = javaObject.getPropertyValue("lineCoverageRequirement");
+                if (javaTestsLineCoverageRequirementSegment != null)
+                {
+                    if (!(javaTestsLineCoverageRequirementSegment instanceof JSONToken))
+                    {
+                        errors.add("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
+                    }
+                    else
+                    {
+                        final JSONToken javaTestsLineCoverageRequirementToken = (JSONToken)javaTestsLineCoverageRequirementSegment;
+                        if (javaTestsLineCoverageRequirementToken.getType() != JSONTokenType.Number)
                         {
-                            outputs = "outputs";
+                            errors.add("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
                         }
-                        else if (outputsSegment instanceof JSONQuotedString)
+                        else
                         {
-                            outputs = ((JSONQuotedString)outputsSegment).toUnquotedString();
-                            if (outputs.isEmpty())
+                            javaTestsLineCoverageRequirement = Double.parseDouble(javaTestsLineCoverageRequirementToken.toString());
+                            if (javaTestsLineCoverageRequirement < 0)
                             {
-                                console.writeLine("Expected \"outputs\" property in \"java\" section to be a non-empty quoted-string.");
-                                outputs = null;
+                                errors.add("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
+                                javaTestsLineCoverageRequirement = 0.0;
+                            }
+                            else if (javaTestsLineCoverageRequirement > 100)
+                            {
+                                errors.add("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
+                                javaTestsLineCoverageRequirement = 100.0;
                             }
                         }
-                        else
-                        {
-                            console.writeLine("Expected \"outputs\" property in \"java\" section to be a non-empty quoted-string.");
-                        }
+                    }
+                }
+            }
+        }
+
+        final ProjectJson result = new ProjectJson(
+            rootObject,
+            publisher,
+            project,
+            version,
+            javaObject,
+            mainClass,
+            classpath,
+            javaSourcesObject,
+            javaSourcesFolder,
+            javaSourcesVersion,
+            javaSourcesIncludes,
+            javaSourcesExcludes,
+            javaTestsObject,
+            javaTestsFolder,
+            javaTestsVersion,
+            javaTestsIncludes,
+            javaTestsExcludes,
+            javaTestsLineCoverageRequirement,
+            javaOutputsFolder,
+            dependencies,
+            projectFolder);
+
+        return result;
+    }
+
+    private static List<GlobPattern> parseGlobPatterns(JSONObject sectionObject, String propertyName, String sectionName, List<String> errors)
+    {
+        final List<GlobPattern> result = new ArrayList<>();
+        final JSONSegment patternsSegment = sectionObject.getPropertyValue(propertyName);
+        if (patternsSegment != null)
+        {
+            final String errorMessage = "Expected \"" + propertyName + "\" property in \"" + sectionName + "\" section to be an array of non-empty quoted-strings.";
+            if (!(patternsSegment instanceof JSONArray))
+            {
+                errors.add(errorMessage);
+            }
+            else
+            {
+                for (final JSONSegment patternSegment : ((JSONArray)patternsSegment).getElements())
+                {
+                    final String pattern = patternSegment instanceof JSONQuotedString ? ((JSONQuotedString)patternSegment).toUnquotedString() : null;
+                    if (pattern == null || pattern.isEmpty())
+                    {
+                        errors.add(errorMessage);
+                    }
+                    else
+                    {
+                        result.add(GlobPattern.parse(pattern));
+                    }
+                }
+            }
+        }
+        return result;
+    }
 
-                        if (outputs != null)
+    static List<Dependency> parseDependencies(JSONSegment dependenciesSegment, List<String> errors)
+    {
+        final List<Dependency> result = new ArrayList<>();
+        if (dependenciesSegment != null)
+        {
+            if (!(dependenciesSegment instanceof JSONArray))
+            {
+                addError(errors, "The \"dependencies\" property in the java section must be an array.");
+            }
+            else
+            {
+                final JSONArray dependenciesArray = (JSONArray)dependenciesSegment;
+                for (final JSONSegment dependencySegment : dependenciesArray.getElements())
+                {
+                    if (!(dependencySegment instanceof JSONObject))
+                    {
+                        addError(errors, "Each dependency in the \"dependencies\" array property must be an object.");
+                    }
+                    else
+                    {
+                        final JSONObject dependencyObject = (JSONObject)dependencySegment;
+
+                        final JSONSegment dependencyPublisherSegment = dependencyObject.getPropertyValue("publisher");
+                        if (dependencyPublisherSegment == null || !(dependencyPublisherSegment instanceof JSONQuotedString))
                         {
-                            javaOutputsFolder = currentFolder.getFolder(outputs).getValue();
+                            addError(errors, "Each dependency must have a non-empty quoted-string \"publisher\" property.");
                         }
-
-                        final JSONSegment dependenciesSegment = javaObject.getPropertyValue("dependencies");
-                        if (dependenciesSegment != null)
+                        else
                         {
-                            if (!(dependenciesSegment instanceof JSONArray))
+                            final String dependencyPublisher = ((JSONQuotedString)dependencyPublisherSegment).toUnquotedString();
+                            if (dependencyPublisher.isEmpty())
                             {
-                                console.writeLine("The \"dependencies\" property in the java section must be an array.");
+                                addError(errors, "Each dependency must have a non-empty quoted-string \"publisher\" property.");
                             }
                             else
                             {
-                                final JSONArray dependenciesArray = (JSONArray)dependenciesSegment;
-                                for (final JSONSegment dependencySegment : dependenciesArray.getElements())
+                                final JSONSegment dependencyProjectSegment = dependencyObject.getPropertyValue("project");
+                                if (dependencyProjectSegment == null || !(dependencyProjectSegment instanceof JSONQuotedString))
                                 {
-                                    if (!(dependencySegment instanceof JSONObject))
+                                    addError(errors, "Each dependency must have a non-empty quoted-string \"project\" property.");
+                                }
+                                else
+                                {
+                                    final String dependencyProject = ((JSONQuotedString)dependencyProjectSegment).toUnquotedString();
+                                    if (dependencyProject.isEmpty())
                                     {
-                                        console.writeLine("Each dependency in the \"dependencies\" array property must be an object.");
+                                        addError(errors, "Each dependency must have a non-empty quoted-string \"project\" property.");
                                     }
                                     else
                                     {
-                                        final JSONObject dependencyObject = (JSONObject)dependencySegment;
-
-                                        final JSONSegment dependencyPublisherSegment = dependencyObject.getPropertyValue("publisher");
-                                        if (dependencyPublisherSegment == null || !(dependencyPublisherSegment instanceof JSONQuotedString))
+                                        final JSONSegment dependencyVersionSegment = dependencyObject.getPropertyValue("version");
+                                        if (dependencyVersionSegment == null || !(dependencyVersionSegment instanceof JSONQuotedString))
                                         {
-                                            console.writeLine("Each dependency must have a non-empty quoted-string \"publisher\" property.");
+                                            addError(errors, "Each dependency must have a non-empty quoted-string \"version\" property.");
                                         }
                                         else
                                         {
-                                            final String dependencyPublisher = ((JSONQuotedString)dependencyPublisherSegment).toUnquotedString();
-                                            if (dependencyPublisher.isEmpty())
+                                            final String dependencyVersion = ((JSONQuotedString)dependencyVersionSegment).toUnquotedString();
+                                            if (dependencyVersion.isEmpty())
                                             {
-                                                console.writeLine("Each dependency must have a non-empty quoted-string \"publisher\" property.");
+                                                addError(errors, "Each dependency must have a non-empty quoted-string \"version\" property.");
                                             }
                                             else
                                             {
-                                                final JSONSegment dependencyProjectSegment = dependencyObject.getPropertyValue("project");
-                                                if (dependencyProjectSegment == null || !(dependencyProjectSegment instanceof JSONQuotedString))
-                                                {
-                                                    console.writeLine("Each dependency must have a non-empty quoted-string \"project\" property.");
-                                                }
-                                                else
-                                                {
-                                                    final String dependencyProject = ((JSONQuotedString)dependencyProjectSegment).toUnquotedString();
-                                                    if (dependencyProject.isEmpty())
-                                                    {
-                                                        console.writeLine("Each dependency must have a non-empty quoted-string \"project\" property.");
-                                                    }
-                                                    else
-                                                    {
-                                                        final JSONSegment dependencyVersionSegment = dependencyObject.getPropertyValue("version");
-                                                        if (dependencyVersionSegment == null || !(dependencyVersionSegment instanceof JSONQuotedString))
-                                                        {
-                                                            console.writeLine("Each dependency must have a non-empty quoted-string \"version\" property.");
-                                                        }
-                                                        else
-                                                        {
-                                                            final String dependencyVersion = ((JSONQuotedString)dependencyVersionSegment).toUnquotedString();
-                                                            if (dependencyVersion.isEmpty())
-                                                            {
-                                                                console.writeLine("Each dependency must have a non-empty quoted-string \"version\" property.");
-                                                            }
-                                                            else
-                                                            {
-                                                                dependencies.add(new Dependency(dependencyPublisher, dependencyProject, dependencyVersion));
-                                                            }
-                                                        }
-                                                    }
-                                                }
+                                                result.add(new Dependency(dependencyPublisher, dependencyProject, dependencyVersion));
                                             }
                                         }
                                     }
                                 }
                             }
                         }
-
-                        final JSONSegment javaTestsLineCoverageRequirementSegment = javaObject.getPropertyValue("lineCoverageRequirement");
-                        if (javaTestsLineCoverageRequirementSegment != null)
-                        {
-                            if (!(javaTestsLineCoverageRequirementSegment instanceof JSONToken))
-                            {
-                                console.writeLine("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
-                            }
-                            else
-                            {
-                                final JSONToken javaTestsLineCoverageRequirementToken = (JSONToken)javaTestsLineCoverageRequirementSegment;
-                                if (javaTestsLineCoverageRequirementToken.getType() != JSONTokenType.Number)
-                                {
-                                    console.writeLine("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
-                                }
-                                else
-                                {
-                                    javaTestsLineCoverageRequirement = Double.parseDouble(javaTestsLineCoverageRequirementToken.toString());
-                                    if (javaTestsLineCoverageRequirement < 0)
-                                    {
-                                        console.writeLine("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
-                                        javaTestsLineCoverageRequirement = 0.0;
-                                    }
-                                    else if (javaTestsLineCoverageRequirement > 100)
-                                    {
-                                        console.writeLine("Expected \"lineCoverageRequirement\" property in \"java\" section to be a number between 0 to 100.");
-                                        javaTestsLineCoverageRequirement = 100.0;
-                                    }
-                                }
-                            }
-                        }
                     }
                 }
-
-                result = new ProjectJson(
-                    rootObject,
-                    publisher,
-                    project,
-                    version,
-                    javaObject,
-                    mainClass,
-                    classpath,
-                    javaSourcesObject,
-                    javaSourcesFolder,
-                    javaSourcesVersion,
-                    javaTestsObject,
-                    javaTestsFolder,
-                    javaTestsVersion,
-                    javaTestsLineCoverageRequirement,
-                    javaOutputsFolder,
-                    dependencies);
             }
         }
 
+        PostCondition.assertNotNull(result, "result");
+
         return result;
     }
+
+    private static void addError(List<String> errors, String error)
+    {
+        if (errors != null)
+        {
+            errors.add(error);
+        }
+    }
 }
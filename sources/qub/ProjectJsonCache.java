@@ -0,0 +1,400 @@
+package qub;
+
+/**
+ * A cache of parsed project.json files. Every action of a run gets the same ProjectJson object for
+ * a project.json file that hasn't changed, so the file is only parsed (and its validation errors
+ * are only written) once. A project.json file without validation errors is also written as a
+ * binary snapshot to the project's outputs folder so that later runs don't need to parse it.
+ * Snapshots are only used on the real file system, where a file's size and last modified time can
+ * be checked without reading it.
+ * A cached ProjectJson is used while the file's size and last modified time are unchanged, or
+ * while its content hash is unchanged when those aren't known or have changed. A snapshot holds
+ * the absolute paths of the project's folders, so it is only used for the project folder that it
+ * was written for and not for a copy of that folder.
+ */
+public class ProjectJsonCache
+{
+    /**
+     * The name of the file in the project's outputs folder that the snapshot is written to.
+     */
+    public static final String snapshotFileName = "project.json.snapshot";
+
+    /**
+     * The name of the outputs folder that snapshots are read from. A snapshot is only written for
+     * projects that use this outputs folder, since the outputs folder isn't known until the
+     * project.json file has been parsed.
+     */
+    private static final String defaultOutputsFolderName = "outputs";
+
+    private static final int snapshotFormat = 0x514A5333;
+
+    /**
+     * The ProjectJsons that have been used during each run, by the run's Console and then by the
+     * path of their project.json files.
+     */
+    private static final java.util.Map<Console,java.util.Map<String,Entry>> runEntries = new java.util.WeakHashMap<>();
+
+    /**
+     * Get the ProjectJson of the provided project.json file.
+     * @param console The Console of the current run. Validation errors are written to it.
+     * @param projectJsonFile The project.json file.
+     * @return The parsed ProjectJson.
+     */
+    public static ProjectJson get(Console console, File projectJsonFile)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(projectJsonFile, "projectJsonFile");
+
+        final java.util.Map<String,Entry> entries;
+        synchronized (runEntries)
+        {
+            entries = runEntries.computeIfAbsent(console, (Console key) -> new java.util.HashMap<>());
+        }
+
+        ProjectJson result;
+        synchronized (entries)
+        {
+            final String projectJsonFilePath = projectJsonFile.getPath().toString();
+            final long[] attributes = getAttributes(projectJsonFile);
+            final long size = attributes[0];
+            final long lastModified = attributes[1];
+
+            final Entry runEntry = entries.get(projectJsonFilePath);
+            if (runEntry != null && runEntry.hasAttributes(size, lastModified))
+            {
+                result = runEntry.projectJson;
+            }
+            else
+            {
+                final Folder projectFolder = projectJsonFile.getParentFolder();
+                final File snapshotFile = getSnapshotFile(projectFolder);
+                final boolean hasAttributes = size >= 0 && lastModified >= 0;
+                final Entry snapshotEntry = runEntry != null || !hasAttributes ? null : readSnapshot(snapshotFile, projectFolder);
+
+                Entry entry;
+                if (snapshotEntry != null && snapshotEntry.hasAttributes(size, lastModified))
+                {
+                    entry = snapshotEntry;
+                }
+                else
+                {
+                    final byte[] projectJsonContents = projectJsonFile.getContents().getValue();
+                    final String contentHash = ContentHash.of(projectJsonContents == null ? new byte[0] : projectJsonContents);
+                    if (runEntry != null && runEntry.contentHash.equals(contentHash))
+                    {
+                        entry = new Entry(size, lastModified, contentHash, runEntry.projectJson);
+                    }
+                    else if (snapshotEntry != null && snapshotEntry.contentHash.equals(contentHash))
+                    {
+                        entry = new Entry(size, lastModified, contentHash, snapshotEntry.projectJson);
+                        writeSnapshot(snapshotFile, entry, projectFolder);
+                    }
+                    else
+                    {
+                        final List<String> errors = new ArrayList<>();
+                        final ProjectJson projectJson = ProjectJson.parse(projectFolder, projectJsonContents == null ? new byte[0] : projectJsonContents, errors);
+                        for (final String error : errors)
+                        {
+                            console.writeLine(error);
+                        }
+
+                        entry = new Entry(size, lastModified, contentHash, projectJson);
+                        final Folder javaOutputsFolder = projectJson.getJavaOutputsFolder();
+                        if (hasAttributes && !errors.any() && javaOutputsFolder != null && javaOutputsFolder.getPath().equals(snapshotFile.getParentFolder().getPath()))
+                        {
+                            writeSnapshot(snapshotFile, entry, projectFolder);
+                        }
+                    }
+                }
+
+                entries.put(projectJsonFilePath, entry);
+                result = entry.projectJson;
+            }
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    /**
+     * Get the file that the snapshot of the provided project folder's project.json file is
+     * written to.
+     */
+    public static File getSnapshotFile(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return projectFolder.getFolder(defaultOutputsFolderName).getValue().getFile(snapshotFileName).getValue();
+    }
+
+    /**
+     * Get the size and last modified time (in milliseconds since the epoch) of the provided file,
+     * or -1 for each that can't be known. Only files on the real file system have these
+     * attributes available without reading the file.
+     */
+    private static long[] getAttributes(File file)
+    {
+        final long[] result = new long[] { -1, -1 };
+        if (file.getFileSystem() instanceof JavaFileSystem)
+        {
+            try
+            {
+                final java.nio.file.attribute.BasicFileAttributes attributes = java.nio.file.Files.readAttributes(java.nio.file.Paths.get(file.getPath().toString()), java.nio.file.attribute.BasicFileAttributes.class);
+                result[0] = attributes.size();
+                result[1] = attributes.lastModifiedTime().toMillis();
+            }
+            catch (java.io.IOException | java.nio.file.InvalidPathException ignored)
+            {
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the provided entry as the contents of a snapshot file.
+     * @param entry The entry.
+     * @param projectFolder The folder that contains the entry's project.json file.
+     */
+    static byte[] toSnapshot(Entry entry, Folder projectFolder)
+    {
+        PreCondition.assertNotNull(entry, "entry");
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        final java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (final java.io.DataOutputStream output = new java.io.DataOutputStream(bytes))
+        {
+            final ProjectJson projectJson = entry.projectJson;
+            output.writeInt(snapshotFormat);
+            output.writeUTF(projectFolder.getPath().toString());
+            output.writeLong(entry.size);
+            output.writeLong(entry.lastModified);
+            output.writeUTF(entry.contentHash);
+            writeString(output, projectJson.getPublisher());
+            writeString(output, projectJson.getProject());
+            writeString(output, projectJson.getVersion());
+            writeString(output, projectJson.getMainClass());
+
+            final java.util.List<String> classpath = new java.util.ArrayList<>();
+            for (final String classpathEntry : projectJson.getClasspath())
+            {
+                classpath.add(classpathEntry);
+            }
+            output.writeInt(classpath.size());
+            for (final String classpathEntry : classpath)
+            {
+                output.writeUTF(classpathEntry);
+            }
+
+            writeFolder(output, projectJson.getJavaSourcesFolder());
+            writeString(output, projectJson.getJavaSourcesVersion());
+            writeGlobPatterns(output, projectJson.getJavaSourcesIncludes());
+            writeGlobPatterns(output, projectJson.getJavaSourcesExcludes());
+            writeFolder(output, projectJson.getJavaTestsFolder());
+            writeString(output, projectJson.getJavaTestsVersion());
+            writeGlobPatterns(output, projectJson.getJavaTestsIncludes());
+            writeGlobPatterns(output, projectJson.getJavaTestsExcludes());
+            final Double lineCoverageRequirement = projectJson.getJavaTestsLineCoverageRequirement();
+            output.writeBoolean(lineCoverageRequirement != null);
+            if (lineCoverageRequirement != null)
+            {
+                output.writeDouble(lineCoverageRequirement);
+            }
+            writeFolder(output, projectJson.getJavaOutputsFolder());
+
+            final java.util.List<Dependency> dependencies = new java.util.ArrayList<>();
+            for (final Dependency dependency : projectJson.getDependencies())
+            {
+                dependencies.add(dependency);
+            }
+            output.writeInt(dependencies.size());
+            for (final Dependency dependency : dependencies)
+            {
+                output.writeUTF(dependency.getPublisher());
+                output.writeUTF(dependency.getProject());
+                output.writeUTF(dependency.getVersionRange());
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            // A ByteArrayOutputStream never throws.
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(java.io.DataOutputStream output, String value) throws java.io.IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null)
+        {
+            output.writeUTF(value);
+        }
+    }
+
+    private static void writeGlobPatterns(java.io.DataOutputStream output, Iterable<GlobPattern> patterns) throws java.io.IOException
+    {
+        output.writeInt(patterns.getCount());
+        for (final GlobPattern pattern : patterns)
+        {
+            output.writeUTF(pattern.toString());
+        }
+    }
+
+    private static void writeFolder(java.io.DataOutputStream output, Folder folder) throws java.io.IOException
+    {
+        writeString(output, folder == null ? null : folder.getPath().toString());
+    }
+
+    /**
+     * Parse the contents of a snapshot file.
+     * @param snapshot The contents of the snapshot file.
+     * @param projectFolder The folder that contains the project.json file that the snapshot was
+     *                      written for.
+     * @return The snapshot's entry, or null if the snapshot was not in the expected format or was
+     *         written for a different project folder.
+     */
+    static Entry parseSnapshot(byte[] snapshot, Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        Entry result = null;
+        if (snapshot != null)
+        {
+            try (final java.io.DataInputStream input = new java.io.DataInputStream(new java.io.ByteArrayInputStream(snapshot)))
+            {
+                if (input.readInt() == snapshotFormat && input.readUTF().equals(projectFolder.getPath().toString()))
+                {
+                    final FileSystem fileSystem = projectFolder.getFileSystem();
+                    final long size = input.readLong();
+                    final long lastModified = input.readLong();
+                    final String contentHash = input.readUTF();
+                    final String publisher = readString(input);
+                    final String project = readString(input);
+                    final String version = readString(input);
+                    final String mainClass = readString(input);
+
+                    final List<String> classpath = new ArrayList<>();
+                    final int classpathCount = input.readInt();
+                    for (int i = 0; i < classpathCount; ++i)
+                    {
+                        classpath.add(input.readUTF());
+                    }
+
+                    final Folder javaSourcesFolder = readFolder(input, fileSystem);
+                    final String javaSourcesVersion = readString(input);
+                    final List<GlobPattern> javaSourcesIncludes = readGlobPatterns(input);
+                    final List<GlobPattern> javaSourcesExcludes = readGlobPatterns(input);
+                    final Folder javaTestsFolder = readFolder(input, fileSystem);
+                    final String javaTestsVersion = readString(input);
+                    final List<GlobPattern> javaTestsIncludes = readGlobPatterns(input);
+                    final List<GlobPattern> javaTestsExcludes = readGlobPatterns(input);
+                    final Double javaTestsLineCoverageRequirement = input.readBoolean() ? input.readDouble() : null;
+                    final Folder javaOutputsFolder = readFolder(input, fileSystem);
+
+                    final List<Dependency> dependencies = new ArrayList<>();
+                    final int dependencyCount = input.readInt();
+                    for (int i = 0; i < dependencyCount; ++i)
+                    {
+                        dependencies.add(new Dependency(input.readUTF(), input.readUTF(), input.readUTF()));
+                    }
+
+                    // The JSON objects aren't in the snapshot. The ProjectJson parses its
+                    // project.json file if they are asked for.
+                    final ProjectJson projectJson = new ProjectJson(
+                        null,
+                        publisher,
+                        project,
+                        version,
+                        null,
+                        mainClass,
+                        classpath,
+                        null,
+                        javaSourcesFolder,
+                        javaSourcesVersion,
+                        javaSourcesIncludes,
+                        javaSourcesExcludes,
+                        null,
+                        javaTestsFolder,
+                        javaTestsVersion,
+                        javaTestsIncludes,
+                        javaTestsExcludes,
+                        javaTestsLineCoverageRequirement,
+                        javaOutputsFolder,
+                        dependencies,
+                        projectFolder);
+                    result = new Entry(size, lastModified, contentHash, projectJson);
+                }
+            }
+            catch (java.io.IOException | RuntimeException ignored)
+            {
+            }
+        }
+        return result;
+    }
+
+    private static String readString(java.io.DataInputStream input) throws java.io.IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static List<GlobPattern> readGlobPatterns(java.io.DataInputStream input) throws java.io.IOException
+    {
+        final List<GlobPattern> result = new ArrayList<>();
+        final int patternCount = input.readInt();
+        for (int i = 0; i < patternCount; ++i)
+        {
+            result.add(GlobPattern.parse(input.readUTF()));
+        }
+        return result;
+    }
+
+    private static Folder readFolder(java.io.DataInputStream input, FileSystem fileSystem) throws java.io.IOException
+    {
+        final String folderPath = readString(input);
+        return folderPath == null ? null : fileSystem.getFolder(folderPath).getValue();
+    }
+
+    private static Entry readSnapshot(File snapshotFile, Folder projectFolder)
+    {
+        Entry result = null;
+        if (snapshotFile.exists().getValue())
+        {
+            result = parseSnapshot(snapshotFile.getContents().getValue(), projectFolder);
+        }
+        return result;
+    }
+
+    private static void writeSnapshot(File snapshotFile, Entry entry, Folder projectFolder)
+    {
+        snapshotFile.setContents(toSnapshot(entry, projectFolder));
+    }
+
+    /**
+     * A parsed ProjectJson and the state of the project.json file that it was parsed from.
+     */
+    static class Entry
+    {
+        final long size;
+        final long lastModified;
+        final String contentHash;
+        final ProjectJson projectJson;
+
+        Entry(long size, long lastModified, String contentHash, ProjectJson projectJson)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.projectJson = projectJson;
+        }
+
+        /**
+         * Get whether or not this entry was created from a file with the provided size and last
+         * modified time. This is never true when they aren't known.
+         */
+        boolean hasAttributes(long size, long lastModified)
+        {
+            return size >= 0 && lastModified >= 0 && this.size == size && this.lastModified == lastModified;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package qub;
+
+/**
+ * The full set of dependencies that a project's declared dependencies resolved to. A ProjectLock
+ * is written to a project.lock.json file next to the project's project.json file, so later builds
+ * use the same dependency versions without reading the installed dependencies' project.json files
+ * again. The lock file is resolved again when the project's declared dependencies change or when
+ * one of its resolved versions is no longer installed, and it isn't written while any dependency
+ * can't be resolved to an installed version. Delete the lock file to pick up newly installed
+ * versions.
+ */
+public class ProjectLock
+{
+    /**
+     * The name of the file that a project's ProjectLock is written to.
+     */
+    public static final String fileName = "project.lock.json";
+
+    private final java.util.List<Dependency> declaredDependencies;
+    private final java.util.List<Dependency> resolvedDependencies;
+    private final java.util.List<Dependency> unresolvedDependencies;
+
+    /**
+     * Create a new ProjectLock.
+     * @param declaredDependencies The dependencies that the project's project.json file declares.
+     * @param resolvedDependencies The dependencies (direct and transitive) that the declared
+     *                             dependencies resolved to.
+     */
+    public ProjectLock(java.lang.Iterable<Dependency> declaredDependencies, java.lang.Iterable<Dependency> resolvedDependencies)
+    {
+        this(declaredDependencies, resolvedDependencies, java.util.Collections.emptyList());
+    }
+
+    /**
+     * Create a new ProjectLock.
+     * @param declaredDependencies The dependencies that the project's project.json file declares.
+     * @param resolvedDependencies The dependencies (direct and transitive) that the declared
+     *                             dependencies resolved to.
+     * @param unresolvedDependencies The resolved dependencies that don't have an installed version
+     *                               folder.
+     */
+    ProjectLock(java.lang.Iterable<Dependency> declaredDependencies, java.lang.Iterable<Dependency> resolvedDependencies, java.lang.Iterable<Dependency> unresolvedDependencies)
+    {
+        PreCondition.assertNotNull(declaredDependencies, "declaredDependencies");
+        PreCondition.assertNotNull(resolvedDependencies, "resolvedDependencies");
+        PreCondition.assertNotNull(unresolvedDependencies, "unresolvedDependencies");
+
+        this.declaredDependencies = toList(declaredDependencies);
+        this.resolvedDependencies = toList(resolvedDependencies);
+        this.unresolvedDependencies = toList(unresolvedDependencies);
+    }
+
+    private static java.util.List<Dependency> toList(java.lang.Iterable<Dependency> dependencies)
+    {
+        final java.util.List<Dependency> result = new java.util.ArrayList<>();
+        for (final Dependency dependency : dependencies)
+        {
+            result.add(dependency);
+        }
+        return result;
+    }
+
+    /**
+     * Get the dependencies that the project's project.json file declared when this lock was
+     * resolved.
+     */
+    public Iterable<Dependency> getDeclaredDependencies()
+    {
+        return ArrayList.fromValues(declaredDependencies);
+    }
+
+    /**
+     * Get the dependencies (direct and transitive) that the declared dependencies resolved to.
+     * Each resolved dependency's version range is the exact version that was chosen, unless no
+     * installed version matched.
+     */
+    public Iterable<Dependency> getResolvedDependencies()
+    {
+        return ArrayList.fromValues(resolvedDependencies);
+    }
+
+    /**
+     * Get the resolved dependencies that didn't have an installed version folder when this lock
+     * was resolved. A lock that has unresolved dependencies is not written to a lock file.
+     */
+    public Iterable<Dependency> getUnresolvedDependencies()
+    {
+        return ArrayList.fromValues(unresolvedDependencies);
+    }
+
+    /**
+     * Get whether or not each of this lock's resolved dependencies has an installed version folder
+     * in the provided Qub folder.
+     */
+    public boolean isInstalled(Folder qubFolder)
+    {
+        PreCondition.assertNotNull(qubFolder, "qubFolder");
+
+        boolean result = unresolvedDependencies.isEmpty();
+        for (int i = 0; result && i < resolvedDependencies.size(); ++i)
+        {
+            result = getVersionFolder(resolvedDependencies.get(i), qubFolder).exists().getValue();
+        }
+        return result;
+    }
+
+    private static Folder getVersionFolder(Dependency dependency, Folder qubFolder)
+    {
+        return dependency.getProjectFolder(qubFolder).getFolder(dependency.getVersionRange()).getValue();
+    }
+
+    /**
+     * Get whether or not this lock was resolved from the provided declared dependencies.
+     */
+    public boolean isLockOf(java.lang.Iterable<Dependency> declaredDependencies)
+    {
+        PreCondition.assertNotNull(declaredDependencies, "declaredDependencies");
+
+        return this.declaredDependencies.equals(toList(declaredDependencies));
+    }
+
+    /**
+     * Get the ProjectLock of a project. The project's lock file is used if it was resolved from the
+     * project's current declared dependencies and each of its resolved versions is still installed.
+     * Otherwise the declared dependencies are resolved again, and the lock file is rewritten if
+     * every dependency resolved to an installed version.
+     * @param declaredDependencies The dependencies that the project's project.json file declares.
+     * @param projectFolder The folder that contains the project's project.json file, or null if the
+     *                      lock shouldn't be read or written.
+     * @param qubFolder The Qub folder that dependencies are installed in, or null if installed
+     *                  dependencies can't be read.
+     * @param console The Console that dependency conflicts are written to, or null if they
+     *                shouldn't be written.
+     * @return The project's ProjectLock.
+     */
+    public static ProjectLock get(java.lang.Iterable<Dependency> declaredDependencies, Folder projectFolder, Folder qubFolder, Console console)
+    {
+        PreCondition.assertNotNull(declaredDependencies, "declaredDependencies");
+
+        final File lockFile = projectFolder == null ? null : projectFolder.getFile(fileName).getValue();
+        ProjectLock result = read(lockFile);
+        if (result == null || !result.isLockOf(declaredDependencies) || (qubFolder != null && !result.isInstalled(qubFolder)))
+        {
+            result = resolve(declaredDependencies, qubFolder, console);
+            if (lockFile != null && qubFolder != null && result.unresolvedDependencies.isEmpty())
+            {
+                result.write(lockFile);
+            }
+        }
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    /**
+     * Resolve the provided declared dependencies and the dependencies that their installed
+     * project.json files declare. Dependencies are visited breadth-first, so when two dependencies
+     * ask for different versions of the same project, the one that is nearest to the project wins
+     * (the first one declared wins between dependencies at the same depth). A dependency whose
+     * version range doesn't match an installed version keeps its version range, and it is one of
+     * the returned lock's unresolved dependencies.
+     * @param declaredDependencies The dependencies that the project's project.json file declares.
+     * @param qubFolder The Qub folder that dependencies are installed in, or null if installed
+     *                  dependencies can't be read.
+     * @param console The Console that dependency conflicts are written to, or null if they
+     *                shouldn't be written.
+     * @return The resolved ProjectLock.
+     */
+    public static ProjectLock resolve(java.lang.Iterable<Dependency> declaredDependencies, Folder qubFolder, Console console)
+    {
+        PreCondition.assertNotNull(declaredDependencies, "declaredDependencies");
+
+        final java.util.Map<String,Dependency> resolvedDependencies = new java.util.LinkedHashMap<>();
+        final java.util.Map<String,String> resolvedRequesters = new java.util.HashMap<>();
+        final java.util.List<Dependency> unresolvedDependencies = new java.util.ArrayList<>();
+        final java.util.ArrayDeque<DependencyRequest> requests = new java.util.ArrayDeque<>();
+        for (final Dependency declaredDependency : declaredDependencies)
+        {
+            requests.add(new DependencyRequest(declaredDependency, "project.json"));
+        }
+
+        while (!requests.isEmpty())
+        {
+            final DependencyRequest request = requests.removeFirst();
+            final Dependency requestedDependency = request.dependency;
+            final String key = requestedDependency.getPublisher() + "/" + requestedDependency.getProject();
+
+            final Dependency resolvedDependency = resolvedDependencies.get(key);
+            if (resolvedDependency == null)
+            {
+                final String resolvedVersion = resolveVersion(requestedDependency, qubFolder);
+                if (resolvedVersion == null)
+                {
+                    resolvedDependencies.put(key, requestedDependency);
+                    unresolvedDependencies.add(requestedDependency);
+                    if (console != null)
+                    {
+                        console.writeLine("No installed version of " + key + " matches the version range " + Strings.escapeAndQuote(requestedDependency.getVersionRange()) + " that " + request.requester + " asked for.");
+                    }
+                }
+                else
+                {
+                    final Dependency chosenDependency = new Dependency(requestedDependency.getPublisher(), requestedDependency.getProject(), resolvedVersion);
+                    resolvedDependencies.put(key, chosenDependency);
+                    resolvedRequesters.put(key, request.requester);
+                    if (qubFolder == null || !getVersionFolder(chosenDependency, qubFolder).exists().getValue())
+                    {
+                        unresolvedDependencies.add(chosenDependency);
+                    }
+
+                    final String requester = key + "@" + resolvedVersion;
+                    for (final Dependency transitiveDependency : readInstalledDependencies(chosenDependency, qubFolder))
+                    {
+                        requests.add(new DependencyRequest(transitiveDependency, requester));
+                    }
+                }
+            }
+            else if (console != null && resolvedRequesters.containsKey(key) && !matches(requestedDependency.getVersionRange(), resolvedDependency.getVersionRange()))
+            {
+                console.writeLine("Dependency conflict: " + request.requester + " asked for " + key + "@" + requestedDependency.getVersionRange() + ", but " + resolvedDependency.getVersionRange() + " (asked for by " + resolvedRequesters.get(key) + ") is used because it is nearer to the project.");
+            }
+        }
+
+        return new ProjectLock(declaredDependencies, resolvedDependencies.values(), unresolvedDependencies);
+    }
+
+    /**
+     * Get the installed version that the provided dependency's version range resolves to.
+     * @return The resolved version, or null if no installed version matches.
+     */
+    private static String resolveVersion(Dependency dependency, Folder qubFolder)
+    {
+        String result;
+        final VersionRange versionRange = VersionRange.parse(dependency.getVersionRange());
+        if (versionRange instanceof ExactVersionRange || qubFolder == null)
+        {
+            result = dependency.getVersionRange();
+        }
+        else
+        {
+            result = VersionIndex.get(dependency.getProjectFolder(qubFolder)).resolve(dependency.getVersionRange());
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not the provided version is in the provided version range.
+     */
+    static boolean matches(String versionRange, String version)
+    {
+        final VersionRange range = VersionRange.parse(versionRange);
+        final VersionNumber versionNumber = VersionNumber.parse(version);
+        return versionRange.equals(version) || (range != null && versionNumber != null && range.matches(versionNumber));
+    }
+
+    /**
+     * Read the dependencies that the installed project.json file of the provided dependency
+     * declares. InstallAction copies each project's project.json file into its version folder.
+     * @return The declared dependencies, or an empty list if the dependency isn't installed.
+     */
+    private static java.util.List<Dependency> readInstalledDependencies(Dependency dependency, Folder qubFolder)
+    {
+        java.util.List<Dependency> result = new java.util.ArrayList<>();
+        if (qubFolder != null)
+        {
+            final JSONObject rootObject = readJSONObject(getVersionFolder(dependency, qubFolder).getFile("project.json").getValue());
+            if (rootObject != null)
+            {
+                final JSONSegment javaSegment = rootObject.getPropertyValue("java");
+                if (javaSegment instanceof JSONObject)
+                {
+                    result = toList(ProjectJson.parseDependencies(((JSONObject)javaSegment).getPropertyValue("dependencies"), null));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the root JSON object of the provided file.
+     * @return The root object, or null if the file doesn't exist or its root isn't an object.
+     */
+    private static JSONObject readJSONObject(File file)
+    {
+        JSONObject result = null;
+        if (file != null && file.exists().getValue())
+        {
+            final byte[] fileContents = file.getContents().getValue();
+            if (fileContents != null)
+            {
+                result = parseJSONObject(new String(fileContents, java.nio.charset.StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parse the root JSON object of the provided text.
+     * @return The root object, or null if the text is null or its root isn't an object.
+     */
+    private static JSONObject parseJSONObject(String text)
+    {
+        JSONObject result = null;
+        if (text != null)
+        {
+            final JSONDocument document = JSON.parse(text);
+            if (document != null && document.getRoot() instanceof JSONObject)
+            {
+                result = (JSONObject)document.getRoot();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get this ProjectLock as the JSON text of a project.lock.json file.
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\n");
+        appendDependencies(builder, "dependencies", declaredDependencies);
+        builder.append(",\n");
+        appendDependencies(builder, "resolved", resolvedDependencies);
+        builder.append("\n}\n");
+        return builder.toString();
+    }
+
+    private static void appendDependencies(StringBuilder builder, String propertyName, java.util.List<Dependency> dependencies)
+    {
+        builder.append("  ").append(JSONStrings.quote(propertyName)).append(": [");
+        boolean first = true;
+        for (final Dependency dependency : dependencies)
+        {
+            builder.append(first ? "\n" : ",\n");
+            first = false;
+
+            builder.append("    {\"publisher\": ").append(JSONStrings.quote(dependency.getPublisher()))
+                .append(", \"project\": ").append(JSONStrings.quote(dependency.getProject()))
+                .append(", \"version\": ").append(JSONStrings.quote(dependency.getVersionRange()))
+                .append('}');
+        }
+        builder.append(first ? "]" : "\n  ]");
+    }
+
+    private static ProjectLock fromJSONObject(JSONObject rootObject)
+    {
+        ProjectLock result = null;
+        if (rootObject != null)
+        {
+            final JSONSegment declaredSegment = rootObject.getPropertyValue("dependencies");
+            final JSONSegment resolvedSegment = rootObject.getPropertyValue("resolved");
+            if (declaredSegment instanceof JSONArray && resolvedSegment instanceof JSONArray)
+            {
+                result = new ProjectLock(
+                    ProjectJson.parseDependencies(declaredSegment, null),
+                    ProjectJson.parseDependencies(resolvedSegment, null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parse the JSON text of a project.lock.json file.
+     * @return The ProjectLock, or null if the text is null or not a valid project.lock.json file.
+     */
+    public static ProjectLock parse(String text)
+    {
+        return fromJSONObject(parseJSONObject(text));
+    }
+
+    /**
+     * Read the provided project.lock.json file.
+     * @return The ProjectLock, or null if the file doesn't exist or is not valid.
+     */
+    public static ProjectLock read(File lockFile)
+    {
+        return fromJSONObject(readJSONObject(lockFile));
+    }
+
+    public void write(File lockFile)
+    {
+        PreCondition.assertNotNull(lockFile, "lockFile");
+
+        lockFile.setContents(CharacterEncoding.UTF_8.encode(toString()).getValue());
+    }
+
+    /**
+     * A dependency that still needs to be resolved, and the project that asked for it.
+     */
+    private static class DependencyRequest
+    {
+        final Dependency dependency;
+        final String requester;
+
+        DependencyRequest(Dependency dependency, String requester)
+        {
+            this.dependency = dependency;
+            this.requester = requester;
+        }
+    }
+}
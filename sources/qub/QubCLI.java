@@ -6,7 +6,10 @@ public class QubCLI
     {
         try (final Console console = new Console(args))
         {
-            QubCLI.main(console);
+            if (!DaemonAction.runInDaemon(console))
+            {
+                QubCLI.main(console);
+            }
         }
         catch (Exception e)
         {
@@ -18,9 +21,12 @@ public class QubCLI
     {
         final MutableMap<String,Action> actions = Map.create();
         addAction(actions, new BuildAction());
+        addAction(actions, new CacheAction());
         addAction(actions, new CleanAction());
+        addAction(actions, new DaemonAction());
         addAction(actions, new DeleteAction());
         addAction(actions, new InstallAction());
+        addAction(actions, new StatsAction());
         addAction(actions, new TestAction());
 
         final CommandLine commandLine = console.getCommandLine();
@@ -40,7 +46,24 @@ public class QubCLI
             else
             {
                 getAction(actions, actionString)
-                    .then((Action action) -> action.run(console))
+                    .then((Action action) ->
+                    {
+                        final File traceFile = Profiler.parseProfile(console);
+                        if (traceFile != null)
+                        {
+                            Profiler.enable(console);
+                        }
+
+                        try (final Profiler.Span actionSpan = Profiler.start(console, getActionKey(action)))
+                        {
+                            action.run(console);
+                        }
+
+                        if (traceFile != null)
+                        {
+                            Profiler.finish(console, traceFile);
+                        }
+                    })
                     .catchError(() -> console.writeLine("Unrecognized action: " + Strings.escapeAndQuote(actionString)));
             }
         }
@@ -70,7 +93,7 @@ public class QubCLI
 
     private static void showUsage(Console console, Map<String,Action> actions)
     {
-        console.writeLine("Usage: qub <action> [<action-options>]");
+        console.writeLine("Usage: qub <action> [<action-options>] [-profile[=<trace-file>]]");
         console.writeLine("Possible Actions:");
         for (final Action action : actions.getValues())
         {
@@ -0,0 +1,337 @@
+package qub;
+
+/**
+ * Watches a project's project.json file and its sources and tests folders for changes so that
+ * -watch runs can build again as soon as files are saved. Bursts of changes (such as an IDE saving
+ * many files, or a branch switch) are debounced into a single set of changes.
+ */
+public class SourceWatcher implements AutoCloseable
+{
+    /**
+     * How long the file system must be quiet before a burst of changes is reported.
+     */
+    public static final long debounceMilliseconds = 300;
+
+    private static final String projectJsonFileName = "project.json";
+    private static final String javaFileExtension = ".java";
+
+    private final java.nio.file.WatchService watchService;
+    private final java.util.Map<java.nio.file.WatchKey,Folder> watchedFolders;
+    private final String projectFolderPath;
+    private final java.util.List<String> recursiveFolderPaths;
+
+    /**
+     * Create a new SourceWatcher.
+     * @param projectFolder The folder that contains the project.json file. Only the project.json
+     *                      file in it is watched. It must be on the real file system.
+     * @param recursiveFolders The folders whose .java files are watched, including the files in
+     *                         their sub-folders.
+     */
+    public SourceWatcher(Folder projectFolder, Iterable<Folder> recursiveFolders) throws java.io.IOException
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+        PreCondition.assertTrue(NativeFiles.isNative(projectFolder), "NativeFiles.isNative(projectFolder)");
+        PreCondition.assertNotNull(recursiveFolders, "recursiveFolders");
+
+        this.watchService = java.nio.file.FileSystems.getDefault().newWatchService();
+        this.watchedFolders = new java.util.HashMap<>();
+        this.projectFolderPath = toPathString(projectFolder);
+        this.recursiveFolderPaths = new java.util.ArrayList<>();
+
+        register(projectFolder);
+        for (final Folder recursiveFolder : recursiveFolders)
+        {
+            this.recursiveFolderPaths.add(toPathString(recursiveFolder));
+            registerRecursively(recursiveFolder, null);
+        }
+    }
+
+    private static String toPathString(FileSystemEntry entry)
+    {
+        String result = entry.getPath().toString().replace('\\', '/');
+        if (result.length() > 1 && result.endsWith("/"))
+        {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Start watching the entries that are directly in the provided folder. A WatchService has no
+     * Folder equivalent, so this is where the folder is turned into a java.nio.file.Path.
+     */
+    private void register(Folder folder) throws java.io.IOException
+    {
+        if (folder.exists().getValue())
+        {
+            final java.nio.file.WatchKey watchKey = java.nio.file.Paths.get(folder.getPath().toString()).register(watchService,
+                java.nio.file.StandardWatchEventKinds.ENTRY_CREATE,
+                java.nio.file.StandardWatchEventKinds.ENTRY_DELETE,
+                java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedFolders.put(watchKey, folder);
+        }
+    }
+
+    /**
+     * Register the provided folder and its sub-folders, except for hidden folders such as .git
+     * and symbolic links to folders.
+     * @param changedPaths If not null, the .java files that are found are added to this set. This
+     *                     is used for folders that are created while they are watched.
+     */
+    private void registerRecursively(Folder folder, java.util.Set<String> changedPaths) throws java.io.IOException
+    {
+        register(folder);
+
+        final Iterable<FileSystemEntry> entries = folder.getFilesAndFolders().getValue();
+        if (entries != null)
+        {
+            for (final FileSystemEntry entry : entries)
+            {
+                if (entry instanceof Folder)
+                {
+                    if (!entry.getName().startsWith(".") && !NativeFiles.isSymbolicLink(entry))
+                    {
+                        registerRecursively((Folder)entry, changedPaths);
+                    }
+                }
+                else if (changedPaths != null && entry.getName().endsWith(javaFileExtension))
+                {
+                    changedPaths.add(toPathString(entry));
+                }
+            }
+        }
+    }
+
+    private boolean isInRecursiveFolder(String path)
+    {
+        boolean result = false;
+        for (final String recursiveFolderPath : recursiveFolderPaths)
+        {
+            if (path.startsWith(recursiveFolderPath + "/"))
+            {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wait until a relevant file changes, and then until the file system has been quiet for
+     * debounceMilliseconds.
+     * @return The changes that happened.
+     */
+    public Changes waitForChanges() throws java.io.IOException, InterruptedException
+    {
+        final Changes result = new Changes();
+        while (result.isEmpty())
+        {
+            java.nio.file.WatchKey watchKey = watchService.take();
+            while (watchKey != null)
+            {
+                final Folder folder = watchedFolders.get(watchKey);
+                for (final java.nio.file.WatchEvent<?> event : watchKey.pollEvents())
+                {
+                    if (event.kind() == java.nio.file.StandardWatchEventKinds.OVERFLOW)
+                    {
+                        result.everythingChanged = true;
+                    }
+                    else if (folder != null)
+                    {
+                        addChange(result, event.kind(), folder, event.context().toString());
+                    }
+                }
+                if (!watchKey.reset())
+                {
+                    watchedFolders.remove(watchKey);
+                }
+
+                watchKey = watchService.poll(debounceMilliseconds, java.util.concurrent.TimeUnit.MILLISECONDS);
+            }
+        }
+        return result;
+    }
+
+    private void addChange(Changes changes, java.nio.file.WatchEvent.Kind<?> kind, Folder folder, String name) throws java.io.IOException
+    {
+        final boolean created = kind == java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+        final boolean deleted = kind == java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+        final Folder createdFolder = created && !name.startsWith(".") ? folder.getFolder(name).getValue() : null;
+        final String path = toPathString(folder.getFile(name).getValue());
+        if (isInRecursiveFolder(path))
+        {
+            if (name.endsWith(javaFileExtension))
+            {
+                changes.changedPaths.add(path);
+                changes.filesAddedOrRemoved |= created || deleted;
+            }
+            else if (createdFolder != null && createdFolder.exists().getValue())
+            {
+                registerRecursively(createdFolder, changes.changedPaths);
+                changes.filesAddedOrRemoved = true;
+            }
+            else if (deleted && name.indexOf('.') < 0)
+            {
+                // The deleted entry may have been a folder of .java files.
+                changes.filesAddedOrRemoved = true;
+            }
+        }
+        else if (toPathString(folder).equals(projectFolderPath))
+        {
+            if (name.equals(projectJsonFileName))
+            {
+                changes.projectJsonChanged = true;
+            }
+            else if (createdFolder != null && recursiveFolderPaths.contains(path) && createdFolder.exists().getValue())
+            {
+                registerRecursively(createdFolder, changes.changedPaths);
+                changes.filesAddedOrRemoved = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws java.io.IOException
+    {
+        watchService.close();
+    }
+
+    /**
+     * Run the provided build or test iteration, and then run it again each time the project
+     * changes. The project's ProjectJson and the compiled state stay in memory between
+     * iterations, and only the source files that changed are hashed again. This only returns if
+     * the project can't be watched or the watching thread is interrupted.
+     * @param console The Console of the -watch run.
+     * @param runIteration The build or test iteration to run.
+     */
+    public static void watch(Console console, Action0 runIteration)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(runIteration, "runIteration");
+
+        runIteration.run();
+
+        boolean watching = true;
+        while (watching)
+        {
+            watching = false;
+
+            final ProjectJson projectJson = ProjectJson.parse(console);
+            if (projectJson != null)
+            {
+                final Folder projectFolder = console.getCurrentFolder().getValue();
+                if (!NativeFiles.isNative(projectFolder))
+                {
+                    console.writeLine("-watch is only supported for projects on the local file system.");
+                }
+                else
+                {
+                    final List<Folder> recursiveFolders = new ArrayList<>();
+                    if (projectJson.getJavaSourcesFolder() != null)
+                    {
+                        recursiveFolders.add(projectJson.getJavaSourcesFolder());
+                    }
+                    if (projectJson.getJavaTestsFolder() != null)
+                    {
+                        recursiveFolders.add(projectJson.getJavaTestsFolder());
+                    }
+
+                    try (final SourceWatcher watcher = new SourceWatcher(projectFolder, recursiveFolders))
+                    {
+                        boolean projectJsonChanged = false;
+                        while (!projectJsonChanged)
+                        {
+                            console.writeLine();
+                            console.writeLine("Watching for changes. Press Ctrl+C to stop.");
+
+                            final Changes changes = watcher.waitForChanges();
+                            projectJsonChanged = changes.projectJsonChanged;
+
+                            BuildAction.forgetSourceFileHashes(console, changes.everythingChanged ? null : changes.changedPaths);
+                            final ProjectJson changedProjectJson = ProjectJson.parse(console);
+                            if (changedProjectJson != null && (changes.filesAddedOrRemoved || changes.everythingChanged))
+                            {
+                                changedProjectJson.clearJavaFiles();
+                            }
+
+                            console.writeLine();
+                            console.writeLine(changes.toString());
+                            runIteration.run();
+                        }
+                        watching = true;
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        console.writeLine(e.toString());
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The changes that SourceWatcher.waitForChanges() found.
+     */
+    public static class Changes
+    {
+        final java.util.Set<String> changedPaths = new java.util.TreeSet<>();
+        boolean filesAddedOrRemoved;
+        boolean projectJsonChanged;
+        boolean everythingChanged;
+
+        /**
+         * Get the paths of the .java files that were created, modified, or deleted.
+         */
+        public java.util.Set<String> getChangedPaths()
+        {
+            return java.util.Collections.unmodifiableSet(changedPaths);
+        }
+
+        public boolean getFilesAddedOrRemoved()
+        {
+            return filesAddedOrRemoved;
+        }
+
+        public boolean getProjectJsonChanged()
+        {
+            return projectJsonChanged;
+        }
+
+        /**
+         * Get whether or not too many changes happened for the file system to report them
+         * individually, so every file must be treated as changed.
+         */
+        public boolean getEverythingChanged()
+        {
+            return everythingChanged;
+        }
+
+        public boolean isEmpty()
+        {
+            return changedPaths.isEmpty() && !filesAddedOrRemoved && !projectJsonChanged && !everythingChanged;
+        }
+
+        @Override
+        public String toString()
+        {
+            final String result;
+            if (everythingChanged)
+            {
+                result = "Detected too many changes to list, so every file will be checked.";
+            }
+            else if (projectJsonChanged)
+            {
+                result = "Detected changes to project.json.";
+            }
+            else
+            {
+                result = "Detected changes to " + changedPaths.size() + " file" + (changedPaths.size() == 1 ? "" : "s") + ".";
+            }
+            return result;
+        }
+    }
+}
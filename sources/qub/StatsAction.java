@@ -0,0 +1,323 @@
+package qub;
+
+/**
+ * A QubCLI action that shows the recorded BuildMetrics of the project in the current folder, and
+ * flags the recent runs that were slower than the runs before them.
+ */
+public class StatsAction implements Action
+{
+    /**
+     * The maximum number of earlier successful runs that a run is compared against.
+     */
+    static final int baselineRunCount = 20;
+
+    /**
+     * The minimum number of earlier successful runs that a run needs before it is compared
+     * against them.
+     */
+    static final int minimumBaselineRunCount = 3;
+
+    /**
+     * Durations that grew by less than this many milliseconds aren't regressions, no matter how
+     * large the growth is relative to the baseline.
+     */
+    static final long minimumRegressionMilliseconds = 100;
+
+    private static final double defaultThresholdPercent = 25;
+    private static final int defaultRecentRunCount = 10;
+
+    @Override
+    public String getName()
+    {
+        return "Stats";
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Show the recorded build, test, and install durations of the project in the current folder.";
+    }
+
+    @Override
+    public String getArgumentUsage()
+    {
+        return "[-action=<build|test|install>] [-runs=<count>] [-threshold=<percent>]";
+    }
+
+    @Override
+    public void run(Console console)
+    {
+        final CommandLine commandLine = console.getCommandLine();
+
+        commandLine.removeAt(0); // Remove the "stats" command line argument.
+
+        final CommandLineArgument actionArgument = commandLine.remove("action");
+        final String actionFilter = actionArgument == null || actionArgument.getValue() == null ? null : actionArgument.getValue().toLowerCase();
+        final int recentRunCount = parseRuns(console);
+        final double thresholdPercent = parseThreshold(console);
+
+        final ProjectJson projectJson = ProjectJson.parse(console);
+        if (projectJson != null)
+        {
+            final String projectKey = projectJson.getPublisher() + "/" + projectJson.getProject();
+            final File logFile = BuildMetrics.getLogFile(QubCLI.getQubFolder(console), projectJson.getPublisher(), projectJson.getProject());
+            if (logFile == null)
+            {
+                console.writeLine("The project.json file must have a publisher and a project for its build metrics to be found.");
+            }
+            else
+            {
+                final java.util.Map<String,java.util.List<BuildMetrics>> actionRuns = new java.util.TreeMap<>();
+                for (final BuildMetrics run : BuildMetrics.read(logFile))
+                {
+                    if (actionFilter == null || actionFilter.equals(run.getAction()))
+                    {
+                        actionRuns.computeIfAbsent(run.getAction(), (String action) -> new java.util.ArrayList<>()).add(run);
+                    }
+                }
+
+                if (actionRuns.isEmpty())
+                {
+                    console.writeLine("No " + (actionFilter == null ? "" : actionFilter + " ") + "runs of " + projectKey + " have been recorded in " + logFile + ".");
+                }
+                else
+                {
+                    console.writeLine("Build metrics of " + projectKey + " from " + logFile + ":");
+                    for (final java.util.Map.Entry<String,java.util.List<BuildMetrics>> entry : actionRuns.entrySet())
+                    {
+                        showStatistics(console, entry.getKey(), entry.getValue(), recentRunCount, thresholdPercent);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void showStatistics(Console console, String action, java.util.List<BuildMetrics> runs, int recentRunCount, double thresholdPercent)
+    {
+        final java.util.List<BuildMetrics> succeededRuns = new java.util.ArrayList<>();
+        for (final BuildMetrics run : runs)
+        {
+            if (run.getSucceeded())
+            {
+                succeededRuns.add(run);
+            }
+        }
+
+        console.writeLine();
+        console.writeLine(action + ": " + runs.size() + " run" + (runs.size() == 1 ? "" : "s") + ", " + succeededRuns.size() + " succeeded");
+
+        if (!succeededRuns.isEmpty())
+        {
+            final java.util.Map<String,java.util.List<Long>> durations = new java.util.LinkedHashMap<>();
+            final java.util.Map<String,java.util.List<Long>> counts = new java.util.LinkedHashMap<>();
+            for (final BuildMetrics run : succeededRuns)
+            {
+                for (final java.util.Map.Entry<String,Long> duration : run.getDurations().entrySet())
+                {
+                    durations.computeIfAbsent(duration.getKey(), (String name) -> new java.util.ArrayList<>()).add(duration.getValue());
+                }
+                for (final java.util.Map.Entry<String,Long> count : run.getCounts().entrySet())
+                {
+                    counts.computeIfAbsent(count.getKey(), (String name) -> new java.util.ArrayList<>()).add(count.getValue());
+                }
+            }
+
+            console.writeLine(String.format(java.util.Locale.ROOT, "  %-20s %9s %9s %9s %9s", "Successful runs", "p50", "p90", "p99", "max"));
+            for (final java.util.Map.Entry<String,java.util.List<Long>> duration : durations.entrySet())
+            {
+                final java.util.List<Long> values = duration.getValue();
+                console.writeLine(String.format(java.util.Locale.ROOT, "  %-20s %9s %9s %9s %9s", duration.getKey(),
+                    formatDuration(getPercentile(values, 50)),
+                    formatDuration(getPercentile(values, 90)),
+                    formatDuration(getPercentile(values, 99)),
+                    formatDuration(getPercentile(values, 100))));
+            }
+            for (final java.util.Map.Entry<String,java.util.List<Long>> count : counts.entrySet())
+            {
+                final java.util.List<Long> values = count.getValue();
+                console.writeLine(String.format(java.util.Locale.ROOT, "  %-20s %9d %9d %9d %9d", count.getKey(),
+                    getPercentile(values, 50),
+                    getPercentile(values, 90),
+                    getPercentile(values, 99),
+                    getPercentile(values, 100)));
+            }
+        }
+
+        final java.time.format.DateTimeFormatter timeFormatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(java.time.ZoneId.systemDefault());
+        final int firstRecentRunIndex = java.lang.Math.max(0, runs.size() - recentRunCount);
+        int regressedRunCount = 0;
+        console.writeLine("  Recent runs:");
+        for (int i = firstRecentRunIndex; i < runs.size(); ++i)
+        {
+            final BuildMetrics run = runs.get(i);
+            final Long duration = run.getDurations().get(BuildMetrics.totalDurationName);
+            String line = "    " + timeFormatter.format(java.time.Instant.ofEpochMilli(run.getTime())) + " " +
+                String.format(java.util.Locale.ROOT, "%9s", duration == null ? "" : formatDuration(duration)) + " " +
+                (run.getSucceeded() ? "succeeded" : "failed");
+            if (run.getSucceeded())
+            {
+                final java.util.List<String> regressions = getRegressions(run, getBaselineRuns(runs, i), thresholdPercent);
+                if (!regressions.isEmpty())
+                {
+                    ++regressedRunCount;
+                    line += "  Regressed: " + String.join(", ", regressions);
+                }
+            }
+            console.writeLine(line);
+        }
+
+        final int shownRunCount = runs.size() - firstRecentRunIndex;
+        console.writeLine("  " + (regressedRunCount == 0 ? "None" : Integer.toString(regressedRunCount)) + " of the last " + shownRunCount + " run" + (shownRunCount == 1 ? "" : "s") + " regressed by more than " + formatPercent(thresholdPercent) + " against the median of up to " + baselineRunCount + " earlier successful runs.");
+    }
+
+    /**
+     * Get the successful runs that the run at the provided index is compared against: up to
+     * baselineRunCount of the successful runs before it.
+     */
+    static java.util.List<BuildMetrics> getBaselineRuns(java.util.List<BuildMetrics> runs, int runIndex)
+    {
+        PreCondition.assertNotNull(runs, "runs");
+
+        final java.util.LinkedList<BuildMetrics> result = new java.util.LinkedList<>();
+        for (int i = runIndex - 1; i >= 0 && result.size() < baselineRunCount; --i)
+        {
+            if (runs.get(i).getSucceeded())
+            {
+                result.addFirst(runs.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the durations of the provided run that are more than the provided percentage longer
+     * than the median of the same durations in the provided baseline runs.
+     * @return Descriptions of the regressed durations, such as "duration +43% (1.20s to 1.72s)".
+     */
+    static java.util.List<String> getRegressions(BuildMetrics run, java.util.List<BuildMetrics> baselineRuns, double thresholdPercent)
+    {
+        PreCondition.assertNotNull(run, "run");
+        PreCondition.assertNotNull(baselineRuns, "baselineRuns");
+
+        final java.util.List<String> result = new java.util.ArrayList<>();
+        for (final java.util.Map.Entry<String,Long> duration : run.getDurations().entrySet())
+        {
+            final java.util.List<Long> baselineDurations = new java.util.ArrayList<>();
+            for (final BuildMetrics baselineRun : baselineRuns)
+            {
+                final Long baselineDuration = baselineRun.getDurations().get(duration.getKey());
+                if (baselineDuration != null)
+                {
+                    baselineDurations.add(baselineDuration);
+                }
+            }
+
+            if (baselineDurations.size() >= minimumBaselineRunCount)
+            {
+                final long baselineDuration = getPercentile(baselineDurations, 50);
+                final long growth = duration.getValue() - baselineDuration;
+                if (growth >= minimumRegressionMilliseconds && growth * 100.0 > baselineDuration * thresholdPercent)
+                {
+                    final double growthPercent = baselineDuration == 0 ? 100 : growth * 100.0 / baselineDuration;
+                    result.add(duration.getKey() + " +" + formatPercent(growthPercent) + " (" + formatDuration(baselineDuration) + " to " + formatDuration(duration.getValue()) + ")");
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the provided percentile of the provided values with the nearest-rank method.
+     * @param values The values. They don't need to be sorted.
+     * @param percentile The percentile, from 0 to 100.
+     */
+    static long getPercentile(java.util.List<Long> values, double percentile)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertTrue(!values.isEmpty(), "!values.isEmpty()");
+        PreCondition.assertTrue(0 <= percentile && percentile <= 100, "0 <= percentile && percentile <= 100");
+
+        final java.util.List<Long> sortedValues = new java.util.ArrayList<>(values);
+        java.util.Collections.sort(sortedValues);
+        final int rank = (int)java.lang.Math.ceil(percentile / 100 * sortedValues.size());
+        return sortedValues.get(java.lang.Math.max(rank, 1) - 1);
+    }
+
+    static String formatDuration(long milliseconds)
+    {
+        return String.format(java.util.Locale.ROOT, "%.2fs", milliseconds / 1000.0);
+    }
+
+    private static String formatPercent(double percent)
+    {
+        return String.format(java.util.Locale.ROOT, "%.0f%%", percent);
+    }
+
+    /**
+     * Get the number of recent runs of each action to show and check for regressions. This
+     * defaults to 10 if the -runs argument isn't specified or isn't a positive integer.
+     */
+    static int parseRuns(Console console)
+    {
+        int result = defaultRecentRunCount;
+
+        final CommandLineArgument runsArgument = console.getCommandLine().remove("runs");
+        if (runsArgument != null)
+        {
+            final String runsText = runsArgument.getValue();
+            Integer value = null;
+            try
+            {
+                value = runsText == null ? null : Integer.valueOf(runsText);
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+
+            if (value == null || value < 1)
+            {
+                console.writeLine("Invalid runs: " + Strings.escapeAndQuote(runsText) + ". Using " + result + " instead.");
+            }
+            else
+            {
+                result = value;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get how many percent longer than the baseline a duration must be to be a regression. This
+     * defaults to 25 if the -threshold argument isn't specified or isn't a positive number.
+     */
+    static double parseThreshold(Console console)
+    {
+        double result = defaultThresholdPercent;
+
+        final CommandLineArgument thresholdArgument = console.getCommandLine().remove("threshold");
+        if (thresholdArgument != null)
+        {
+            final String thresholdText = thresholdArgument.getValue();
+            Double value = null;
+            try
+            {
+                value = thresholdText == null ? null : Double.valueOf(thresholdText.endsWith("%") ? thresholdText.substring(0, thresholdText.length() - 1) : thresholdText);
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+
+            if (value == null || !(value > 0) || value.isInfinite())
+            {
+                console.writeLine("Invalid threshold: " + Strings.escapeAndQuote(thresholdText) + ". Using " + formatPercent(result) + " instead.");
+            }
+            else
+            {
+                result = value;
+            }
+        }
+
+        return result;
+    }
+}
@@ -1,7 +1,5 @@
 package qub;
 
-import java.awt.Desktop;
-
 public class TestAction implements Action
 {
     @Override
@@ -19,7 +17,7 @@ public class TestAction implements Action
     @Override
     public String getArgumentUsage()
     {
-        return null;
+        return "[-pattern=<test-name-pattern>] [-coverage[=html]] [-compiler=<fork|inprocess>] [-parallelism=<count>] [-shards=<count>] [-affected] [-report=<junit|json>] [-slowest=<count>] [-failFast] [-timeout=<duration>] [-watch]";
     }
 
     @Override
@@ -27,16 +25,42 @@ public class TestAction implements Action
     {
         final boolean debug = QubCLI.parseDebug(console);
         final String pattern = TestAction.parsePattern(console);
-        final boolean coverage = TestAction.parseCoverage(console);
-
-        TestAction.run(console, debug, pattern, coverage);
+        final CoverageType coverage = TestAction.parseCoverage(console);
+        final CompilerType compilerType = BuildAction.parseCompiler(console);
+        final int parallelism = TestAction.parseParallelism(console);
+        final int shards = TestAction.parseShards(console);
+        final boolean affected = TestAction.parseAffected(console);
+        final TestReportType reportType = TestAction.parseReport(console);
+        final int slowestTestCount = TestAction.parseSlowest(console);
+        final boolean failFast = TestAction.parseFailFast(console);
+        final long timeoutMilliseconds = TestAction.parseTimeout(console);
+        final boolean watch = BuildAction.parseWatch(console);
+
+        if (watch)
+        {
+            SourceWatcher.watch(console, () -> BuildMetrics.record(console, "test", () -> TestAction.run(console, debug, pattern, coverage, compilerType, parallelism, shards, affected, reportType, slowestTestCount, failFast, timeoutMilliseconds)));
+        }
+        else
+        {
+            BuildMetrics.record(console, "test", () -> TestAction.run(console, debug, pattern, coverage, compilerType, parallelism, shards, affected, reportType, slowestTestCount, failFast, timeoutMilliseconds));
+        }
     }
 
     public static boolean run(Console console, boolean debug, String pattern, boolean coverage)
+    {
+        return run(console, debug, pattern, coverage, CompilerType.InProcess);
+    }
+
+    public static boolean run(Console console, boolean debug, String pattern, boolean coverage, CompilerType compilerType)
+    {
+        return run(console, debug, pattern, coverage ? CoverageType.Summary : CoverageType.None, compilerType, Runtime.getRuntime().availableProcessors(), 1, false, TestReportType.None, 0, false, 0);
+    }
+
+    public static boolean run(Console console, boolean debug, String pattern, CoverageType coverage, CompilerType compilerType, int parallelism, int shards, boolean affected, TestReportType reportType, int slowestTestCount, boolean failFast, long timeoutMilliseconds)
     {
         boolean testsPassed = false;
 
-        if (BuildAction.run(console, debug))
+        if (BuildAction.run(console, debug, compilerType))
         {
             console.writeLine();
 
@@ -54,7 +78,7 @@ public class TestAction implements Action
                         final Folder sourcesFolder = projectJson.getJavaSourcesFolder();
                         final Folder sourceOutputsFolder = sourcesFolder == null ? null : javaOutputsFolder.getFolder(sourcesFolder.getName()).getValue();
 
-                        final List<String> classpaths = ArrayList.fromValues(projectJson.getAllClasspaths(QubCLI.getQubFolder(console)));
+                        final List<String> classpaths = ArrayList.fromValues(projectJson.getAllClasspaths(QubCLI.getQubFolder(console), console));
                         if (sourceOutputsFolder != null)
                         {
                             classpaths.add(sourceOutputsFolder.getPath().toString());
@@ -88,150 +112,189 @@ public class TestAction implements Action
                             final Iterable<String> fullTestClassNames = relativeTestSourcePaths
                                 .map(relativeTestSourcePath -> relativeTestSourcePath.withoutFileExtension().toString().replace('/', '.').replace('\\', '.'));
 
-                            final ProcessBuilder java = console.getProcessBuilder("java.exe").getValue();
-                            java.redirectOutput(console.getOutputAsByteWriteStream());
-                            java.redirectError(console.getErrorAsByteWriteStream());
-
-                            final Folder qubFolder = QubCLI.getQubFolder(console);
-                            final Folder jacocoFolder = qubFolder.getFolder("jacoco/jacococli/0.8.1").getValue();
-
-                            final Double javaTestsLineCoverageRequirement = projectJson.getJavaTestsLineCoverageRequirement();
-                            File coverageExecFile = null;
-                            if (coverage)
-                            {
-                                final File jacocoAgentJarFile = jacocoFolder.getFile("jacocoagent.jar").getValue();
-                                coverageExecFile = javaOutputsFolder.getFile("coverage.exec").getValue();
-                                java.addArgument("-javaagent:" + jacocoAgentJarFile.getPath().toString() + "=destfile=" + coverageExecFile.getPath().toString());
-                            }
-
-                            addNamedArgument(java, "-classpath", classpath);
-
-                            java.addArgument("qub.ConsoleTestRunner");
-
-                            java.addArguments(fullTestClassNames);
-
-                            if (pattern != null && !pattern.isEmpty())
+                            final TestSelectionIndex testSelectionIndex = createTestSelectionIndex(javaOutputsFolder, sourcesFolder, sourceOutputsFolder, javaTestsFolder, testOutputsFolder);
+                            final Iterable<String> testClassNamesToRun = affected
+                                ? selectAffectedTestClasses(console, javaOutputsFolder, sourcesFolder, javaTestsFolder, testSelectionIndex, fullTestClassNames)
+                                : fullTestClassNames;
+                            if (!testClassNamesToRun.any())
                             {
-                                java.addArgument("-pattern=" + pattern);
+                                console.writeLine("No tests are affected by the changes since the tests last passed.");
+                                testsPassed = true;
                             }
-
-                            if (debug)
-                            {
-                                java.addArgument("-debug");
-
-                                console.writeLine("Command: \"" + java.getCommand() + "\"");
-                            }
-
-                            final Integer exitCode = java.run();
-                            testsPassed = (exitCode != null && exitCode.intValue() == 0);
-
-                            if (coverage && sourceOutputsFolder != null)
+                            else
                             {
-                                console.writeLine();
-                                console.write("Coverage Analysis... ");
-
-                                final Stopwatch coverageStopwatch = console.getStopwatch();
-                                coverageStopwatch.start();
-
-                                final Iterable<File> classFiles = sourceOutputsFolder.getFilesRecursively().getValue()
-                                    .where((File file) -> file.getFileExtension().equals(".class"));
-                                final File jacocoCLIJarFile = jacocoFolder.getFile("jacococli.jar").getValue();
-                                final Folder coverageFolder = javaOutputsFolder.getFolder("coverage").getValue();
-
-                                final ProcessBuilder jacococli = console.getProcessBuilder("java").getValue();
-                                if (debug)
+                                if (coverage != CoverageType.None && shards > 1)
                                 {
-                                    jacococli.redirectOutput(console.getOutputAsByteWriteStream());
-                                    jacococli.redirectError(console.getErrorAsByteWriteStream());
+                                    console.writeLine("Code coverage is measured in a single test process, so the -shards argument is ignored.");
                                 }
-                                jacococli.addArguments("-jar", jacocoCLIJarFile.getPath().toString());
-                                jacococli.addArgument("report");
-                                jacococli.addArgument(coverageExecFile.getPath().toString());
 
-                                final Path currentFolderPath = console.getCurrentFolderPath();
-                                for (final File classFile : classFiles)
-                                {
-                                    jacococli.addArguments("--classfiles", classFile.getPath().relativeTo(currentFolderPath).toString());
-                                }
-                                jacococli.addArguments("--sourcefiles", sourcesFolder.getPath().toString());
-                                jacococli.addArguments("--html", coverageFolder.getPath().toString());
+                                final Folder qubFolder = QubCLI.getQubFolder(console);
+                                final Folder jacocoFolder = qubFolder.getFolder("jacoco/jacococli/0.8.1").getValue();
+                                final Double javaTestsLineCoverageRequirement = projectJson.getJavaTestsLineCoverageRequirement();
 
-                                File coverageCSVFile = null;
-                                if (javaTestsLineCoverageRequirement != null)
+                                // Code coverage is measured by a Java agent, so it needs a separate java.exe
+                                // process.
+                                final java.util.List<String> jvmArguments = new java.util.ArrayList<>();
+                                File coverageExecFile = null;
+                                if (coverage != CoverageType.None)
                                 {
-                                    coverageFolder.create();
-                                    coverageCSVFile = coverageFolder.getFile("coverage.csv").getValue();
-                                    jacococli.addArguments("--csv", coverageCSVFile.toString());
+                                    final File jacocoAgentJarFile = jacocoFolder.getFile("jacocoagent.jar").getValue();
+                                    coverageExecFile = javaOutputsFolder.getFile("coverage.exec").getValue();
+                                    jvmArguments.add("-javaagent:" + jacocoAgentJarFile.getPath().toString() + "=destfile=" + coverageExecFile.getPath().toString());
                                 }
-                                if (debug)
-                                {
-                                    console.writeLine();
-                                    console.writeLine("Command: \"" + jacococli.getCommand() + "\"");
-                                    jacococli.redirectOutput(console.getOutputAsByteWriteStream());
-                                    jacococli.redirectError(console.getErrorAsByteWriteStream());
-                                }
-                                jacococli.run();
 
-                                final Duration coverageDuration = coverageStopwatch.stop().toSeconds();
-                                console.writeLine("Done (" + coverageDuration.toString("0.0") + ")");
-
-                                if (javaTestsLineCoverageRequirement != null)
+                                final InProcessTestRunner inProcessTestRunner = InProcessTestRunner.create(classpaths, console);
+                                if (inProcessTestRunner != null)
                                 {
-                                    CSVDocument coverageCSVDocument = null;
-                                    try (final CharacterReadStream coverageCSVFileReadStream = coverageCSVFile.getContentByteReadStream().getValue().asCharacterReadStream())
+                                    final File testTimingsFile = javaOutputsFolder.getFile("tests.timings").getValue();
+                                    TestTimings testTimings = TestTimings.read(testTimingsFile);
+                                    if (testTimings == null)
                                     {
-                                        coverageCSVDocument = CSV.parse(coverageCSVFileReadStream);
+                                        testTimings = new TestTimings();
                                     }
-                                    catch (Exception e)
+
+                                    final TestReport testReport = new TestReport();
+                                    final Action1<TestEvent> eventListener = testReport::add;
+
+                                    final Stopwatch stopwatch = console.getStopwatch();
+                                    stopwatch.start();
+
+                                    java.util.List<TestClassResult> results;
+                                    try (final InProcessTestRunner runner = inProcessTestRunner;
+                                         final Profiler.Span span = Profiler.start(console, "run tests"))
                                     {
-                                        console.writeLine(e.toString());
+                                        if (shards > 1 || !jvmArguments.isEmpty())
+                                        {
+                                            // The shards' child JVMs bind to the same test runner, so
+                                            // child JVMs are only possible when the tests can run in-process.
+                                            final java.util.List<java.util.List<String>> testShards = jvmArguments.isEmpty()
+                                                ? testTimings.createShards(testClassNamesToRun, shards)
+                                                : testTimings.createShards(testClassNamesToRun, 1);
+                                            results = TestShardRunner.run(console, javaOutputsFolder.getFolder("shards").getValue(), classpaths, testShards, pattern, debug, failFast, timeoutMilliseconds, jvmArguments, eventListener);
+
+                                            final ByteWriteStream output = console.getOutputAsByteWriteStream();
+                                            for (final TestClassResult result : results)
+                                            {
+                                                output.writeBytes(result.getOutput(), 0, result.getOutput().length);
+                                            }
+                                        }
+                                        else
+                                        {
+                                            results = runner.runTestClasses(testClassNamesToRun, pattern, debug, parallelism, failFast, timeoutMilliseconds, console.getOutputAsByteWriteStream(), eventListener);
+                                        }
                                     }
 
-                                    final Function1<CSVRow, String> getFullClassName = (CSVRow coverageEntry) -> coverageEntry.get(1) + "." + coverageEntry.get(2);
-                                    final Function1<CSVRow, Integer> getLinesMissed = (CSVRow coverageEntry) -> Integer.parseInt(coverageEntry.get(7));
-                                    final Function1<CSVRow, Integer> getLinesCovered = (CSVRow coverageEntry) -> Integer.parseInt(coverageEntry.get(8));
-                                    final Function1<CSVRow, Integer> getTotalLines = (CSVRow coverageEntry) -> getLinesMissed.run(coverageEntry) + getLinesCovered.run(coverageEntry);
+                                    final Duration testsDuration = stopwatch.stop().toSeconds();
+                                    testsPassed = InProcessTestRunner.writeSummary(console, results, testsDuration);
+                                    addTestMetrics(console, results, testsDuration);
 
-                                    final Iterable<CSVRow> coverageEntries = coverageCSVDocument.skipFirst();
-                                    int maxFullClassNameLength = 0;
-                                    for (final CSVRow coverageEntry : coverageEntries)
+                                    final int notRunTestClassCount = testClassNamesToRun.getCount() - results.size();
+                                    if (failFast && notRunTestClassCount > 0)
                                     {
-                                        final String fullClassName = getFullClassName.run(coverageEntry);
-                                        maxFullClassNameLength = Math.maximum(fullClassName.length(), maxFullClassNameLength);
+                                        console.writeLine("Stopped after the first failure, so " + notRunTestClassCount + " test class" + (notRunTestClassCount == 1 ? " was" : "es were") + " not run.");
                                     }
 
-                                    int maxTotalLinesLength = 0;
-                                    for (final CSVRow coverageEntry : coverageEntries)
+                                    if (slowestTestCount > 0)
                                     {
-                                        final int totalLines = getTotalLines.run(coverageEntry);
-                                        maxTotalLinesLength = Math.maximum(maxTotalLinesLength, Integer.toString(totalLines).length());
+                                        testReport.writeSlowestTests(console, slowestTestCount);
                                     }
+                                    writeTestReport(console, reportType, testReport, javaOutputsFolder);
+
+                                    testTimings.addResults(results);
+                                    testTimings.write(testTimingsFile);
 
-                                    final String formatString = "  %-" + maxFullClassNameLength + "s %" + maxTotalLinesLength + "d / %" + maxTotalLinesLength + "d (%3d%%)";
-                                    for (final CSVRow coverageEntry : coverageEntries)
+                                    if (pattern == null || pattern.isEmpty())
                                     {
-                                        final int linesCovered = getLinesCovered.run(coverageEntry);
-                                        final int totalLines = getTotalLines.run(coverageEntry);
-                                        final int lineCoverage = (int)(100 * (linesCovered / (double)totalLines));
-                                        if (lineCoverage < javaTestsLineCoverageRequirement.intValue())
+                                        // Test classes that didn't pass (or didn't run) are left out of
+                                        // the index so that they are selected again by the next
+                                        // -affected run.
+                                        final java.util.Set<String> passedTestClassNames = new java.util.HashSet<>();
+                                        for (final TestClassResult result : results)
                                         {
-                                            testsPassed = false;
+                                            if (result.succeeded())
+                                            {
+                                                passedTestClassNames.add(result.getTestClassName());
+                                            }
+                                        }
+                                        for (final String testClassName : testClassNamesToRun)
+                                        {
+                                            if (!passedTestClassNames.contains(testClassName))
+                                            {
+                                                testSelectionIndex.removeClass(testClassName.replace('.', '/'));
+                                            }
+                                        }
+                                        testSelectionIndex.write(getTestSelectionIndexFile(javaOutputsFolder));
+                                    }
+                                }
+                                else
+                                {
+                                    // Without an in-process test runner, qub.ConsoleTestRunner is run
+                                    // directly. It only writes text, so there are no test events to
+                                    // report.
+                                    if (reportType != TestReportType.None || slowestTestCount > 0)
+                                    {
+                                        console.writeLine("The -report and -slowest arguments need the tests to run with an in-process test runner, so they are ignored.");
+                                    }
 
-                                            final String fullClassName = getFullClassName.run(coverageEntry);
-                                            console.writeLine(formatString, fullClassName, linesCovered, totalLines, lineCoverage);
+                                    if (failFast || timeoutMilliseconds > 0)
+                                    {
+                                        try (final Profiler.Span span = Profiler.start(console, "run tests"))
+                                        {
+                                            testsPassed = runTestClassProcesses(console, classpath, jvmArguments, testClassNamesToRun, pattern, debug, failFast, timeoutMilliseconds);
                                         }
                                     }
+                                    else
+                                    {
+                                        final ProcessBuilder java = console.getProcessBuilder("java.exe").getValue();
+                                        java.redirectOutput(console.getOutputAsByteWriteStream());
+                                        java.redirectError(console.getErrorAsByteWriteStream());
 
-                                    console.writeLine("Coverage Requirement (%d%%): %s", javaTestsLineCoverageRequirement.intValue(), (testsPassed ? "Passed" : "Failed"));
-                                }
+                                        for (final String jvmArgument : jvmArguments)
+                                        {
+                                            java.addArgument(jvmArgument);
+                                        }
 
-                                try
-                                {
-                                    Desktop.getDesktop().open(new java.io.File(coverageFolder.getFile("index.html").getValue().getPath().toString()));
+                                        addNamedArgument(java, "-classpath", classpath);
+
+                                        java.addArgument("qub.ConsoleTestRunner");
+
+                                        java.addArguments(testClassNamesToRun);
+
+                                        if (pattern != null && !pattern.isEmpty())
+                                        {
+                                            java.addArgument("-pattern=" + pattern);
+                                        }
+
+                                        if (debug)
+                                        {
+                                            java.addArgument("-debug");
+
+                                            console.writeLine("Command: \"" + java.getCommand() + "\"");
+                                        }
+
+                                        final Integer exitCode;
+                                        try (final Profiler.Span span = Profiler.start(console, "run tests"))
+                                        {
+                                            exitCode = java.run();
+                                        }
+                                        testsPassed = (exitCode != null && exitCode.intValue() == 0);
+                                    }
+
+                                    if (testsPassed && (pattern == null || pattern.isEmpty()))
+                                    {
+                                        testSelectionIndex.write(getTestSelectionIndexFile(javaOutputsFolder));
+                                    }
                                 }
-                                catch (java.io.IOException e)
+
+                                if (coverage != CoverageType.None && sourceOutputsFolder != null)
                                 {
-                                    e.printStackTrace();
+                                    try (final Profiler.Span span = Profiler.start(console, "analyze coverage"))
+                                    {
+                                        if (!analyzeCoverage(console, debug, coverage, jacocoFolder, coverageExecFile, sourcesFolder, sourceOutputsFolder, javaOutputsFolder, javaTestsLineCoverageRequirement))
+                                        {
+                                            testsPassed = false;
+                                        }
+                                    }
                                 }
                             }
                         }
@@ -249,10 +312,535 @@ public class TestAction implements Action
         return testPatternArgument == null ? null : testPatternArgument.getValue();
     }
 
-    static boolean parseCoverage(Console console)
+    static CoverageType parseCoverage(Console console)
     {
+        CoverageType result = CoverageType.None;
+
         final CommandLineArgument coverageArgument = console.getCommandLine().remove("coverage");
-        return coverageArgument != null && (coverageArgument.getValue() == null || coverageArgument.getValue().equalsIgnoreCase("true"));
+        if (coverageArgument != null)
+        {
+            final String coverageText = coverageArgument.getValue();
+            if (coverageText == null || coverageText.equalsIgnoreCase("true"))
+            {
+                result = CoverageType.Summary;
+            }
+            else if (coverageText.equalsIgnoreCase("false"))
+            {
+                result = CoverageType.None;
+            }
+            else
+            {
+                final CoverageType coverageType = CoverageType.parse(coverageText);
+                if (coverageType == null)
+                {
+                    console.writeLine("Unrecognized coverage: " + Strings.escapeAndQuote(coverageText) + ". Expected \"summary\" or \"html\".");
+                    result = CoverageType.Summary;
+                }
+                else
+                {
+                    result = coverageType;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    static boolean parseAffected(Console console)
+    {
+        final CommandLineArgument affectedArgument = console.getCommandLine().remove("affected");
+        return affectedArgument != null && (affectedArgument.getValue() == null || affectedArgument.getValue().equalsIgnoreCase("true"));
+    }
+
+    static boolean parseFailFast(Console console)
+    {
+        final CommandLineArgument failFastArgument = console.getCommandLine().remove("failFast");
+        return failFastArgument != null && (failFastArgument.getValue() == null || failFastArgument.getValue().equalsIgnoreCase("true"));
+    }
+
+    /**
+     * Get how long, in milliseconds, each test may run before it is abandoned. This defaults to 0
+     * (no timeout) if the -timeout argument isn't specified or isn't a valid duration.
+     */
+    static long parseTimeout(Console console)
+    {
+        long result = 0;
+
+        final CommandLineArgument timeoutArgument = console.getCommandLine().remove("timeout");
+        if (timeoutArgument != null)
+        {
+            final String timeoutText = timeoutArgument.getValue();
+            final Long timeoutMilliseconds = TestAction.parseDurationMilliseconds(timeoutText);
+            if (timeoutMilliseconds == null || timeoutMilliseconds < 1)
+            {
+                console.writeLine("Invalid timeout: " + Strings.escapeAndQuote(timeoutText) + ". Expected a duration such as \"500ms\", \"30s\", or \"5m\".");
+            }
+            else
+            {
+                result = timeoutMilliseconds;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parse a duration that is a whole number followed by "ms", "s", "m", or "h". A number without
+     * a unit is a number of seconds.
+     * @param text The text to parse.
+     * @return The duration in milliseconds, or null if the text isn't a valid duration.
+     */
+    static Long parseDurationMilliseconds(String text)
+    {
+        Long result = null;
+        if (text != null)
+        {
+            final String trimmedText = text.trim().toLowerCase();
+            int unitStart = 0;
+            while (unitStart < trimmedText.length() && Character.isDigit(trimmedText.charAt(unitStart)))
+            {
+                ++unitStart;
+            }
+
+            if (unitStart > 0)
+            {
+                final String unit = trimmedText.substring(unitStart);
+                long unitMilliseconds = 0;
+                switch (unit)
+                {
+                    case "ms":
+                        unitMilliseconds = 1;
+                        break;
+
+                    case "":
+                    case "s":
+                        unitMilliseconds = 1000;
+                        break;
+
+                    case "m":
+                        unitMilliseconds = 60 * 1000;
+                        break;
+
+                    case "h":
+                        unitMilliseconds = 60 * 60 * 1000;
+                        break;
+                }
+
+                if (unitMilliseconds > 0)
+                {
+                    try
+                    {
+                        result = java.lang.Math.multiplyExact(Long.parseLong(trimmedText.substring(0, unitStart)), unitMilliseconds);
+                    }
+                    catch (ArithmeticException | NumberFormatException ignored)
+                    {
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the maximum number of test classes to run at the same time. This defaults to the number
+     * of processors if the -parallelism argument isn't specified or isn't a positive integer.
+     */
+    static int parseParallelism(Console console)
+    {
+        return parsePositiveInteger(console, "parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Get the number of child JVMs to split the test classes between. This defaults to 1 (run the
+     * tests without child JVMs) if the -shards argument isn't specified or isn't a positive
+     * integer.
+     */
+    static int parseShards(Console console)
+    {
+        return parsePositiveInteger(console, "shards", 1);
+    }
+
+    /**
+     * Get the kind of machine-readable report to write after the tests run. This defaults to None
+     * if the -report argument isn't specified.
+     */
+    static TestReportType parseReport(Console console)
+    {
+        TestReportType result = TestReportType.None;
+
+        final CommandLineArgument reportArgument = console.getCommandLine().remove("report");
+        if (reportArgument != null)
+        {
+            final String reportText = reportArgument.getValue();
+            final TestReportType reportType = TestReportType.parse(reportText);
+            if (reportType == null)
+            {
+                console.writeLine("Unrecognized report: " + Strings.escapeAndQuote(reportText) + ". Expected \"junit\" or \"json\".");
+            }
+            else
+            {
+                result = reportType;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the number of slowest tests to list after the tests run. This defaults to 0 (don't list
+     * any tests) if the -slowest argument isn't specified, and to 10 if it doesn't have a valid
+     * value.
+     */
+    static int parseSlowest(Console console)
+    {
+        int result = 0;
+
+        final CommandLineArgument slowestArgument = console.getCommandLine().remove("slowest");
+        if (slowestArgument != null)
+        {
+            result = 10;
+
+            final String slowestText = slowestArgument.getValue();
+            if (slowestText != null)
+            {
+                Integer value = null;
+                try
+                {
+                    value = Integer.valueOf(slowestText);
+                }
+                catch (NumberFormatException ignored)
+                {
+                }
+
+                if (value == null || value < 1)
+                {
+                    console.writeLine("Invalid slowest: " + Strings.escapeAndQuote(slowestText) + ". Using " + result + " instead.");
+                }
+                else
+                {
+                    result = value;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Write the provided TestReport to the project's outputs folder in the provided format.
+     */
+    private static void writeTestReport(Console console, TestReportType reportType, TestReport testReport, Folder javaOutputsFolder)
+    {
+        if (reportType == TestReportType.JUnit || reportType == TestReportType.Json)
+        {
+            final boolean junit = reportType == TestReportType.JUnit;
+            final File reportFile = javaOutputsFolder.getFile(junit ? "tests.junit.xml" : "tests.json").getValue();
+            reportFile.setContents(CharacterEncoding.UTF_8.encode(junit ? testReport.toJUnitXml() : testReport.toJson()).getValue());
+            console.writeLine("Wrote test report to " + reportFile.getPath().toString() + ".");
+        }
+    }
+
+    /**
+     * Add the test counts and the duration of the provided test run to the Console's BuildMetrics.
+     */
+    private static void addTestMetrics(Console console, java.util.List<TestClassResult> results, Duration testsDuration)
+    {
+        long passedTestCount = 0;
+        long failedTestCount = 0;
+        long skippedTestCount = 0;
+        for (final TestClassResult result : results)
+        {
+            passedTestCount += result.getPassedTestCount();
+            failedTestCount += result.getFailedTestCount();
+            skippedTestCount += result.getSkippedTestCount();
+        }
+        BuildMetrics.addDuration(console, "run-tests", (long)testsDuration.toMilliseconds().getValue());
+        BuildMetrics.addCount(console, "testClasses", results.size());
+        BuildMetrics.addCount(console, "testsPassed", passedTestCount);
+        BuildMetrics.addCount(console, "testsFailed", failedTestCount);
+        BuildMetrics.addCount(console, "testsSkipped", skippedTestCount);
+    }
+
+    private static int parsePositiveInteger(Console console, String argumentName, int defaultValue)
+    {
+        int result = defaultValue;
+
+        final CommandLineArgument argument = console.getCommandLine().remove(argumentName);
+        if (argument != null)
+        {
+            final String argumentText = argument.getValue();
+            Integer value = null;
+            try
+            {
+                value = argumentText == null ? null : Integer.valueOf(argumentText);
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+
+            if (value == null || value < 1)
+            {
+                console.writeLine("Invalid " + argumentName + ": " + Strings.escapeAndQuote(argumentText) + ". Using " + result + " instead.");
+            }
+            else
+            {
+                result = value;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Compute the line coverage of the project's source classes from the execution data that the
+     * tests wrote, and check it against the project's line coverage requirement.
+     * @return Whether or not every class met the line coverage requirement.
+     */
+    private static boolean analyzeCoverage(Console console, boolean debug, CoverageType coverage, Folder jacocoFolder, File coverageExecFile, Folder sourcesFolder, Folder sourceOutputsFolder, Folder javaOutputsFolder, Double javaTestsLineCoverageRequirement)
+    {
+        boolean result = true;
+
+        console.writeLine();
+        console.write("Coverage Analysis... ");
+
+        final Stopwatch coverageStopwatch = console.getStopwatch();
+        coverageStopwatch.start();
+
+        final File jacocoCLIJarFile = jacocoFolder.getFile("jacococli.jar").getValue();
+        java.util.List<CoverageAnalyzer.ClassCoverage> classCoverages = null;
+        final CoverageAnalyzer coverageAnalyzer = CoverageAnalyzer.create(jacocoCLIJarFile, console);
+        if (coverageAnalyzer != null)
+        {
+            try (final CoverageAnalyzer analyzer = coverageAnalyzer)
+            {
+                classCoverages = analyzer.analyze(coverageExecFile, sourceOutputsFolder);
+            }
+            catch (Exception e)
+            {
+                final Throwable cause = e instanceof java.lang.reflect.InvocationTargetException ? e.getCause() : e;
+                console.writeLine(cause.toString());
+            }
+        }
+
+        final Folder coverageFolder = javaOutputsFolder.getFolder("coverage").getValue();
+        if (coverage == CoverageType.Html)
+        {
+            // The HTML report needs JaCoCo's report module, so it is still written by jacococli. The
+            // whole class folder is passed as a single --classfiles argument.
+            final ProcessBuilder jacococli = console.getProcessBuilder("java").getValue();
+            jacococli.addArguments("-jar", jacocoCLIJarFile.getPath().toString());
+            jacococli.addArgument("report");
+            jacococli.addArgument(coverageExecFile.getPath().toString());
+            jacococli.addArguments("--classfiles", sourceOutputsFolder.getPath().toString());
+            jacococli.addArguments("--sourcefiles", sourcesFolder.getPath().toString());
+            jacococli.addArguments("--html", coverageFolder.getPath().toString());
+            if (debug)
+            {
+                console.writeLine();
+                console.writeLine("Command: \"" + jacococli.getCommand() + "\"");
+                jacococli.redirectOutput(console.getOutputAsByteWriteStream());
+                jacococli.redirectError(console.getErrorAsByteWriteStream());
+            }
+            jacococli.run();
+        }
+
+        final Duration coverageDuration = coverageStopwatch.stop().toSeconds();
+        console.writeLine("Done (" + coverageDuration.toString("0.0") + ")");
+
+        if (classCoverages == null)
+        {
+            result = javaTestsLineCoverageRequirement == null;
+        }
+        else
+        {
+            int linesCovered = 0;
+            int totalLines = 0;
+            int maxClassNameLength = 0;
+            int maxTotalLinesLength = 0;
+            for (final CoverageAnalyzer.ClassCoverage classCoverage : classCoverages)
+            {
+                linesCovered += classCoverage.getLinesCovered();
+                totalLines += classCoverage.getTotalLines();
+                maxClassNameLength = Math.maximum(maxClassNameLength, classCoverage.getClassName().length());
+                maxTotalLinesLength = Math.maximum(maxTotalLinesLength, Integer.toString(classCoverage.getTotalLines()).length());
+            }
+            console.writeLine("Line Coverage: %d / %d (%d%%)", linesCovered, totalLines, totalLines == 0 ? 100 : (int)(100L * linesCovered / totalLines));
+
+            if (javaTestsLineCoverageRequirement != null)
+            {
+                final String formatString = "  %-" + maxClassNameLength + "s %" + maxTotalLinesLength + "d / %" + maxTotalLinesLength + "d (%3d%%)";
+                for (final CoverageAnalyzer.ClassCoverage classCoverage : classCoverages)
+                {
+                    if (classCoverage.getLineCoverage() < javaTestsLineCoverageRequirement.intValue())
+                    {
+                        result = false;
+                        console.writeLine(formatString, classCoverage.getClassName(), classCoverage.getLinesCovered(), classCoverage.getTotalLines(), classCoverage.getLineCoverage());
+                    }
+                }
+
+                console.writeLine("Coverage Requirement (%d%%): %s", javaTestsLineCoverageRequirement.intValue(), (result ? "Passed" : "Failed"));
+            }
+        }
+
+        if (coverage == CoverageType.Html)
+        {
+            try
+            {
+                java.awt.Desktop.getDesktop().open(new java.io.File(coverageFolder.getFile("index.html").getValue().getPath().toString()));
+            }
+            catch (java.io.IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        return result;
+    }
+
+    private static File getTestSelectionIndexFile(Folder javaOutputsFolder)
+    {
+        return javaOutputsFolder.getFile("tests.selection").getValue();
+    }
+
+    /**
+     * Create a TestSelectionIndex of the project's current compiled classes.
+     */
+    private static TestSelectionIndex createTestSelectionIndex(Folder javaOutputsFolder, Folder sourcesFolder, Folder sourceOutputsFolder, Folder testsFolder, Folder testOutputsFolder)
+    {
+        final TestSelectionIndex result = new TestSelectionIndex();
+        if (sourcesFolder != null)
+        {
+            final BuildState sourcesBuildState = BuildState.read(javaOutputsFolder.getFile(sourcesFolder.getName() + ".buildstate").getValue());
+            result.setSourcesSettingsHash(sourcesBuildState == null ? null : sourcesBuildState.getSettingsHash());
+            result.addClassFiles(sourceOutputsFolder);
+        }
+
+        final BuildState testsBuildState = BuildState.read(javaOutputsFolder.getFile(testsFolder.getName() + ".buildstate").getValue());
+        result.setTestsSettingsHash(testsBuildState == null ? null : testsBuildState.getSettingsHash());
+        result.addClassFiles(testOutputsFolder);
+
+        return result;
+    }
+
+    /**
+     * Get the test classes that can reach a class that changed since the tests last passed. Every
+     * test class is selected if there is no record of the tests passing, if the project was since
+     * compiled with different settings or dependencies, or if the project's class dependency
+     * graphs are missing.
+     */
+    private static Iterable<String> selectAffectedTestClasses(Console console, Folder javaOutputsFolder, Folder sourcesFolder, Folder testsFolder, TestSelectionIndex currentIndex, Iterable<String> fullTestClassNames)
+    {
+        Iterable<String> result = fullTestClassNames;
+
+        final TestSelectionIndex previousIndex = TestSelectionIndex.read(getTestSelectionIndexFile(javaOutputsFolder));
+        final ClassDependencyGraph sourcesGraph = sourcesFolder == null
+            ? new ClassDependencyGraph()
+            : ClassDependencyGraph.read(javaOutputsFolder.getFile(sourcesFolder.getName() + ".classgraph").getValue());
+        final ClassDependencyGraph testsGraph = ClassDependencyGraph.read(javaOutputsFolder.getFile(testsFolder.getName() + ".classgraph").getValue());
+        if (!currentIndex.canSelectSince(previousIndex) || sourcesGraph == null || testsGraph == null)
+        {
+            console.writeLine("The test selection index is missing or out of date, so every test will run.");
+        }
+        else
+        {
+            final java.util.List<String> affectedTestClassNames = TestSelectionIndex.selectAffectedTestClasses(
+                fullTestClassNames,
+                currentIndex.getChangedClassNames(previousIndex),
+                sourcesGraph,
+                testsGraph);
+            console.writeLine("Running " + affectedTestClassNames.size() + " of " + fullTestClassNames.getCount() + " test classes that are affected by the changes since the tests last passed.");
+            result = ArrayList.fromValues(affectedTestClassNames);
+        }
+
+        return result;
+    }
+
+    /**
+     * Run qub.ConsoleTestRunner in its own child JVM for each of the provided test classes, one at
+     * a time. qub.ConsoleTestRunner doesn't report which test is running, so the timeout applies
+     * to each test class. A child JVM with a timeout runs qub.ConsoleTestRunner through
+     * TestProcessWatchdog, which writes a thread dump and stops the JVM if it exceeds the timeout.
+     * @param timeoutMilliseconds How long each test class may run before its child JVM is stopped,
+     *                            or 0 if there is no timeout.
+     * @param failFast Whether or not to stop starting test classes after the first test class
+     *                 that fails.
+     * @return Whether or not every test class passed.
+     */
+    static boolean runTestClassProcesses(Console console, String classpath, java.util.List<String> jvmArguments, Iterable<String> testClassNames, String pattern, boolean debug, boolean failFast, long timeoutMilliseconds)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(jvmArguments, "jvmArguments");
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+        PreCondition.assertTrue(timeoutMilliseconds >= 0, "timeoutMilliseconds must be greater than or equal to 0.");
+
+        boolean result = true;
+
+        int notRunTestClassCount = 0;
+        for (final String testClassName : testClassNames)
+        {
+            if (!result && failFast)
+            {
+                ++notRunTestClassCount;
+            }
+            else
+            {
+                final ProcessBuilder java = console.getProcessBuilder("java.exe").getValue();
+                java.redirectOutput(console.getOutputAsByteWriteStream());
+                java.redirectError(console.getErrorAsByteWriteStream());
+
+                for (final String jvmArgument : jvmArguments)
+                {
+                    java.addArgument(jvmArgument);
+                }
+
+                if (timeoutMilliseconds > 0)
+                {
+                    // TestProcessWatchdog comes after the tests' classpath so that it doesn't
+                    // replace any of the classes that the tests use.
+                    final String watchdogClasspath = System.getProperty("java.class.path");
+                    addNamedArgument(java, "-classpath", classpath == null || classpath.isEmpty() ? watchdogClasspath : classpath + ";" + watchdogClasspath);
+                    java.addArgument(TestProcessWatchdog.class.getName());
+                    java.addArgument(Long.toString(timeoutMilliseconds));
+                }
+                else
+                {
+                    addNamedArgument(java, "-classpath", classpath);
+                }
+
+                java.addArgument("qub.ConsoleTestRunner");
+                java.addArgument(testClassName);
+
+                if (pattern != null && !pattern.isEmpty())
+                {
+                    java.addArgument("-pattern=" + pattern);
+                }
+
+                if (debug)
+                {
+                    java.addArgument("-debug");
+
+                    console.writeLine("Command: \"" + java.getCommand() + "\"");
+                }
+
+                final Integer exitCode = java.run();
+                if (exitCode != null && exitCode.intValue() == TestProcessWatchdog.timeoutExitCode && timeoutMilliseconds > 0)
+                {
+                    console.writeLine("Test class " + testClassName + " exceeded the timeout of " + timeoutMilliseconds + " milliseconds, so its process was stopped.");
+                    result = false;
+                }
+                else if (exitCode == null || exitCode.intValue() != 0)
+                {
+                    result = false;
+                }
+            }
+        }
+
+        if (notRunTestClassCount > 0)
+        {
+            console.writeLine("Stopped after the first failure, so " + notRunTestClassCount + " test class" + (notRunTestClassCount == 1 ? " was" : "es were") + " not run.");
+        }
+
+        return result;
     }
 
     private static void addNamedArgument(ProcessBuilder builder, String argumentName, String argumentValue)
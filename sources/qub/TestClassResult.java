@@ -0,0 +1,170 @@
+package qub;
+
+/**
+ * The result of running the tests in one test class.
+ */
+public class TestClassResult
+{
+    private final String testClassName;
+    private int passedTestCount;
+    private int failedTestCount;
+    private int skippedTestCount;
+    private long durationMilliseconds;
+    private String errorMessage;
+    private byte[] output;
+
+    /**
+     * Create a new TestClassResult for a test class that hasn't run any tests yet.
+     * @param testClassName The full name of the test class.
+     */
+    public TestClassResult(String testClassName)
+    {
+        PreCondition.assertNotNull(testClassName, "testClassName");
+
+        this.testClassName = testClassName;
+        this.output = new byte[0];
+    }
+
+    public String getTestClassName()
+    {
+        return testClassName;
+    }
+
+    public int getPassedTestCount()
+    {
+        return passedTestCount;
+    }
+
+    public int getFailedTestCount()
+    {
+        return failedTestCount;
+    }
+
+    public int getSkippedTestCount()
+    {
+        return skippedTestCount;
+    }
+
+    public TestClassResult setTestCounts(int passedTestCount, int failedTestCount, int skippedTestCount)
+    {
+        this.passedTestCount = passedTestCount;
+        this.failedTestCount = failedTestCount;
+        this.skippedTestCount = skippedTestCount;
+        return this;
+    }
+
+    /**
+     * Get how long the test class took to run.
+     */
+    public long getDurationMilliseconds()
+    {
+        return durationMilliseconds;
+    }
+
+    public TestClassResult setDurationMilliseconds(long durationMilliseconds)
+    {
+        this.durationMilliseconds = durationMilliseconds;
+        return this;
+    }
+
+    /**
+     * Get the message of the error that stopped the test class from running to completion.
+     * @return The error message, or null if the test class ran to completion.
+     */
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
+
+    public TestClassResult setErrorMessage(String errorMessage)
+    {
+        this.errorMessage = errorMessage;
+        return this;
+    }
+
+    /**
+     * Get the output that the test class's test runner wrote.
+     */
+    public byte[] getOutput()
+    {
+        return output;
+    }
+
+    public TestClassResult setOutput(byte[] output)
+    {
+        PreCondition.assertNotNull(output, "output");
+
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * Get whether or not every test in the test class passed and the test class ran to
+     * completion.
+     */
+    public boolean succeeded()
+    {
+        return failedTestCount == 0 && errorMessage == null;
+    }
+
+    /**
+     * Get the fields of this TestClassResult's line in a test shard's results file. The error
+     * message and the output are Base64 encoded so that they fit in a single line.
+     */
+    String[] toFields()
+    {
+        final java.util.Base64.Encoder encoder = java.util.Base64.getEncoder();
+        return new String[]
+        {
+            testClassName,
+            Integer.toString(passedTestCount),
+            Integer.toString(failedTestCount),
+            Integer.toString(skippedTestCount),
+            Long.toString(durationMilliseconds),
+            errorMessage == null ? "-" : encoder.encodeToString(errorMessage.getBytes(java.nio.charset.StandardCharsets.UTF_8)),
+            encoder.encodeToString(output)
+        };
+    }
+
+    /**
+     * Get the TestClassResult that the provided fields of a test shard's results file line
+     * describe.
+     * @return The TestClassResult, or null if the fields are not valid.
+     */
+    static TestClassResult fromFields(String[] fields)
+    {
+        TestClassResult result = null;
+        if (fields.length == 7 && !fields[0].isEmpty())
+        {
+            try
+            {
+                final java.util.Base64.Decoder decoder = java.util.Base64.getDecoder();
+                result = new TestClassResult(fields[0])
+                    .setTestCounts(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]))
+                    .setDurationMilliseconds(Long.parseLong(fields[4]))
+                    .setErrorMessage(fields[5].equals("-") ? null : new String(decoder.decode(fields[5]), java.nio.charset.StandardCharsets.UTF_8))
+                    .setOutput(decoder.decode(fields[6]));
+            }
+            catch (IllegalArgumentException e)
+            {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return LineRecords.join(toFields());
+    }
+
+    /**
+     * Parse a single line of a test shard's results file.
+     * @return The TestClassResult, or null if the text is null or not a valid line.
+     */
+    public static TestClassResult parse(String text)
+    {
+        return text == null ? null : fromFields(LineRecords.split(text));
+    }
+}
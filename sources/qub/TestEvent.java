@@ -0,0 +1,229 @@
+package qub;
+
+/**
+ * Something that happened while tests ran. A TestEvent is written as a single line of JSON so that
+ * a test process can stream its events to the process that started it.
+ */
+public class TestEvent
+{
+    private final TestEventType type;
+    private final String testClassName;
+    private String testName;
+    private long durationMilliseconds;
+    private String message;
+    private int passedTestCount;
+    private int failedTestCount;
+    private int skippedTestCount;
+
+    /**
+     * Create a new TestEvent.
+     * @param type The type of the event.
+     * @param testClassName The full name of the test class that the event happened in.
+     */
+    public TestEvent(TestEventType type, String testClassName)
+    {
+        PreCondition.assertNotNull(type, "type");
+        PreCondition.assertNotNull(testClassName, "testClassName");
+
+        this.type = type;
+        this.testClassName = testClassName;
+    }
+
+    public TestEventType getType()
+    {
+        return type;
+    }
+
+    public String getTestClassName()
+    {
+        return testClassName;
+    }
+
+    /**
+     * Get the full name of the test that the event happened to.
+     * @return The full name of the test, or null if this is a test class event.
+     */
+    public String getTestName()
+    {
+        return testName;
+    }
+
+    public TestEvent setTestName(String testName)
+    {
+        this.testName = testName;
+        return this;
+    }
+
+    /**
+     * Get how long the test or test class ran for. This is only set on finishing events.
+     */
+    public long getDurationMilliseconds()
+    {
+        return durationMilliseconds;
+    }
+
+    public TestEvent setDurationMilliseconds(long durationMilliseconds)
+    {
+        this.durationMilliseconds = durationMilliseconds;
+        return this;
+    }
+
+    /**
+     * Get the failure message of a failed test, or the error message of a test class that didn't
+     * run to completion.
+     * @return The message, or null if there isn't one.
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public TestEvent setMessage(String message)
+    {
+        this.message = message;
+        return this;
+    }
+
+    public int getPassedTestCount()
+    {
+        return passedTestCount;
+    }
+
+    public int getFailedTestCount()
+    {
+        return failedTestCount;
+    }
+
+    public int getSkippedTestCount()
+    {
+        return skippedTestCount;
+    }
+
+    /**
+     * Set the test counts of a finished test class.
+     */
+    public TestEvent setTestCounts(int passedTestCount, int failedTestCount, int skippedTestCount)
+    {
+        this.passedTestCount = passedTestCount;
+        this.failedTestCount = failedTestCount;
+        this.skippedTestCount = skippedTestCount;
+        return this;
+    }
+
+    /**
+     * Get the name that this event's type has in JSON.
+     */
+    private static String getJsonTypeName(TestEventType type)
+    {
+        final String typeName = type.toString();
+        return Character.toLowerCase(typeName.charAt(0)) + typeName.substring(1);
+    }
+
+    /**
+     * Get this TestEvent as a single line of JSON that TestEvent.parse() can read.
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\"event\":").append(JSONStrings.quote(getJsonTypeName(type)));
+        builder.append(",\"class\":").append(JSONStrings.quote(testClassName));
+        if (testName != null)
+        {
+            builder.append(",\"test\":").append(JSONStrings.quote(testName));
+        }
+        if (type != TestEventType.ClassStarted && type != TestEventType.TestStarted)
+        {
+            builder.append(",\"durationMilliseconds\":").append(durationMilliseconds);
+        }
+        if (message != null)
+        {
+            builder.append(",\"message\":").append(JSONStrings.quote(message));
+        }
+        if (type == TestEventType.ClassFinished)
+        {
+            builder.append(",\"passed\":").append(passedTestCount);
+            builder.append(",\"failed\":").append(failedTestCount);
+            builder.append(",\"skipped\":").append(skippedTestCount);
+        }
+        builder.append('}');
+        return builder.toString();
+    }
+
+    /**
+     * Parse a TestEvent from the result of TestEvent.toString().
+     * @param text The text to parse.
+     * @return The parsed TestEvent, or null if the text was not in the expected format.
+     */
+    public static TestEvent parse(String text)
+    {
+        TestEvent result = null;
+
+        // TestEvents are written one per line, so a line that doesn't end its object is
+        // incomplete.
+        if (text != null && text.trim().endsWith("}"))
+        {
+            final JSONDocument document = JSON.parse(text);
+            if (document != null && document.getRoot() instanceof JSONObject)
+            {
+                final JSONObject eventObject = (JSONObject)document.getRoot();
+                final String eventTypeName = getString(eventObject, "event");
+                final String testClassName = getString(eventObject, "class");
+                if (eventTypeName != null && testClassName != null)
+                {
+                    TestEventType type = null;
+                    for (final TestEventType eventType : TestEventType.values())
+                    {
+                        if (getJsonTypeName(eventType).equals(eventTypeName))
+                        {
+                            type = eventType;
+                            break;
+                        }
+                    }
+
+                    if (type != null)
+                    {
+                        result = new TestEvent(type, testClassName)
+                            .setTestName(getString(eventObject, "test"))
+                            .setMessage(getString(eventObject, "message"))
+                            .setDurationMilliseconds(getLong(eventObject, "durationMilliseconds"))
+                            .setTestCounts((int)getLong(eventObject, "passed"), (int)getLong(eventObject, "failed"), (int)getLong(eventObject, "skipped"));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the string value of the provided property.
+     * @return The string value, or null if the property doesn't exist or isn't a valid string.
+     */
+    private static String getString(JSONObject eventObject, String propertyName)
+    {
+        final JSONSegment propertyValue = eventObject.getPropertyValue(propertyName);
+        return propertyValue instanceof JSONQuotedString ? JSONStrings.unquote((JSONQuotedString)propertyValue) : null;
+    }
+
+    /**
+     * Get the whole number value of the provided property.
+     * @return The whole number value, or 0 if the property doesn't exist or isn't a whole number.
+     */
+    private static long getLong(JSONObject eventObject, String propertyName)
+    {
+        long result = 0;
+        final JSONSegment propertyValue = eventObject.getPropertyValue(propertyName);
+        if (propertyValue instanceof JSONToken && ((JSONToken)propertyValue).getType() == JSONTokenType.Number)
+        {
+            try
+            {
+                result = Long.parseLong(propertyValue.toString());
+            }
+            catch (NumberFormatException ignored)
+            {
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package qub;
+
+/**
+ * The different kinds of events that a test run reports while it runs.
+ */
+public enum TestEventType
+{
+    /**
+     * A test class started running.
+     */
+    ClassStarted,
+
+    /**
+     * A test started running.
+     */
+    TestStarted,
+
+    /**
+     * A test passed.
+     */
+    TestPassed,
+
+    /**
+     * A test failed.
+     */
+    TestFailed,
+
+    /**
+     * A test was skipped.
+     */
+    TestSkipped,
+
+    /**
+     * A test class finished running, either because all of its tests ran or because of an error.
+     */
+    ClassFinished
+}
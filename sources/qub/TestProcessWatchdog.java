@@ -0,0 +1,68 @@
+package qub;
+
+/**
+ * The main class of a child JVM that runs qub.ConsoleTestRunner with a timeout. If the test runner
+ * hasn't finished when the timeout expires, the stack of every thread is written to the process's
+ * output and the process is stopped with timeoutExitCode. This class only uses JDK types, so it
+ * can run beside whichever version of qub-java the tests use.
+ */
+public class TestProcessWatchdog
+{
+    /**
+     * The exit code of a child JVM that was stopped because it exceeded its timeout.
+     */
+    public static final int timeoutExitCode = 124;
+
+    private static final String testRunnerClassName = "qub.ConsoleTestRunner";
+
+    /**
+     * Run qub.ConsoleTestRunner with a timeout.
+     * @param arguments The timeout in milliseconds, followed by qub.ConsoleTestRunner's arguments.
+     */
+    public static void main(String[] arguments) throws Exception
+    {
+        final long timeoutMilliseconds = Long.parseLong(arguments[0]);
+        final Thread watchdog = new Thread(() ->
+        {
+            try
+            {
+                Thread.sleep(timeoutMilliseconds);
+
+                System.out.println("The test process exceeded the timeout of " + timeoutMilliseconds + " milliseconds.");
+                System.out.print(getThreadDump());
+                System.out.flush();
+                Runtime.getRuntime().halt(timeoutExitCode);
+            }
+            catch (InterruptedException ignored)
+            {
+            }
+        }, "qub-test-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        final String[] testRunnerArguments = java.util.Arrays.copyOfRange(arguments, 1, arguments.length);
+        Class.forName(testRunnerClassName).getMethod("main", String[].class).invoke(null, (Object)testRunnerArguments);
+    }
+
+    /**
+     * Get the stack of every thread in this process, in the order of the threads' names.
+     */
+    static String getThreadDump()
+    {
+        final java.util.Map<Thread,StackTraceElement[]> stackTraces = Thread.getAllStackTraces();
+        final java.util.List<Thread> threads = new java.util.ArrayList<>(stackTraces.keySet());
+        threads.sort((Thread lhs, Thread rhs) -> lhs.getName().compareTo(rhs.getName()));
+
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Thread dump:").append(System.lineSeparator());
+        for (final Thread thread : threads)
+        {
+            builder.append('"').append(thread.getName()).append("\" ").append(thread.getState()).append(System.lineSeparator());
+            for (final StackTraceElement frame : stackTraces.get(thread))
+            {
+                builder.append("    at ").append(frame).append(System.lineSeparator());
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,290 @@
+package qub;
+
+/**
+ * A record of the TestEvents of a test run that can be written as a JUnit XML or JSON report.
+ * Events can be added from many threads at the same time.
+ */
+public class TestReport
+{
+    private final java.util.Map<String,TestClassRecord> testClasses;
+
+    /**
+     * Create a new empty TestReport.
+     */
+    public TestReport()
+    {
+        testClasses = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Add the provided event to this report.
+     * @param event The event to add.
+     */
+    public synchronized void add(TestEvent event)
+    {
+        PreCondition.assertNotNull(event, "event");
+
+        final TestClassRecord testClass = testClasses.computeIfAbsent(event.getTestClassName(), TestClassRecord::new);
+        switch (event.getType())
+        {
+            case TestPassed:
+            case TestFailed:
+            case TestSkipped:
+                testClass.tests.add(event);
+                break;
+
+            case ClassFinished:
+                testClass.finishedEvent = event;
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Get the tests that took the longest to run, longest first.
+     * @param count The maximum number of tests to return.
+     */
+    public synchronized java.util.List<TestEvent> getSlowestTests(int count)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(count, 0, "count");
+
+        final java.util.List<TestEvent> tests = new java.util.ArrayList<>();
+        for (final TestClassRecord testClass : testClasses.values())
+        {
+            tests.addAll(testClass.tests);
+        }
+        tests.sort((TestEvent lhs, TestEvent rhs) -> Long.compare(rhs.getDurationMilliseconds(), lhs.getDurationMilliseconds()));
+        return new java.util.ArrayList<>(tests.subList(0, java.lang.Math.min(count, tests.size())));
+    }
+
+    /**
+     * Write a table of the tests that took the longest to run.
+     * @param console The Console to write the table to.
+     * @param count The maximum number of tests to write.
+     */
+    public void writeSlowestTests(Console console, int count)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        final java.util.List<TestEvent> slowestTests = getSlowestTests(count);
+        if (!slowestTests.isEmpty())
+        {
+            int maxDurationLength = 0;
+            for (final TestEvent test : slowestTests)
+            {
+                maxDurationLength = Math.maximum(maxDurationLength, Long.toString(test.getDurationMilliseconds()).length());
+            }
+
+            console.writeLine();
+            console.writeLine("Slowest Tests:");
+            for (final TestEvent test : slowestTests)
+            {
+                console.writeLine(String.format("  %" + maxDurationLength + "d ms  %s", test.getDurationMilliseconds(), test.getTestName()));
+            }
+        }
+    }
+
+    /**
+     * Get this report in the JUnit XML format that CI servers read.
+     */
+    public synchronized String toJUnitXml()
+    {
+        int totalTests = 0;
+        int totalFailures = 0;
+        int totalSkipped = 0;
+        int totalErrors = 0;
+        long totalDuration = 0;
+        final StringBuilder suites = new StringBuilder();
+        for (final TestClassRecord testClass : testClasses.values())
+        {
+            final int tests = testClass.getPassedTestCount() + testClass.getFailedTestCount() + testClass.getSkippedTestCount();
+            final int errors = testClass.getErrorMessage() == null ? 0 : 1;
+            totalTests += tests;
+            totalFailures += testClass.getFailedTestCount();
+            totalSkipped += testClass.getSkippedTestCount();
+            totalErrors += errors;
+            totalDuration += testClass.getDurationMilliseconds();
+
+            suites.append("  <testsuite name=").append(quoteXml(testClass.name))
+                .append(" tests=\"").append(tests)
+                .append("\" failures=\"").append(testClass.getFailedTestCount())
+                .append("\" skipped=\"").append(testClass.getSkippedTestCount())
+                .append("\" errors=\"").append(errors)
+                .append("\" time=\"").append(toSeconds(testClass.getDurationMilliseconds())).append("\">\n");
+            for (final TestEvent test : testClass.tests)
+            {
+                suites.append("    <testcase classname=").append(quoteXml(testClass.name))
+                    .append(" name=").append(quoteXml(test.getTestName()))
+                    .append(" time=\"").append(toSeconds(test.getDurationMilliseconds())).append('"');
+                if (test.getType() == TestEventType.TestFailed)
+                {
+                    suites.append(">\n      <failure message=").append(quoteXml(test.getMessage() == null ? "" : test.getMessage())).append("/>\n    </testcase>\n");
+                }
+                else if (test.getType() == TestEventType.TestSkipped)
+                {
+                    suites.append(">\n      <skipped/>\n    </testcase>\n");
+                }
+                else
+                {
+                    suites.append("/>\n");
+                }
+            }
+            if (testClass.getErrorMessage() != null)
+            {
+                suites.append("    <testcase classname=").append(quoteXml(testClass.name)).append(" name=").append(quoteXml(testClass.name)).append(" time=\"0.000\">\n")
+                    .append("      <error message=").append(quoteXml(testClass.getErrorMessage())).append("/>\n")
+                    .append("    </testcase>\n");
+            }
+            suites.append("  </testsuite>\n");
+        }
+
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<testsuites tests=\"" + totalTests + "\" failures=\"" + totalFailures + "\" skipped=\"" + totalSkipped + "\" errors=\"" + totalErrors + "\" time=\"" + toSeconds(totalDuration) + "\">\n" +
+            suites +
+            "</testsuites>\n";
+    }
+
+    /**
+     * Get this report as a JSON document.
+     */
+    public synchronized String toJson()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\n  \"testClasses\": [");
+        boolean firstTestClass = true;
+        for (final TestClassRecord testClass : testClasses.values())
+        {
+            builder.append(firstTestClass ? "\n" : ",\n");
+            firstTestClass = false;
+
+            builder.append("    {\"name\": ").append(JSONStrings.quote(testClass.name))
+                .append(", \"durationMilliseconds\": ").append(testClass.getDurationMilliseconds())
+                .append(", \"passed\": ").append(testClass.getPassedTestCount())
+                .append(", \"failed\": ").append(testClass.getFailedTestCount())
+                .append(", \"skipped\": ").append(testClass.getSkippedTestCount());
+            if (testClass.getErrorMessage() != null)
+            {
+                builder.append(", \"error\": ").append(JSONStrings.quote(testClass.getErrorMessage()));
+            }
+            builder.append(", \"tests\": [");
+            boolean firstTest = true;
+            for (final TestEvent test : testClass.tests)
+            {
+                builder.append(firstTest ? "\n" : ",\n");
+                firstTest = false;
+
+                builder.append("      {\"name\": ").append(JSONStrings.quote(test.getTestName()))
+                    .append(", \"status\": ").append(JSONStrings.quote(getStatus(test)))
+                    .append(", \"durationMilliseconds\": ").append(test.getDurationMilliseconds());
+                if (test.getMessage() != null)
+                {
+                    builder.append(", \"message\": ").append(JSONStrings.quote(test.getMessage()));
+                }
+                builder.append('}');
+            }
+            builder.append(firstTest ? "]}" : "\n    ]}");
+        }
+        builder.append(firstTestClass ? "]\n}\n" : "\n  ]\n}\n");
+        return builder.toString();
+    }
+
+    private static String getStatus(TestEvent test)
+    {
+        return test.getType() == TestEventType.TestPassed ? "passed" :
+            test.getType() == TestEventType.TestFailed ? "failed" :
+            "skipped";
+    }
+
+    private static String toSeconds(long durationMilliseconds)
+    {
+        return String.format(java.util.Locale.ROOT, "%.3f", durationMilliseconds / 1000.0);
+    }
+
+    private static String quoteXml(String text)
+    {
+        final StringBuilder builder = new StringBuilder(text.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < text.length(); ++i)
+        {
+            final char c = text.charAt(i);
+            switch (c)
+            {
+                case '"': builder.append("&quot;"); break;
+                case '&': builder.append("&amp;"); break;
+                case '<': builder.append("&lt;"); break;
+                case '>': builder.append("&gt;"); break;
+                case '\n': builder.append("&#10;"); break;
+                case '\r': builder.append("&#13;"); break;
+                case '\t': builder.append("&#9;"); break;
+                default:
+                    if (c >= 0x20)
+                    {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        builder.append('"');
+        return builder.toString();
+    }
+
+    /**
+     * The events of a single test class.
+     */
+    private static class TestClassRecord
+    {
+        final String name;
+        final java.util.List<TestEvent> tests;
+        TestEvent finishedEvent;
+
+        TestClassRecord(String name)
+        {
+            this.name = name;
+            this.tests = new java.util.ArrayList<>();
+        }
+
+        /**
+         * Count the tests of the provided type. The test class's finished event has the counts
+         * even when the test runner doesn't report individual tests.
+         */
+        private int getTestCount(TestEventType type, int finishedCount)
+        {
+            int result = 0;
+            for (final TestEvent test : tests)
+            {
+                if (test.getType() == type)
+                {
+                    ++result;
+                }
+            }
+            return java.lang.Math.max(result, finishedCount);
+        }
+
+        int getPassedTestCount()
+        {
+            return getTestCount(TestEventType.TestPassed, finishedEvent == null ? 0 : finishedEvent.getPassedTestCount());
+        }
+
+        int getFailedTestCount()
+        {
+            return getTestCount(TestEventType.TestFailed, finishedEvent == null ? 0 : finishedEvent.getFailedTestCount());
+        }
+
+        int getSkippedTestCount()
+        {
+            return getTestCount(TestEventType.TestSkipped, finishedEvent == null ? 0 : finishedEvent.getSkippedTestCount());
+        }
+
+        long getDurationMilliseconds()
+        {
+            return finishedEvent == null ? 0 : finishedEvent.getDurationMilliseconds();
+        }
+
+        String getErrorMessage()
+        {
+            return finishedEvent == null ? null : finishedEvent.getMessage();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package qub;
+
+/**
+ * The different kinds of machine-readable test report that the TestAction can write.
+ */
+public enum TestReportType
+{
+    /**
+     * Don't write a test report.
+     */
+    None,
+
+    /**
+     * Write a JUnit XML report (tests.junit.xml) that CI servers can read.
+     */
+    JUnit,
+
+    /**
+     * Write a JSON report (tests.json) with the result and duration of every test.
+     */
+    Json;
+
+    /**
+     * Parse the provided text into a TestReportType.
+     * @param text The text to parse.
+     * @return The parsed TestReportType, or null if the text doesn't match any TestReportType.
+     */
+    public static TestReportType parse(String text)
+    {
+        TestReportType result = null;
+        if (text != null)
+        {
+            for (final TestReportType reportType : TestReportType.values())
+            {
+                if (reportType.toString().equalsIgnoreCase(text))
+                {
+                    result = reportType;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
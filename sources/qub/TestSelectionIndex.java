@@ -0,0 +1,299 @@
+package qub;
+
+/**
+ * The compiled classes of a project as they were when its tests last passed. Comparing the
+ * current classes against the TestSelectionIndex tells TestAction which classes changed since
+ * then, and the project's ClassDependencyGraphs tell it which test classes can reach those
+ * changed classes.
+ */
+public class TestSelectionIndex
+{
+    private static final String sourcesSettingsHashKey = "sourcesSettings";
+    private static final String testsSettingsHashKey = "testsSettings";
+
+    private String sourcesSettingsHash;
+    private String testsSettingsHash;
+    private final java.util.Map<String,String> classHashes;
+
+    /**
+     * Create a new empty TestSelectionIndex.
+     */
+    public TestSelectionIndex()
+    {
+        classHashes = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Get the hash of the compiler settings that the source folder was compiled with.
+     * @return The hash of the compiler settings, or null if the settings are not known.
+     */
+    public String getSourcesSettingsHash()
+    {
+        return sourcesSettingsHash;
+    }
+
+    public void setSourcesSettingsHash(String sourcesSettingsHash)
+    {
+        this.sourcesSettingsHash = sourcesSettingsHash;
+    }
+
+    /**
+     * Get the hash of the compiler settings that the tests folder was compiled with.
+     * @return The hash of the compiler settings, or null if the settings are not known.
+     */
+    public String getTestsSettingsHash()
+    {
+        return testsSettingsHash;
+    }
+
+    public void setTestsSettingsHash(String testsSettingsHash)
+    {
+        this.testsSettingsHash = testsSettingsHash;
+    }
+
+    /**
+     * Get the content hash of the provided class's class file.
+     * @param className The internal name of the class.
+     * @return The content hash of the class file, or null if the class isn't in this index.
+     */
+    public String getClassHash(String className)
+    {
+        return classHashes.get(className);
+    }
+
+    public void setClassHash(String className, String classHash)
+    {
+        PreCondition.assertNotNullAndNotEmpty(className, "className");
+        PreCondition.assertNotNullAndNotEmpty(classHash, "classHash");
+
+        classHashes.put(className, classHash);
+    }
+
+    public void removeClass(String className)
+    {
+        classHashes.remove(className);
+    }
+
+    /**
+     * Get the internal names of the classes that this index has content hashes for.
+     */
+    public java.util.Set<String> getClassNames()
+    {
+        return java.util.Collections.unmodifiableSet(classHashes.keySet());
+    }
+
+    /**
+     * Add the content hash of every class file in the provided output folder.
+     * @param outputFolder The folder that contains compiled class files.
+     */
+    public void addClassFiles(Folder outputFolder)
+    {
+        PreCondition.assertNotNull(outputFolder, "outputFolder");
+
+        final Iterable<File> outputFiles = outputFolder.getFilesRecursively().getValue();
+        if (outputFiles != null)
+        {
+            for (final File outputFile : outputFiles)
+            {
+                if (outputFile.getFileExtension().equals(".class"))
+                {
+                    final String classFilePath = outputFile.relativeTo(outputFolder).toString().replace('\\', '/');
+                    setClassHash(
+                        classFilePath.substring(0, classFilePath.length() - ".class".length()),
+                        ContentHash.of(outputFile.getContents().getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get whether or not the provided previous index can be used to select the tests to run
+     * against this index. It can't if either folder was compiled with different settings since
+     * then (for example, if a dependency changed).
+     * @param previousIndex The index from when the tests last passed, or null if there isn't one.
+     */
+    public boolean canSelectSince(TestSelectionIndex previousIndex)
+    {
+        return previousIndex != null &&
+            java.util.Objects.equals(sourcesSettingsHash, previousIndex.sourcesSettingsHash) &&
+            java.util.Objects.equals(testsSettingsHash, previousIndex.testsSettingsHash);
+    }
+
+    /**
+     * Get the internal names of the classes that were added, changed, or removed since the
+     * provided previous index.
+     */
+    public java.util.Set<String> getChangedClassNames(TestSelectionIndex previousIndex)
+    {
+        PreCondition.assertNotNull(previousIndex, "previousIndex");
+
+        final java.util.Set<String> result = new java.util.TreeSet<>();
+        for (final java.util.Map.Entry<String,String> entry : classHashes.entrySet())
+        {
+            if (!entry.getValue().equals(previousIndex.getClassHash(entry.getKey())))
+            {
+                result.add(entry.getKey());
+            }
+        }
+        for (final String previousClassName : previousIndex.getClassNames())
+        {
+            if (!classHashes.containsKey(previousClassName))
+            {
+                result.add(previousClassName);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the test classes that can reach any of the provided changed classes. A test class can
+     * reach the classes that were compiled from its own source file and every class that those
+     * classes refer to, directly or through other classes in the provided graphs.
+     * @param testClassNames The full names of the test classes to select from.
+     * @param changedClassNames The internal names of the classes that changed.
+     * @param sourcesGraph The ClassDependencyGraph of the source folder.
+     * @param testsGraph The ClassDependencyGraph of the tests folder.
+     * @return The full names of the selected test classes, in the order that they were provided.
+     */
+    public static java.util.List<String> selectAffectedTestClasses(java.lang.Iterable<String> testClassNames, java.util.Set<String> changedClassNames, ClassDependencyGraph sourcesGraph, ClassDependencyGraph testsGraph)
+    {
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+        PreCondition.assertNotNull(changedClassNames, "changedClassNames");
+        PreCondition.assertNotNull(sourcesGraph, "sourcesGraph");
+        PreCondition.assertNotNull(testsGraph, "testsGraph");
+
+        final java.util.List<String> result = new java.util.ArrayList<>();
+        for (final String testClassName : testClassNames)
+        {
+            final ClassFile testClass = testsGraph.getClass(testClassName.replace('.', '/'));
+            if (testClass == null)
+            {
+                // A test class that the graph doesn't know about can't be proven unaffected.
+                result.add(testClassName);
+            }
+            else
+            {
+                final java.util.Set<String> visitedClassNames = new java.util.HashSet<>();
+                final java.util.Deque<String> classNamesToVisit = new java.util.ArrayDeque<>();
+                for (final ClassFile sourceFileClass : testsGraph.getClasses(testClass.getSourceFilePath()))
+                {
+                    classNamesToVisit.add(sourceFileClass.getClassName());
+                }
+
+                boolean affected = false;
+                while (!affected && !classNamesToVisit.isEmpty())
+                {
+                    final String className = classNamesToVisit.remove();
+                    if (visitedClassNames.add(className))
+                    {
+                        if (changedClassNames.contains(className))
+                        {
+                            affected = true;
+                        }
+                        else
+                        {
+                            ClassFile classFile = testsGraph.getClass(className);
+                            if (classFile == null)
+                            {
+                                classFile = sourcesGraph.getClass(className);
+                            }
+                            if (classFile != null)
+                            {
+                                classNamesToVisit.addAll(classFile.getReferencedClassNames());
+                            }
+                        }
+                    }
+                }
+
+                if (affected)
+                {
+                    result.add(testClassName);
+                }
+            }
+        }
+        return result;
+    }
+
+    private LineRecords toLineRecords()
+    {
+        final LineRecords result = new LineRecords();
+        if (sourcesSettingsHash != null)
+        {
+            result.add(sourcesSettingsHashKey, sourcesSettingsHash);
+        }
+        if (testsSettingsHash != null)
+        {
+            result.add(testsSettingsHashKey, testsSettingsHash);
+        }
+        for (final java.util.Map.Entry<String,String> entry : classHashes.entrySet())
+        {
+            result.add(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static TestSelectionIndex fromLineRecords(LineRecords records)
+    {
+        TestSelectionIndex result = null;
+        if (records != null)
+        {
+            result = new TestSelectionIndex();
+            for (final String[] record : records)
+            {
+                if (record.length != 2 || record[0].isEmpty() || record[1].isEmpty())
+                {
+                    result = null;
+                    break;
+                }
+                else if (record[0].equals(sourcesSettingsHashKey))
+                {
+                    result.setSourcesSettingsHash(record[1]);
+                }
+                else if (record[0].equals(testsSettingsHashKey))
+                {
+                    result.setTestsSettingsHash(record[1]);
+                }
+                else
+                {
+                    result.setClassHash(record[0], record[1]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the contents of a tests.selection file: the settings hashes of the sources and
+     * tests folders, and then one line for each class's name and class file hash.
+     */
+    @Override
+    public String toString()
+    {
+        return toLineRecords().toString();
+    }
+
+    /**
+     * Parse the contents of a tests.selection file.
+     * @return The TestSelectionIndex, or null if the text is null or not valid.
+     */
+    public static TestSelectionIndex parse(String text)
+    {
+        return fromLineRecords(LineRecords.parse(text));
+    }
+
+    /**
+     * Read the provided tests.selection file.
+     * @return The TestSelectionIndex, or null if the file doesn't exist or is not valid.
+     */
+    public static TestSelectionIndex read(File indexFile)
+    {
+        return fromLineRecords(LineRecords.read(indexFile));
+    }
+
+    public void write(File indexFile)
+    {
+        PreCondition.assertNotNull(indexFile, "indexFile");
+
+        toLineRecords().write(indexFile);
+    }
+}
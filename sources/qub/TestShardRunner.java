@@ -0,0 +1,500 @@
+package qub;
+
+/**
+ * Runs shards of a project's test classes, each in its own child JVM, so that test classes in
+ * different shards can't affect each other through static state. Every child JVM runs its test
+ * classes one at a time with an InProcessTestRunner and sends the results back through a file.
+ * While the tests run, each child JVM can also stream its TestEvents back to the parent, one JSON
+ * line at a time, over a loopback socket. The parent uses the same socket to tell the child JVMs
+ * to stop after the first failure.
+ */
+public class TestShardRunner
+{
+    private static final String classpathKey = "classpath";
+    private static final String testClassKey = "test";
+    private static final String patternKey = "pattern";
+    private static final String timeoutKey = "timeout";
+    private static final String debugKey = "debug";
+    private static final String failFastKey = "failFast";
+    private static final String stopMessage = "stop";
+
+    /**
+     * The entry point of a test shard's child JVM.
+     * @param args The path of the file that describes the shard to run, the path of the file to
+     *             write the shard's results to, and optionally the loopback port to stream the
+     *             shard's TestEvents to.
+     */
+    public static void main(String[] args)
+    {
+        try (final Console console = new Console(args))
+        {
+            if (args.length != 2 && args.length != 3)
+            {
+                console.writeLine("Usage: qub.TestShardRunner <shard-file-path> <results-file-path> [<events-port>]");
+            }
+            else
+            {
+                final java.util.List<String> classpaths = new java.util.ArrayList<>();
+                final java.util.List<String> testClassNames = new java.util.ArrayList<>();
+                String pattern = null;
+                boolean debug = false;
+                boolean failFast = false;
+                long timeoutMilliseconds = 0;
+                final FileSystem fileSystem = console.getFileSystem();
+                final LineRecords shardRecords = LineRecords.read(fileSystem.getFile(args[0]).getValue());
+                for (final String[] record : shardRecords == null ? new LineRecords() : shardRecords)
+                {
+                    final String key = record[0];
+                    final String value = record.length == 2 ? record[1] : null;
+                    if (key.equals(classpathKey) && value != null)
+                    {
+                        classpaths.add(value);
+                    }
+                    else if (key.equals(testClassKey) && value != null)
+                    {
+                        testClassNames.add(value);
+                    }
+                    else if (key.equals(patternKey) && value != null)
+                    {
+                        pattern = value;
+                    }
+                    else if (key.equals(timeoutKey) && value != null)
+                    {
+                        timeoutMilliseconds = Long.parseLong(value);
+                    }
+                    else if (key.equals(debugKey))
+                    {
+                        debug = true;
+                    }
+                    else if (key.equals(failFastKey))
+                    {
+                        failFast = true;
+                    }
+                }
+
+                final InProcessTestRunner runner = InProcessTestRunner.create(ArrayList.fromValues(classpaths), console);
+                if (runner != null)
+                {
+                    try (final InProcessTestRunner testRunner = runner;
+                         final java.net.Socket eventsSocket = args.length == 3 ? new java.net.Socket(java.net.InetAddress.getLoopbackAddress(), Integer.parseInt(args[2])) : null)
+                    {
+                        Action1<TestEvent> eventListener = null;
+                        if (eventsSocket != null)
+                        {
+                            final java.io.Writer eventsWriter = new java.io.OutputStreamWriter(eventsSocket.getOutputStream(), java.nio.charset.StandardCharsets.UTF_8);
+                            eventListener = (TestEvent event) ->
+                            {
+                                try
+                                {
+                                    eventsWriter.write(event.toString() + "\n");
+                                    eventsWriter.flush();
+                                }
+                                catch (java.io.IOException ignored)
+                                {
+                                    // The results file still has the shard's results if the
+                                    // parent stops listening for events.
+                                }
+                            };
+
+                            final Thread stopListenerThread = new Thread(() -> listenForStop(eventsSocket, testRunner), "qub-test-stop-listener");
+                            stopListenerThread.setDaemon(true);
+                            stopListenerThread.start();
+                        }
+
+                        final java.util.List<TestClassResult> results = testRunner.runTestClasses(ArrayList.fromValues(testClassNames), pattern, debug, 1, failFast, timeoutMilliseconds, null, eventListener);
+
+                        final LineRecords resultRecords = new LineRecords();
+                        for (final TestClassResult result : results)
+                        {
+                            resultRecords.add(result.toFields());
+                        }
+                        resultRecords.write(fileSystem.getFile(args[1]).getValue());
+                    }
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        // A test that exceeded its timeout may still have threads running, so don't wait for them.
+        System.exit(0);
+    }
+
+    /**
+     * Stop the provided runner from starting new test classes when the parent sends the stop
+     * message.
+     */
+    private static void listenForStop(java.net.Socket eventsSocket, InProcessTestRunner runner)
+    {
+        try
+        {
+            final java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(eventsSocket.getInputStream(), java.nio.charset.StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.equals(stopMessage))
+                {
+                    runner.stop();
+                }
+            }
+        }
+        catch (java.io.IOException ignored)
+        {
+            // The socket was closed because the shard is done.
+        }
+    }
+
+    /**
+     * Run each of the provided shards in its own child JVM at the same time.
+     * @param console The Console to write the output of the child JVMs to if they write anything
+     *                outside of their tests.
+     * @param shardsFolder The folder to write each shard's description, output, and results to.
+     *                     It is deleted when the shards are done.
+     * @param classpaths The folders and jar files that the tests and their dependencies are
+     *                   loaded from.
+     * @param shards The full names of the test classes in each shard.
+     * @param pattern The pattern that test names must match to run, or null to run every test.
+     * @param debug Whether or not the test runners should write debug output.
+     * @param failFast Whether or not every shard should stop starting new test classes after the
+     *                 first failure in any shard.
+     * @param timeoutMilliseconds How long each test may run before it is abandoned, or 0 if there
+     *                            is no timeout.
+     * @param jvmArguments The extra arguments (such as a -javaagent) to start each child JVM with.
+     * @param eventListener The action to report each TestEvent from the child JVMs to as it
+     *                      happens, or null if the events aren't needed. Events are reported one
+     *                      at a time.
+     * @return The results of every test class that was run in every shard, ordered by test class
+     * name. A test class whose shard didn't report a result has a result with an error message,
+     * unless the shard stopped early because of -failFast.
+     */
+    public static java.util.List<TestClassResult> run(Console console, Folder shardsFolder, Iterable<String> classpaths, java.util.List<java.util.List<String>> shards, String pattern, boolean debug, boolean failFast, long timeoutMilliseconds, java.util.List<String> jvmArguments, Action1<TestEvent> eventListener)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNull(shardsFolder, "shardsFolder");
+        PreCondition.assertNotNull(classpaths, "classpaths");
+        PreCondition.assertNotNull(shards, "shards");
+        PreCondition.assertTrue(timeoutMilliseconds >= 0, "timeoutMilliseconds must be greater than or equal to 0.");
+        PreCondition.assertNotNull(jvmArguments, "jvmArguments");
+
+        final java.util.Map<String,TestClassResult> results = new java.util.TreeMap<>();
+
+        EventServer eventServer = null;
+        try
+        {
+            // The results of a test run that crashed may still be in the shards folder.
+            if (shardsFolder.exists().getValue())
+            {
+                shardsFolder.delete();
+            }
+
+            if (eventListener != null || failFast)
+            {
+                eventServer = new EventServer(shards.size(), failFast, eventListener);
+            }
+
+            final String javaPath = java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            final java.util.List<Process> processes = new java.util.ArrayList<>();
+            for (int shardIndex = 0; shardIndex < shards.size(); ++shardIndex)
+            {
+                final LineRecords shardRecords = new LineRecords();
+                for (final String classpath : classpaths)
+                {
+                    shardRecords.add(classpathKey, classpath);
+                }
+                for (final String testClassName : shards.get(shardIndex))
+                {
+                    shardRecords.add(testClassKey, testClassName);
+                }
+                if (pattern != null && !pattern.isEmpty())
+                {
+                    shardRecords.add(patternKey, pattern);
+                }
+                if (timeoutMilliseconds > 0)
+                {
+                    shardRecords.add(timeoutKey, Long.toString(timeoutMilliseconds));
+                }
+                if (debug)
+                {
+                    shardRecords.add(debugKey);
+                }
+                if (failFast)
+                {
+                    shardRecords.add(failFastKey);
+                }
+                final File shardFile = shardsFolder.getFile(shardIndex + ".shard").getValue();
+                shardRecords.write(shardFile);
+
+                final java.lang.ProcessBuilder java = new java.lang.ProcessBuilder(javaPath);
+                java.command().addAll(jvmArguments);
+                java.command().add("-classpath");
+                java.command().add(System.getProperty("java.class.path"));
+                java.command().add(TestShardRunner.class.getName());
+                java.command().add(shardFile.getPath().toString());
+                java.command().add(shardsFolder.getFile(shardIndex + ".results").getValue().getPath().toString());
+                if (eventServer != null)
+                {
+                    java.command().add(Integer.toString(eventServer.getPort()));
+                }
+                java.redirectErrorStream(true);
+                java.redirectOutput(new java.io.File(shardsFolder.getFile(shardIndex + ".log").getValue().getPath().toString()));
+                if (debug)
+                {
+                    console.writeLine("Shard " + (shardIndex + 1) + " Command: \"" + String.join(" ", java.command()) + "\"");
+                }
+                processes.add(java.start());
+            }
+
+            for (int shardIndex = 0; shardIndex < shards.size(); ++shardIndex)
+            {
+                final int exitCode = processes.get(shardIndex).waitFor();
+
+                final byte[] log = shardsFolder.getFile(shardIndex + ".log").getValue().getContents().getValue();
+                if (log != null && log.length > 0)
+                {
+                    console.write(new String(log, java.nio.charset.StandardCharsets.UTF_8));
+                }
+
+                final File resultsFile = shardsFolder.getFile(shardIndex + ".results").getValue();
+                final LineRecords resultRecords = LineRecords.read(resultsFile);
+                final boolean reportedResults = (resultRecords != null);
+                if (reportedResults)
+                {
+                    for (final String[] record : resultRecords)
+                    {
+                        final TestClassResult result = TestClassResult.fromFields(record);
+                        if (result != null)
+                        {
+                            results.put(result.getTestClassName(), result);
+                        }
+                    }
+                }
+
+                // A shard that was stopped because of -failFast leaves out the test classes that
+                // it didn't start.
+                if (!reportedResults || eventServer == null || !eventServer.isStopRequested())
+                {
+                    for (final String testClassName : shards.get(shardIndex))
+                    {
+                        if (!results.containsKey(testClassName))
+                        {
+                            results.put(testClassName, new TestClassResult(testClassName)
+                                .setErrorMessage("The test shard process exited with code " + exitCode + " before it reported this class's result."));
+                        }
+                    }
+                }
+            }
+        }
+        catch (java.io.IOException | InterruptedException e)
+        {
+            console.writeLine(e.toString());
+            for (final java.util.List<String> shard : shards)
+            {
+                for (final String testClassName : shard)
+                {
+                    if (!results.containsKey(testClassName))
+                    {
+                        results.put(testClassName, new TestClassResult(testClassName).setErrorMessage(e.toString()));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if (eventServer != null)
+            {
+                eventServer.close();
+            }
+
+            if (shardsFolder.exists().getValue())
+            {
+                shardsFolder.delete();
+            }
+        }
+
+        return new java.util.ArrayList<>(results.values());
+    }
+
+    /**
+     * The loopback server that the child JVMs stream their TestEvents to. Each connection gets its
+     * own thread that reads the connection's TestEvents until the child JVM closes it.
+     */
+    private static class EventServer
+    {
+        private final java.net.ServerSocket serverSocket;
+        private final int expectedConnectionCount;
+        private final boolean failFast;
+        private final Action1<TestEvent> eventListener;
+        private final java.util.List<java.net.Socket> sockets;
+        private final java.util.List<Thread> readerThreads;
+        private final java.util.concurrent.atomic.AtomicBoolean stopRequested;
+
+        EventServer(int expectedConnectionCount, boolean failFast, Action1<TestEvent> eventListener) throws java.io.IOException
+        {
+            this.serverSocket = new java.net.ServerSocket(0, expectedConnectionCount, java.net.InetAddress.getLoopbackAddress());
+            this.expectedConnectionCount = expectedConnectionCount;
+            this.failFast = failFast;
+            this.eventListener = eventListener;
+            this.sockets = new java.util.ArrayList<>();
+            this.readerThreads = new java.util.ArrayList<>();
+            this.stopRequested = new java.util.concurrent.atomic.AtomicBoolean();
+
+            final Thread acceptThread = new Thread(this::acceptConnections, "qub-test-events");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        int getPort()
+        {
+            return serverSocket.getLocalPort();
+        }
+
+        /**
+         * Get whether or not a test failed while -failFast was specified, so the child JVMs were
+         * told to stop.
+         */
+        boolean isStopRequested()
+        {
+            return stopRequested.get();
+        }
+
+        private void acceptConnections()
+        {
+            try
+            {
+                while (true)
+                {
+                    final java.net.Socket socket = serverSocket.accept();
+                    final Thread readerThread = new Thread(() -> readEvents(socket), "qub-test-events");
+                    readerThread.setDaemon(true);
+                    synchronized (sockets)
+                    {
+                        sockets.add(socket);
+                        readerThreads.add(readerThread);
+                        if (stopRequested.get())
+                        {
+                            sendStop(socket);
+                        }
+                    }
+                    readerThread.start();
+                }
+            }
+            catch (java.io.IOException ignored)
+            {
+                // The server socket was closed because every child JVM has exited.
+            }
+        }
+
+        private void readEvents(java.net.Socket socket)
+        {
+            try (final java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(socket.getInputStream(), java.nio.charset.StandardCharsets.UTF_8)))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    final TestEvent event = TestEvent.parse(line);
+                    if (event != null)
+                    {
+                        if (eventListener != null)
+                        {
+                            synchronized (eventListener)
+                            {
+                                eventListener.run(event);
+                            }
+                        }
+
+                        if (failFast && isFailure(event) && stopRequested.compareAndSet(false, true))
+                        {
+                            synchronized (sockets)
+                            {
+                                for (final java.net.Socket shardSocket : sockets)
+                                {
+                                    sendStop(shardSocket);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            catch (java.io.IOException ignored)
+            {
+                // A child JVM that dies mid-event still has its missing results reported by run().
+            }
+        }
+
+        private static boolean isFailure(TestEvent event)
+        {
+            return event.getType() == TestEventType.TestFailed ||
+                (event.getType() == TestEventType.ClassFinished && (event.getFailedTestCount() > 0 || event.getMessage() != null));
+        }
+
+        private static void sendStop(java.net.Socket socket)
+        {
+            try
+            {
+                socket.getOutputStream().write((stopMessage + "\n").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                socket.getOutputStream().flush();
+            }
+            catch (java.io.IOException ignored)
+            {
+                // The child JVM has already finished.
+            }
+        }
+
+        /**
+         * Stop accepting connections and wait for the connections' events to be reported. The
+         * accept thread is given a moment to accept the connections of child JVMs that have
+         * already exited, since closing the server socket drops connections that haven't been
+         * accepted yet.
+         */
+        void close()
+        {
+            final long deadline = System.nanoTime() + 1000000000L;
+            while (System.nanoTime() < deadline)
+            {
+                synchronized (sockets)
+                {
+                    if (sockets.size() >= expectedConnectionCount)
+                    {
+                        break;
+                    }
+                }
+                try
+                {
+                    Thread.sleep(10);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            try
+            {
+                serverSocket.close();
+            }
+            catch (java.io.IOException ignored)
+            {
+            }
+
+            final java.util.List<Thread> threads;
+            synchronized (sockets)
+            {
+                threads = new java.util.ArrayList<>(readerThreads);
+            }
+            for (final Thread thread : threads)
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
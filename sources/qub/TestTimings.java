@@ -0,0 +1,203 @@
+package qub;
+
+/**
+ * How long each test class took to run the last time that it ran. The timings are used to split
+ * the test classes into shards that take about the same amount of time to run.
+ */
+public class TestTimings
+{
+    private final java.util.Map<String,Long> durations;
+
+    /**
+     * Create a new empty TestTimings.
+     */
+    public TestTimings()
+    {
+        durations = new java.util.TreeMap<>();
+    }
+
+    /**
+     * Get how long the provided test class took to run the last time that it ran.
+     * @param testClassName The full name of the test class.
+     * @return The duration in milliseconds, or null if the test class has no recorded timing.
+     */
+    public Long getDurationMilliseconds(String testClassName)
+    {
+        return durations.get(testClassName);
+    }
+
+    public void setDurationMilliseconds(String testClassName, long durationMilliseconds)
+    {
+        PreCondition.assertNotNullAndNotEmpty(testClassName, "testClassName");
+        PreCondition.assertTrue(durationMilliseconds >= 0, "durationMilliseconds must be greater than or equal to 0.");
+
+        durations.put(testClassName, durationMilliseconds);
+    }
+
+    /**
+     * Record the durations of the provided test class results.
+     */
+    public void addResults(java.util.List<TestClassResult> results)
+    {
+        PreCondition.assertNotNull(results, "results");
+
+        for (final TestClassResult result : results)
+        {
+            if (!result.getTestClassName().isEmpty())
+            {
+                setDurationMilliseconds(result.getTestClassName(), result.getDurationMilliseconds());
+            }
+        }
+    }
+
+    /**
+     * Get the names of the test classes that have recorded timings.
+     */
+    public java.util.Set<String> getTestClassNames()
+    {
+        return java.util.Collections.unmodifiableSet(durations.keySet());
+    }
+
+    /**
+     * Split the provided test classes into shards that should each take about the same amount of
+     * time to run. The longest test classes are assigned first, each to the shard with the least
+     * total time so far. Test classes without a recorded timing are assumed to take the average
+     * recorded time.
+     * @param testClassNames The full names of the test classes to split.
+     * @param shardCount The maximum number of shards to create.
+     * @return The non-empty shards, each with its test class names in sorted order.
+     */
+    public java.util.List<java.util.List<String>> createShards(java.lang.Iterable<String> testClassNames, int shardCount)
+    {
+        PreCondition.assertNotNull(testClassNames, "testClassNames");
+        PreCondition.assertGreaterThanOrEqualTo(shardCount, 1, "shardCount");
+
+        long estimatedDuration = 1;
+        if (!durations.isEmpty())
+        {
+            long totalDuration = 0;
+            for (final Long duration : durations.values())
+            {
+                totalDuration += duration;
+            }
+            estimatedDuration = java.lang.Math.max(1, totalDuration / durations.size());
+        }
+
+        final java.util.Map<String,Long> estimatedDurations = new java.util.TreeMap<>();
+        for (final String testClassName : testClassNames)
+        {
+            final Long duration = durations.get(testClassName);
+            estimatedDurations.put(testClassName, duration == null ? estimatedDuration : duration);
+        }
+
+        final java.util.List<String> sortedTestClassNames = new java.util.ArrayList<>(estimatedDurations.keySet());
+        sortedTestClassNames.sort((String lhs, String rhs) -> Long.compare(estimatedDurations.get(rhs), estimatedDurations.get(lhs)));
+
+        final java.util.List<java.util.List<String>> shards = new java.util.ArrayList<>();
+        final long[] shardDurations = new long[shardCount];
+        for (int i = 0; i < shardCount; ++i)
+        {
+            shards.add(new java.util.ArrayList<>());
+        }
+        for (final String testClassName : sortedTestClassNames)
+        {
+            int shardIndex = 0;
+            for (int i = 1; i < shardCount; ++i)
+            {
+                if (shardDurations[i] < shardDurations[shardIndex])
+                {
+                    shardIndex = i;
+                }
+            }
+            shards.get(shardIndex).add(testClassName);
+            shardDurations[shardIndex] += estimatedDurations.get(testClassName);
+        }
+
+        final java.util.List<java.util.List<String>> result = new java.util.ArrayList<>();
+        for (final java.util.List<String> shard : shards)
+        {
+            if (!shard.isEmpty())
+            {
+                java.util.Collections.sort(shard);
+                result.add(shard);
+            }
+        }
+        return result;
+    }
+
+    private LineRecords toLineRecords()
+    {
+        final LineRecords result = new LineRecords();
+        for (final java.util.Map.Entry<String,Long> entry : durations.entrySet())
+        {
+            result.add(entry.getKey(), entry.getValue().toString());
+        }
+        return result;
+    }
+
+    private static TestTimings fromLineRecords(LineRecords records)
+    {
+        TestTimings result = null;
+        if (records != null)
+        {
+            result = new TestTimings();
+            for (final String[] record : records)
+            {
+                Long duration = null;
+                if (record.length == 2 && !record[0].isEmpty())
+                {
+                    try
+                    {
+                        duration = Long.valueOf(record[1]);
+                    }
+                    catch (NumberFormatException ignored)
+                    {
+                    }
+                }
+
+                if (duration == null || duration < 0)
+                {
+                    result = null;
+                    break;
+                }
+                result.setDurationMilliseconds(record[0], duration);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the contents of a tests.timings file: one line for each test class's name and duration
+     * in milliseconds.
+     */
+    @Override
+    public String toString()
+    {
+        return toLineRecords().toString();
+    }
+
+    /**
+     * Parse the contents of a tests.timings file.
+     * @return The TestTimings, or null if the text is null or not a valid tests.timings file.
+     */
+    public static TestTimings parse(String text)
+    {
+        return fromLineRecords(LineRecords.parse(text));
+    }
+
+    /**
+     * Read the provided tests.timings file.
+     * @return The TestTimings, or null if the file doesn't exist or is not valid.
+     */
+    public static TestTimings read(File testTimingsFile)
+    {
+        return fromLineRecords(LineRecords.read(testTimingsFile));
+    }
+
+    public void write(File testTimingsFile)
+    {
+        PreCondition.assertNotNull(testTimingsFile, "testTimingsFile");
+
+        toLineRecords().write(testTimingsFile);
+    }
+}
@@ -0,0 +1,300 @@
+package qub;
+
+/**
+ * The versions of a project that are installed in a Qub folder. A VersionIndex is written next to
+ * the project's folder (as <publisher>/<project>.versions) along with the project folder's last
+ * modified time, so resolving a version range doesn't need to list and parse every installed
+ * version folder unless a version folder was added or removed since the index was written.
+ */
+public class VersionIndex
+{
+    /**
+     * The file extension of the files that VersionIndexes are written to.
+     */
+    public static final String fileExtension = ".versions";
+
+    private static final String folderLastModifiedKey = "folderLastModified";
+
+    /**
+     * The VersionIndexes that have been used during each run, by the FileSystem of the run's
+     * Console. Every QubCLI run has its own Console and FileSystem, so a long-running daemon
+     * doesn't keep using the indexes of earlier runs.
+     */
+    private static final java.util.Map<FileSystem,java.util.Map<String,VersionIndex>> runIndexes = new java.util.WeakHashMap<>();
+
+    private final long folderLastModified;
+    private final java.util.List<String> versions;
+    private final java.util.Map<String,String> resolvedVersions;
+
+    /**
+     * Create a new VersionIndex.
+     * @param folderLastModified The last modified time (in milliseconds since the epoch) of the
+     *                           project folder when its versions were listed, or -1 if it isn't
+     *                           known.
+     * @param versions The names of the project's version folders.
+     */
+    public VersionIndex(long folderLastModified, java.lang.Iterable<String> versions)
+    {
+        PreCondition.assertNotNull(versions, "versions");
+
+        this.folderLastModified = folderLastModified;
+        this.versions = new java.util.ArrayList<>();
+        for (final String version : versions)
+        {
+            this.versions.add(version);
+        }
+        java.util.Collections.sort(this.versions);
+        this.resolvedVersions = new java.util.HashMap<>();
+    }
+
+    /**
+     * Get the last modified time (in milliseconds since the epoch) of the project folder when its
+     * versions were listed, or -1 if it isn't known.
+     */
+    public long getFolderLastModified()
+    {
+        return folderLastModified;
+    }
+
+    /**
+     * Get the names of the project's installed version folders, in alphabetical order.
+     */
+    public java.util.List<String> getVersions()
+    {
+        return java.util.Collections.unmodifiableList(versions);
+    }
+
+    /**
+     * Get the greatest installed version that matches the provided version range.
+     * @param versionRange The version range to match.
+     * @return The greatest matching version, or null if no installed version matches.
+     */
+    public synchronized String resolve(String versionRange)
+    {
+        PreCondition.assertNotNullAndNotEmpty(versionRange, "versionRange");
+
+        String result;
+        if (resolvedVersions.containsKey(versionRange))
+        {
+            result = resolvedVersions.get(versionRange);
+        }
+        else
+        {
+            final VersionRange range = VersionRange.parse(versionRange);
+            final List<VersionNumber> matchingVersionNumbers = new ArrayList<>();
+            for (final String version : versions)
+            {
+                final VersionNumber versionNumber = VersionNumber.parse(version);
+                if (versionNumber != null && range.matches(versionNumber))
+                {
+                    matchingVersionNumbers.add(versionNumber);
+                }
+            }
+            final VersionNumber maximumMatch = Comparer.maximum(matchingVersionNumbers);
+            result = maximumMatch == null ? null : maximumMatch.toString();
+            resolvedVersions.put(versionRange, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get whether or not this index still describes the provided project folder.
+     */
+    public boolean isUpToDate(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return folderLastModified >= 0 && folderLastModified == getLastModified(projectFolder);
+    }
+
+    /**
+     * Get the VersionIndex of the provided project folder. The index is read from its file if the
+     * file is up to date, and otherwise the project folder is listed and the file is rewritten.
+     * Each index is only read or listed once per run.
+     * @param projectFolder The folder that contains the project's version folders.
+     * @return The project's VersionIndex.
+     */
+    public static VersionIndex get(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        final java.util.Map<String,VersionIndex> indexes;
+        synchronized (runIndexes)
+        {
+            indexes = runIndexes.computeIfAbsent(projectFolder.getFileSystem(), (FileSystem fileSystem) -> new java.util.HashMap<>());
+        }
+
+        VersionIndex result;
+        synchronized (indexes)
+        {
+            final String projectFolderPath = projectFolder.getPath().toString();
+            result = indexes.get(projectFolderPath);
+            if (result == null)
+            {
+                final File indexFile = getIndexFile(projectFolder);
+                result = read(indexFile);
+                if (result == null || !result.isUpToDate(projectFolder))
+                {
+                    result = update(projectFolder);
+                }
+                indexes.put(projectFolderPath, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * List the version folders of the provided project folder and write them to the project's
+     * index file. InstallAction calls this after it installs a new version.
+     * @param projectFolder The folder that contains the project's version folders.
+     * @return The project's new VersionIndex.
+     */
+    public static VersionIndex update(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        // The folder's last modified time is read before it is listed so that a version folder
+        // that is added while it is being listed makes the index out of date.
+        final long folderLastModified = getLastModified(projectFolder);
+
+        final java.util.List<String> versions = new java.util.ArrayList<>();
+        final Iterable<Folder> versionFolders = projectFolder.getFolders().getValue();
+        if (versionFolders != null)
+        {
+            for (final Folder versionFolder : versionFolders)
+            {
+                versions.add(versionFolder.getName());
+            }
+        }
+
+        final VersionIndex result = new VersionIndex(folderLastModified, versions);
+        if (folderLastModified >= 0)
+        {
+            result.write(getIndexFile(projectFolder));
+        }
+
+        final java.util.Map<String,VersionIndex> indexes;
+        synchronized (runIndexes)
+        {
+            indexes = runIndexes.get(projectFolder.getFileSystem());
+        }
+        if (indexes != null)
+        {
+            synchronized (indexes)
+            {
+                indexes.put(projectFolder.getPath().toString(), result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the file that the provided project folder's VersionIndex is written to. The file is
+     * next to the project folder instead of inside of it so that writing it doesn't change the
+     * project folder's last modified time.
+     */
+    public static File getIndexFile(Folder projectFolder)
+    {
+        PreCondition.assertNotNull(projectFolder, "projectFolder");
+
+        return projectFolder.getParentFolder().getFile(projectFolder.getName() + fileExtension).getValue();
+    }
+
+    /**
+     * Get the last modified time of the provided folder in milliseconds since the epoch, or -1 if
+     * it can't be known. Only folders on the real file system have last modified times that change
+     * when their entries change.
+     */
+    private static long getLastModified(Folder folder)
+    {
+        long result = -1;
+        if (folder.getFileSystem() instanceof JavaFileSystem)
+        {
+            try
+            {
+                result = java.nio.file.Files.getLastModifiedTime(java.nio.file.Paths.get(folder.getPath().toString())).toMillis();
+            }
+            catch (java.io.IOException | java.nio.file.InvalidPathException ignored)
+            {
+            }
+        }
+        return result;
+    }
+
+    private LineRecords toLineRecords()
+    {
+        final LineRecords result = new LineRecords();
+        result.add(folderLastModifiedKey, Long.toString(folderLastModified));
+        for (final String version : versions)
+        {
+            result.add(version);
+        }
+        return result;
+    }
+
+    private static VersionIndex fromLineRecords(LineRecords records)
+    {
+        VersionIndex result = null;
+        if (records != null)
+        {
+            final java.util.Iterator<String[]> recordIterator = records.iterator();
+            final String[] folderLastModifiedRecord = recordIterator.hasNext() ? recordIterator.next() : null;
+            if (folderLastModifiedRecord != null && folderLastModifiedRecord.length == 2 && folderLastModifiedRecord[0].equals(folderLastModifiedKey))
+            {
+                try
+                {
+                    final long folderLastModified = Long.parseLong(folderLastModifiedRecord[1]);
+                    final java.util.List<String> versions = new java.util.ArrayList<>();
+                    boolean validVersions = true;
+                    while (validVersions && recordIterator.hasNext())
+                    {
+                        final String[] versionRecord = recordIterator.next();
+                        validVersions = (versionRecord.length == 1);
+                        versions.add(versionRecord[0]);
+                    }
+                    result = validVersions ? new VersionIndex(folderLastModified, versions) : null;
+                }
+                catch (NumberFormatException ignored)
+                {
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the contents of a .versions file: the project folder's last modified time, and then one
+     * line for each version.
+     */
+    @Override
+    public String toString()
+    {
+        return toLineRecords().toString();
+    }
+
+    /**
+     * Parse the contents of a .versions file.
+     * @return The VersionIndex, or null if the text is null or not a valid .versions file.
+     */
+    public static VersionIndex parse(String text)
+    {
+        return fromLineRecords(LineRecords.parse(text));
+    }
+
+    /**
+     * Read the provided .versions file.
+     * @return The VersionIndex, or null if the file doesn't exist or is not valid.
+     */
+    public static VersionIndex read(File indexFile)
+    {
+        return fromLineRecords(LineRecords.read(indexFile));
+    }
+
+    public void write(File indexFile)
+    {
+        PreCondition.assertNotNull(indexFile, "indexFile");
+
+        toLineRecords().write(indexFile);
+    }
+}
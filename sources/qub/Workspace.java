@@ -0,0 +1,336 @@
+package qub;
+
+/**
+ * The projects in a folder tree, and the graph of the dependencies between them. A -workspace
+ * run builds or installs every project in the tree: independent projects run concurrently, each
+ * project starts as soon as the workspace projects that it depends on have finished, and a
+ * project's dependencies on other workspace projects are compiled against those projects' fresh
+ * outputs instead of their installed versions in the Qub folder.
+ */
+public class Workspace
+{
+    private static final String projectJsonFileName = "project.json";
+
+    /**
+     * The Workspace that each project Console of a -workspace run belongs to.
+     */
+    private static final java.util.Map<Console,Workspace> consoleWorkspaces = new java.util.WeakHashMap<>();
+
+    private final java.util.List<Project> projects;
+    private final java.util.Map<String,Project> projectsByKey;
+
+    private Workspace(java.util.List<Project> projects)
+    {
+        this.projects = projects;
+        this.projectsByKey = new java.util.HashMap<>();
+        for (final Project project : projects)
+        {
+            projectsByKey.put(project.key, project);
+        }
+    }
+
+    /**
+     * Find and parse every project.json file under the provided folder.
+     * @param rootFolder The folder to search.
+     * @param console The Console that problems with the project.json files are written to.
+     * @return The Workspace, or null if one of the project.json files had errors or if two of
+     *         them were for the same publisher/project.
+     */
+    public static Workspace discover(Folder rootFolder, Console console)
+    {
+        PreCondition.assertNotNull(rootFolder, "rootFolder");
+        PreCondition.assertNotNull(console, "console");
+
+        boolean hasErrors = false;
+        final java.util.List<Project> projects = new java.util.ArrayList<>();
+        final java.util.Map<String,Project> projectsByKey = new java.util.HashMap<>();
+        for (final FileSystemEntry projectJsonEntry : GlobWalker.find(rootFolder, java.util.Collections.singletonList(GlobPattern.parse("**/" + projectJsonFileName)), true, false))
+        {
+            final File projectJsonFile = (File)projectJsonEntry;
+            final Folder projectFolder = projectJsonFile.getParentFolder();
+            final List<String> errors = new ArrayList<>();
+            final byte[] projectJsonContents = projectJsonFile.getContents().getValue();
+            final ProjectJson projectJson = projectJsonContents == null ? null : ProjectJson.parse(projectFolder, projectJsonContents, errors);
+            if (projectJson == null || errors.any())
+            {
+                hasErrors = true;
+                console.writeLine("Invalid " + projectJsonFile + ":");
+                for (final String error : errors)
+                {
+                    console.writeLine("  " + error);
+                }
+            }
+            else
+            {
+                final Project project = new Project(projectFolder, projectJson);
+                final Project existingProject = projectsByKey.get(project.key);
+                if (existingProject != null)
+                {
+                    hasErrors = true;
+                    console.writeLine("Both " + existingProject.folder + " and " + project.folder + " contain the project " + project.key + ".");
+                }
+                else
+                {
+                    projectsByKey.put(project.key, project);
+                    projects.add(project);
+                }
+            }
+        }
+
+        return hasErrors ? null : new Workspace(projects);
+    }
+
+    /**
+     * Run the provided action on every project under the provided Console's current folder.
+     * @param console The Console of the -workspace run.
+     * @param verb The word that describes the action, such as "Building".
+     * @param runProject The action to run on each project.
+     * @return Whether or not the action succeeded for every project.
+     */
+    public static boolean run(Console console, String verb, Function1<Console,Boolean> runProject)
+    {
+        PreCondition.assertNotNull(console, "console");
+
+        final Workspace workspace = Workspace.discover(console.getCurrentFolder().getValue(), console);
+        return workspace != null && workspace.run(console, verb, Runtime.getRuntime().availableProcessors(), runProject);
+    }
+
+    /**
+     * Get the Workspace that the provided project Console belongs to.
+     * @return The Workspace, or null if the Console isn't part of a -workspace run.
+     */
+    public static Workspace get(Console console)
+    {
+        Workspace result = null;
+        if (console != null)
+        {
+            synchronized (consoleWorkspaces)
+            {
+                result = consoleWorkspaces.get(console);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the workspace project that satisfies the provided dependency.
+     * @return The project, or null if no workspace project has the dependency's publisher/project
+     *         and a version in the dependency's version range.
+     */
+    private Project getProject(Dependency dependency)
+    {
+        Project result = projectsByKey.get(dependency.getPublisher() + "/" + dependency.getProject());
+        if (result != null && !ProjectLock.matches(dependency.getVersionRange(), result.projectJson.getVersion()))
+        {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Get the classpaths of the provided project's dependencies. A dependency on a workspace
+     * project is replaced by that project's compiled sources folder and its own dependencies'
+     * classpaths, and the rest are resolved from the Qub folder.
+     * @param projectJson The project whose dependencies should be resolved.
+     * @param qubFolder The Qub folder that the rest of the dependencies are installed in.
+     * @param console The Console that dependency problems are written to.
+     * @return The dependencies' classpaths.
+     */
+    public Iterable<String> getDependencyClasspaths(ProjectJson projectJson, Folder qubFolder, Console console)
+    {
+        PreCondition.assertNotNull(projectJson, "projectJson");
+
+        final java.util.Set<String> classpaths = new java.util.LinkedHashSet<>();
+        addDependencyClasspaths(projectJson, qubFolder, console, classpaths, new java.util.HashSet<>());
+
+        final List<String> result = new ArrayList<>();
+        for (final String classpath : classpaths)
+        {
+            result.add(classpath);
+        }
+        return result;
+    }
+
+    private void addDependencyClasspaths(ProjectJson projectJson, Folder qubFolder, Console console, java.util.Set<String> classpaths, java.util.Set<String> visitedProjectKeys)
+    {
+        final List<Dependency> installedDependencies = new ArrayList<>();
+        for (final Dependency dependency : projectJson.getDependencies())
+        {
+            final Project dependencyProject = getProject(dependency);
+            if (dependencyProject == null)
+            {
+                installedDependencies.add(dependency);
+            }
+            else if (visitedProjectKeys.add(dependencyProject.key))
+            {
+                final Folder outputsFolder = dependencyProject.projectJson.getJavaOutputsFolder();
+                final Folder sourcesFolder = dependencyProject.projectJson.getJavaSourcesFolder();
+                if (outputsFolder != null && sourcesFolder != null)
+                {
+                    classpaths.add(outputsFolder.getFolder(sourcesFolder.getName()).getValue().getPath().toString());
+                }
+                addDependencyClasspaths(dependencyProject.projectJson, qubFolder, console, classpaths, visitedProjectKeys);
+            }
+        }
+
+        if (installedDependencies.any())
+        {
+            // The lock file isn't written here because it would only contain the dependencies
+            // that aren't in the workspace.
+            for (final Dependency resolvedDependency : ProjectLock.resolve(installedDependencies, qubFolder, console).getResolvedDependencies())
+            {
+                classpaths.add(resolvedDependency.toString(qubFolder));
+            }
+        }
+    }
+
+    /**
+     * Run the provided action on every project in this Workspace. A project's action starts after
+     * the actions of the workspace projects that it depends on have succeeded, and is skipped if
+     * one of them failed.
+     * @param console The Console of the -workspace run.
+     * @param verb The word that describes the action, such as "Building".
+     * @param parallelism The maximum number of projects that can run at the same time.
+     * @param runProject The action to run. It is given a Console whose current folder is the
+     *                   project's folder, and it returns whether or not it succeeded.
+     * @return Whether or not the action succeeded for every project.
+     */
+    public boolean run(Console console, String verb, int parallelism, Function1<Console,Boolean> runProject)
+    {
+        PreCondition.assertNotNull(console, "console");
+        PreCondition.assertNotNullAndNotEmpty(verb, "verb");
+        PreCondition.assertGreaterThanOrEqualTo(parallelism, 1, "parallelism");
+        PreCondition.assertNotNull(runProject, "runProject");
+
+        boolean result = false;
+        final java.util.List<Project> orderedProjects = getProjectsInDependencyOrder(console);
+        if (orderedProjects == null)
+        {
+            console.writeLine("The workspace can't be built because its projects depend on each other in a cycle.");
+        }
+        else if (orderedProjects.isEmpty())
+        {
+            console.writeLine("No " + projectJsonFileName + " files were found under " + console.getCurrentFolder().getValue() + ".");
+        }
+        else
+        {
+            console.writeLine(verb + " " + orderedProjects.size() + " project" + (orderedProjects.size() == 1 ? "" : "s") + "...");
+
+            final BuildTaskScheduler scheduler = new BuildTaskScheduler(parallelism);
+            for (final Project project : orderedProjects)
+            {
+                final java.util.List<String> dependencyKeys = new java.util.ArrayList<>();
+                for (final Project dependencyProject : project.getDependencyProjects(this))
+                {
+                    dependencyKeys.add(dependencyProject.key);
+                }
+
+                scheduler.addTask(project.key, () ->
+                {
+                    final Console projectConsole = createProjectConsole(console, project);
+                    projectConsole.writeLine();
+                    projectConsole.writeLine(verb + " " + project.key + " in " + project.folder + "...");
+                    final Boolean succeeded = runProject.run(projectConsole);
+                    return succeeded != null && succeeded ? BuildTaskStatus.Succeeded : BuildTaskStatus.Failed;
+                },
+                dependencyKeys.toArray(new String[dependencyKeys.size()]));
+            }
+            result = scheduler.run(console);
+        }
+        return result;
+    }
+
+    /**
+     * Create the Console that the provided project's action runs in. It writes to the -workspace
+     * run's output, which is what lets BuildTaskScheduler keep each project's lines together.
+     */
+    private Console createProjectConsole(Console console, Project project)
+    {
+        final Console result = new Console(new String[0]);
+        result.setFileSystem(console.getFileSystem());
+        result.setCurrentFolderPathString(project.folder.getPath().toString());
+        result.setOutput(console.getOutputAsByteWriteStream());
+        Profiler.share(console, result);
+        synchronized (consoleWorkspaces)
+        {
+            consoleWorkspaces.put(result, this);
+        }
+        return result;
+    }
+
+    /**
+     * Get this Workspace's projects so that each project comes after the workspace projects that
+     * it depends on. Projects that don't depend on each other stay in path order.
+     * @return The ordered projects, or null if some of the projects depend on each other in a
+     *         cycle. The projects in the cycle are written to the Console.
+     */
+    java.util.List<Project> getProjectsInDependencyOrder(Console console)
+    {
+        final java.util.List<Project> result = new java.util.ArrayList<>();
+        final java.util.Set<Project> orderedProjects = new java.util.HashSet<>();
+        final java.util.List<Project> remainingProjects = new java.util.ArrayList<>(projects);
+        boolean addedProject = true;
+        while (addedProject && !remainingProjects.isEmpty())
+        {
+            addedProject = false;
+            final java.util.Iterator<Project> remainingProjectIterator = remainingProjects.iterator();
+            while (remainingProjectIterator.hasNext())
+            {
+                final Project project = remainingProjectIterator.next();
+                if (orderedProjects.containsAll(project.getDependencyProjects(this)))
+                {
+                    result.add(project);
+                    orderedProjects.add(project);
+                    remainingProjectIterator.remove();
+                    addedProject = true;
+                }
+            }
+        }
+
+        if (!remainingProjects.isEmpty())
+        {
+            final java.util.List<String> cycleProjectKeys = new java.util.ArrayList<>();
+            for (final Project project : remainingProjects)
+            {
+                cycleProjectKeys.add(project.key);
+            }
+            console.writeLine("These projects depend on each other in a cycle: " + String.join(", ", cycleProjectKeys));
+        }
+
+        return remainingProjects.isEmpty() ? result : null;
+    }
+
+    /**
+     * A project in a Workspace.
+     */
+    static class Project
+    {
+        final Folder folder;
+        final ProjectJson projectJson;
+        final String key;
+
+        Project(Folder folder, ProjectJson projectJson)
+        {
+            this.folder = folder;
+            this.projectJson = projectJson;
+            this.key = projectJson.getPublisher() + "/" + projectJson.getProject();
+        }
+
+        /**
+         * Get the projects in the provided Workspace that this project depends on directly.
+         */
+        java.util.List<Project> getDependencyProjects(Workspace workspace)
+        {
+            final java.util.List<Project> result = new java.util.ArrayList<>();
+            for (final Dependency dependency : projectJson.getDependencies())
+            {
+                final Project dependencyProject = workspace.getProject(dependency);
+                if (dependencyProject != null && dependencyProject != this && !result.contains(dependencyProject))
+                {
+                    result.add(dependencyProject);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package qub;
+
+public class AtomicInstallTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(AtomicInstall.class, () ->
+        {
+            runner.testGroup("begin(Folder)", () ->
+            {
+                runner.test("with in-memory version folder that doesn't exist", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    final Folder versionFolder = fileSystem.getFolder("/qub/a/b/1").getValue();
+                    try (final AtomicInstall install = AtomicInstall.begin(versionFolder))
+                    {
+                        test.assertFalse(install.versionExists());
+                        test.assertEqual("/qub/a/.staging/b/1", install.getStagingFolder().toString());
+
+                        install.getStagingFolder().getFile("b.jar").getValue().setContents(new byte[] { 1 });
+                        test.assertSuccess(false, fileSystem.fileExists("/qub/a/b/1/b.jar"));
+                        test.assertTrue(install.publish());
+                        test.assertSuccess(true, fileSystem.fileExists("/qub/a/b/1/b.jar"));
+                        test.assertSuccess(false, fileSystem.folderExists("/qub/a/.staging/b/1"));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with in-memory version folder that exists", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFolder("/qub/a/b/1");
+                    final Folder versionFolder = fileSystem.getFolder("/qub/a/b/1").getValue();
+                    try (final AtomicInstall install = AtomicInstall.begin(versionFolder))
+                    {
+                        test.assertTrue(install.versionExists());
+                        test.assertFalse(install.publish());
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+
+            runner.test("close() without publish()", (Test test) ->
+            {
+                final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                fileSystem.createRoot("/");
+                fileSystem.createFile("/qub/a/.staging/b/0/crashed.jar");
+                final Folder versionFolder = fileSystem.getFolder("/qub/a/b/1").getValue();
+                try (final AtomicInstall install = AtomicInstall.begin(versionFolder))
+                {
+                    test.assertSuccess(false, fileSystem.folderExists("/qub/a/.staging/b/0"));
+                    install.getStagingFolder().getFile("b.jar").getValue().setContents(new byte[] { 1 });
+                }
+                catch (java.io.IOException e)
+                {
+                    Exceptions.throwAsRuntime(e);
+                }
+                test.assertSuccess(false, fileSystem.folderExists("/qub/a/.staging/b/1"));
+                test.assertSuccess(false, fileSystem.folderExists("/qub/a/b/1"));
+            });
+
+            runner.test("setContents(File,byte[]) with in-memory file", (Test test) ->
+            {
+                final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                fileSystem.createRoot("/");
+                final File shortcutFile = fileSystem.getFile("/qub/b.cmd").getValue();
+                try
+                {
+                    AtomicInstall.setContents(shortcutFile, new byte[] { 1, 2 });
+                }
+                catch (java.io.IOException e)
+                {
+                    Exceptions.throwAsRuntime(e);
+                }
+                test.assertSuccess(true, fileSystem.fileExists("/qub/b.cmd"));
+            });
+        });
+    }
+}
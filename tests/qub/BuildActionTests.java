@@ -0,0 +1,94 @@
+package qub;
+
+public class BuildActionTests
+{
+    private static byte[] readClassFileBytes(String classFileName)
+    {
+        byte[] result = null;
+        try (final java.io.InputStream classFileStream = BuildActionTests.class.getResourceAsStream(classFileName))
+        {
+            final java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int bytesRead;
+            while ((bytesRead = classFileStream.read(buffer)) != -1)
+            {
+                bytes.write(buffer, 0, bytesRead);
+            }
+            result = bytes.toByteArray();
+        }
+        catch (Exception e)
+        {
+            Exceptions.throwAsRuntime(e);
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BuildAction.class, () ->
+        {
+            runner.testGroup("compileIncrementally()", () ->
+            {
+                runner.test("with empty outputs and a build cache entry for the sources", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.setFileContent("/project/sources/qub/BuildActionTests.java", CharacterEncoding.UTF_8.encode("package qub; public class BuildActionTests {}").getValue());
+
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    final Console console = new Console();
+                    console.setLineSeparator("\n");
+                    console.setOutput(output);
+                    console.setFileSystem(fileSystem);
+                    console.setCurrentFolderPathString("/project");
+
+                    final byte[] classFileBytes = readClassFileBytes("BuildActionTests.class");
+                    final ClassFile classFile = ClassFile.parse(classFileBytes);
+                    final String classFilePath = classFile.getClassName() + ".class";
+                    fileSystem.setFileContent("/built/" + classFilePath, classFileBytes);
+
+                    final ClassDependencyGraph cachedGraph = new ClassDependencyGraph();
+                    cachedGraph.addClass(classFile);
+                    final BuildState cachedBuildState = new BuildState();
+                    cachedBuildState.setSourceFileHash(classFile.getSourceFilePath(), "abc");
+                    final MutableMap<String,String> metadata = Map.create();
+                    metadata.set("classgraph", cachedGraph.toString());
+                    metadata.set("buildstate", cachedBuildState.toString());
+
+                    // Another build with the same inputs stored its outputs under the key that this
+                    // build looks up.
+                    final BuildCache buildCache = new BuildCache(fileSystem.getFolder("/cache").getValue(), BuildCache.defaultMaxSizeInBytes)
+                    {
+                        @Override
+                        public Map<String,String> restore(String key, Folder targetFolder) throws java.io.IOException
+                        {
+                            store(key, fileSystem.getFolder("/built").getValue(), ArrayList.fromValues(new String[] { classFilePath }), metadata);
+                            return super.restore(key, targetFolder);
+                        }
+                    };
+
+                    final Folder sourcesFolder = fileSystem.getFolder("/project/sources").getValue();
+                    final BuildAction.CompileResult result = BuildAction.compileIncrementally(
+                        "sources",
+                        console,
+                        new ArrayList<String>(),
+                        sourcesFolder,
+                        sourcesFolder.getFilesRecursively().getValue(),
+                        fileSystem.getFolder("/project/outputs/sources").getValue(),
+                        fileSystem.getFolder("/project/outputs").getValue(),
+                        buildCache,
+                        null,
+                        CompilerType.InProcess,
+                        false,
+                        null);
+                    test.assertTrue(result.succeeded);
+                    test.assertTrue(result.restoredFromCache);
+                    test.assertEqual("Restored sources from the build cache.\n", output.getText().getValue());
+                    test.assertSuccess(true, fileSystem.fileExists("/project/outputs/sources/" + classFilePath));
+                    test.assertEqual(cachedGraph.toString(), ClassDependencyGraph.read(fileSystem.getFile("/project/outputs/sources.classgraph").getValue()).toString());
+                    test.assertEqual(cachedBuildState.toString(), BuildState.read(fileSystem.getFile("/project/outputs/sources.buildstate").getValue()).toString());
+                });
+            });
+        });
+    }
+}
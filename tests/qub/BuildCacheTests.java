@@ -0,0 +1,243 @@
+package qub;
+
+public class BuildCacheTests
+{
+    private static InMemoryFileSystem createFileSystem(Test test)
+    {
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+        fileSystem.createRoot("/");
+        return fileSystem;
+    }
+
+    private static BuildCache createBuildCache(FileSystem fileSystem, long maxSizeInBytes)
+    {
+        return new BuildCache(fileSystem.getFolder("/cache").getValue(), maxSizeInBytes);
+    }
+
+    /**
+     * Store an entry with a single file that has the provided contents.
+     */
+    private static boolean store(BuildCache buildCache, String key, String fileContents) throws java.io.IOException
+    {
+        final Folder sourceFolder = buildCache.getFolder().getParentFolder().getFolder("source").getValue();
+        sourceFolder.getFile("a/A.class").getValue().setContents(CharacterEncoding.UTF_8.encode(fileContents).getValue());
+
+        final List<String> relativeFilePaths = new ArrayList<>();
+        relativeFilePaths.add("a/A.class");
+
+        final MutableMap<String,String> metadata = Map.create();
+        metadata.set("name", key);
+
+        return buildCache.store(key, sourceFolder, relativeFilePaths, metadata);
+    }
+
+    private static String readFile(FileSystem fileSystem, String filePath)
+    {
+        return new String(fileSystem.getFile(filePath).getValue().getContents().getValue(), java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    private static List<String> getEntryKeys(BuildCache buildCache) throws java.io.IOException
+    {
+        final List<String> result = new ArrayList<>();
+        for (final BuildCache.Entry entry : buildCache.getEntries())
+        {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    private static List<String> createList(String... values)
+    {
+        final List<String> result = new ArrayList<>();
+        for (final String value : values)
+        {
+            result.add(value);
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BuildCache.class, () ->
+        {
+            runner.testGroup("canCache(Folder)", () ->
+            {
+                runner.test("with in-memory folder", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    test.assertFalse(BuildCache.canCache(fileSystem.getFolder("/qub").getValue()));
+                });
+            });
+
+            runner.testGroup("restore(String,Folder)", () ->
+            {
+                runner.test("with missing entry", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        test.assertNull(buildCache.restore("abc", fileSystem.getFolder("/target").getValue()));
+                        test.assertEqual(0L, buildCache.getHits());
+                        test.assertEqual(1L, buildCache.getMisses());
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with stored entry", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        test.assertTrue(store(buildCache, "abc", "class A"));
+
+                        fileSystem.setFileContent("/target/a/A.class", CharacterEncoding.UTF_8.encode("old class A").getValue());
+                        final Map<String,String> metadata = buildCache.restore("abc", fileSystem.getFolder("/target").getValue());
+                        test.assertEqual(createList("name"), ArrayList.fromValues(metadata.getKeys()));
+                        test.assertSuccess("abc", metadata.get("name"));
+                        test.assertEqual("class A", readFile(fileSystem, "/target/a/A.class"));
+                        test.assertEqual(1L, buildCache.getHits());
+                        test.assertEqual(0L, buildCache.getMisses());
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+
+            runner.testGroup("store(String,Folder,Iterable<String>,Map<String,String>)", () ->
+            {
+                runner.test("with existing key", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        test.assertTrue(store(buildCache, "abc", "class A"));
+                        test.assertFalse(store(buildCache, "abc", "other class A"));
+
+                        buildCache.restore("abc", fileSystem.getFolder("/target").getValue());
+                        test.assertEqual("class A", readFile(fileSystem, "/target/a/A.class"));
+                        test.assertEqual(createList("abc"), getEntryKeys(buildCache));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("doesn't leave an unfinished entry behind", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        test.assertTrue(store(buildCache, "abc", "class A"));
+
+                        final List<String> folderNames = new ArrayList<>();
+                        for (final Folder folder : buildCache.getFolder().getFolders().getValue())
+                        {
+                            folderNames.add(folder.getName());
+                        }
+                        test.assertEqual(createList("abc"), folderNames);
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("when the cache grows past its maximum size", (Test test) ->
+                {
+                    final StringBuilder contents = new StringBuilder();
+                    for (int i = 0; i < 10; ++i)
+                    {
+                        contents.append("0123456789");
+                    }
+
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    // Each entry is a little larger than 100 bytes, so only one of them fits.
+                    final BuildCache buildCache = createBuildCache(fileSystem, 200);
+                    try
+                    {
+                        test.assertTrue(store(buildCache, "a", contents.toString()));
+                        test.assertTrue(store(buildCache, "b", contents.toString()));
+                        test.assertEqual(createList("b"), getEntryKeys(buildCache));
+
+                        test.assertTrue(store(buildCache, "c", contents.toString()));
+                        test.assertEqual(createList("c"), getEntryKeys(buildCache));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+
+            runner.testGroup("prune(long)", () ->
+            {
+                runner.test("evicts the least recently used entries", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        store(buildCache, "a", "0123456789");
+                        store(buildCache, "b", "0123456789");
+                        fileSystem.setFileContent("/cache/a/lastused", CharacterEncoding.UTF_8.encode("2000").getValue());
+                        fileSystem.setFileContent("/cache/b/lastused", CharacterEncoding.UTF_8.encode("1000").getValue());
+
+                        final List<BuildCache.Entry> prunedEntries = buildCache.prune(1);
+                        test.assertEqual(2, prunedEntries.getCount());
+                        test.assertEqual("b", prunedEntries.first().getKey());
+                        test.assertEqual(0, getEntryKeys(buildCache).getCount());
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with enough space", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        store(buildCache, "a", "0123456789");
+                        test.assertEqual(0, buildCache.prune(BuildCache.defaultMaxSizeInBytes).getCount());
+                        test.assertEqual(createList("a"), getEntryKeys(buildCache));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with abandoned unfinished entry", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final BuildCache buildCache = createBuildCache(fileSystem, BuildCache.defaultMaxSizeInBytes);
+                    try
+                    {
+                        fileSystem.setFileContent("/cache/a.1/lastused", CharacterEncoding.UTF_8.encode("1000").getValue());
+                        fileSystem.setFileContent("/cache/b.2/lastused", CharacterEncoding.UTF_8.encode(Long.toString(System.currentTimeMillis())).getValue());
+
+                        buildCache.prune(BuildCache.defaultMaxSizeInBytes);
+                        test.assertSuccess(false, fileSystem.folderExists("/cache/a.1"));
+                        test.assertSuccess(true, fileSystem.folderExists("/cache/b.2"));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package qub;
+
+public class BuildMetricsTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BuildMetrics.class, () ->
+        {
+            runner.testGroup("toString()", () ->
+            {
+                runner.test("with no measurements", (Test test) ->
+                {
+                    final BuildMetrics metrics = new BuildMetrics(0, "build");
+                    test.assertEqual("1970-01-01T00:00:00Z\tbuild\tfailed", metrics.toString());
+                });
+
+                runner.test("with measurements", (Test test) ->
+                {
+                    final BuildMetrics metrics = new BuildMetrics(1000, "test")
+                        .setSucceeded(true)
+                        .addDuration("compile-sources", 50)
+                        .addDuration(BuildMetrics.totalDurationName, 200)
+                        .addDuration("compile-sources", 25)
+                        .addCount("testsPassed", 3)
+                        .addCount("cache hits", 1);
+                    test.assertEqual("1970-01-01T00:00:01Z\ttest\tsucceeded\tduration=200ms\tcompile-sources=75ms\ttestsPassed=3\tcache-hits=1", metrics.toString());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action2<String,String> parseTest = (String text, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        final BuildMetrics metrics = BuildMetrics.parse(text);
+                        test.assertEqual(expected, metrics == null ? null : metrics.toString());
+                    });
+                };
+
+                parseTest.run(null, null);
+                parseTest.run("", null);
+                parseTest.run("1970-01-01T00:00:00Z\tbuild", null);
+                parseTest.run("1970-01-01T00:00:00Z\tbuild\tmaybe", null);
+                parseTest.run("yesterday\tbuild\tsucceeded", null);
+                parseTest.run("1970-01-01T00:00:00Z\tbuild\tsucceeded\tduration", null);
+                parseTest.run("1970-01-01T00:00:00Z\tbuild\tsucceeded\tduration=abcms", null);
+                parseTest.run("1970-01-01T00:00:00Z\tbuild\tsucceeded", "1970-01-01T00:00:00Z\tbuild\tsucceeded");
+                parseTest.run("1970-01-01T00:00:00.500Z\tinstall\tfailed\tduration=12ms\tbytesWritten=1024", "1970-01-01T00:00:00.500Z\tinstall\tfailed\tduration=12ms\tbytesWritten=1024");
+                parseTest.run("1970-01-01T00:00:00Z\tbuild\tsucceeded\tcompile-sources=5ms\tduration=12ms", "1970-01-01T00:00:00Z\tbuild\tsucceeded\tduration=12ms\tcompile-sources=5ms");
+            });
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package qub;
+
+public class BuildStateTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BuildState.class, () ->
+        {
+            runner.test("constructor()", (Test test) ->
+            {
+                final BuildState buildState = new BuildState();
+                test.assertNull(buildState.getSettingsHash());
+                test.assertTrue(buildState.getSourceFilePaths().isEmpty());
+                test.assertEqual("", buildState.toString());
+            });
+
+            runner.test("setSourceFileHash(String,String)", (Test test) ->
+            {
+                final BuildState buildState = new BuildState();
+                buildState.setSourceFileHash("a/A.java", "abc");
+                test.assertEqual("abc", buildState.getSourceFileHash("a/A.java"));
+                test.assertNull(buildState.getSourceFileHash("a/B.java"));
+
+                buildState.setSourceFileHash("a/A.java", "def");
+                test.assertEqual("def", buildState.getSourceFileHash("a/A.java"));
+            });
+
+            runner.test("removeSourceFile(String)", (Test test) ->
+            {
+                final BuildState buildState = new BuildState();
+                buildState.setSourceFileHash("a/A.java", "abc");
+                buildState.removeSourceFile("a/A.java");
+                test.assertNull(buildState.getSourceFileHash("a/A.java"));
+                test.assertTrue(buildState.getSourceFilePaths().isEmpty());
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(BuildState.parse(null));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    final BuildState buildState = BuildState.parse("");
+                    test.assertNull(buildState.getSettingsHash());
+                    test.assertTrue(buildState.getSourceFilePaths().isEmpty());
+                });
+
+                runner.test("with line without a hash", (Test test) ->
+                {
+                    test.assertNull(BuildState.parse("a/A.java\n"));
+                });
+
+                runner.test("with line with an empty hash", (Test test) ->
+                {
+                    test.assertNull(BuildState.parse("a/A.java\t\n"));
+                });
+
+                runner.test("with the result of toString()", (Test test) ->
+                {
+                    final BuildState buildState = new BuildState();
+                    buildState.setSettingsHash("123");
+                    buildState.setSourceFileHash("a/B.java", "def");
+                    buildState.setSourceFileHash("a/A.java", "abc");
+                    test.assertEqual("settings\t123\na/A.java\tabc\na/B.java\tdef\n", buildState.toString());
+
+                    final BuildState parsedBuildState = BuildState.parse(buildState.toString());
+                    test.assertEqual("123", parsedBuildState.getSettingsHash());
+                    test.assertEqual("abc", parsedBuildState.getSourceFileHash("a/A.java"));
+                    test.assertEqual("def", parsedBuildState.getSourceFileHash("a/B.java"));
+                    test.assertEqual(buildState.toString(), parsedBuildState.toString());
+                });
+            });
+        });
+    }
+}
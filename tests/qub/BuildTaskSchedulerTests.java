@@ -0,0 +1,109 @@
+package qub;
+
+public class BuildTaskSchedulerTests
+{
+    private static Console createConsole()
+    {
+        final Console result = new Console(new String[0]);
+        result.setLineSeparator("\n");
+        result.setOutput(new InMemoryCharacterStream());
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BuildTaskScheduler.class, () ->
+        {
+            runner.testGroup("run(Console)", () ->
+            {
+                runner.test("with no tasks", (Test test) ->
+                {
+                    final BuildTaskScheduler scheduler = new BuildTaskScheduler(2);
+                    test.assertTrue(scheduler.run(createConsole()));
+                });
+
+                runner.test("runs dependencies before the tasks that depend on them", (Test test) ->
+                {
+                    final java.util.List<String> ranTasks = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+                    final BuildTaskScheduler scheduler = new BuildTaskScheduler(2);
+                    scheduler.addTask("a", () ->
+                    {
+                        ranTasks.add("a");
+                        return BuildTaskStatus.Succeeded;
+                    });
+                    scheduler.addTask("b", () ->
+                    {
+                        ranTasks.add("b");
+                        return BuildTaskStatus.NothingToDo;
+                    },
+                    "a");
+                    scheduler.addTask("c", () ->
+                    {
+                        ranTasks.add("c");
+                        return BuildTaskStatus.Succeeded;
+                    },
+                    "b");
+
+                    test.assertTrue(scheduler.run(createConsole()));
+                    test.assertEqual(java.util.Arrays.asList("a", "b", "c"), ranTasks);
+                    test.assertEqual(BuildTaskStatus.Succeeded, scheduler.getStatus("a"));
+                    test.assertEqual(BuildTaskStatus.NothingToDo, scheduler.getStatus("b"));
+                    test.assertEqual(BuildTaskStatus.Succeeded, scheduler.getStatus("c"));
+                });
+
+                runner.test("runs independent tasks at the same time", (Test test) ->
+                {
+                    final java.util.concurrent.CountDownLatch bothStarted = new java.util.concurrent.CountDownLatch(2);
+                    final Function0<BuildTaskStatus> waitForOtherTask = () ->
+                    {
+                        bothStarted.countDown();
+                        try
+                        {
+                            return bothStarted.await(10, java.util.concurrent.TimeUnit.SECONDS) ? BuildTaskStatus.Succeeded : BuildTaskStatus.Failed;
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return BuildTaskStatus.Failed;
+                        }
+                    };
+
+                    final BuildTaskScheduler scheduler = new BuildTaskScheduler(2);
+                    scheduler.addTask("a", () -> BuildTaskStatus.Succeeded);
+                    scheduler.addTask("b", waitForOtherTask, "a");
+                    scheduler.addTask("c", waitForOtherTask, "a");
+
+                    test.assertTrue(scheduler.run(createConsole()));
+                    test.assertEqual(BuildTaskStatus.Succeeded, scheduler.getStatus("b"));
+                    test.assertEqual(BuildTaskStatus.Succeeded, scheduler.getStatus("c"));
+                });
+
+                runner.test("skips the tasks that depend on a failed task", (Test test) ->
+                {
+                    final BuildTaskScheduler scheduler = new BuildTaskScheduler(2);
+                    scheduler.addTask("a", () -> BuildTaskStatus.Failed);
+                    scheduler.addTask("b", () -> BuildTaskStatus.Succeeded, "a");
+                    scheduler.addTask("c", () -> BuildTaskStatus.Succeeded, "b");
+                    scheduler.addTask("d", () -> BuildTaskStatus.Succeeded);
+
+                    test.assertFalse(scheduler.run(createConsole()));
+                    test.assertEqual(BuildTaskStatus.Failed, scheduler.getStatus("a"));
+                    test.assertEqual(BuildTaskStatus.Skipped, scheduler.getStatus("b"));
+                    test.assertEqual(BuildTaskStatus.Skipped, scheduler.getStatus("c"));
+                    test.assertEqual(BuildTaskStatus.Succeeded, scheduler.getStatus("d"));
+                });
+
+                runner.test("with task that throws", (Test test) ->
+                {
+                    final BuildTaskScheduler scheduler = new BuildTaskScheduler(1);
+                    scheduler.addTask("a", () ->
+                    {
+                        throw new RuntimeException("oops");
+                    });
+
+                    test.assertFalse(scheduler.run(createConsole()));
+                    test.assertEqual(BuildTaskStatus.Failed, scheduler.getStatus("a"));
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package qub;
+
+public class ClassDependencyGraphTests
+{
+    private static ClassFile createClassFile(String className, String sourceFilePath, String... referencedClassNames)
+    {
+        return new ClassFile(className, sourceFilePath, "abi", "constants", java.util.Arrays.asList(referencedClassNames));
+    }
+
+    private static ClassDependencyGraph createGraph()
+    {
+        final ClassDependencyGraph graph = new ClassDependencyGraph();
+        graph.setClasses("a/A.java", java.util.Arrays.asList(
+            createClassFile("a/A", "a/A.java", "a/B"),
+            createClassFile("a/A$Inner", "a/A.java", "a/C")));
+        graph.setClasses("a/B.java", java.util.Arrays.asList(
+            createClassFile("a/B", "a/B.java")));
+        graph.setClasses("a/C.java", java.util.Arrays.asList(
+            createClassFile("a/C", "a/C.java", "a/B")));
+        return graph;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ClassDependencyGraph.class, () ->
+        {
+            runner.test("constructor()", (Test test) ->
+            {
+                final ClassDependencyGraph graph = new ClassDependencyGraph();
+                test.assertTrue(graph.getSourceFilePaths().isEmpty());
+                test.assertEqual("", graph.toString());
+            });
+
+            runner.test("getClasses(String)", (Test test) ->
+            {
+                final ClassDependencyGraph graph = createGraph();
+                test.assertEqual(0, graph.getClasses("a/D.java").size());
+                test.assertEqual(2, graph.getClasses("a/A.java").size());
+                test.assertEqual("a/B", graph.getClasses("a/B.java").get(0).getClassName());
+            });
+
+            runner.test("removeSourceFile(String)", (Test test) ->
+            {
+                final ClassDependencyGraph graph = createGraph();
+                test.assertEqual(2, graph.removeSourceFile("a/A.java").size());
+                test.assertFalse(graph.containsSourceFile("a/A.java"));
+                test.assertNull(graph.getClass("a/A$Inner"));
+                test.assertNotNull(graph.getClass("a/B"));
+            });
+
+            runner.testGroup("getDependentSourceFilePaths(Collection<String>)", () ->
+            {
+                runner.test("with no class names", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = createGraph();
+                    test.assertTrue(graph.getDependentSourceFilePaths(java.util.Collections.<String>emptyList()).isEmpty());
+                });
+
+                runner.test("with class that isn't referenced", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = createGraph();
+                    test.assertTrue(graph.getDependentSourceFilePaths(java.util.Arrays.asList("a/A")).isEmpty());
+                });
+
+                runner.test("with class that is referenced by an inner class", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = createGraph();
+                    test.assertEqual(
+                        new java.util.TreeSet<>(java.util.Arrays.asList("a/A.java")),
+                        graph.getDependentSourceFilePaths(java.util.Arrays.asList("a/C")));
+                });
+
+                runner.test("with class that is referenced by multiple source files", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = createGraph();
+                    test.assertEqual(
+                        new java.util.TreeSet<>(java.util.Arrays.asList("a/A.java", "a/C.java")),
+                        graph.getDependentSourceFilePaths(java.util.Arrays.asList("a/B")));
+                });
+
+                runner.test("with class whose subclass is referenced", (Test test) ->
+                {
+                    // C calls a member that A inherits from B, but C only refers to A.
+                    final ClassDependencyGraph graph = new ClassDependencyGraph();
+                    graph.setClasses("a/B.java", java.util.Arrays.asList(
+                        createClassFile("a/B", "a/B.java")));
+                    graph.setClasses("a/A.java", java.util.Arrays.asList(
+                        new ClassFile("a/A", "a/A.java", "abi", "constants", java.util.Arrays.asList("a/B"), java.util.Arrays.asList("a/B"))));
+                    graph.setClasses("a/C.java", java.util.Arrays.asList(
+                        createClassFile("a/C", "a/C.java", "a/A")));
+                    test.assertEqual(
+                        new java.util.TreeSet<>(java.util.Arrays.asList("a/A.java", "a/C.java")),
+                        graph.getDependentSourceFilePaths(java.util.Arrays.asList("a/B")));
+                });
+            });
+
+            runner.testGroup("getSubtypeClassNames(Collection<String>)", () ->
+            {
+                runner.test("with class that has no subtypes", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = createGraph();
+                    test.assertTrue(graph.getSubtypeClassNames(java.util.Arrays.asList("a/B")).isEmpty());
+                });
+
+                runner.test("with indirect subtypes", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = new ClassDependencyGraph();
+                    graph.setClasses("a/B.java", java.util.Arrays.asList(
+                        createClassFile("a/B", "a/B.java")));
+                    graph.setClasses("a/A.java", java.util.Arrays.asList(
+                        new ClassFile("a/A", "a/A.java", "abi", "constants", java.util.Arrays.asList("a/B"), java.util.Arrays.asList("a/B"))));
+                    graph.setClasses("a/D.java", java.util.Arrays.asList(
+                        new ClassFile("a/D", "a/D.java", "abi", "constants", java.util.Arrays.asList("a/A", "a/I"), java.util.Arrays.asList("a/A", "a/I"))));
+                    graph.setClasses("a/C.java", java.util.Arrays.asList(
+                        createClassFile("a/C", "a/C.java", "a/A")));
+                    test.assertEqual(
+                        new java.util.TreeSet<>(java.util.Arrays.asList("a/A", "a/D")),
+                        graph.getSubtypeClassNames(java.util.Arrays.asList("a/B")));
+                    test.assertEqual(
+                        new java.util.TreeSet<>(java.util.Arrays.asList("a/D")),
+                        graph.getSubtypeClassNames(java.util.Arrays.asList("a/I")));
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(ClassDependencyGraph.parse(null));
+                });
+
+                runner.test("with invalid class line", (Test test) ->
+                {
+                    test.assertNull(ClassDependencyGraph.parse("a/A.java\ta/A\n"));
+                });
+
+                runner.test("with source file that has no classes", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = ClassDependencyGraph.parse("a/package-info.java\n");
+                    test.assertTrue(graph.containsSourceFile("a/package-info.java"));
+                    test.assertEqual(0, graph.getClasses("a/package-info.java").size());
+                });
+
+                runner.test("with the result of toString()", (Test test) ->
+                {
+                    final ClassDependencyGraph graph = createGraph();
+                    final ClassDependencyGraph parsedGraph = ClassDependencyGraph.parse(graph.toString());
+                    test.assertEqual(graph.getSourceFilePaths(), parsedGraph.getSourceFilePaths());
+                    test.assertEqual(graph.getClasses("a/A.java"), parsedGraph.getClasses("a/A.java"));
+                    test.assertEqual(graph.toString(), parsedGraph.toString());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package qub;
+
+public class ClassFileTests
+{
+    private static byte[] readClassFileBytes(String classFileName)
+    {
+        byte[] result = null;
+        try (final java.io.InputStream classFileStream = ClassFileTests.class.getResourceAsStream(classFileName))
+        {
+            final java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int bytesRead;
+            while ((bytesRead = classFileStream.read(buffer)) != -1)
+            {
+                bytes.write(buffer, 0, bytesRead);
+            }
+            result = bytes.toByteArray();
+        }
+        catch (Exception e)
+        {
+            Exceptions.throwAsRuntime(e);
+        }
+        return result;
+    }
+
+    /**
+     * A class with a method that declares a checked exception.
+     */
+    public static class ThrowingClass
+    {
+        public void run() throws java.io.IOException
+        {
+        }
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ClassFile.class, () ->
+        {
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with empty bytes", (Test test) ->
+                {
+                    test.assertNull(ClassFile.parse(new byte[0]));
+                });
+
+                runner.test("with non-class file bytes", (Test test) ->
+                {
+                    test.assertNull(ClassFile.parse(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+                });
+
+                runner.test("with ClassFileTests.class", (Test test) ->
+                {
+                    final ClassFile classFile = ClassFile.parse(readClassFileBytes("ClassFileTests.class"));
+                    test.assertNotNull(classFile);
+                    test.assertEqual("qub/ClassFileTests", classFile.getClassName());
+                    test.assertEqual("qub/ClassFileTests.java", classFile.getSourceFilePath());
+                    test.assertTrue(classFile.getReferencedClassNames().contains("qub/TestRunner"));
+                    test.assertTrue(classFile.getReferencedClassNames().contains("qub/ClassFile"));
+                    test.assertFalse(classFile.getReferencedClassNames().contains("qub/ClassFileTests"));
+                    test.assertFalse(classFile.getReferencedClassNames().contains("java/lang/Object"));
+                    test.assertTrue(classFile.getSuperTypeNames().isEmpty());
+                });
+
+                runner.test("with method that declares a checked exception", (Test test) ->
+                {
+                    final byte[] classFileBytes = readClassFileBytes("ClassFileTests$ThrowingClass.class");
+                    final ClassFile classFile = ClassFile.parse(classFileBytes);
+                    test.assertNotNull(classFile);
+
+                    // Renaming the method's Exceptions attribute leaves a class that is the same
+                    // except that its method doesn't declare any exceptions.
+                    final byte[] attributeName = "Exceptions".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    final String classFileText = new String(classFileBytes, java.nio.charset.StandardCharsets.ISO_8859_1);
+                    final int attributeNameIndex = classFileText.indexOf(new String(attributeName, java.nio.charset.StandardCharsets.ISO_8859_1));
+                    test.assertTrue(attributeNameIndex > 0);
+                    final byte[] withoutExceptionsBytes = classFileBytes.clone();
+                    withoutExceptionsBytes[attributeNameIndex + attributeName.length - 1] = (byte)'z';
+
+                    final ClassFile withoutExceptions = ClassFile.parse(withoutExceptionsBytes);
+                    test.assertNotNull(withoutExceptions);
+                    test.assertEqual(classFile.getClassName(), withoutExceptions.getClassName());
+                    test.assertFalse(classFile.getAbiHash().equals(withoutExceptions.getAbiHash()));
+                    test.assertEqual(classFile.getConstantsHash(), withoutExceptions.getConstantsHash());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(ClassFile.parse((String)null));
+                });
+
+                runner.test("with too few parts", (Test test) ->
+                {
+                    test.assertNull(ClassFile.parse("a/B.java\ta/B\t123"));
+                });
+
+                runner.test("without supertypes part", (Test test) ->
+                {
+                    test.assertNull(ClassFile.parse("a/B.java\ta/B\t123\t456\t"));
+                });
+
+                runner.test("with no referenced classes", (Test test) ->
+                {
+                    final ClassFile classFile = ClassFile.parse("a/B.java\ta/B\t123\t456\t\t");
+                    test.assertEqual("a/B", classFile.getClassName());
+                    test.assertEqual("a/B.java", classFile.getSourceFilePath());
+                    test.assertEqual("123", classFile.getAbiHash());
+                    test.assertEqual("456", classFile.getConstantsHash());
+                    test.assertTrue(classFile.getReferencedClassNames().isEmpty());
+                    test.assertTrue(classFile.getSuperTypeNames().isEmpty());
+                });
+
+                runner.test("with the result of toString()", (Test test) ->
+                {
+                    final ClassFile classFile = new ClassFile("a/B$C", "a/B.java", "123", "456", java.util.Arrays.asList("d/E", "a/B"));
+                    test.assertEqual(classFile, ClassFile.parse(classFile.toString()));
+                });
+
+                runner.test("with supertypes", (Test test) ->
+                {
+                    final ClassFile classFile = new ClassFile("a/B", "a/B.java", "123", "456", java.util.Arrays.asList("d/E", "d/F"), java.util.Arrays.asList("d/F", "d/E"));
+                    final ClassFile parsedClassFile = ClassFile.parse(classFile.toString());
+                    test.assertEqual(classFile, parsedClassFile);
+                    test.assertEqual(new java.util.TreeSet<>(java.util.Arrays.asList("d/E", "d/F")), parsedClassFile.getSuperTypeNames());
+                });
+            });
+
+            runner.testGroup("addDescriptorClassNames(Set<String>,String)", () ->
+            {
+                final Action2<String,String[]> addDescriptorClassNamesTest = (String descriptor, String[] expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(descriptor), (Test test) ->
+                    {
+                        final java.util.Set<String> classNames = new java.util.TreeSet<>();
+                        ClassFile.addDescriptorClassNames(classNames, descriptor);
+                        test.assertEqual(new java.util.TreeSet<>(java.util.Arrays.asList(expected)), classNames);
+                    });
+                };
+
+                addDescriptorClassNamesTest.run("", new String[0]);
+                addDescriptorClassNamesTest.run("I", new String[0]);
+                addDescriptorClassNamesTest.run("Lqub/Folder;", new String[] { "qub/Folder" });
+                addDescriptorClassNamesTest.run("[[Lqub/Folder;", new String[] { "qub/Folder" });
+                addDescriptorClassNamesTest.run("(ILqub/File;[B)Lqub/Result;", new String[] { "qub/File", "qub/Result" });
+                addDescriptorClassNamesTest.run("Lqub/Iterable<Lqub/File;>;", new String[] { "qub/Iterable", "qub/File" });
+            });
+        });
+    }
+}
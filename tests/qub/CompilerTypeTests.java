@@ -0,0 +1,29 @@
+package qub;
+
+public class CompilerTypeTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CompilerType.class, () ->
+        {
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action2<String,CompilerType> parseTest = (String text, CompilerType expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, CompilerType.parse(text));
+                    });
+                };
+
+                parseTest.run(null, null);
+                parseTest.run("", null);
+                parseTest.run("spam", null);
+                parseTest.run("fork", CompilerType.Fork);
+                parseTest.run("FORK", CompilerType.Fork);
+                parseTest.run("inprocess", CompilerType.InProcess);
+                parseTest.run("InProcess", CompilerType.InProcess);
+            });
+        });
+    }
+}
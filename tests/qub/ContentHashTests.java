@@ -0,0 +1,41 @@
+package qub;
+
+public class ContentHashTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ContentHash.class, () ->
+        {
+            runner.testGroup("of(File)", () ->
+            {
+                runner.test("with file that doesn't exist", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    test.assertNull(ContentHash.of(fileSystem.getFile("/a.jar").getValue()));
+                });
+
+                runner.test("with file that exists", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    final byte[] contents = new byte[] { 1, 2, 3 };
+                    fileSystem.setFileContent("/a.jar", contents);
+                    test.assertEqual(ContentHash.of(contents), ContentHash.of(fileSystem.getFile("/a.jar").getValue()));
+                });
+
+                runner.test("with changed file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.setFileContent("/a.jar", new byte[] { 1, 2, 3 });
+                    final File file = fileSystem.getFile("/a.jar").getValue();
+                    final String hash = ContentHash.of(file);
+                    fileSystem.setFileContent("/a.jar", new byte[] { 4, 5, 6 });
+                    test.assertEqual(ContentHash.of(new byte[] { 4, 5, 6 }), ContentHash.of(file));
+                    test.assertFalse(hash.equals(ContentHash.of(file)));
+                });
+            });
+        });
+    }
+}
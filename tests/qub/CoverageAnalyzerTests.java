@@ -0,0 +1,33 @@
+package qub;
+
+public class CoverageAnalyzerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CoverageAnalyzer.class, () ->
+        {
+            runner.testGroup("ClassCoverage", () ->
+            {
+                runner.test("with covered and missed lines", (Test test) ->
+                {
+                    final CoverageAnalyzer.ClassCoverage classCoverage = new CoverageAnalyzer.ClassCoverage("a.A", 2, 1);
+                    test.assertEqual("a.A", classCoverage.getClassName());
+                    test.assertEqual(2, classCoverage.getLinesCovered());
+                    test.assertEqual(1, classCoverage.getLinesMissed());
+                    test.assertEqual(3, classCoverage.getTotalLines());
+                    test.assertEqual(66, classCoverage.getLineCoverage());
+                });
+
+                runner.test("with no lines", (Test test) ->
+                {
+                    test.assertEqual(100, new CoverageAnalyzer.ClassCoverage("a.A", 0, 0).getLineCoverage());
+                });
+
+                runner.test("with every line covered", (Test test) ->
+                {
+                    test.assertEqual(100, new CoverageAnalyzer.ClassCoverage("a.A", 7, 0).getLineCoverage());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package qub;
+
+public class CoverageTypeTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CoverageType.class, () ->
+        {
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action2<String,CoverageType> parseTest = (String text, CoverageType expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, CoverageType.parse(text));
+                    });
+                };
+
+                parseTest.run(null, null);
+                parseTest.run("", null);
+                parseTest.run("spam", null);
+                parseTest.run("none", CoverageType.None);
+                parseTest.run("summary", CoverageType.Summary);
+                parseTest.run("html", CoverageType.Html);
+                parseTest.run("HTML", CoverageType.Html);
+            });
+        });
+    }
+}
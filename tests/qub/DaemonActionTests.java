@@ -0,0 +1,70 @@
+package qub;
+
+public class DaemonActionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(DaemonAction.class, () ->
+        {
+            runner.testGroup("isDaemonAction(String)", () ->
+            {
+                final Action2<String,Boolean> isDaemonActionTest = (String actionName, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(actionName), (Test test) ->
+                    {
+                        test.assertEqual(expected, DaemonAction.isDaemonAction(actionName));
+                    });
+                };
+
+                isDaemonActionTest.run(null, false);
+                isDaemonActionTest.run("", false);
+                isDaemonActionTest.run("build", true);
+                isDaemonActionTest.run("Test", true);
+                isDaemonActionTest.run("delete", false);
+                isDaemonActionTest.run("install", false);
+                isDaemonActionTest.run("daemon", false);
+            });
+
+            runner.testGroup("isDaemonCommandLine(String[])", () ->
+            {
+                final Action2<String[],Boolean> isDaemonCommandLineTest = (String[] arguments, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(String.join(" ", arguments)), (Test test) ->
+                    {
+                        test.assertEqual(expected, DaemonAction.isDaemonCommandLine(arguments));
+                    });
+                };
+
+                isDaemonCommandLineTest.run(new String[0], false);
+                isDaemonCommandLineTest.run(new String[] { "build" }, true);
+                isDaemonCommandLineTest.run(new String[] { "test", "-pattern=A*" }, true);
+                isDaemonCommandLineTest.run(new String[] { "install" }, false);
+                isDaemonCommandLineTest.run(new String[] { "build", "-watch" }, false);
+                isDaemonCommandLineTest.run(new String[] { "test", "--watch" }, false);
+                isDaemonCommandLineTest.run(new String[] { "test", "-watch=false" }, false);
+                isDaemonCommandLineTest.run(new String[] { "test", "-watcher" }, true);
+            });
+
+            runner.testGroup("DaemonAddress.parse(String)", () ->
+            {
+                final Action2<String,String> parseTest = (String text, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        final DaemonAction.DaemonAddress daemonAddress = DaemonAction.DaemonAddress.parse(text);
+                        test.assertEqual(expected, daemonAddress == null ? null : daemonAddress.toString());
+                    });
+                };
+
+                parseTest.run(null, null);
+                parseTest.run("", null);
+                parseTest.run("1234", null);
+                parseTest.run("1234\n", null);
+                parseTest.run("abc\ntoken", null);
+                parseTest.run("1234\ntoken\nextra", null);
+                parseTest.run("1234\ntoken", "1234\ntoken\n");
+                parseTest.run("1234\r\ntoken\r\n", "1234\ntoken\n");
+            });
+        });
+    }
+}
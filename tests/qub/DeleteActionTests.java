@@ -546,6 +546,101 @@ public class DeleteActionTests
                     test.assertSuccess(expectedOutput, output.getText());
                     test.assertSuccess(true, fileSystem.fileExists("/undeletableExistingFile.txt"));
                 });
+
+                runner.test("with " + Strings.escapeAndQuote("**/*.class"), test ->
+                {
+                    final Console console = createConsole(new String[] { "delete", "**/*.class" });
+
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFile("/outputs/A.class");
+                    fileSystem.createFile("/outputs/p/B.class");
+                    fileSystem.createFile("/sources/A.java");
+                    console.setFileSystem(fileSystem);
+                    console.setCurrentFolderPathString("/");
+
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    console.setOutput(output);
+
+                    new DeleteAction().run(console);
+
+                    final String expectedOutput =
+                        "Deleting file /outputs/A.class... Done.\n" +
+                        "Deleting file /outputs/p/B.class... Done.\n";
+                    test.assertSuccess(expectedOutput, output.getText());
+                    test.assertSuccess(false, fileSystem.fileExists("/outputs/A.class"));
+                    test.assertSuccess(false, fileSystem.fileExists("/outputs/p/B.class"));
+                    test.assertSuccess(true, fileSystem.fileExists("/sources/A.java"));
+                });
+
+                runner.test("with " + Strings.escapeAndQuote("-folder outputs/*/coverage"), test ->
+                {
+                    final Console console = createConsole(new String[] { "delete", "-folder", "outputs/*/coverage" });
+
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFile("/outputs/a/coverage/index.html");
+                    fileSystem.createFile("/outputs/b/coverage/index.html");
+                    fileSystem.createFile("/outputs/b/B.class");
+                    console.setFileSystem(fileSystem);
+                    console.setCurrentFolderPathString("/");
+
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    console.setOutput(output);
+
+                    new DeleteAction().run(console);
+
+                    final String expectedOutput =
+                        "Deleting folder /outputs/a/coverage... Done.\n" +
+                        "Deleting folder /outputs/b/coverage... Done.\n";
+                    test.assertSuccess(expectedOutput, output.getText());
+                    test.assertSuccess(false, fileSystem.folderExists("/outputs/a/coverage"));
+                    test.assertSuccess(false, fileSystem.folderExists("/outputs/b/coverage"));
+                    test.assertSuccess(true, fileSystem.fileExists("/outputs/b/B.class"));
+                });
+
+                runner.test("with " + Strings.escapeAndQuote("-dryRun *.txt folderThatExists"), test ->
+                {
+                    final Console console = createConsole(new String[] { "delete", "-dryRun", "*.txt", "folderThatExists" });
+
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFile("/a.txt");
+                    fileSystem.createFile("/folderThatExists/b.txt");
+                    console.setFileSystem(fileSystem);
+                    console.setCurrentFolderPathString("/");
+
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    console.setOutput(output);
+
+                    new DeleteAction().run(console);
+
+                    final String expectedOutput =
+                        "Would delete folder /folderThatExists.\n" +
+                        "Would delete file /a.txt.\n";
+                    test.assertSuccess(expectedOutput, output.getText());
+                    test.assertSuccess(true, fileSystem.fileExists("/a.txt"));
+                    test.assertSuccess(true, fileSystem.fileExists("/folderThatExists/b.txt"));
+                });
+
+                runner.test("with " + Strings.escapeAndQuote("*.class"), test ->
+                {
+                    final Console console = createConsole(new String[] { "delete", "*.class" });
+
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFile("/outputs/A.class");
+                    console.setFileSystem(fileSystem);
+                    console.setCurrentFolderPathString("/");
+
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    console.setOutput(output);
+
+                    new DeleteAction().run(console);
+
+                    test.assertSuccess("No files or folders match *.class.\n", output.getText());
+                    test.assertSuccess(true, fileSystem.fileExists("/outputs/A.class"));
+                });
             });
         });
     }
@@ -0,0 +1,61 @@
+package qub;
+
+public class FileCopyTests
+{
+    private static InMemoryFileSystem createFileSystem(Test test)
+    {
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+        fileSystem.createRoot("/");
+        return fileSystem;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(FileCopy.class, () ->
+        {
+            runner.testGroup("copy(File,File)", () ->
+            {
+                runner.test("with file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    fileSystem.setFileContent("/source.jar", CharacterEncoding.UTF_8.encode("abc").getValue());
+                    try
+                    {
+                        final FileCopy.CopyResult result = FileCopy.copy(fileSystem.getFile("/source.jar").getValue(), fileSystem.getFile("/a/b/destination.jar").getValue());
+                        test.assertEqual(3L, result.getByteCount());
+                        test.assertEqual("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", result.getSha256());
+                        test.assertEqual("abc", new String(fileSystem.getFile("/a/b/destination.jar").getValue().getContents().getValue(), java.nio.charset.StandardCharsets.UTF_8));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with empty file that replaces an existing file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    fileSystem.setFileContent("/source.jar", new byte[0]);
+                    fileSystem.setFileContent("/destination.jar", new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileCopy.CopyResult result = FileCopy.copy(fileSystem.getFile("/source.jar").getValue(), fileSystem.getFile("/destination.jar").getValue());
+                        test.assertEqual(0L, result.getByteCount());
+                        test.assertEqual("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", result.getSha256());
+                        test.assertEqual(0, fileSystem.getFile("/destination.jar").getValue().getContents().getValue().length);
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+
+            runner.test("CopyResult.toString()", (Test test) ->
+            {
+                final FileCopy.CopyResult result = new FileCopy.CopyResult(4L * 1024 * 1024, 500, "");
+                test.assertEqual("4.0 MB in 0.5 seconds, 8.0 MB/s", result.toString());
+            });
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package qub;
+
+public class GlobPatternTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(GlobPattern.class, () ->
+        {
+            runner.testGroup("matches(String)", () ->
+            {
+                final Action3<String,String,Boolean> matchesTest = (String pattern, String relativePath, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(pattern) + " and " + Strings.escapeAndQuote(relativePath), (Test test) ->
+                    {
+                        test.assertEqual(expected, GlobPattern.parse(pattern).matches(relativePath));
+                    });
+                };
+
+                matchesTest.run("A.java", "A.java", true);
+                matchesTest.run("A.java", "p/A.java", false);
+                matchesTest.run("*.java", "A.java", true);
+                matchesTest.run("*.java", "p/A.java", false);
+                matchesTest.run("p/*.java", "p/A.java", true);
+                matchesTest.run("**/*.java", "A.java", true);
+                matchesTest.run("**/*.java", "p/q/A.java", true);
+                matchesTest.run("**/*Tests.java", "p/ATests.java", true);
+                matchesTest.run("**/*Tests.java", "p/A.java", false);
+                matchesTest.run("generated/**", "generated/p/A.java", true);
+                matchesTest.run("generated/**", "p/generated/A.java", false);
+                matchesTest.run("?.java", "A.java", true);
+                matchesTest.run("?.java", "AB.java", false);
+                matchesTest.run("./p/*.java", "p/A.java", true);
+                matchesTest.run("p\\*.java", "p/A.java", true);
+                matchesTest.run("a+b.java", "a+b.java", true);
+                matchesTest.run("a+b.java", "aab.java", false);
+            });
+
+            runner.testGroup("matchesEverythingUnder(String)", () ->
+            {
+                final Action3<String,String,Boolean> matchesEverythingUnderTest = (String pattern, String relativeFolderPath, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(pattern) + " and " + Strings.escapeAndQuote(relativeFolderPath), (Test test) ->
+                    {
+                        test.assertEqual(expected, GlobPattern.parse(pattern).matchesEverythingUnder(relativeFolderPath));
+                    });
+                };
+
+                matchesEverythingUnderTest.run("**", "p", true);
+                matchesEverythingUnderTest.run("generated/**", "generated", true);
+                matchesEverythingUnderTest.run("generated/**", "p", false);
+                matchesEverythingUnderTest.run("**/generated/**", "p/generated", true);
+                matchesEverythingUnderTest.run("generated/*.java", "generated", false);
+            });
+
+            runner.testGroup("mightMatchUnder(String)", () ->
+            {
+                final Action3<String,String,Boolean> mightMatchUnderTest = (String pattern, String relativeFolderPath, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(pattern) + " and " + Strings.escapeAndQuote(relativeFolderPath), (Test test) ->
+                    {
+                        test.assertEqual(expected, GlobPattern.parse(pattern).mightMatchUnder(relativeFolderPath));
+                    });
+                };
+
+                mightMatchUnderTest.run("*.class", "", true);
+                mightMatchUnderTest.run("*.class", "p", false);
+                mightMatchUnderTest.run("**/*.class", "p/q", true);
+                mightMatchUnderTest.run("outputs/*/coverage", "outputs", true);
+                mightMatchUnderTest.run("outputs/*/coverage", "outputs/p", true);
+                mightMatchUnderTest.run("outputs/*/coverage", "outputs/p/coverage", false);
+                mightMatchUnderTest.run("outputs/*/coverage", "sources", false);
+                mightMatchUnderTest.run("outputs/**/coverage", "outputs/p/q", true);
+            });
+
+            runner.testGroup("isGlob(String)", () ->
+            {
+                final Action2<String,Boolean> isGlobTest = (String text, Boolean expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, GlobPattern.isGlob(text));
+                    });
+                };
+
+                isGlobTest.run("outputs", false);
+                isGlobTest.run("outputs/A.class", false);
+                isGlobTest.run("**/*.class", true);
+                isGlobTest.run("?.txt", true);
+            });
+
+            runner.testGroup("isSelected(String,Iterable<GlobPattern>,Iterable<GlobPattern>)", () ->
+            {
+                runner.test("with no patterns", (Test test) ->
+                {
+                    test.assertTrue(GlobPattern.isSelected("p/A.java", java.util.Collections.emptyList(), java.util.Collections.emptyList()));
+                });
+
+                runner.test("with a matching include", (Test test) ->
+                {
+                    test.assertTrue(GlobPattern.isSelected("p/A.java", java.util.Arrays.asList(GlobPattern.parse("p/**")), java.util.Collections.emptyList()));
+                });
+
+                runner.test("with no matching include", (Test test) ->
+                {
+                    test.assertFalse(GlobPattern.isSelected("q/A.java", java.util.Arrays.asList(GlobPattern.parse("p/**")), java.util.Collections.emptyList()));
+                });
+
+                runner.test("with a matching include and a matching exclude", (Test test) ->
+                {
+                    test.assertFalse(GlobPattern.isSelected("p/A.java", java.util.Arrays.asList(GlobPattern.parse("p/**")), java.util.Arrays.asList(GlobPattern.parse("**/A.java"))));
+                });
+            });
+        });
+    }
+}
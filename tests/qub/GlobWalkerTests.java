@@ -0,0 +1,56 @@
+package qub;
+
+public class GlobWalkerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(GlobWalker.class, () ->
+        {
+            runner.testGroup("find(Folder,Iterable<GlobPattern>,boolean,boolean)", () ->
+            {
+                final Function1<Test,Folder> createProjectFolder = (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFile("/project/outputs/A.class");
+                    fileSystem.createFile("/project/outputs/p/B.class");
+                    fileSystem.createFile("/project/outputs/p/coverage/index.html");
+                    fileSystem.createFile("/project/sources/A.java");
+                    return fileSystem.getFolder("/project").getValue();
+                };
+
+                runner.test("with folder that doesn't exist", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    final Folder folder = fileSystem.getFolder("/project").getValue();
+                    test.assertEqual(new Array<FileSystemEntry>(0), GlobWalker.find(folder, java.util.Arrays.asList(GlobPattern.parse("**")), true, true));
+                });
+
+                runner.test("with file pattern", (Test test) ->
+                {
+                    final Folder folder = createProjectFolder.run(test);
+                    test.assertEqual(
+                        Array.create(new String[] { "/project/outputs/A.class", "/project/outputs/p/B.class" }),
+                        GlobWalker.find(folder, java.util.Arrays.asList(GlobPattern.parse("**/*.class")), true, true).map(FileSystemEntry::toString));
+                });
+
+                runner.test("with folder pattern", (Test test) ->
+                {
+                    final Folder folder = createProjectFolder.run(test);
+                    test.assertEqual(
+                        Array.create(new String[] { "/project/outputs/p/coverage" }),
+                        GlobWalker.find(folder, java.util.Arrays.asList(GlobPattern.parse("outputs/*/coverage")), true, true).map(FileSystemEntry::toString));
+                });
+
+                runner.test("with files excluded", (Test test) ->
+                {
+                    final Folder folder = createProjectFolder.run(test);
+                    test.assertEqual(
+                        Array.create(new String[] { "/project/outputs", "/project/sources" }),
+                        GlobWalker.find(folder, java.util.Arrays.asList(GlobPattern.parse("*")), false, true).map(FileSystemEntry::toString));
+                });
+            });
+        });
+    }
+}
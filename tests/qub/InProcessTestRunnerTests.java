@@ -0,0 +1,39 @@
+package qub;
+
+public class InProcessTestRunnerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InProcessTestRunner.class, () ->
+        {
+            runner.testGroup("create(Iterable<String>,Console)", () ->
+            {
+                runner.test("with classpath that doesn't contain qub.ConsoleTestRunner", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    final Console console = new Console();
+                    console.setLineSeparator("\n");
+                    console.setOutput(output);
+
+                    final String classpath = System.getProperty("java.io.tmpdir");
+                    test.assertNull(InProcessTestRunner.create(ArrayList.fromValues(new String[] { classpath }), console));
+                    test.assertTrue(output.getText().getValue().startsWith("The tests can't be run in-process ("));
+                });
+
+                runner.test("with in-memory file system", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    final Console console = new Console();
+                    console.setLineSeparator("\n");
+                    console.setOutput(output);
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    console.setFileSystem(fileSystem);
+
+                    test.assertNull(InProcessTestRunner.create(ArrayList.fromValues(new String[] { "/outputs" }), console));
+                    test.assertEqual("The tests can't be run in-process (the classpath isn't on the local file system), so they will be run in a separate process.\n", output.getText().getValue());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package qub;
+
+public class JSONStringsTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JSONStrings.class, () ->
+        {
+            runner.testGroup("quote(String)", () ->
+            {
+                final Action2<String,String> quoteTest = (String text, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, JSONStrings.quote(text));
+                    });
+                };
+
+                quoteTest.run("", "\"\"");
+                quoteTest.run("abc", "\"abc\"");
+                quoteTest.run("a \"b\" c", "\"a \\\"b\\\" c\"");
+                quoteTest.run("a\\b", "\"a\\\\b\"");
+                quoteTest.run("a\nb\r\tc", "\"a\\nb\\r\\tc\"");
+                quoteTest.run("a\u0001b", "\"a\\u0001b\"");
+                quoteTest.run("it's", "\"it's\"");
+            });
+
+            runner.testGroup("unquote(JSONQuotedString)", () ->
+            {
+                final Action2<String,String> unquoteTest = (String json, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(json), (Test test) ->
+                    {
+                        final JSONSegment value = ((JSONObject)JSON.parse("{\"a\":" + json + "}").getRoot()).getPropertyValue("a");
+                        test.assertEqual(expected, JSONStrings.unquote((JSONQuotedString)value));
+                    });
+                };
+
+                unquoteTest.run("\"\"", "");
+                unquoteTest.run("\"abc\"", "abc");
+                unquoteTest.run("\"a \\\"b\\\" c\"", "a \"b\" c");
+                unquoteTest.run("\"a\\\\b\\/c\"", "a\\b/c");
+                unquoteTest.run("\"a\\nb\\r\\tc\"", "a\nb\r\tc");
+                unquoteTest.run("\"a\\u0041b\"", "aAb");
+                unquoteTest.run("\"a\\qb\"", null);
+                unquoteTest.run("\"a\\u00\"", null);
+            });
+        });
+    }
+}
@@ -0,0 +1,241 @@
+package qub;
+
+public class JarFileWriterTests
+{
+    /**
+     * Create a content folder with two class files and a manifest that JarFileWriter replaces.
+     */
+    private static Folder createContentFolder(InMemoryFileSystem fileSystem)
+    {
+        writeFile(fileSystem, "/content/a/A.class", "class A");
+        writeFile(fileSystem, "/content/a/b/B.class", "class B");
+        writeFile(fileSystem, "/content/META-INF/MANIFEST.MF", "Stale manifest");
+        return fileSystem.getFolder("/content").getValue();
+    }
+
+    private static InMemoryFileSystem createFileSystem(Test test)
+    {
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+        fileSystem.createRoot("/");
+        return fileSystem;
+    }
+
+    private static void writeFile(InMemoryFileSystem fileSystem, String filePath, String contents)
+    {
+        fileSystem.setFileContent(filePath, CharacterEncoding.UTF_8.encode(contents).getValue());
+    }
+
+    /**
+     * Read the entry names and contents of the provided jar file, in the order that they appear.
+     */
+    private static java.util.List<String> readEntries(File jarFile) throws java.io.IOException
+    {
+        final java.util.List<String> result = new java.util.ArrayList<>();
+        try (final java.util.zip.ZipInputStream jarStream = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarFile.getContents().getValue())))
+        {
+            java.util.zip.ZipEntry entry = jarStream.getNextEntry();
+            while (entry != null)
+            {
+                final java.io.ByteArrayOutputStream contents = new java.io.ByteArrayOutputStream();
+                final byte[] buffer = new byte[1024];
+                int bytesRead = jarStream.read(buffer);
+                while (bytesRead >= 0)
+                {
+                    contents.write(buffer, 0, bytesRead);
+                    bytesRead = jarStream.read(buffer);
+                }
+                result.add(entry.getName() + "=" + new String(contents.toByteArray(), java.nio.charset.StandardCharsets.UTF_8).trim());
+                entry = jarStream.getNextEntry();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the compression method of the entry with the provided name in the provided jar file.
+     */
+    private static int getEntryMethod(File jarFile, String entryName) throws java.io.IOException
+    {
+        int result = -1;
+        try (final java.util.zip.ZipInputStream jarStream = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(jarFile.getContents().getValue())))
+        {
+            java.util.zip.ZipEntry entry = jarStream.getNextEntry();
+            while (entry != null && result == -1)
+            {
+                if (entry.getName().equals(entryName))
+                {
+                    result = entry.getMethod();
+                }
+                entry = jarStream.getNextEntry();
+            }
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JarFileWriter.class, () ->
+        {
+            runner.testGroup("getManifestBytes()", () ->
+            {
+                runner.test("with no main class", (Test test) ->
+                {
+                    final JarFileWriter writer = new JarFileWriter();
+                    test.assertEqual("Manifest-Version: 1.0\r\n\r\n", new String(writer.getManifestBytes(), java.nio.charset.StandardCharsets.UTF_8));
+                });
+
+                runner.test("with main class", (Test test) ->
+                {
+                    final JarFileWriter writer = new JarFileWriter().setMainClass("a.A");
+                    test.assertEqual("Manifest-Version: 1.0\r\nMain-Class: a.A\r\n\r\n", new String(writer.getManifestBytes(), java.nio.charset.StandardCharsets.UTF_8));
+                });
+            });
+
+            runner.testGroup("write(Folder,File)", () ->
+            {
+                runner.test("with no existing jar file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File jarFile = fileSystem.getFile("/content.jar").getValue();
+
+                        test.assertEqual(5, new JarFileWriter().setMainClass("a.A").write(contentFolder, jarFile));
+                        test.assertEqual(
+                            java.util.Arrays.asList(
+                                "META-INF/MANIFEST.MF=Manifest-Version: 1.0\r\nMain-Class: a.A",
+                                "a/=",
+                                "a/A.class=class A",
+                                "a/b/=",
+                                "a/b/B.class=class B"),
+                            readEntries(jarFile));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("is reproducible", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File jarFile1 = fileSystem.getFile("/content1.jar").getValue();
+                        final File jarFile2 = fileSystem.getFile("/content2.jar").getValue();
+
+                        new JarFileWriter().write(contentFolder, jarFile1);
+                        new JarFileWriter().write(contentFolder, jarFile2);
+                        test.assertTrue(java.util.Arrays.equals(jarFile1.getContents().getValue(), jarFile2.getContents().getValue()));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with stored entries", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File jarFile = fileSystem.getFile("/content.jar").getValue();
+
+                        new JarFileWriter().setCompressionLevel(java.util.zip.Deflater.NO_COMPRESSION).write(contentFolder, jarFile);
+                        test.assertEqual(java.util.zip.ZipEntry.STORED, getEntryMethod(jarFile, "a/A.class"));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with unchanged existing jar file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File jarFile = fileSystem.getFile("/content.jar").getValue();
+
+                        new JarFileWriter().write(contentFolder, jarFile);
+                        test.assertEqual(0, new JarFileWriter().write(contentFolder, jarFile));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with changed entry", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File jarFile = fileSystem.getFile("/content.jar").getValue();
+
+                        new JarFileWriter().write(contentFolder, jarFile);
+                        writeFile(fileSystem, "/content/a/b/B.class", "new class B");
+                        test.assertEqual(5, new JarFileWriter().write(contentFolder, jarFile));
+                        test.assertEqual(
+                            java.util.Arrays.asList(
+                                "META-INF/MANIFEST.MF=Manifest-Version: 1.0",
+                                "a/=",
+                                "a/A.class=class A",
+                                "a/b/=",
+                                "a/b/B.class=new class B"),
+                            readEntries(jarFile));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with changed entry is the same as a new jar file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File updatedJarFile = fileSystem.getFile("/content-updated.jar").getValue();
+                        final File newJarFile = fileSystem.getFile("/content-new.jar").getValue();
+
+                        new JarFileWriter().write(contentFolder, updatedJarFile);
+                        writeFile(fileSystem, "/content/a/b/B.class", "new class B");
+                        new JarFileWriter().write(contentFolder, updatedJarFile);
+                        new JarFileWriter().write(contentFolder, newJarFile);
+                        test.assertTrue(java.util.Arrays.equals(newJarFile.getContents().getValue(), updatedJarFile.getContents().getValue()));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with added entry", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    try
+                    {
+                        final Folder contentFolder = createContentFolder(fileSystem);
+                        final File jarFile = fileSystem.getFile("/content.jar").getValue();
+
+                        new JarFileWriter().write(contentFolder, jarFile);
+                        writeFile(fileSystem, "/content/a/C.class", "class C");
+                        test.assertEqual(6, new JarFileWriter().write(contentFolder, jarFile));
+                        test.assertEqual("a/C.class=class C", readEntries(jarFile).get(3));
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package qub;
+
+public class JavaFileWalkerTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JavaFileWalker.class, () ->
+        {
+            runner.testGroup("getJavaFiles(Folder,Iterable<GlobPattern>,Iterable<GlobPattern>)", () ->
+            {
+                final Function1<Test,Folder> createSourcesFolder = (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFile("/sources/p/A.java");
+                    fileSystem.createFile("/sources/p/B.java");
+                    fileSystem.createFile("/sources/p/notes.txt");
+                    fileSystem.createFile("/sources/generated/p/C.java");
+                    fileSystem.createFile("/sources/.hidden/D.java");
+                    return fileSystem.getFolder("/sources").getValue();
+                };
+
+                runner.test("with folder that doesn't exist", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    final Folder folder = fileSystem.getFolder("/sources").getValue();
+                    test.assertEqual(new Array<File>(0), JavaFileWalker.getJavaFiles(folder, java.util.Collections.emptyList(), java.util.Collections.emptyList()));
+                });
+
+                runner.test("with no patterns", (Test test) ->
+                {
+                    final Folder folder = createSourcesFolder.run(test);
+                    test.assertEqual(
+                        Array.create(new String[] { "/sources/generated/p/C.java", "/sources/p/A.java", "/sources/p/B.java" }),
+                        JavaFileWalker.getJavaFiles(folder, java.util.Collections.emptyList(), java.util.Collections.emptyList()).map(File::toString));
+                });
+
+                runner.test("with an include pattern", (Test test) ->
+                {
+                    final Folder folder = createSourcesFolder.run(test);
+                    test.assertEqual(
+                        Array.create(new String[] { "/sources/p/A.java" }),
+                        JavaFileWalker.getJavaFiles(folder, java.util.Arrays.asList(GlobPattern.parse("**/A.java")), java.util.Collections.emptyList()).map(File::toString));
+                });
+
+                runner.test("with an excluded folder", (Test test) ->
+                {
+                    final Folder folder = createSourcesFolder.run(test);
+                    test.assertEqual(
+                        Array.create(new String[] { "/sources/p/A.java", "/sources/p/B.java" }),
+                        JavaFileWalker.getJavaFiles(folder, java.util.Collections.emptyList(), java.util.Arrays.asList(GlobPattern.parse("generated/**"))).map(File::toString));
+                });
+            });
+        });
+    }
+}
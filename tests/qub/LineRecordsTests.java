@@ -0,0 +1,86 @@
+package qub;
+
+public class LineRecordsTests
+{
+    private static java.util.List<java.util.List<String>> toLists(LineRecords records)
+    {
+        final java.util.List<java.util.List<String>> result = new java.util.ArrayList<>();
+        for (final String[] record : records)
+        {
+            result.add(java.util.Arrays.asList(record));
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(LineRecords.class, () ->
+        {
+            runner.testGroup("toString()", () ->
+            {
+                runner.test("with no records", (Test test) ->
+                {
+                    test.assertEqual("", new LineRecords().toString());
+                });
+
+                runner.test("with records", (Test test) ->
+                {
+                    final LineRecords records = new LineRecords()
+                        .add("settings", "abc")
+                        .add("a/A.java")
+                        .add("a", "", "c");
+                    test.assertEqual(3, records.getCount());
+                    test.assertEqual("settings\tabc\na/A.java\na\t\tc\n", records.toString());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(LineRecords.parse(null));
+                });
+
+                runner.test("with empty lines and Windows line breaks", (Test test) ->
+                {
+                    final LineRecords records = LineRecords.parse("\na\tb\r\n\r\nc\n");
+                    test.assertEqual(
+                        java.util.Arrays.asList(java.util.Arrays.asList("a", "b"), java.util.Arrays.asList("c")),
+                        toLists(records));
+                });
+
+                runner.test("with empty fields", (Test test) ->
+                {
+                    final LineRecords records = LineRecords.parse("a\t\t\n");
+                    test.assertEqual(java.util.Arrays.asList(java.util.Arrays.asList("a", "", "")), toLists(records));
+                });
+            });
+
+            runner.test("join(String...) and split(String)", (Test test) ->
+            {
+                test.assertEqual("a\tb\t", LineRecords.join("a", "b", ""));
+                test.assertEqual(java.util.Arrays.asList("a", "b", ""), java.util.Arrays.asList(LineRecords.split("a\tb\t")));
+            });
+
+            runner.testGroup("read(File) and write(File)", () ->
+            {
+                runner.test("with file that doesn't exist", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    test.assertNull(LineRecords.read(fileSystem.getFile("/a.records").getValue()));
+                });
+
+                runner.test("with written file", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    final File file = fileSystem.getFile("/folder/a.records").getValue();
+
+                    new LineRecords().add("a", "1").add("b", "2").write(file);
+                    test.assertEqual("a\t1\nb\t2\n", LineRecords.read(file).toString());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package qub;
+
+public class ParallelDeleteTests
+{
+    private static InMemoryFileSystem createFileSystem(Test test)
+    {
+        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+        fileSystem.createRoot("/");
+        return fileSystem;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ParallelDelete.class, () ->
+        {
+            runner.testGroup("delete(Folder,int)", () ->
+            {
+                runner.test("with folder that doesn't exist", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    final ParallelDelete.DeleteResult result = ParallelDelete.delete(fileSystem.getFolder("/root").getValue(), 4);
+                    test.assertTrue(result.succeeded());
+                    test.assertEqual(0L, result.getFileCount());
+                    test.assertEqual(0L, result.getFolderCount());
+                });
+
+                runner.test("with nested files", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    for (int i = 0; i < 300; ++i)
+                    {
+                        fileSystem.setFileContent("/root/folder" + (i % 3) + "/file" + i + ".txt", new byte[] { 1, 2 });
+                    }
+
+                    final ParallelDelete.DeleteResult result = ParallelDelete.delete(fileSystem.getFolder("/root").getValue(), 4);
+                    test.assertTrue(result.succeeded());
+                    test.assertEqual(300L, result.getFileCount());
+                    test.assertEqual(4L, result.getFolderCount());
+                    test.assertEqual(600L, result.getByteCount());
+                    test.assertSuccess(false, fileSystem.folderExists("/root"));
+                });
+
+                runner.test("with file that can't be deleted", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = createFileSystem(test);
+                    fileSystem.setFileContent("/root/a.txt", new byte[] { 1 });
+                    fileSystem.setFileContent("/root/b.txt", new byte[] { 2 });
+                    fileSystem.setFileCanDelete("/root/b.txt", false);
+
+                    final ParallelDelete.DeleteResult result = ParallelDelete.delete(fileSystem.getFolder("/root").getValue(), 4);
+                    test.assertFalse(result.succeeded());
+                    test.assertEqual(1L, result.getFileCount());
+                    test.assertEqual(0L, result.getFolderCount());
+                    test.assertEqual(2L, result.getFailedCount());
+                    test.assertSuccess(false, fileSystem.fileExists("/root/a.txt"));
+                    test.assertSuccess(true, fileSystem.fileExists("/root/b.txt"));
+                });
+            });
+
+            runner.test("delete(Iterable<FileSystemEntry>,int) with overlapping entries", (Test test) ->
+            {
+                final InMemoryFileSystem fileSystem = createFileSystem(test);
+                fileSystem.setFileContent("/root/folder/file.txt", new byte[] { 1, 2, 3 });
+
+                final List<FileSystemEntry> entries = new ArrayList<>();
+                entries.add(fileSystem.getFile("/root/folder/file.txt").getValue());
+                entries.add(fileSystem.getFolder("/root").getValue());
+
+                final ParallelDelete.DeleteResult result = ParallelDelete.delete(entries, 2);
+                test.assertTrue(result.succeeded());
+                test.assertEqual(1L, result.getFileCount());
+                test.assertEqual(2L, result.getFolderCount());
+                test.assertEqual(3L, result.getByteCount());
+                test.assertSuccess(false, fileSystem.folderExists("/root"));
+            });
+
+            runner.testGroup("DeleteResult.toSizeString(long)", () ->
+            {
+                final Action2<Long,String> toSizeStringTest = (Long byteCount, String expected) ->
+                {
+                    runner.test("with " + byteCount, (Test test) ->
+                    {
+                        test.assertEqual(expected, ParallelDelete.DeleteResult.toSizeString(byteCount));
+                    });
+                };
+
+                toSizeStringTest.run(0L, "0 bytes");
+                toSizeStringTest.run(1L, "1 byte");
+                toSizeStringTest.run(1023L, "1023 bytes");
+                toSizeStringTest.run(1536L, "1.5 KB");
+                toSizeStringTest.run(3L * 1024 * 1024, "3.0 MB");
+                toSizeStringTest.run(5L * 1024 * 1024 * 1024, "5.0 GB");
+            });
+
+            runner.test("DeleteResult.toString()", (Test test) ->
+            {
+                final ParallelDelete.DeleteResult result = new ParallelDelete.DeleteResult();
+                result.fileCount.set(1);
+                result.folderCount.set(2);
+                result.byteCount.set(2048);
+                result.durationMilliseconds = 1250;
+                test.assertEqual("1 file, 2 folders, 2.0 KB, 1.3 seconds", result.toString());
+
+                result.failedCount.set(3);
+                test.assertEqual("1 file, 2 folders, 2.0 KB, 1.3 seconds, 3 couldn't be deleted", result.toString());
+            });
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package qub;
+
+public class ProfilerTests
+{
+    private static java.util.List<String> getSpanColumns(String summary)
+    {
+        final java.util.List<String> result = new java.util.ArrayList<>();
+        final String[] lines = summary.split("\r?\n");
+        for (int i = 1; i < lines.length; ++i)
+        {
+            // The Span column starts after the Total, Max, and Count columns.
+            result.add(lines[i].substring(31));
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(Profiler.class, () ->
+        {
+            runner.testGroup("start(Console,String)", () ->
+            {
+                runner.test("with Console that isn't being profiled", (Test test) ->
+                {
+                    final Console console = new Console();
+                    test.assertNull(Profiler.get(console));
+                    try (final Profiler.Span span = Profiler.start(console, "build"))
+                    {
+                        test.assertNotNull(span);
+                    }
+                    test.assertNull(Profiler.get(console));
+                });
+
+                runner.test("with Console that is being profiled", (Test test) ->
+                {
+                    final Console console = new Console();
+                    final Profiler profiler = Profiler.enable(console);
+                    test.assertEqual(profiler, Profiler.get(console));
+                    try (final Profiler.Span span = Profiler.start(console, "build"))
+                    {
+                        test.assertNotNull(span);
+                    }
+                    test.assertEqual(java.util.Arrays.asList("build"), getSpanColumns(profiler.toSummary()));
+                });
+
+                runner.test("with shared Console", (Test test) ->
+                {
+                    final Console console = new Console();
+                    final Console projectConsole = new Console();
+                    final Profiler profiler = Profiler.enable(console);
+                    Profiler.share(console, projectConsole);
+                    test.assertEqual(profiler, Profiler.get(projectConsole));
+                });
+            });
+
+            runner.testGroup("toSummary()", () ->
+            {
+                runner.test("with no spans", (Test test) ->
+                {
+                    final Profiler profiler = new Profiler();
+                    test.assertEqual(java.util.Collections.emptyList(), getSpanColumns(profiler.toSummary()));
+                });
+
+                runner.test("with nested spans", (Test test) ->
+                {
+                    final Profiler profiler = new Profiler();
+                    try (final Profiler.Span build = profiler.start("build"))
+                    {
+                        try (final Profiler.Span javac = profiler.start("javac sources"))
+                        {
+                        }
+                        try (final Profiler.Span javac = profiler.start("javac sources"))
+                        {
+                        }
+                        try (final Profiler.Span jar = profiler.start("jar"))
+                        {
+                        }
+                    }
+                    try (final Profiler.Span tests = profiler.start("run tests"))
+                    {
+                    }
+
+                    final String summary = profiler.toSummary();
+                    test.assertEqual(java.util.Arrays.asList("build", "  javac sources", "  jar", "run tests"), getSpanColumns(summary));
+                    test.assertTrue(summary.split("\r?\n")[2].contains("      2  "));
+                });
+
+                runner.test("with span started on another thread", (Test test) ->
+                {
+                    final Profiler profiler = new Profiler();
+                    try (final Profiler.Span build = profiler.start("build"))
+                    {
+                        final Thread thread = new Thread(() ->
+                        {
+                            try (final Profiler.Span task = profiler.start("compile-sources"))
+                            {
+                            }
+                        });
+                        thread.start();
+                        thread.join();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+
+                    test.assertEqual(java.util.Arrays.asList("build", "  compile-sources"), getSpanColumns(profiler.toSummary()));
+                });
+
+                runner.test("with span closed twice", (Test test) ->
+                {
+                    final Profiler profiler = new Profiler();
+                    final Profiler.Span span = profiler.start("build");
+                    span.close();
+                    span.close();
+                    test.assertTrue(profiler.toSummary().split("\r?\n")[1].contains("      1  build"));
+                });
+            });
+
+            runner.testGroup("toTraceJson()", () ->
+            {
+                runner.test("with no spans", (Test test) ->
+                {
+                    final Profiler profiler = new Profiler();
+                    test.assertEqual("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n]}\n", profiler.toTraceJson());
+                });
+
+                runner.test("with span", (Test test) ->
+                {
+                    final Profiler profiler = new Profiler();
+                    try (final Profiler.Span span = profiler.start("parse \"project.json\""))
+                    {
+                    }
+
+                    final String traceJson = profiler.toTraceJson();
+                    final long threadId = Thread.currentThread().getId();
+                    test.assertTrue(traceJson.contains("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + threadId + ",\"args\":{\"name\":" + JSONStrings.quote(Thread.currentThread().getName()) + "}}"));
+                    test.assertTrue(traceJson.contains("{\"name\":\"parse \\\"project.json\\\"\",\"cat\":\"qub\",\"ph\":\"X\",\"pid\":1,\"tid\":" + threadId + ",\"ts\":"));
+                });
+            });
+        });
+    }
+}
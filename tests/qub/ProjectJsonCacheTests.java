@@ -0,0 +1,122 @@
+package qub;
+
+public class ProjectJsonCacheTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ProjectJsonCache.class, () ->
+        {
+            runner.testGroup("get(Console,File)", () ->
+            {
+                runner.test("with the same Console twice", (Test test) ->
+                {
+                    try (final Console console = new Console())
+                    {
+                        console.setLineSeparator("\n");
+
+                        final InMemoryLineStream output = new InMemoryLineStream();
+                        console.setOutput(output);
+
+                        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                        fileSystem.createRoot("/");
+                        fileSystem.setFileContent("/project.json", CharacterEncoding.UTF_8.encode("{\"publisher\":\"a\"}").getValue());
+                        console.setFileSystem(fileSystem);
+                        console.setCurrentFolderPathString("/");
+
+                        final File projectJsonFile = fileSystem.getFile("/project.json").getValue();
+                        final ProjectJson projectJson = ProjectJsonCache.get(console, projectJsonFile);
+                        test.assertTrue(projectJson == ProjectJsonCache.get(console, projectJsonFile));
+                        test.assertTrue(projectJson == ProjectJson.parse(console));
+
+                        test.assertSuccess(
+                            "A \"project\" quoted-string property must be specified in the rootObject object of the project.json file.\n" +
+                            "A \"version\" quoted-string property must be specified in the rootObject object of the project.json file.\n" +
+                            "project.json root object must contain a \"java\" property.\n",
+                            output.getText());
+                    }
+                    catch (Exception e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+
+                runner.test("with a changed project.json file", (Test test) ->
+                {
+                    try (final Console console = new Console())
+                    {
+                        final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                        fileSystem.createRoot("/");
+                        fileSystem.setFileContent("/project.json", CharacterEncoding.UTF_8.encode("{\"publisher\":\"a\",\"project\":\"b\",\"version\":\"1\",\"java\":{}}").getValue());
+                        console.setFileSystem(fileSystem);
+                        console.setCurrentFolderPathString("/");
+
+                        final File projectJsonFile = fileSystem.getFile("/project.json").getValue();
+                        test.assertEqual("1", ProjectJsonCache.get(console, projectJsonFile).getVersion());
+
+                        fileSystem.setFileContent("/project.json", CharacterEncoding.UTF_8.encode("{\"publisher\":\"a\",\"project\":\"b\",\"version\":\"2\",\"java\":{}}").getValue());
+                        test.assertEqual("2", ProjectJsonCache.get(console, projectJsonFile).getVersion());
+                    }
+                    catch (Exception e)
+                    {
+                        Exceptions.throwAsRuntime(e);
+                    }
+                });
+            });
+
+            runner.testGroup("parseSnapshot(byte[],Folder)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    test.assertNull(ProjectJsonCache.parseSnapshot(null, fileSystem.getFolder("/").getValue()));
+                });
+
+                runner.test("with bytes that aren't a snapshot", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    test.assertNull(ProjectJsonCache.parseSnapshot(new byte[] { 1, 2, 3 }, fileSystem.getFolder("/").getValue()));
+                });
+
+                runner.test("with toSnapshot() result", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.setFileContent("/project.json", CharacterEncoding.UTF_8.encode(
+                        "{\"publisher\":\"a\",\"project\":\"b\",\"version\":\"1\",\"java\":{\"mainClass\":\"a.Main\",\"lineCoverageRequirement\":50,\"dependencies\":[{\"publisher\":\"c\",\"project\":\"d\",\"version\":\"2\"}]}}").getValue());
+                    final Folder projectFolder = fileSystem.getFolder("/").getValue();
+
+                    final List<String> errors = new ArrayList<>();
+                    final ProjectJson projectJson = ProjectJson.parse(projectFolder, projectFolder.getFile("project.json").getValue().getContents().getValue(), errors);
+                    test.assertEqual(new Array<String>(0), errors);
+
+                    final ProjectJsonCache.Entry entry = ProjectJsonCache.parseSnapshot(ProjectJsonCache.toSnapshot(new ProjectJsonCache.Entry(10, 20, "hash", projectJson), projectFolder), projectFolder);
+                    test.assertEqual(10L, entry.size);
+                    test.assertEqual(20L, entry.lastModified);
+                    test.assertEqual("hash", entry.contentHash);
+                    test.assertEqual("a", entry.projectJson.getPublisher());
+                    test.assertEqual("b", entry.projectJson.getProject());
+                    test.assertEqual("1", entry.projectJson.getVersion());
+                    test.assertEqual("a.Main", entry.projectJson.getMainClass());
+                    test.assertEqual(50.0, entry.projectJson.getJavaTestsLineCoverageRequirement());
+                    test.assertEqual("/outputs", entry.projectJson.getJavaOutputsFolder().toString());
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("c", "d", "2") }), entry.projectJson.getDependencies());
+                    test.assertNotNull(entry.projectJson.getJavaObject());
+                });
+
+                runner.test("with toSnapshot() result from a different project folder", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.setFileContent("/a/project.json", CharacterEncoding.UTF_8.encode("{\"publisher\":\"a\",\"project\":\"b\",\"version\":\"1\",\"java\":{}}").getValue());
+                    final Folder projectFolder = fileSystem.getFolder("/a").getValue();
+
+                    final ProjectJson projectJson = ProjectJson.parse(projectFolder, projectFolder.getFile("project.json").getValue().getContents().getValue(), new ArrayList<>());
+                    final byte[] snapshot = ProjectJsonCache.toSnapshot(new ProjectJsonCache.Entry(10, 20, "hash", projectJson), projectFolder);
+                    test.assertNull(ProjectJsonCache.parseSnapshot(snapshot, fileSystem.getFolder("/b").getValue()));
+                });
+            });
+        });
+    }
+}
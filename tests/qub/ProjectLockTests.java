@@ -0,0 +1,168 @@
+package qub;
+
+public class ProjectLockTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ProjectLock.class, () ->
+        {
+            runner.testGroup("toString()", () ->
+            {
+                runner.test("with no dependencies", (Test test) ->
+                {
+                    test.assertEqual(
+                        "{\n  \"dependencies\": [],\n  \"resolved\": []\n}\n",
+                        new ProjectLock(java.util.Collections.emptyList(), java.util.Collections.emptyList()).toString());
+                });
+
+                runner.test("with dependencies", (Test test) ->
+                {
+                    final ProjectLock lock = new ProjectLock(
+                        java.util.Arrays.asList(new Dependency("a", "b", "1.*")),
+                        java.util.Arrays.asList(new Dependency("a", "b", "1.2"), new Dependency("c", "d", "3")));
+                    test.assertEqual(
+                        "{\n" +
+                        "  \"dependencies\": [\n" +
+                        "    {\"publisher\": \"a\", \"project\": \"b\", \"version\": \"1.*\"}\n" +
+                        "  ],\n" +
+                        "  \"resolved\": [\n" +
+                        "    {\"publisher\": \"a\", \"project\": \"b\", \"version\": \"1.2\"},\n" +
+                        "    {\"publisher\": \"c\", \"project\": \"d\", \"version\": \"3\"}\n" +
+                        "  ]\n" +
+                        "}\n",
+                        lock.toString());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action1<String> parseNullTest = (String text) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertNull(ProjectLock.parse(text));
+                    });
+                };
+
+                parseNullTest.run(null);
+                parseNullTest.run("");
+                parseNullTest.run("[]");
+                parseNullTest.run("{\"dependencies\":[]}");
+                parseNullTest.run("{\"dependencies\":{},\"resolved\":[]}");
+
+                runner.test("with toString() result", (Test test) ->
+                {
+                    final ProjectLock lock = ProjectLock.parse(new ProjectLock(
+                        java.util.Arrays.asList(new Dependency("a", "b", "1.*")),
+                        java.util.Arrays.asList(new Dependency("a", "b", "1.2"), new Dependency("c", "d", "3"))).toString());
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("a", "b", "1.*") }), lock.getDeclaredDependencies());
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("a", "b", "1.2"), new Dependency("c", "d", "3") }), lock.getResolvedDependencies());
+                });
+            });
+
+            runner.testGroup("isLockOf(Iterable<Dependency>)", () ->
+            {
+                final ProjectLock lock = new ProjectLock(
+                    java.util.Arrays.asList(new Dependency("a", "b", "1.*"), new Dependency("c", "d", "3")),
+                    java.util.Arrays.asList(new Dependency("a", "b", "1.2"), new Dependency("c", "d", "3")));
+
+                runner.test("with the same dependencies", (Test test) ->
+                {
+                    test.assertTrue(lock.isLockOf(java.util.Arrays.asList(new Dependency("a", "b", "1.*"), new Dependency("c", "d", "3"))));
+                });
+
+                runner.test("with a changed version range", (Test test) ->
+                {
+                    test.assertFalse(lock.isLockOf(java.util.Arrays.asList(new Dependency("a", "b", "2.*"), new Dependency("c", "d", "3"))));
+                });
+
+                runner.test("with a removed dependency", (Test test) ->
+                {
+                    test.assertFalse(lock.isLockOf(java.util.Arrays.asList(new Dependency("a", "b", "1.*"))));
+                });
+            });
+
+            runner.testGroup("resolve(Iterable<Dependency>,Folder,Console)", () ->
+            {
+                runner.test("with no qub folder", (Test test) ->
+                {
+                    final ProjectLock lock = ProjectLock.resolve(java.util.Arrays.asList(new Dependency("a", "b", "1"), new Dependency("c", "d", "2")), null, null);
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("a", "b", "1"), new Dependency("c", "d", "2") }), lock.getResolvedDependencies());
+                });
+
+                runner.test("with transitive dependencies", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.setFileContent("/qub/a/b/1/project.json", CharacterEncoding.UTF_8.encode("{\"java\":{\"dependencies\":[{\"publisher\":\"c\",\"project\":\"d\",\"version\":\"2\"},{\"publisher\":\"e\",\"project\":\"f\",\"version\":\"3\"}]}}").getValue());
+                    fileSystem.setFileContent("/qub/e/f/3/project.json", CharacterEncoding.UTF_8.encode("{\"java\":{\"dependencies\":[{\"publisher\":\"g\",\"project\":\"h\",\"version\":\"4\"}]}}").getValue());
+                    final Folder qubFolder = fileSystem.getFolder("/qub").getValue();
+
+                    final ProjectLock lock = ProjectLock.resolve(java.util.Arrays.asList(new Dependency("a", "b", "1"), new Dependency("c", "d", "5")), qubFolder, null);
+                    test.assertEqual(
+                        Array.create(new Dependency[]
+                        {
+                            new Dependency("a", "b", "1"),
+                            new Dependency("c", "d", "5"),
+                            new Dependency("e", "f", "3"),
+                            new Dependency("g", "h", "4")
+                        }),
+                        lock.getResolvedDependencies());
+                    test.assertEqual(
+                        Array.create(new Dependency[]
+                        {
+                            new Dependency("c", "d", "5"),
+                            new Dependency("g", "h", "4")
+                        }),
+                        lock.getUnresolvedDependencies());
+                });
+            });
+
+            runner.testGroup("get(Iterable<Dependency>,Folder,Folder,Console)", () ->
+            {
+                runner.test("with installed dependencies", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFolder("/qub/a/b/1");
+                    final Folder qubFolder = fileSystem.getFolder("/qub").getValue();
+                    final Folder projectFolder = fileSystem.getFolder("/project").getValue();
+
+                    final ProjectLock lock = ProjectLock.get(java.util.Arrays.asList(new Dependency("a", "b", "1")), projectFolder, qubFolder, null);
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("a", "b", "1") }), lock.getResolvedDependencies());
+                    test.assertEqual(lock.toString(), ProjectLock.read(projectFolder.getFile(ProjectLock.fileName).getValue()).toString());
+                });
+
+                runner.test("with a dependency that isn't installed", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFolder("/qub/a/b/1");
+                    final Folder qubFolder = fileSystem.getFolder("/qub").getValue();
+                    final Folder projectFolder = fileSystem.getFolder("/project").getValue();
+
+                    final ProjectLock lock = ProjectLock.get(java.util.Arrays.asList(new Dependency("a", "b", "1"), new Dependency("c", "d", "2.*")), projectFolder, qubFolder, null);
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("c", "d", "2.*") }), lock.getUnresolvedDependencies());
+                    test.assertFalse(projectFolder.getFile(ProjectLock.fileName).getValue().exists().getValue());
+                });
+
+                runner.test("with a locked version that is no longer installed", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    fileSystem.createFolder("/qub/a/b/1.3");
+                    final Folder qubFolder = fileSystem.getFolder("/qub").getValue();
+                    final Folder projectFolder = fileSystem.getFolder("/project").getValue();
+                    final File lockFile = projectFolder.getFile(ProjectLock.fileName).getValue();
+                    new ProjectLock(
+                        java.util.Arrays.asList(new Dependency("a", "b", "1.*")),
+                        java.util.Arrays.asList(new Dependency("a", "b", "1.2"))).write(lockFile);
+
+                    final ProjectLock lock = ProjectLock.get(java.util.Arrays.asList(new Dependency("a", "b", "1.*")), projectFolder, qubFolder, null);
+                    test.assertEqual(Array.create(new Dependency[] { new Dependency("a", "b", "1.3") }), lock.getResolvedDependencies());
+                    test.assertEqual(lock.toString(), ProjectLock.read(lockFile).toString());
+                });
+            });
+        });
+    }
+}
@@ -3,22 +3,31 @@ package qub;
 public class QubCLITests
 {
     private static final String expectedUsageString =
-        "Usage: qub <action> [<action-options>]\n" +
+        "Usage: qub <action> [<action-options>] [-profile[=<trace-file>]]\n" +
         "Possible Actions:\n" +
         "  Build: Build the coding project in the current folder.\n" +
-        "    Usage: Build\n" +
+        "    Usage: Build [-compiler=<fork|inprocess>] [-watch] [-workspace]\n" +
+        "\n" +
+        "  Cache: Show statistics about or prune the machine-wide build output cache.\n" +
+        "    Usage: Cache <stats|prune> [-maxSize=<megabytes>]\n" +
         "\n" +
         "  Clean: Clean the coding project in the current folder.\n" +
-        "    Usage: Clean\n" +
+        "    Usage: Clean [-background]\n" +
+        "\n" +
+        "  Daemon: Run a background server that keeps the build and test machinery warm.\n" +
+        "    Usage: Daemon [-stop]\n" +
         "\n" +
         "  Delete: Delete a provided file or folder.\n" +
-        "    Usage: Delete [-file] [-folder] <file-folder-or-filter-to-delete> [<additional-file-folder-or-filter-to-delete> ...]\n" +
+        "    Usage: Delete [-file] [-folder] [-dryRun] <file-folder-or-filter-to-delete> [<additional-file-folder-or-filter-to-delete> ...]\n" +
         "\n" +
         "  Install: Install the coding project in the current folder into the system's Qub.\n" +
-        "    Usage: Install\n" +
+        "    Usage: Install [-workspace]\n" +
+        "\n" +
+        "  Stats: Show the recorded build, test, and install durations of the project in the current folder.\n" +
+        "    Usage: Stats [-action=<build|test|install>] [-runs=<count>] [-threshold=<percent>]\n" +
         "\n" +
         "  Test: Run the tests for the coding project in the current directory.\n" +
-        "    Usage: Test\n" +
+        "    Usage: Test [-pattern=<test-name-pattern>] [-coverage[=html]] [-compiler=<fork|inprocess>] [-parallelism=<count>] [-shards=<count>] [-affected] [-report=<junit|json>] [-slowest=<count>] [-failFast] [-timeout=<duration>] [-watch]\n" +
         "\n";
 
     private static Console createConsole(String[] commandLineArguments)
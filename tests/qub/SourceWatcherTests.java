@@ -0,0 +1,53 @@
+package qub;
+
+public class SourceWatcherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(SourceWatcher.class, () ->
+        {
+            runner.testGroup("Changes", () ->
+            {
+                runner.test("with no changes", (Test test) ->
+                {
+                    final SourceWatcher.Changes changes = new SourceWatcher.Changes();
+                    test.assertTrue(changes.isEmpty());
+                    test.assertEqual("Detected changes to 0 files.", changes.toString());
+                });
+
+                runner.test("with one changed file", (Test test) ->
+                {
+                    final SourceWatcher.Changes changes = new SourceWatcher.Changes();
+                    changes.changedPaths.add("/sources/p/A.java");
+                    test.assertFalse(changes.isEmpty());
+                    test.assertFalse(changes.getFilesAddedOrRemoved());
+                    test.assertEqual("Detected changes to 1 file.", changes.toString());
+                });
+
+                runner.test("with two changed files", (Test test) ->
+                {
+                    final SourceWatcher.Changes changes = new SourceWatcher.Changes();
+                    changes.changedPaths.add("/sources/p/A.java");
+                    changes.changedPaths.add("/tests/p/ATests.java");
+                    test.assertEqual("Detected changes to 2 files.", changes.toString());
+                });
+
+                runner.test("with changed project.json", (Test test) ->
+                {
+                    final SourceWatcher.Changes changes = new SourceWatcher.Changes();
+                    changes.projectJsonChanged = true;
+                    test.assertFalse(changes.isEmpty());
+                    test.assertEqual("Detected changes to project.json.", changes.toString());
+                });
+
+                runner.test("with overflow", (Test test) ->
+                {
+                    final SourceWatcher.Changes changes = new SourceWatcher.Changes();
+                    changes.everythingChanged = true;
+                    test.assertFalse(changes.isEmpty());
+                    test.assertEqual("Detected too many changes to list, so every file will be checked.", changes.toString());
+                });
+            });
+        });
+    }
+}
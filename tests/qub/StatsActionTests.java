@@ -0,0 +1,96 @@
+package qub;
+
+public class StatsActionTests
+{
+    private static BuildMetrics createRun(boolean succeeded, long duration, long compileDuration)
+    {
+        return new BuildMetrics(0, "build")
+            .setSucceeded(succeeded)
+            .addDuration(BuildMetrics.totalDurationName, duration)
+            .addDuration("compile-sources", compileDuration);
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(StatsAction.class, () ->
+        {
+            runner.testGroup("getPercentile(java.util.List<Long>,double)", () ->
+            {
+                runner.test("with one value", (Test test) ->
+                {
+                    test.assertEqual(7L, StatsAction.getPercentile(java.util.Arrays.asList(7L), 0));
+                    test.assertEqual(7L, StatsAction.getPercentile(java.util.Arrays.asList(7L), 50));
+                    test.assertEqual(7L, StatsAction.getPercentile(java.util.Arrays.asList(7L), 100));
+                });
+
+                runner.test("with unsorted values", (Test test) ->
+                {
+                    final java.util.List<Long> values = java.util.Arrays.asList(5L, 1L, 4L, 2L, 3L, 10L, 9L, 8L, 7L, 6L);
+                    test.assertEqual(1L, StatsAction.getPercentile(values, 0));
+                    test.assertEqual(5L, StatsAction.getPercentile(values, 50));
+                    test.assertEqual(9L, StatsAction.getPercentile(values, 90));
+                    test.assertEqual(10L, StatsAction.getPercentile(values, 99));
+                    test.assertEqual(10L, StatsAction.getPercentile(values, 100));
+                });
+            });
+
+            runner.testGroup("getBaselineRuns(java.util.List<BuildMetrics>,int)", () ->
+            {
+                runner.test("with failed runs", (Test test) ->
+                {
+                    final BuildMetrics first = createRun(true, 1000, 500);
+                    final BuildMetrics failed = createRun(false, 100, 50);
+                    final BuildMetrics second = createRun(true, 1100, 600);
+                    final BuildMetrics third = createRun(true, 1200, 700);
+                    final java.util.List<BuildMetrics> runs = java.util.Arrays.asList(first, failed, second, third);
+                    test.assertEqual(java.util.Collections.emptyList(), StatsAction.getBaselineRuns(runs, 0));
+                    test.assertEqual(java.util.Arrays.asList(first, second), StatsAction.getBaselineRuns(runs, 3));
+                });
+
+                runner.test("with more than baselineRunCount earlier runs", (Test test) ->
+                {
+                    final java.util.List<BuildMetrics> runs = new java.util.ArrayList<>();
+                    for (int i = 0; i < StatsAction.baselineRunCount + 5; ++i)
+                    {
+                        runs.add(createRun(true, 1000 + i, 500));
+                    }
+                    final java.util.List<BuildMetrics> baselineRuns = StatsAction.getBaselineRuns(runs, runs.size() - 1);
+                    test.assertEqual(StatsAction.baselineRunCount, baselineRuns.size());
+                    test.assertEqual(runs.get(4), baselineRuns.get(0));
+                    test.assertEqual(runs.get(runs.size() - 2), baselineRuns.get(baselineRuns.size() - 1));
+                });
+            });
+
+            runner.testGroup("getRegressions(BuildMetrics,java.util.List<BuildMetrics>,double)", () ->
+            {
+                final java.util.List<BuildMetrics> baselineRuns = java.util.Arrays.asList(
+                    createRun(true, 1000, 500),
+                    createRun(true, 1200, 600),
+                    createRun(true, 1100, 550));
+
+                runner.test("with too few baseline runs", (Test test) ->
+                {
+                    test.assertEqual(java.util.Collections.emptyList(), StatsAction.getRegressions(createRun(true, 5000, 4000), baselineRuns.subList(0, 2), 25));
+                });
+
+                runner.test("with growth under the threshold", (Test test) ->
+                {
+                    test.assertEqual(java.util.Collections.emptyList(), StatsAction.getRegressions(createRun(true, 1300, 600), baselineRuns, 25));
+                });
+
+                runner.test("with growth over the threshold", (Test test) ->
+                {
+                    test.assertEqual(
+                        java.util.Arrays.asList("duration +45% (1.10s to 1.60s)", "compile-sources +100% (0.55s to 1.10s)"),
+                        StatsAction.getRegressions(createRun(true, 1600, 1100), baselineRuns, 25));
+                });
+
+                runner.test("with small growth over the threshold", (Test test) ->
+                {
+                    final java.util.List<BuildMetrics> fastBaselineRuns = java.util.Arrays.asList(createRun(true, 10, 5), createRun(true, 10, 5), createRun(true, 10, 5));
+                    test.assertEqual(java.util.Collections.emptyList(), StatsAction.getRegressions(createRun(true, 100, 50), fastBaselineRuns, 25));
+                });
+            });
+        });
+    }
+}
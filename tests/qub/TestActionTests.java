@@ -0,0 +1,142 @@
+package qub;
+
+public class TestActionTests
+{
+    private static Console createConsole(InMemoryLineStream output, String... arguments)
+    {
+        final Console result = new Console(arguments);
+        result.setLineSeparator("\n");
+        result.setOutput(output);
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestAction.class, () ->
+        {
+            runner.testGroup("parseParallelism(Console)", () ->
+            {
+                final int processorCount = Runtime.getRuntime().availableProcessors();
+
+                runner.test("with no parallelism argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(processorCount, TestAction.parseParallelism(createConsole(output)));
+                    test.assertSuccess("", output.getText());
+                });
+
+                runner.test("with positive parallelism argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(3, TestAction.parseParallelism(createConsole(output, "-parallelism=3")));
+                    test.assertSuccess("", output.getText());
+                });
+
+                runner.test("with zero parallelism argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(processorCount, TestAction.parseParallelism(createConsole(output, "-parallelism=0")));
+                    test.assertSuccess("Invalid parallelism: \"0\". Using " + processorCount + " instead.\n", output.getText());
+                });
+
+                runner.test("with non-numeric parallelism argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(processorCount, TestAction.parseParallelism(createConsole(output, "-parallelism=lots")));
+                    test.assertSuccess("Invalid parallelism: \"lots\". Using " + processorCount + " instead.\n", output.getText());
+                });
+            });
+
+            runner.testGroup("parseShards(Console)", () ->
+            {
+                runner.test("with no shards argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(1, TestAction.parseShards(createConsole(output)));
+                    test.assertSuccess("", output.getText());
+                });
+
+                runner.test("with positive shards argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(4, TestAction.parseShards(createConsole(output, "-shards=4")));
+                    test.assertSuccess("", output.getText());
+                });
+
+                runner.test("with negative shards argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(1, TestAction.parseShards(createConsole(output, "-shards=-2")));
+                    test.assertSuccess("Invalid shards: \"-2\". Using 1 instead.\n", output.getText());
+                });
+            });
+
+            runner.testGroup("parseFailFast(Console)", () ->
+            {
+                runner.test("with no failFast argument", (Test test) ->
+                {
+                    test.assertFalse(TestAction.parseFailFast(createConsole(new InMemoryLineStream())));
+                });
+
+                runner.test("with failFast argument", (Test test) ->
+                {
+                    test.assertTrue(TestAction.parseFailFast(createConsole(new InMemoryLineStream(), "-failFast")));
+                });
+
+                runner.test("with failFast=false argument", (Test test) ->
+                {
+                    test.assertFalse(TestAction.parseFailFast(createConsole(new InMemoryLineStream(), "-failFast=false")));
+                });
+            });
+
+            runner.testGroup("parseTimeout(Console)", () ->
+            {
+                runner.test("with no timeout argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(0L, TestAction.parseTimeout(createConsole(output)));
+                    test.assertSuccess("", output.getText());
+                });
+
+                runner.test("with valid timeout argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(30000L, TestAction.parseTimeout(createConsole(output, "-timeout=30s")));
+                    test.assertSuccess("", output.getText());
+                });
+
+                runner.test("with invalid timeout argument", (Test test) ->
+                {
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    test.assertEqual(0L, TestAction.parseTimeout(createConsole(output, "-timeout=soon")));
+                    test.assertSuccess("Invalid timeout: \"soon\". Expected a duration such as \"500ms\", \"30s\", or \"5m\".\n", output.getText());
+                });
+            });
+
+            runner.testGroup("parseDurationMilliseconds(String)", () ->
+            {
+                final Action2<String,Long> parseTest = (String text, Long expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, TestAction.parseDurationMilliseconds(text));
+                    });
+                };
+
+                parseTest.run(null, null);
+                parseTest.run("", null);
+                parseTest.run("s", null);
+                parseTest.run("5d", null);
+                parseTest.run("-5s", null);
+                parseTest.run("1.5s", null);
+                parseTest.run("99999999999999999999", null);
+                parseTest.run("0", 0L);
+                parseTest.run("500ms", 500L);
+                parseTest.run("30", 30000L);
+                parseTest.run("30s", 30000L);
+                parseTest.run("5m", 300000L);
+                parseTest.run("2H", 7200000L);
+            });
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package qub;
+
+public class TestClassResultTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestClassResult.class, () ->
+        {
+            runner.test("constructor(String)", (Test test) ->
+            {
+                final TestClassResult result = new TestClassResult("a.ATests");
+                test.assertEqual("a.ATests", result.getTestClassName());
+                test.assertEqual(0, result.getPassedTestCount());
+                test.assertEqual(0, result.getFailedTestCount());
+                test.assertEqual(0, result.getSkippedTestCount());
+                test.assertNull(result.getErrorMessage());
+                test.assertEqual(0, result.getOutput().length);
+                test.assertTrue(result.succeeded());
+            });
+
+            runner.test("succeeded()", (Test test) ->
+            {
+                test.assertFalse(new TestClassResult("a.ATests").setTestCounts(1, 1, 0).succeeded());
+                test.assertFalse(new TestClassResult("a.ATests").setErrorMessage("oops").succeeded());
+                test.assertTrue(new TestClassResult("a.ATests").setTestCounts(1, 0, 1).succeeded());
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(TestClassResult.parse(null));
+                });
+
+                runner.test("with too few parts", (Test test) ->
+                {
+                    test.assertNull(TestClassResult.parse("a.ATests\t1\t2"));
+                });
+
+                runner.test("with non-numeric count", (Test test) ->
+                {
+                    test.assertNull(TestClassResult.parse("a.ATests\tone\t0\t0\t0\t-\t"));
+                });
+
+                runner.test("with toString() result", (Test test) ->
+                {
+                    final TestClassResult result = TestClassResult.parse(new TestClassResult("a.ATests")
+                        .setTestCounts(1, 2, 3)
+                        .setDurationMilliseconds(45)
+                        .setErrorMessage("oops\tagain")
+                        .setOutput("line 1\nline 2\n".getBytes(java.nio.charset.StandardCharsets.UTF_8))
+                        .toString());
+                    test.assertEqual("a.ATests", result.getTestClassName());
+                    test.assertEqual(1, result.getPassedTestCount());
+                    test.assertEqual(2, result.getFailedTestCount());
+                    test.assertEqual(3, result.getSkippedTestCount());
+                    test.assertEqual(45L, result.getDurationMilliseconds());
+                    test.assertEqual("oops\tagain", result.getErrorMessage());
+                    test.assertEqual("line 1\nline 2\n", new String(result.getOutput(), java.nio.charset.StandardCharsets.UTF_8));
+                });
+
+                runner.test("with no error message", (Test test) ->
+                {
+                    test.assertNull(TestClassResult.parse(new TestClassResult("a.ATests").toString()).getErrorMessage());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package qub;
+
+public class TestEventTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestEvent.class, () ->
+        {
+            runner.test("constructor(TestEventType,String)", (Test test) ->
+            {
+                final TestEvent event = new TestEvent(TestEventType.TestStarted, "a.ATests");
+                test.assertEqual(TestEventType.TestStarted, event.getType());
+                test.assertEqual("a.ATests", event.getTestClassName());
+                test.assertNull(event.getTestName());
+                test.assertEqual(0L, event.getDurationMilliseconds());
+                test.assertNull(event.getMessage());
+            });
+
+            runner.testGroup("toString()", () ->
+            {
+                runner.test("with testStarted", (Test test) ->
+                {
+                    test.assertEqual(
+                        "{\"event\":\"testStarted\",\"class\":\"a.ATests\",\"test\":\"a b\"}",
+                        new TestEvent(TestEventType.TestStarted, "a.ATests").setTestName("a b").toString());
+                });
+
+                runner.test("with testFailed", (Test test) ->
+                {
+                    test.assertEqual(
+                        "{\"event\":\"testFailed\",\"class\":\"a.ATests\",\"test\":\"a b\",\"durationMilliseconds\":12,\"message\":\"Expected: \\\"x\\\"\\nActual: \\\"y\\\"\"}",
+                        new TestEvent(TestEventType.TestFailed, "a.ATests")
+                            .setTestName("a b")
+                            .setDurationMilliseconds(12)
+                            .setMessage("Expected: \"x\"\nActual: \"y\"")
+                            .toString());
+                });
+
+                runner.test("with classFinished", (Test test) ->
+                {
+                    test.assertEqual(
+                        "{\"event\":\"classFinished\",\"class\":\"a.ATests\",\"durationMilliseconds\":100,\"passed\":1,\"failed\":2,\"skipped\":3}",
+                        new TestEvent(TestEventType.ClassFinished, "a.ATests")
+                            .setDurationMilliseconds(100)
+                            .setTestCounts(1, 2, 3)
+                            .toString());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action1<String> parseNullTest = (String text) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertNull(TestEvent.parse(text));
+                    });
+                };
+
+                parseNullTest.run(null);
+                parseNullTest.run("");
+                parseNullTest.run("{}");
+                parseNullTest.run("[]");
+                parseNullTest.run("{\"event\":\"testStarted\"}");
+                parseNullTest.run("{\"event\":\"spam\",\"class\":\"a.ATests\"}");
+                parseNullTest.run("{\"event\":\"testStarted\",\"class\":\"a.ATests\"");
+                parseNullTest.run("{\"event\":\"testStarted\",\"class\":\"a.ATests\"} extra");
+                parseNullTest.run("{\"event\":\"testStarted\",\"class\":\"a.A\\qTests\"}");
+
+                runner.test("with toString() result", (Test test) ->
+                {
+                    final TestEvent event = TestEvent.parse(new TestEvent(TestEventType.TestFailed, "a.ATests")
+                        .setTestName("a \"b\"")
+                        .setDurationMilliseconds(12)
+                        .setMessage("line 1\n\tline 2\u0001")
+                        .toString());
+                    test.assertEqual(TestEventType.TestFailed, event.getType());
+                    test.assertEqual("a.ATests", event.getTestClassName());
+                    test.assertEqual("a \"b\"", event.getTestName());
+                    test.assertEqual(12L, event.getDurationMilliseconds());
+                    test.assertEqual("line 1\n\tline 2\u0001", event.getMessage());
+                });
+
+                runner.test("with whitespace and unknown properties", (Test test) ->
+                {
+                    final TestEvent event = TestEvent.parse(" { \"event\" : \"classFinished\" , \"class\" : \"a.ATests\", \"extra\": null, \"passed\": 4 } ");
+                    test.assertEqual(TestEventType.ClassFinished, event.getType());
+                    test.assertEqual("a.ATests", event.getTestClassName());
+                    test.assertEqual(4, event.getPassedTestCount());
+                    test.assertEqual(0, event.getFailedTestCount());
+                });
+            });
+        });
+    }
+}
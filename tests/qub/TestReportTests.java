@@ -0,0 +1,103 @@
+package qub;
+
+public class TestReportTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestReport.class, () ->
+        {
+            final Function0<TestReport> createReport = () ->
+            {
+                final TestReport report = new TestReport();
+                report.add(new TestEvent(TestEventType.ClassStarted, "a.ATests"));
+                report.add(new TestEvent(TestEventType.TestStarted, "a.ATests").setTestName("a 1"));
+                report.add(new TestEvent(TestEventType.TestPassed, "a.ATests").setTestName("a 1").setDurationMilliseconds(5));
+                report.add(new TestEvent(TestEventType.TestFailed, "a.ATests").setTestName("a 2").setDurationMilliseconds(1500).setMessage("x < y"));
+                report.add(new TestEvent(TestEventType.TestSkipped, "a.ATests").setTestName("a 3"));
+                report.add(new TestEvent(TestEventType.ClassFinished, "a.ATests").setDurationMilliseconds(1510).setTestCounts(1, 1, 1));
+                report.add(new TestEvent(TestEventType.ClassFinished, "b.BTests").setDurationMilliseconds(20).setMessage("java.lang.ClassNotFoundException: b.BTests"));
+                return report;
+            };
+
+            runner.testGroup("getSlowestTests(int)", () ->
+            {
+                runner.test("with 0", (Test test) ->
+                {
+                    test.assertEqual(0, createReport.run().getSlowestTests(0).size());
+                });
+
+                runner.test("with 2", (Test test) ->
+                {
+                    final java.util.List<TestEvent> slowestTests = createReport.run().getSlowestTests(2);
+                    test.assertEqual(2, slowestTests.size());
+                    test.assertEqual("a 2", slowestTests.get(0).getTestName());
+                    test.assertEqual("a 1", slowestTests.get(1).getTestName());
+                });
+
+                runner.test("with more than the number of tests", (Test test) ->
+                {
+                    test.assertEqual(3, createReport.run().getSlowestTests(10).size());
+                });
+            });
+
+            runner.testGroup("toJUnitXml()", () ->
+            {
+                runner.test("with no events", (Test test) ->
+                {
+                    test.assertEqual(
+                        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<testsuites tests=\"0\" failures=\"0\" skipped=\"0\" errors=\"0\" time=\"0.000\">\n" +
+                        "</testsuites>\n",
+                        new TestReport().toJUnitXml());
+                });
+
+                runner.test("with events", (Test test) ->
+                {
+                    test.assertEqual(
+                        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                        "<testsuites tests=\"3\" failures=\"1\" skipped=\"1\" errors=\"1\" time=\"1.530\">\n" +
+                        "  <testsuite name=\"a.ATests\" tests=\"3\" failures=\"1\" skipped=\"1\" errors=\"0\" time=\"1.510\">\n" +
+                        "    <testcase classname=\"a.ATests\" name=\"a 1\" time=\"0.005\"/>\n" +
+                        "    <testcase classname=\"a.ATests\" name=\"a 2\" time=\"1.500\">\n" +
+                        "      <failure message=\"x &lt; y\"/>\n" +
+                        "    </testcase>\n" +
+                        "    <testcase classname=\"a.ATests\" name=\"a 3\" time=\"0.000\">\n" +
+                        "      <skipped/>\n" +
+                        "    </testcase>\n" +
+                        "  </testsuite>\n" +
+                        "  <testsuite name=\"b.BTests\" tests=\"0\" failures=\"0\" skipped=\"0\" errors=\"1\" time=\"0.020\">\n" +
+                        "    <testcase classname=\"b.BTests\" name=\"b.BTests\" time=\"0.000\">\n" +
+                        "      <error message=\"java.lang.ClassNotFoundException: b.BTests\"/>\n" +
+                        "    </testcase>\n" +
+                        "  </testsuite>\n" +
+                        "</testsuites>\n",
+                        createReport.run().toJUnitXml());
+                });
+            });
+
+            runner.testGroup("toJson()", () ->
+            {
+                runner.test("with no events", (Test test) ->
+                {
+                    test.assertEqual("{\n  \"testClasses\": []\n}\n", new TestReport().toJson());
+                });
+
+                runner.test("with events", (Test test) ->
+                {
+                    test.assertEqual(
+                        "{\n" +
+                        "  \"testClasses\": [\n" +
+                        "    {\"name\": \"a.ATests\", \"durationMilliseconds\": 1510, \"passed\": 1, \"failed\": 1, \"skipped\": 1, \"tests\": [\n" +
+                        "      {\"name\": \"a 1\", \"status\": \"passed\", \"durationMilliseconds\": 5},\n" +
+                        "      {\"name\": \"a 2\", \"status\": \"failed\", \"durationMilliseconds\": 1500, \"message\": \"x < y\"},\n" +
+                        "      {\"name\": \"a 3\", \"status\": \"skipped\", \"durationMilliseconds\": 0}\n" +
+                        "    ]},\n" +
+                        "    {\"name\": \"b.BTests\", \"durationMilliseconds\": 20, \"passed\": 0, \"failed\": 0, \"skipped\": 0, \"error\": \"java.lang.ClassNotFoundException: b.BTests\", \"tests\": []}\n" +
+                        "  ]\n" +
+                        "}\n",
+                        createReport.run().toJson());
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package qub;
+
+public class TestReportTypeTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestReportType.class, () ->
+        {
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action2<String,TestReportType> parseTest = (String text, TestReportType expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertEqual(expected, TestReportType.parse(text));
+                    });
+                };
+
+                parseTest.run(null, null);
+                parseTest.run("", null);
+                parseTest.run("xml", null);
+                parseTest.run("none", TestReportType.None);
+                parseTest.run("junit", TestReportType.JUnit);
+                parseTest.run("JUnit", TestReportType.JUnit);
+                parseTest.run("json", TestReportType.Json);
+            });
+        });
+    }
+}
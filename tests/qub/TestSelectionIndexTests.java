@@ -0,0 +1,153 @@
+package qub;
+
+public class TestSelectionIndexTests
+{
+    private static ClassFile createClass(String className, String sourceFilePath, String... referencedClassNames)
+    {
+        return new ClassFile(className, sourceFilePath, "abi", "constants", java.util.Arrays.asList(referencedClassNames));
+    }
+
+    private static ClassDependencyGraph createSourcesGraph()
+    {
+        final ClassDependencyGraph result = new ClassDependencyGraph();
+        result.addClass(createClass("a/A", "a/A.java", "java/lang/Object", "a/B"));
+        result.addClass(createClass("a/B", "a/B.java", "java/lang/Object"));
+        result.addClass(createClass("a/C", "a/C.java", "java/lang/Object"));
+        return result;
+    }
+
+    private static ClassDependencyGraph createTestsGraph()
+    {
+        final ClassDependencyGraph result = new ClassDependencyGraph();
+        result.addClass(createClass("a/ATests", "a/ATests.java", "java/lang/Object", "a/A"));
+        result.addClass(createClass("a/CTests", "a/CTests.java", "java/lang/Object"));
+        result.addClass(createClass("a/CTests$1", "a/CTests.java", "java/lang/Object", "a/C"));
+        return result;
+    }
+
+    private static java.util.List<String> select(String... changedClassNames)
+    {
+        return TestSelectionIndex.selectAffectedTestClasses(
+            java.util.Arrays.asList("a.ATests", "a.CTests", "a.NewTests"),
+            new java.util.TreeSet<>(java.util.Arrays.asList(changedClassNames)),
+            createSourcesGraph(),
+            createTestsGraph());
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestSelectionIndex.class, () ->
+        {
+            runner.test("constructor()", (Test test) ->
+            {
+                final TestSelectionIndex index = new TestSelectionIndex();
+                test.assertNull(index.getSourcesSettingsHash());
+                test.assertNull(index.getTestsSettingsHash());
+                test.assertTrue(index.getClassNames().isEmpty());
+                test.assertEqual("", index.toString());
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(TestSelectionIndex.parse(null));
+                });
+
+                runner.test("with line without hash", (Test test) ->
+                {
+                    test.assertNull(TestSelectionIndex.parse("a/A\n"));
+                });
+
+                runner.test("with toString() result", (Test test) ->
+                {
+                    final TestSelectionIndex index = new TestSelectionIndex();
+                    index.setSourcesSettingsHash("s");
+                    index.setTestsSettingsHash("t");
+                    index.setClassHash("a/B", "2");
+                    index.setClassHash("a/A", "1");
+
+                    final String text = index.toString();
+                    test.assertEqual("sourcesSettings\ts\ntestsSettings\tt\na/A\t1\na/B\t2\n", text);
+
+                    final TestSelectionIndex parsedIndex = TestSelectionIndex.parse(text);
+                    test.assertEqual("s", parsedIndex.getSourcesSettingsHash());
+                    test.assertEqual("t", parsedIndex.getTestsSettingsHash());
+                    test.assertEqual("1", parsedIndex.getClassHash("a/A"));
+                    test.assertEqual("2", parsedIndex.getClassHash("a/B"));
+                });
+            });
+
+            runner.testGroup("canSelectSince(TestSelectionIndex)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertFalse(new TestSelectionIndex().canSelectSince(null));
+                });
+
+                runner.test("with same settings", (Test test) ->
+                {
+                    final TestSelectionIndex index = new TestSelectionIndex();
+                    index.setTestsSettingsHash("t");
+                    final TestSelectionIndex previousIndex = new TestSelectionIndex();
+                    previousIndex.setTestsSettingsHash("t");
+                    test.assertTrue(index.canSelectSince(previousIndex));
+                });
+
+                runner.test("with different settings", (Test test) ->
+                {
+                    final TestSelectionIndex index = new TestSelectionIndex();
+                    index.setSourcesSettingsHash("s1");
+                    final TestSelectionIndex previousIndex = new TestSelectionIndex();
+                    previousIndex.setSourcesSettingsHash("s2");
+                    test.assertFalse(index.canSelectSince(previousIndex));
+                });
+            });
+
+            runner.test("getChangedClassNames(TestSelectionIndex)", (Test test) ->
+            {
+                final TestSelectionIndex previousIndex = new TestSelectionIndex();
+                previousIndex.setClassHash("a/Same", "1");
+                previousIndex.setClassHash("a/Changed", "1");
+                previousIndex.setClassHash("a/Removed", "1");
+
+                final TestSelectionIndex index = new TestSelectionIndex();
+                index.setClassHash("a/Same", "1");
+                index.setClassHash("a/Changed", "2");
+                index.setClassHash("a/Added", "1");
+
+                test.assertEqual(
+                    new java.util.TreeSet<>(java.util.Arrays.asList("a/Added", "a/Changed", "a/Removed")),
+                    index.getChangedClassNames(previousIndex));
+            });
+
+            runner.testGroup("selectAffectedTestClasses(Iterable<String>,Set<String>,ClassDependencyGraph,ClassDependencyGraph)", () ->
+            {
+                runner.test("with no changed classes", (Test test) ->
+                {
+                    test.assertEqual(java.util.Arrays.asList("a.NewTests"), select());
+                });
+
+                runner.test("with changed class that is referenced directly", (Test test) ->
+                {
+                    test.assertEqual(java.util.Arrays.asList("a.ATests", "a.NewTests"), select("a/A"));
+                });
+
+                runner.test("with changed class that is referenced indirectly", (Test test) ->
+                {
+                    test.assertEqual(java.util.Arrays.asList("a.ATests", "a.NewTests"), select("a/B"));
+                });
+
+                runner.test("with changed class that is referenced by a nested test class", (Test test) ->
+                {
+                    test.assertEqual(java.util.Arrays.asList("a.CTests", "a.NewTests"), select("a/C"));
+                });
+
+                runner.test("with changed test class", (Test test) ->
+                {
+                    test.assertEqual(java.util.Arrays.asList("a.CTests", "a.NewTests"), select("a/CTests"));
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package qub;
+
+public class TestTimingsTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TestTimings.class, () ->
+        {
+            runner.test("constructor()", (Test test) ->
+            {
+                final TestTimings testTimings = new TestTimings();
+                test.assertTrue(testTimings.getTestClassNames().isEmpty());
+                test.assertEqual("", testTimings.toString());
+            });
+
+            runner.test("setDurationMilliseconds(String,long)", (Test test) ->
+            {
+                final TestTimings testTimings = new TestTimings();
+                testTimings.setDurationMilliseconds("a.ATests", 5);
+                test.assertEqual(5L, testTimings.getDurationMilliseconds("a.ATests"));
+                test.assertNull(testTimings.getDurationMilliseconds("a.BTests"));
+
+                testTimings.setDurationMilliseconds("a.ATests", 7);
+                test.assertEqual(7L, testTimings.getDurationMilliseconds("a.ATests"));
+            });
+
+            runner.test("addResults(List<TestClassResult>)", (Test test) ->
+            {
+                final TestTimings testTimings = new TestTimings();
+                testTimings.addResults(java.util.Arrays.asList(
+                    new TestClassResult("a.ATests").setDurationMilliseconds(3),
+                    new TestClassResult("").setDurationMilliseconds(4)));
+                test.assertEqual("a.ATests\t3\n", testTimings.toString());
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertNull(TestTimings.parse(null));
+                });
+
+                runner.test("with empty", (Test test) ->
+                {
+                    test.assertEqual("", TestTimings.parse("").toString());
+                });
+
+                runner.test("with toString() result", (Test test) ->
+                {
+                    final TestTimings testTimings = new TestTimings();
+                    testTimings.setDurationMilliseconds("a.BTests", 20);
+                    testTimings.setDurationMilliseconds("a.ATests", 10);
+                    test.assertEqual("a.ATests\t10\na.BTests\t20\n", TestTimings.parse(testTimings.toString()).toString());
+                });
+
+                runner.test("with line without duration", (Test test) ->
+                {
+                    test.assertNull(TestTimings.parse("a.ATests\n"));
+                });
+
+                runner.test("with non-numeric duration", (Test test) ->
+                {
+                    test.assertNull(TestTimings.parse("a.ATests\tfast\n"));
+                });
+            });
+
+            runner.testGroup("createShards(Iterable<String>,int)", () ->
+            {
+                runner.test("with no test classes", (Test test) ->
+                {
+                    test.assertTrue(new TestTimings().createShards(java.util.Collections.emptyList(), 3).isEmpty());
+                });
+
+                runner.test("with one shard", (Test test) ->
+                {
+                    test.assertEqual(
+                        java.util.Arrays.asList(java.util.Arrays.asList("a.ATests", "a.BTests", "a.CTests")),
+                        new TestTimings().createShards(java.util.Arrays.asList("a.CTests", "a.ATests", "a.BTests"), 1));
+                });
+
+                runner.test("with more shards than test classes", (Test test) ->
+                {
+                    test.assertEqual(
+                        java.util.Arrays.asList(java.util.Arrays.asList("a.ATests"), java.util.Arrays.asList("a.BTests")),
+                        new TestTimings().createShards(java.util.Arrays.asList("a.ATests", "a.BTests"), 4));
+                });
+
+                runner.test("balances the recorded durations", (Test test) ->
+                {
+                    final TestTimings testTimings = new TestTimings();
+                    testTimings.setDurationMilliseconds("a.ATests", 100);
+                    testTimings.setDurationMilliseconds("a.BTests", 60);
+                    testTimings.setDurationMilliseconds("a.CTests", 50);
+                    testTimings.setDurationMilliseconds("a.DTests", 40);
+                    test.assertEqual(
+                        java.util.Arrays.asList(java.util.Arrays.asList("a.ATests", "a.DTests"), java.util.Arrays.asList("a.BTests", "a.CTests")),
+                        testTimings.createShards(java.util.Arrays.asList("a.ATests", "a.BTests", "a.CTests", "a.DTests"), 2));
+                });
+
+                runner.test("uses the average duration for test classes without timings", (Test test) ->
+                {
+                    final TestTimings testTimings = new TestTimings();
+                    testTimings.setDurationMilliseconds("a.ATests", 10);
+                    testTimings.setDurationMilliseconds("a.BTests", 30);
+                    test.assertEqual(
+                        java.util.Arrays.asList(java.util.Arrays.asList("a.BTests"), java.util.Arrays.asList("a.ATests", "a.NewTests")),
+                        testTimings.createShards(java.util.Arrays.asList("a.ATests", "a.BTests", "a.NewTests"), 2));
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package qub;
+
+public class VersionIndexTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(VersionIndex.class, () ->
+        {
+            runner.test("constructor(long,Iterable<String>)", (Test test) ->
+            {
+                final VersionIndex index = new VersionIndex(123, java.util.Arrays.asList("2", "10", "1"));
+                test.assertEqual(123L, index.getFolderLastModified());
+                test.assertEqual(java.util.Arrays.asList("1", "10", "2"), index.getVersions());
+            });
+
+            runner.testGroup("toString()", () ->
+            {
+                runner.test("with no versions", (Test test) ->
+                {
+                    test.assertEqual("folderLastModified\t-1\n", new VersionIndex(-1, java.util.Collections.emptyList()).toString());
+                });
+
+                runner.test("with versions", (Test test) ->
+                {
+                    test.assertEqual("folderLastModified\t5\n1\n2\n", new VersionIndex(5, java.util.Arrays.asList("2", "1")).toString());
+                });
+            });
+
+            runner.testGroup("parse(String)", () ->
+            {
+                final Action1<String> parseNullTest = (String text) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        test.assertNull(VersionIndex.parse(text));
+                    });
+                };
+
+                parseNullTest.run(null);
+                parseNullTest.run("");
+                parseNullTest.run("1\n2\n");
+                parseNullTest.run("folderLastModified\tyesterday\n1\n");
+
+                runner.test("with toString() result", (Test test) ->
+                {
+                    final VersionIndex index = VersionIndex.parse(new VersionIndex(42, java.util.Arrays.asList("3", "1", "2")).toString());
+                    test.assertEqual(42L, index.getFolderLastModified());
+                    test.assertEqual(java.util.Arrays.asList("1", "2", "3"), index.getVersions());
+                });
+            });
+        });
+    }
+}
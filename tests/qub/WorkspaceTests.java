@@ -0,0 +1,123 @@
+package qub;
+
+public class WorkspaceTests
+{
+    private static void createProject(InMemoryFileSystem fileSystem, String folderPath, String project, String version, String... dependencyProjects)
+    {
+        String dependencies = "";
+        for (final String dependencyProject : dependencyProjects)
+        {
+            if (!dependencies.isEmpty())
+            {
+                dependencies += ",";
+            }
+            dependencies += "{\"publisher\":\"a\",\"project\":\"" + dependencyProject + "\",\"version\":\"1\"}";
+        }
+        final String projectJson = "{\"publisher\":\"a\",\"project\":\"" + project + "\",\"version\":\"" + version + "\",\"java\":{\"dependencies\":[" + dependencies + "]}}";
+        fileSystem.setFileContent(folderPath + "/project.json", CharacterEncoding.UTF_8.encode(projectJson).getValue());
+    }
+
+    private static java.util.List<String> getKeys(java.util.List<Workspace.Project> projects)
+    {
+        java.util.List<String> result = null;
+        if (projects != null)
+        {
+            result = new java.util.ArrayList<>();
+            for (final Workspace.Project project : projects)
+            {
+                result.add(project.key);
+            }
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(Workspace.class, () ->
+        {
+            runner.testGroup("getProjectsInDependencyOrder(Console)", () ->
+            {
+                runner.test("with independent projects", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    createProject(fileSystem, "/workspace/x", "x", "1");
+                    createProject(fileSystem, "/workspace/y", "y", "1");
+                    final Console console = new Console();
+                    final Workspace workspace = Workspace.discover(fileSystem.getFolder("/workspace").getValue(), console);
+                    test.assertEqual(java.util.Arrays.asList("a/x", "a/y"), getKeys(workspace.getProjectsInDependencyOrder(console)));
+                });
+
+                runner.test("with dependent projects", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    createProject(fileSystem, "/workspace/app", "app", "1", "lib", "util");
+                    createProject(fileSystem, "/workspace/lib", "lib", "1", "util");
+                    createProject(fileSystem, "/workspace/util", "util", "1");
+                    final Console console = new Console();
+                    final Workspace workspace = Workspace.discover(fileSystem.getFolder("/workspace").getValue(), console);
+                    test.assertEqual(java.util.Arrays.asList("a/util", "a/lib", "a/app"), getKeys(workspace.getProjectsInDependencyOrder(console)));
+                });
+
+                runner.test("with dependency whose version isn't in the workspace", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    createProject(fileSystem, "/workspace/app", "app", "1", "lib");
+                    createProject(fileSystem, "/workspace/lib", "lib", "2", "app");
+                    final Console console = new Console();
+                    final Workspace workspace = Workspace.discover(fileSystem.getFolder("/workspace").getValue(), console);
+                    test.assertEqual(java.util.Arrays.asList("a/lib", "a/app"), getKeys(workspace.getProjectsInDependencyOrder(console)));
+                });
+
+                runner.test("with cycle", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    createProject(fileSystem, "/workspace/x", "x", "1", "y");
+                    createProject(fileSystem, "/workspace/y", "y", "1", "x");
+                    final Console console = new Console();
+                    console.setLineSeparator("\n");
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    console.setOutput(output);
+                    final Workspace workspace = Workspace.discover(fileSystem.getFolder("/workspace").getValue(), console);
+                    test.assertNull(workspace.getProjectsInDependencyOrder(console));
+                    test.assertSuccess("These projects depend on each other in a cycle: a/x, a/y\n", output.getText());
+                });
+            });
+
+            runner.testGroup("discover(Folder,Console)", () ->
+            {
+                runner.test("with the same project in two folders", (Test test) ->
+                {
+                    final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                    fileSystem.createRoot("/");
+                    createProject(fileSystem, "/workspace/x", "x", "1");
+                    createProject(fileSystem, "/workspace/x2", "x", "2");
+                    final Console console = new Console();
+                    console.setLineSeparator("\n");
+                    final InMemoryLineStream output = new InMemoryLineStream();
+                    console.setOutput(output);
+                    test.assertNull(Workspace.discover(fileSystem.getFolder("/workspace").getValue(), console));
+                    test.assertSuccess("Both /workspace/x and /workspace/x2 contain the project a/x.\n", output.getText());
+                });
+            });
+
+            runner.test("getDependencyClasspaths(ProjectJson,Folder,Console)", (Test test) ->
+            {
+                final InMemoryFileSystem fileSystem = new InMemoryFileSystem(test.getMainAsyncRunner());
+                fileSystem.createRoot("/");
+                createProject(fileSystem, "/workspace/app", "app", "1", "lib");
+                createProject(fileSystem, "/workspace/lib", "lib", "1", "util");
+                createProject(fileSystem, "/workspace/util", "util", "1");
+                final Console console = new Console();
+                final Workspace workspace = Workspace.discover(fileSystem.getFolder("/workspace").getValue(), console);
+                final ProjectJson app = workspace.getProjectsInDependencyOrder(console).get(2).projectJson;
+                test.assertEqual(
+                    Array.create(new String[] { "/workspace/lib/outputs/sources", "/workspace/util/outputs/sources" }),
+                    workspace.getDependencyClasspaths(app, fileSystem.getFolder("/qub").getValue(), console));
+            });
+        });
+    }
+}